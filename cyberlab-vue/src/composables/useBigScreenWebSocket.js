@@ -1,19 +1,82 @@
 import { ref, onMounted, onUnmounted } from 'vue'
 import { createBigScreenWebSocket } from '@/utils/websocket'
 
+/**
+ * 按 JSON Pointer 解析路径
+ */
+const parsePointer = (path) =>
+  path.split('/').slice(1).map(token => token.replace(/~1/g, '/').replace(/~0/g, '~'))
+
+/**
+ * 应用服务端下发的 JSON Patch（add / remove / replace）
+ */
+const applyPatch = (target, ops) => {
+  let root = target
+  for (const { op, path, value } of ops) {
+    const tokens = parsePointer(path)
+    if (tokens.length === 0) {
+      root = value
+      continue
+    }
+    let parent = root
+    for (let i = 0; i < tokens.length - 1; i++) {
+      parent = parent[tokens[i]]
+    }
+    const key = tokens[tokens.length - 1]
+    if (op === 'remove') {
+      Array.isArray(parent) ? parent.splice(Number(key), 1) : delete parent[key]
+    } else {
+      parent[key] = value
+    }
+  }
+  return root
+}
+
 /**
  * 大屏WebSocket数据推送Composable
+ * 按主题订阅（public / admin / judge / red:{战队名} / blue:{战队名}），每个主题独立维护版本：
+ * 服务端首次发送全量帧（type=full），之后只发送增量帧（type=delta, JSON Patch），
+ * 本地版本与增量帧的 baseVersion 不一致时请求该主题重新同步
  * 使用方法:
- * const { data, connected, error } = useBigScreenWebSocket()
+ * const { data, connected, error } = useBigScreenWebSocket()          // 仅 public
+ * const { data, topics } = useBigScreenWebSocket(['admin', 'public'])  // data 为第一个主题，topics[主题] 为各主题数据
  */
-export function useBigScreenWebSocket() {
+export function useBigScreenWebSocket(subscribeTopics = ['public']) {
   const data = ref(null)
+  const topics = ref({})
   const connected = ref(false)
   const error = ref(null)
   let wsClient = null
+  const versions = {}
+  const primaryTopic = subscribeTopics[0]
+
+  const setTopicData = (topic, value) => {
+    topics.value = { ...topics.value, [topic]: value }
+    if (topic === primaryTopic) {
+      data.value = value
+    }
+  }
 
   const handleMessage = (message) => {
-    data.value = message
+    const topic = message.topic || primaryTopic
+    if (message.type === 'full') {
+      setTopicData(topic, { ...message.data, timestamp: message.timestamp })
+      versions[topic] = message.version
+    } else if (message.type === 'delta') {
+      const current = topics.value[topic]
+      if (current === undefined || message.baseVersion !== versions[topic]) {
+        wsClient.send({ type: 'resync', topic })
+        return
+      }
+      const next = applyPatch(JSON.parse(JSON.stringify(current)), message.ops)
+      setTopicData(topic, { ...next, timestamp: message.timestamp })
+      versions[topic] = message.version
+    } else if (message.type === 'error') {
+      error.value = message.message
+      return
+    } else {
+      return
+    }
     error.value = null
   }
 
@@ -32,7 +95,7 @@ export function useBigScreenWebSocket() {
   }
 
   onMounted(() => {
-    wsClient = createBigScreenWebSocket(handleMessage, handleError)
+    wsClient = createBigScreenWebSocket(handleMessage, handleError, subscribeTopics)
     wsClient.options.onOpen = handleOpen
     wsClient.options.onClose = handleClose
   })
@@ -45,6 +108,7 @@ export function useBigScreenWebSocket() {
 
   return {
     data,
+    topics,
     connected,
     error
   }
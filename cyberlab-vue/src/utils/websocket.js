@@ -156,8 +156,8 @@ class WebSocketClient {
 /**
  * 创建大屏WebSocket连接
  */
-export function createBigScreenWebSocket(onMessage, onError) {
-  const ws = new WebSocketClient('/ws/big-screen', {
+export function createBigScreenWebSocket(onMessage, onError, topics = ['public']) {
+  const ws = new WebSocketClient(`/ws/big-screen?topics=${encodeURIComponent(topics.join(','))}`, {
     onMessage,
     onError,
     reconnectInterval: 3000,
@@ -22,7 +22,6 @@ import org.springframework.web.context.request.ServletRequestAttributes;
 import java.io.PrintWriter;
 import java.io.StringWriter;
 import java.time.LocalDateTime;
-import java.util.Arrays;
 import java.util.UUID;
 
 /**
@@ -44,6 +43,12 @@ public class AuditLogAspect {
     @Autowired
     private SystemLogRepository logRepository;
 
+    @Autowired
+    private LogPayloadSerializer payloadSerializer;
+
+    @Autowired
+    private SystemLogWriter logWriter;
+
     @Pointcut("@annotation(org.cyberlab.annotation.AuditLog)")
     public void auditLogPointcut() {}
 
@@ -54,14 +59,15 @@ public class AuditLogAspect {
         // 1. 获取审计注解
         MethodSignature signature = (MethodSignature) joinPoint.getSignature();
         AuditLog auditAnnotation = signature.getMethod().getAnnotation(AuditLog.class);
+        String methodKey = signature.getDeclaringType().getSimpleName() + "." + signature.getName();
 
         // 2. 获取或生成 traceId
         String traceId = getOrCreateTraceId();
 
-        // 3. 捕获操作前数据
+        // 3. 捕获操作前数据（async 模式下推迟到日志写入线程序列化）
         String beforeData = null;
-        if (auditAnnotation.captureArgs()) {
-            beforeData = serializeArgs(joinPoint.getArgs());
+        if (auditAnnotation.captureArgs() && !logWriter.isAsync()) {
+            beforeData = payloadSerializer.serializeArgs(methodKey, joinPoint.getArgs());
         }
 
         // 4. 获取请求上下文
@@ -69,29 +75,32 @@ public class AuditLogAspect {
 
         Object result = null;
         Throwable exception = null;
-        String afterData = null;
 
         try {
             // 5. 执行目标方法
             result = joinPoint.proceed();
-
-            // 6. 捕获操作后数据
-            if (auditAnnotation.captureResult() && result != null) {
-                afterData = serializeObject(result);
-            }
-
             return result;
         } catch (Throwable ex) {
             exception = ex;
             throw ex;
         } finally {
             try {
-                // 7. 计算执行时间
+                // 6. 计算执行时间
                 long executionTime = System.currentTimeMillis() - startTime;
 
-                // 8. 保存审计日志
-                saveAuditLog(joinPoint, auditAnnotation, context, traceId,
-                            beforeData, afterData, executionTime, exception);
+                // 7. 序列化操作前后数据并保存审计日志（sync 模式在当前线程执行，async 模式在日志写入线程执行）
+                String capturedBefore = beforeData;
+                Object capturedResult = auditAnnotation.captureResult() ? result : null;
+                Throwable capturedException = exception;
+                logWriter.submit(() -> {
+                    String before = capturedBefore;
+                    if (before == null && auditAnnotation.captureArgs() && logWriter.isAsync()) {
+                        before = payloadSerializer.serializeArgs(methodKey, joinPoint.getArgs());
+                    }
+                    String after = payloadSerializer.serializeObject(methodKey, capturedResult);
+                    saveAuditLog(joinPoint, auditAnnotation, context, traceId,
+                                before, after, executionTime, capturedException);
+                });
             } catch (Exception e) {
                 log.error("保存审计日志失败: {}", e.getMessage(), e);
             } finally {
@@ -273,46 +282,6 @@ public class AuditLogAspect {
         return null;
     }
 
-    /**
-     * 序列化方法参数
-     */
-    private String serializeArgs(Object[] args) {
-        if (args == null || args.length == 0) {
-            return null;
-        }
-
-        try {
-            String json = objectMapper.writeValueAsString(args);
-            // 限制长度
-            if (json.length() > 4000) {
-                return json.substring(0, 4000) + "...(已截断)";
-            }
-            return json;
-        } catch (Exception e) {
-            return "序列化参数失败: " + e.getMessage();
-        }
-    }
-
-    /**
-     * 序列化对象
-     */
-    private String serializeObject(Object obj) {
-        if (obj == null) {
-            return null;
-        }
-
-        try {
-            String json = objectMapper.writeValueAsString(obj);
-            // 限制长度
-            if (json.length() > 4000) {
-                return json.substring(0, 4000) + "...(已截断)";
-            }
-            return json;
-        } catch (Exception e) {
-            return "序列化结果失败: " + e.getMessage();
-        }
-    }
-
     /**
      * 获取或创建 TraceId
      */
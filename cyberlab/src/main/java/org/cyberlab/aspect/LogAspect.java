@@ -1,6 +1,5 @@
 package org.cyberlab.aspect;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
 import jakarta.servlet.http.HttpServletRequest;
 import org.aspectj.lang.*;
 import org.aspectj.lang.annotation.*;
@@ -18,7 +17,6 @@ import org.springframework.web.context.request.*;
 import java.io.PrintWriter;
 import java.io.StringWriter;
 import java.time.LocalDateTime;
-import java.util.Arrays;
 import java.util.UUID;
 
 /**
@@ -36,11 +34,16 @@ public class LogAspect {
 
     private static final Logger log = LoggerFactory.getLogger(LogAspect.class);
     private static final String TRACE_ID_KEY = "traceId";
-    private static final ObjectMapper objectMapper = new ObjectMapper();
 
     @Autowired
     private SystemLogRepository logRepository;
 
+    @Autowired
+    private LogPayloadSerializer payloadSerializer;
+
+    @Autowired
+    private SystemLogWriter logWriter;
+
     @Pointcut("@annotation(org.cyberlab.annotation.LogOperation)")
     public void logPointcut() {}
 
@@ -80,9 +83,11 @@ public class LogAspect {
                 // 5. 计算执行时间
                 long executionTime = System.currentTimeMillis() - startTime;
 
-                // 6. 保存增强日志
-                saveEnhancedLog(joinPoint, logAnnotation, requestInfo, traceId,
-                               executionTime, responseStatus, exception);
+                // 6. 保存增强日志（sync 模式在当前线程执行，async 模式在日志写入线程执行）
+                Integer capturedStatus = responseStatus;
+                Throwable capturedException = exception;
+                logWriter.submit(() -> saveEnhancedLog(joinPoint, logAnnotation, requestInfo, traceId,
+                               executionTime, capturedStatus, capturedException));
             } catch (Exception e) {
                 // 日志记录失败不应影响业务
                 log.error("保存日志失败: {}", e.getMessage(), e);
@@ -102,7 +107,9 @@ public class LogAspect {
         try {
             MethodSignature signature = (MethodSignature) joinPoint.getSignature();
             String methodName = signature.getDeclaringTypeName() + "." + signature.getName();
-            String params = formatMethodParams(joinPoint.getArgs());
+            String methodKey = signature.getDeclaringType().getSimpleName() + "." + signature.getName();
+            // 参数部分限制在 3000 字符内，为方法名和异常信息预留 description 的剩余长度
+            String params = payloadSerializer.formatArgs(methodKey, joinPoint.getArgs(), 3000);
 
             SystemLog systemLog = new SystemLog();
 
@@ -206,48 +213,6 @@ public class LogAspect {
         }
     }
     
-    /**
-     * 优化的参数格式化方法，避免过度创建字符串对象
-     */
-    private String formatMethodParams(Object[] args) {
-        if (args == null || args.length == 0) {
-            return "";
-        }
-        
-        StringBuilder sb = new StringBuilder();
-        sb.append("[");
-        
-        for (int i = 0; i < args.length; i++) {
-            if (i > 0) {
-                sb.append(", ");
-            }
-            
-            Object arg = args[i];
-            if (arg == null) {
-                sb.append("null");
-            } else if (arg instanceof String) {
-                String str = (String) arg;
-                // 限制字符串长度，避免日志过大
-                if (str.length() > 200) {
-                    sb.append(str.substring(0, 200)).append("...(截断)");
-                } else {
-                    sb.append("\"").append(str).append("\"");
-                }
-            } else {
-                // 其他对象类型，限制toString长度
-                String objStr = arg.toString();
-                if (objStr.length() > 100) {
-                    sb.append(objStr.substring(0, 100)).append("...(截断)");
-                } else {
-                    sb.append(objStr);
-                }
-            }
-        }
-        
-        sb.append("]");
-        return sb.toString();
-    }
-
     /**
      * 生成或获取 TraceId（分布式追踪）
      */
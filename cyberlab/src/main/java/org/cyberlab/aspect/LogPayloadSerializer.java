@@ -0,0 +1,321 @@
+package org.cyberlab.aspect;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import jakarta.servlet.ServletRequest;
+import jakarta.servlet.ServletResponse;
+import org.springframework.core.io.InputStreamSource;
+import org.springframework.stereotype.Component;
+import org.springframework.validation.Errors;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAccumulator;
+
+/**
+ * 日志载荷序列化器
+ *
+ * 供 LogAspect / AuditLogAspect 序列化方法参数与返回值：
+ * 1. 通过限长 Writer 流式输出 JSON，达到上限即中止序列化，不再先生成完整字符串再截断
+ * 2. 按类型跳过文件上传、二进制、流、Servlet 对象等参数，只记录占位描述
+ * 3. 按注解方法统计序列化耗时、截断次数和输出长度
+ */
+@Component
+public class LogPayloadSerializer {
+
+    /**
+     * 默认长度上限（与 description / before_data 等字段的截断长度一致）
+     */
+    public static final int DEFAULT_MAX_LENGTH = 4000;
+
+    private static final String TRUNCATED_SUFFIX = "...(已截断)";
+
+    private final ObjectMapper objectMapper = new ObjectMapper()
+            .findAndRegisterModules()
+            .disable(SerializationFeature.FAIL_ON_EMPTY_BEANS)
+            .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+
+    private final Map<String, SerializationStats> statsByMethod = new ConcurrentHashMap<>();
+
+    /**
+     * 序列化方法参数数组为JSON（跳过不可序列化的参数）
+     * @param methodKey 统计用的方法标识
+     */
+    public String serializeArgs(String methodKey, Object[] args) {
+        if (args == null || args.length == 0) {
+            return null;
+        }
+        Object[] safeArgs = new Object[args.length];
+        for (int i = 0; i < args.length; i++) {
+            safeArgs[i] = isSkippedType(args[i]) ? describeSkipped(args[i]) : args[i];
+        }
+        return serialize(methodKey, safeArgs, DEFAULT_MAX_LENGTH, "序列化参数失败: ");
+    }
+
+    /**
+     * 序列化单个对象为JSON
+     * @param methodKey 统计用的方法标识
+     */
+    public String serializeObject(String methodKey, Object value) {
+        if (value == null) {
+            return null;
+        }
+        Object safeValue = isSkippedType(value) ? describeSkipped(value) : value;
+        return serialize(methodKey, safeValue, DEFAULT_MAX_LENGTH, "序列化结果失败: ");
+    }
+
+    /**
+     * 以 toString 形式格式化参数列表（LogAspect 的 description 使用），总长度不超过 maxLength
+     */
+    public String formatArgs(String methodKey, Object[] args, int maxLength) {
+        if (args == null || args.length == 0) {
+            return "";
+        }
+
+        long start = System.nanoTime();
+        boolean truncated = false;
+        StringBuilder sb = new StringBuilder();
+        sb.append("[");
+
+        for (int i = 0; i < args.length; i++) {
+            if (sb.length() >= maxLength) {
+                truncated = true;
+                break;
+            }
+            if (i > 0) {
+                sb.append(", ");
+            }
+
+            Object arg = args[i];
+            if (arg == null) {
+                sb.append("null");
+            } else if (isSkippedType(arg)) {
+                sb.append(describeSkipped(arg));
+            } else if (arg instanceof String) {
+                String str = (String) arg;
+                // 限制字符串长度，避免日志过大
+                if (str.length() > 200) {
+                    sb.append(str, 0, 200).append("...(截断)");
+                } else {
+                    sb.append("\"").append(str).append("\"");
+                }
+            } else {
+                // 其他对象类型，限制toString长度
+                String objStr = String.valueOf(arg);
+                if (objStr.length() > 100) {
+                    sb.append(objStr, 0, 100).append("...(截断)");
+                } else {
+                    sb.append(objStr);
+                }
+            }
+        }
+
+        if (truncated || sb.length() > maxLength) {
+            sb.setLength(Math.min(sb.length(), maxLength));
+            sb.append(TRUNCATED_SUFFIX);
+            truncated = true;
+        } else {
+            sb.append("]");
+        }
+
+        record(methodKey, System.nanoTime() - start, sb.length(), truncated);
+        return sb.toString();
+    }
+
+    /**
+     * 获取各方法的序列化统计（按累计耗时降序）
+     */
+    public List<Map<String, Object>> getStats() {
+        List<Map<String, Object>> result = new ArrayList<>();
+        statsByMethod.forEach((method, stats) -> result.add(stats.toMap(method)));
+        result.sort((a, b) -> Long.compare((Long) b.get("totalMicros"), (Long) a.get("totalMicros")));
+        return result;
+    }
+
+    /**
+     * 重置统计
+     */
+    public void resetStats() {
+        statsByMethod.clear();
+    }
+
+    /**
+     * 是否为需要跳过序列化的类型（文件上传、二进制、流、Servlet对象、校验结果）
+     */
+    public boolean isSkippedType(Object value) {
+        if (value == null) {
+            return false;
+        }
+        if (value instanceof MultipartFile || value instanceof MultipartFile[]
+                || value instanceof byte[] || value instanceof ByteBuffer
+                || value instanceof InputStream || value instanceof OutputStream
+                || value instanceof Reader || value instanceof Writer
+                || value instanceof InputStreamSource
+                || value instanceof ServletRequest || value instanceof ServletResponse
+                || value instanceof Errors) {
+            return true;
+        }
+        if (value instanceof Collection<?>) {
+            Iterator<?> iterator = ((Collection<?>) value).iterator();
+            return iterator.hasNext() && iterator.next() instanceof MultipartFile;
+        }
+        return false;
+    }
+
+    // ========== 私有辅助方法 ==========
+
+    private String serialize(String methodKey, Object value, int maxLength, String errorPrefix) {
+        long start = System.nanoTime();
+        LimitedWriter writer = new LimitedWriter(maxLength);
+        boolean truncated = false;
+        String json;
+
+        try {
+            objectMapper.writeValue(writer, value);
+            json = writer.toString();
+        } catch (Exception e) {
+            if (isLimitReached(e)) {
+                truncated = true;
+                json = writer.toString() + TRUNCATED_SUFFIX;
+            } else {
+                json = errorPrefix + e.getMessage();
+            }
+        }
+
+        record(methodKey, System.nanoTime() - start, json.length(), truncated);
+        return json;
+    }
+
+    private boolean isLimitReached(Throwable e) {
+        Throwable current = e;
+        while (current != null) {
+            if (current instanceof LimitReachedException) {
+                return true;
+            }
+            current = current.getCause();
+        }
+        return false;
+    }
+
+    private String describeSkipped(Object value) {
+        if (value instanceof MultipartFile) {
+            MultipartFile file = (MultipartFile) value;
+            return "<MultipartFile " + file.getOriginalFilename() + ", " + file.getSize() + " bytes>";
+        }
+        if (value instanceof MultipartFile[]) {
+            return "<MultipartFile[" + ((MultipartFile[]) value).length + "]>";
+        }
+        if (value instanceof Collection<?>) {
+            return "<MultipartFile[" + ((Collection<?>) value).size() + "]>";
+        }
+        if (value instanceof byte[]) {
+            return "<byte[" + ((byte[]) value).length + "]>";
+        }
+        return "<" + value.getClass().getSimpleName() + ">";
+    }
+
+    private void record(String methodKey, long nanos, int length, boolean truncated) {
+        if (methodKey == null) {
+            return;
+        }
+        statsByMethod.computeIfAbsent(methodKey, k -> new SerializationStats())
+                .record(nanos, length, truncated);
+    }
+
+    /**
+     * 达到长度上限时抛出，用于中止 Jackson 序列化
+     */
+    private static class LimitReachedException extends IOException {
+        LimitReachedException() {
+            super("log payload length limit reached", null);
+        }
+    }
+
+    /**
+     * 限长 Writer：超过上限后保留已写入的前 maxLength 个字符并抛出异常
+     */
+    private static class LimitedWriter extends Writer {
+        private final StringBuilder buffer;
+        private final int maxLength;
+
+        LimitedWriter(int maxLength) {
+            this.maxLength = maxLength;
+            this.buffer = new StringBuilder(Math.min(maxLength, 256));
+        }
+
+        @Override
+        public void write(char[] cbuf, int off, int len) throws IOException {
+            int remaining = maxLength - buffer.length();
+            if (len > remaining) {
+                buffer.append(cbuf, off, Math.max(0, remaining));
+                throw new LimitReachedException();
+            }
+            buffer.append(cbuf, off, len);
+        }
+
+        @Override
+        public void write(String str, int off, int len) throws IOException {
+            int remaining = maxLength - buffer.length();
+            if (len > remaining) {
+                buffer.append(str, off, off + Math.max(0, remaining));
+                throw new LimitReachedException();
+            }
+            buffer.append(str, off, off + len);
+        }
+
+        @Override
+        public void flush() {
+        }
+
+        @Override
+        public void close() {
+        }
+
+        @Override
+        public String toString() {
+            return buffer.toString();
+        }
+    }
+
+    /**
+     * 单个方法的序列化统计
+     */
+    private static class SerializationStats {
+        private final AtomicLong count = new AtomicLong();
+        private final AtomicLong totalNanos = new AtomicLong();
+        private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+        private final AtomicLong totalChars = new AtomicLong();
+        private final AtomicLong truncatedCount = new AtomicLong();
+
+        void record(long nanos, int length, boolean truncated) {
+            count.incrementAndGet();
+            totalNanos.addAndGet(nanos);
+            maxNanos.accumulate(nanos);
+            totalChars.addAndGet(length);
+            if (truncated) {
+                truncatedCount.incrementAndGet();
+            }
+        }
+
+        Map<String, Object> toMap(String method) {
+            long calls = count.get();
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("method", method);
+            map.put("count", calls);
+            map.put("totalMicros", totalNanos.get() / 1000);
+            map.put("avgMicros", calls > 0 ? totalNanos.get() / calls / 1000 : 0L);
+            map.put("maxMicros", maxNanos.get() / 1000);
+            map.put("avgChars", calls > 0 ? totalChars.get() / calls : 0L);
+            map.put("truncated", truncatedCount.get());
+            return map;
+        }
+    }
+}
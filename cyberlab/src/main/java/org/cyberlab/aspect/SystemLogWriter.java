@@ -0,0 +1,96 @@
+package org.cyberlab.aspect;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 日志写入线程
+ *
+ * 捕获模式（cyberlab.log.capture.mode）：
+ * - sync（默认）：在请求线程中序列化参数/返回值并保存日志，与原有行为一致
+ * - async：请求线程只保留参数和返回值的引用，序列化与保存在独立的日志写入线程中完成，
+ *   大对象（如资产列表）不再占用请求线程。注意：若方法会修改入参，async 模式下 beforeData 反映的是修改后的值。
+ *
+ * 写入队列有界，队列满时退化为在调用线程中直接写入，避免丢日志。
+ */
+@Component
+public class SystemLogWriter {
+
+    private static final Logger log = LoggerFactory.getLogger(SystemLogWriter.class);
+
+    private final boolean async;
+    private final ThreadPoolExecutor executor;
+
+    public SystemLogWriter(@Value("${cyberlab.log.capture.mode:sync}") String mode,
+                           @Value("${cyberlab.log.capture.queue-size:10000}") int queueSize) {
+        this.async = "async".equalsIgnoreCase(mode);
+        if (async) {
+            this.executor = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+                    new LinkedBlockingQueue<>(queueSize),
+                    runnable -> {
+                        Thread thread = new Thread(runnable, "system-log-writer");
+                        thread.setDaemon(true);
+                        return thread;
+                    },
+                    new ThreadPoolExecutor.CallerRunsPolicy());
+            log.info("日志捕获模式: async（队列容量 {}）", queueSize);
+        } else {
+            this.executor = null;
+        }
+    }
+
+    /**
+     * 提交日志写入任务（async 模式在写入线程执行，sync 模式直接执行）
+     */
+    public void submit(Runnable task) {
+        if (executor == null) {
+            runSafely(task);
+            return;
+        }
+        executor.execute(() -> runSafely(task));
+    }
+
+    public boolean isAsync() {
+        return async;
+    }
+
+    /**
+     * 当前等待写入的日志数量
+     */
+    public int getPendingCount() {
+        return executor != null ? executor.getQueue().size() : 0;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (executor == null) {
+            return;
+        }
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(10, TimeUnit.SECONDS)) {
+                log.warn("日志写入线程未能在10秒内完成，剩余 {} 条日志未写入", executor.getQueue().size());
+                executor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void runSafely(Runnable task) {
+        try {
+            task.run();
+        } catch (Exception e) {
+            // 日志记录失败不应影响业务
+            log.error("写入日志失败: {}", e.getMessage(), e);
+        }
+    }
+}
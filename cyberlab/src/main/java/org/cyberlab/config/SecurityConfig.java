@@ -33,6 +33,8 @@ public class SecurityConfig {
                 .requestMatchers("/api/host-nodes/health-check/**").permitAll()
                 .requestMatchers("/api/assets/export/**").permitAll()
                 .requestMatchers("/uploads/**").permitAll()
+                // 证据文件按内容哈希寻址，与 /uploads 一样供 img/video 标签直接加载
+                .requestMatchers(HttpMethod.GET, "/api/evidence/**").permitAll()
                 // 系统设置读取接口允许所有人访问
                 .requestMatchers(HttpMethod.GET, "/api/settings").permitAll()
                 .requestMatchers("/api/settings/public").permitAll()
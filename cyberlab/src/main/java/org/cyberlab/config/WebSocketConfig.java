@@ -1,12 +1,18 @@
 package org.cyberlab.config;
 
 import org.cyberlab.websocket.BigScreenWebSocketHandler;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.web.socket.WebSocketExtension;
 import org.springframework.web.socket.config.annotation.EnableWebSocket;
 import org.springframework.web.socket.config.annotation.WebSocketConfigurer;
 import org.springframework.web.socket.config.annotation.WebSocketHandlerRegistry;
 import org.springframework.web.socket.server.standard.ServletServerContainerFactoryBean;
+import org.springframework.web.socket.server.support.DefaultHandshakeHandler;
+
+import java.util.List;
 
 @Configuration
 @EnableWebSocket
@@ -14,6 +20,12 @@ public class WebSocketConfig implements WebSocketConfigurer {
 
     private final BigScreenWebSocketHandler bigScreenWebSocketHandler;
 
+    /**
+     * 是否协商 permessage-deflate 压缩（大屏 JSON 帧压缩率高）
+     */
+    @Value("${cyberlab.websocket.compression:true}")
+    private boolean compressionEnabled;
+
     public WebSocketConfig(BigScreenWebSocketHandler bigScreenWebSocketHandler) {
         this.bigScreenWebSocketHandler = bigScreenWebSocketHandler;
     }
@@ -21,9 +33,29 @@ public class WebSocketConfig implements WebSocketConfigurer {
     @Override
     public void registerWebSocketHandlers(WebSocketHandlerRegistry registry) {
         registry.addHandler(bigScreenWebSocketHandler, "/ws/big-screen")
+                .setHandshakeHandler(compressionHandshakeHandler())
                 .setAllowedOrigins("*");
     }
 
+    /**
+     * 握手时只接受 permessage-deflate 扩展（由容器实现压缩），关闭压缩时不协商任何扩展
+     */
+    private DefaultHandshakeHandler compressionHandshakeHandler() {
+        return new DefaultHandshakeHandler() {
+            @Override
+            protected List<WebSocketExtension> filterRequestedExtensions(ServerHttpRequest request,
+                                                                         List<WebSocketExtension> requested,
+                                                                         List<WebSocketExtension> supported) {
+                if (!compressionEnabled) {
+                    return List.of();
+                }
+                return super.filterRequestedExtensions(request, requested, supported).stream()
+                        .filter(extension -> "permessage-deflate".equals(extension.getName()))
+                        .toList();
+            }
+        };
+    }
+
     @Bean
     public ServletServerContainerFactoryBean createWebSocketContainer() {
         ServletServerContainerFactoryBean container = new ServletServerContainerFactoryBean();
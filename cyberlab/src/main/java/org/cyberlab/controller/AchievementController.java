@@ -1,16 +1,27 @@
 package org.cyberlab.controller;
 
+import org.cyberlab.dto.CursorPage;
 import org.cyberlab.entity.Achievement;
 import org.cyberlab.entity.User;
 import org.cyberlab.enums.AchievementType;
+import org.cyberlab.event.DomainEvent;
 import org.cyberlab.repository.AchievementRepository;
 import org.cyberlab.repository.UserRepository;
+import org.cyberlab.service.EvidenceStoreService;
 import org.cyberlab.service.ScoringService;
+import org.cyberlab.service.TableStatisticsService;
+import org.cyberlab.service.ThumbnailService;
+import org.cyberlab.util.KeysetCursor;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.Authentication;
@@ -42,6 +53,18 @@ public class AchievementController {
     @Autowired
     private org.cyberlab.repository.TeamRepository teamRepository;
 
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private TableStatisticsService tableStatisticsService;
+
+    @Autowired
+    private EvidenceStoreService evidenceStoreService;
+
+    @Autowired
+    private ThumbnailService thumbnailService;
+
     // 文件上传基础路径（从配置文件读取）
     @Value("${file.upload.path:uploads}")
     private String uploadBasePath;
@@ -122,6 +145,8 @@ public class AchievementController {
             @RequestParam(value = "pocVideos", required = false) MultipartFile[] pocVideos,
             @RequestParam(value = "logFiles", required = false) MultipartFile[] logFiles) {
 
+        // 本次提交已登记引用的证据文件，保存失败时释放
+        List<String> storedHashes = new ArrayList<>();
         try {
             Achievement achievement = new Achievement();
             achievement.setRangeId(rangeId);
@@ -141,19 +166,19 @@ public class AchievementController {
 
             // 处理截图上传
             if (screenshots != null && screenshots.length > 0) {
-                List<String> screenshotPaths = uploadFiles(screenshots, "screenshots");
+                List<String> screenshotPaths = uploadFiles(screenshots, storedHashes);
                 achievement.setScreenshots(String.join(",", screenshotPaths));
             }
 
             // 处理证明文件上传
             if (proofFiles != null && proofFiles.length > 0) {
-                List<String> proofFilePaths = uploadFiles(proofFiles, "proofs");
+                List<String> proofFilePaths = uploadFiles(proofFiles, storedHashes);
                 achievement.setProofFiles(String.join(",", proofFilePaths));
             }
 
             // 处理POC视频上传
             if (pocVideos != null && pocVideos.length > 0) {
-                List<String> pocVideoPaths = uploadFiles(pocVideos, "poc_videos");
+                List<String> pocVideoPaths = uploadFiles(pocVideos, storedHashes);
                 // 将POC视频路径添加到证明文件中（扩展现有字段使用）
                 String existingProofs = achievement.getProofFiles() != null ? achievement.getProofFiles() : "";
                 String allProofs = existingProofs.isEmpty() ? String.join(",", pocVideoPaths) :
@@ -163,7 +188,7 @@ public class AchievementController {
 
             // 处理日志文件上传
             if (logFiles != null && logFiles.length > 0) {
-                List<String> logFilePaths = uploadFiles(logFiles, "logs");
+                List<String> logFilePaths = uploadFiles(logFiles, storedHashes);
                 // 将日志文件路径添加到证明文件中
                 String existingProofs = achievement.getProofFiles() != null ? achievement.getProofFiles() : "";
                 String allProofs = existingProofs.isEmpty() ? String.join(",", logFilePaths) :
@@ -172,21 +197,55 @@ public class AchievementController {
             }
 
             Achievement saved = achievementRepo.save(achievement);
+            // 后台生成截图缩略图，不阻塞提交
+            thumbnailService.submit(saved.getId(), saved.getScreenshots());
             return ResponseEntity.ok(Map.of("success", true, "message", "成果提交成功", "id", saved.getId()));
             
         } catch (Exception e) {
+            storedHashes.forEach(evidenceStoreService::release);
             logger.error("成果提交失败: {}", e.getMessage(), e);
             return ResponseEntity.badRequest().body(Map.of("success", false, "message", "提交失败: " + e.getMessage()));
         }
     }
 
     // ✅ 管理员获取成果列表（分页）
+    // 带 cursor 参数（首页传空值）时使用游标分页：按 (submitTime, id) 倒序定位下一页，不执行 COUNT，返回 nextCursor；
+    // withTotal=true 且未按状态过滤时附带表统计信息中的近似总数
     @GetMapping("/admin/list")
     // @PreAuthorize("hasAnyRole('admin', 'judge')") // 暂时禁用权限验证
     public ResponseEntity<Map<String, Object>> getAchievementsList(
             @RequestParam(defaultValue = "0") int page,
             @RequestParam(defaultValue = "10") int size,
-            @RequestParam(required = false) String status) {
+            @RequestParam(required = false) String status,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "false") boolean withTotal) {
+        
+        if (cursor != null) {
+            CursorPage<Achievement> cursorPage;
+            try {
+                ScrollPosition position = KeysetCursor.decode(cursor);
+                Sort sort = Sort.by(Sort.Order.desc("submitTime"), Sort.Order.desc("id"));
+                boolean filtered = status != null && !status.isEmpty();
+                Window<Achievement> window = filtered
+                        ? achievementRepo.findByStatus(status, position, Limit.of(size), sort)
+                        : achievementRepo.findAllBy(position, Limit.of(size), sort);
+                // 游标无效，或本页最后一条的 submitTime 为空（历史数据）无法生成下一页游标
+                cursorPage = CursorPage.of(window,
+                        withTotal && !filtered ? tableStatisticsService.estimateRowCount("achievements") : null);
+            } catch (IllegalArgumentException e) {
+                return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+            }
+
+            requestMissingThumbnails(cursorPage.getContent());
+
+            Map<String, Object> response = new HashMap<>();
+            response.put("content", cursorPage.getContent());
+            response.put("size", cursorPage.getSize());
+            response.put("nextCursor", cursorPage.getNextCursor());
+            response.put("hasNext", cursorPage.isHasNext());
+            response.put("approximateTotal", cursorPage.getApproximateTotal());
+            return ResponseEntity.ok(response);
+        }
         
         Pageable pageable = PageRequest.of(page, size);
         Page<Achievement> achievementPage;
@@ -197,6 +256,8 @@ public class AchievementController {
             achievementPage = achievementRepo.findAllOrderBySubmitTimeDesc(pageable);
         }
         
+        requestMissingThumbnails(achievementPage.getContent());
+
         Map<String, Object> response = new HashMap<>();
         response.put("content", achievementPage.getContent());
         response.put("totalElements", achievementPage.getTotalElements());
@@ -207,6 +268,15 @@ public class AchievementController {
         return ResponseEntity.ok(response);
     }
 
+    // 列表中缺少缩略图的成果（升级前提交、入队时队列已满）重新入队，前端在缩略图就绪前显示原图
+    private void requestMissingThumbnails(List<Achievement> achievements) {
+        for (Achievement achievement : achievements) {
+            if (achievement.getScreenshotThumbnails() == null) {
+                thumbnailService.submit(achievement.getId(), achievement.getScreenshots());
+            }
+        }
+    }
+
     // ✅ 根据队伍ID获取成果列表（分页）
     @GetMapping("/team/submissions")
     public ResponseEntity<Map<String, Object>> getTeamSubmissions(
@@ -308,6 +378,7 @@ public class AchievementController {
             String teamType = determineTeamType(achievement.getTeamName());
             try {
                 scoringService.updateTeamScore(
+                    achievement.getId(),
                     achievement.getTeamName(),
                     achievement.getRangeId(),
                     finalScore,
@@ -318,6 +389,10 @@ public class AchievementController {
                 // 不影响审批结果，继续返回成功
             }
 
+            eventPublisher.publishEvent(new DomainEvent(this, DomainEvent.Type.ACHIEVEMENT_APPROVED,
+                    achievement.getRangeId(), achievement.getTeamName(), teamType,
+                    Map.of("achievementId", id, "score", finalScore)));
+
             return ResponseEntity.ok(Map.of(
                 "success", true,
                 "message", "审批通过",
@@ -329,19 +404,9 @@ public class AchievementController {
 
     /**
      * 根据队伍名称判断队伍类型
-     * TODO: 后续应该从teams表查询，这里暂时用简单规则判断
      */
     private String determineTeamType(String teamName) {
-        if (teamName == null) {
-            return "red"; // 默认红队
-        }
-        String lowerName = teamName.toLowerCase();
-        if (lowerName.contains("红队") || lowerName.contains("red")) {
-            return "red";
-        } else if (lowerName.contains("蓝队") || lowerName.contains("blue")) {
-            return "blue";
-        }
-        return "red"; // 默认红队
+        return scoringService.determineTeamType(teamName);
     }
 
     // ✅ 管理员驳回
@@ -359,6 +424,10 @@ public class AchievementController {
             achievement.setReviewTime(LocalDateTime.now());
             achievement.setReviewerId(reviewerId);
             achievementRepo.save(achievement);
+
+            eventPublisher.publishEvent(new DomainEvent(this, DomainEvent.Type.ACHIEVEMENT_REJECTED,
+                    achievement.getRangeId(), achievement.getTeamName(), determineTeamType(achievement.getTeamName()),
+                    Map.of("achievementId", id)));
             return ResponseEntity.ok(Map.of("success", true, "message", "已驳回"));
         }
         return ResponseEntity.notFound().build();
@@ -646,34 +715,19 @@ public class AchievementController {
         }
     }
 
-    // 文件上传辅助方法
-    private List<String> uploadFiles(MultipartFile[] files, String subDir) throws IOException {
+    // 文件上传辅助方法：按内容哈希存入证据存储，相同文件只保存一份
+    private List<String> uploadFiles(MultipartFile[] files, List<String> storedHashes) throws IOException {
         List<String> filePaths = new ArrayList<>();
-        String uploadPath = getUploadDir() + subDir + "/";
-
-        // 创建目录，并检查是否成功
-        File directory = new File(uploadPath);
-        if (!directory.exists()) {
-            boolean created = directory.mkdirs();
-            if (!created) {
-                String error = "无法创建上传目录: " + uploadPath;
-                logger.error(error);
-                throw new IOException(error);
-            }
-        }
 
         for (MultipartFile file : files) {
             if (!file.isEmpty()) {
-                String fileName = System.currentTimeMillis() + "_" + file.getOriginalFilename();
-                File targetFile = new File(uploadPath + fileName);
-
                 try {
-                    file.transferTo(targetFile);
-                    // 保存相对URL路径到数据库(前端可直接访问)
-                    String relativePath = "/uploads/achievements/" + subDir + "/" + fileName;
-                    filePaths.add(relativePath);
+                    EvidenceStoreService.StoredEvidence stored = evidenceStoreService.store(file);
+                    storedHashes.add(stored.getSha256());
+                    // 保存访问URL到数据库(前端可直接访问，最后一段为原文件名)
+                    filePaths.add(stored.getUrl());
                 } catch (IOException e) {
-                    String errorMsg = "文件上传失败: " + fileName + ", " + e.getMessage();
+                    String errorMsg = "文件上传失败: " + file.getOriginalFilename() + ", " + e.getMessage();
                     logger.error(errorMsg);
                     throw new IOException(errorMsg, e);
                 }
@@ -682,4 +736,4 @@ public class AchievementController {
 
         return filePaths;
     }
-}
\ No newline at end of file
+}
@@ -9,9 +9,13 @@ import org.cyberlab.entity.HostNode;
 import org.cyberlab.entity.SystemLog;
 import org.cyberlab.repository.AssetRepository;
 import org.cyberlab.repository.SystemLogRepository;
+import org.cyberlab.service.AssetExportService;
+import org.cyberlab.service.AssetIpIndexService;
+import org.cyberlab.service.AssetProbeService;
 import org.cyberlab.service.AssetService;
 import org.cyberlab.service.TopologyService;
 import org.cyberlab.service.ContainerDiscoveryService;
+import org.cyberlab.service.ContainerImportService;
 import org.cyberlab.service.HostNodeService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
@@ -27,15 +31,22 @@ import org.springframework.security.core.context.SecurityContextHolder;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.io.PrintWriter;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
 import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.ArrayList;
 import java.util.Optional;
 import java.util.stream.Collectors;
+import java.util.zip.GZIPOutputStream;
 
 @RestController
 @RequestMapping("/api/assets")
@@ -50,12 +61,24 @@ public class AssetController {
     @Autowired
     private AssetService assetService;
 
+    @Autowired
+    private AssetExportService assetExportService;
+
+    @Autowired
+    private AssetProbeService assetProbeService;
+
+    @Autowired
+    private AssetIpIndexService assetIpIndexService;
+
     @Autowired
     private TopologyService topologyService;
     
     @Autowired
     private ContainerDiscoveryService containerDiscoveryService;
 
+    @Autowired
+    private ContainerImportService containerImportService;
+
     @Autowired
     private HostNodeService hostNodeService;
 
@@ -67,6 +90,11 @@ public class AssetController {
         return auth != null ? auth.getName() : null;
     }
 
+    private static boolean isAuthenticated() {
+        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+        return auth != null && auth.isAuthenticated() && !"anonymousUser".equals(auth.getPrincipal());
+    }
+
     @GetMapping("/{id}")
     public ResponseEntity<Map<String, Object>> getAssetById(@PathVariable Long id) {
         return assetRepository.findById(id).map(asset -> {
@@ -105,14 +133,31 @@ public class AssetController {
         return ResponseEntity.ok(assetRepository.findAll());
     }
 
+    /**
+     * 分页获取资产
+     * 带 cursor 参数（首页传空值）时使用游标分页：按 id 定位下一页，不执行 COUNT，返回 nextCursor；
+     * withTotal=true 时附带表统计信息中的近似总数
+     */
     @GetMapping("/paged")
-    public ResponseEntity<PageResponse<Asset>> getAllAssetsPaged(
+    public ResponseEntity<?> getAllAssetsPaged(
             @RequestParam(defaultValue = "0") int page,
             @RequestParam(defaultValue = "10") int size,
             @RequestParam(defaultValue = "id") String sort,
-            @RequestParam(defaultValue = "desc") String direction) {
+            @RequestParam(defaultValue = "desc") String direction,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "false") boolean withTotal) {
 
         Sort.Direction sortDirection = direction.equalsIgnoreCase("desc") ? Sort.Direction.DESC : Sort.Direction.ASC;
+        if (cursor != null) {
+            if (!"id".equals(sort)) {
+                return ResponseEntity.badRequest().body(Map.of("error", "游标分页仅支持按 id 排序"));
+            }
+            try {
+                return ResponseEntity.ok(assetService.getAssetsAfter(cursor, size, sortDirection, withTotal));
+            } catch (IllegalArgumentException e) {
+                return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+            }
+        }
         Pageable pageable = PageRequest.of(page, size, Sort.by(sortDirection, sort));
         return ResponseEntity.ok(PageResponse.of(assetService.getAllAssets(pageable)));
     }
@@ -124,7 +169,7 @@ public class AssetController {
 
     @GetMapping("/blue")
     public ResponseEntity<List<Asset>> getAssetsForBlueTeam() {
-        return ResponseEntity.ok(assetRepository.findAll());
+        return ResponseEntity.ok(assetRepository.findVisibleToBlueTeam());
     }
 
     @GetMapping("/visible/{visibility}")
@@ -272,34 +317,22 @@ public class AssetController {
     public ResponseEntity<List<Map<String, Object>>> getAssetProjects() {
         // Debug statement removed
         
-        List<Asset> allAssets = assetRepository.findAll();
-        // Debug statement removed
-        
-        // 使用Map来去重
+        // 使用Map来去重（只查询项目名称和拓扑ID）
         Map<String, String> uniqueProjects = new HashMap<>();
         
         // 收集所有有效的项目及其topologyProjectId
-        for (Asset asset : allAssets) {
-            String projectName = asset.getProject();
-            String topologyId = asset.getTopologyProjectId();
-            
-            // Debug statement removed
+        for (Object[] row : assetRepository.findDistinctProjects()) {
+            String projectName = ((String) row[0]).trim();
+            String topologyId = (String) row[1];
             
-            // 更宽松的条件检查
-            if (projectName != null && !projectName.trim().isEmpty()) {
-                if (topologyId != null && !topologyId.trim().isEmpty()) {
-                    uniqueProjects.put(projectName.trim(), topologyId.trim());
-                    // Debug statement removed
-                } else {
-                    // 即使没有拓扑ID也添加，使用项目名作为默认ID
-                    uniqueProjects.put(projectName.trim(), projectName.trim());
-                    // Debug statement removed
-                }
+            if (topologyId != null && !topologyId.trim().isEmpty()) {
+                uniqueProjects.put(projectName, topologyId.trim());
+            } else {
+                // 即使没有拓扑ID也添加，使用项目名作为默认ID
+                uniqueProjects.putIfAbsent(projectName, projectName);
             }
         }
         
-        // Debug statement removed
-        
         // 构建结果列表
         List<Map<String, Object>> result = new ArrayList<>();
         for (Map.Entry<String, String> entry : uniqueProjects.entrySet()) {
@@ -317,37 +350,49 @@ public class AssetController {
         return ResponseEntity.ok(result);
     }
 
+    /**
+     * 流式导出资产 CSV
+     * 导出链接供页面直接打开（不携带令牌），未登录时只能按原格式导出全部资产；选择其他列或过滤条件需登录
+     * @param columns 导出列（逗号分隔，默认 ID、名称、IP、企业、负责人、可见性、是否靶场、启用、备注）
+     * @param gzip 是否 gzip 压缩（文件名 assets.csv.gz）
+     */
     @GetMapping("/export")
-    public void exportAssets(HttpServletResponse response) {
+    public void exportAssets(@RequestParam(required = false) List<String> columns,
+                             @RequestParam(required = false) String company,
+                             @RequestParam(required = false) String project,
+                             @RequestParam(required = false) String assetType,
+                             @RequestParam(required = false) String visibility,
+                             @RequestParam(required = false) Boolean enabled,
+                             @RequestParam(required = false) Boolean isTarget,
+                             @RequestParam(defaultValue = "false") boolean gzip,
+                             HttpServletResponse response) throws IOException {
+        List<String> selectedColumns;
+        try {
+            selectedColumns = assetExportService.resolveColumns(columns);
+        } catch (IllegalArgumentException e) {
+            response.sendError(HttpStatus.BAD_REQUEST.value(), e.getMessage());
+            return;
+        }
+        boolean filtered = company != null || project != null || assetType != null || visibility != null
+                || enabled != null || isTarget != null;
+        if ((filtered || !selectedColumns.equals(AssetExportService.DEFAULT_COLUMNS)) && !isAuthenticated()) {
+            response.sendError(HttpStatus.UNAUTHORIZED.value(), "选择导出列或过滤条件需要登录");
+            return;
+        }
+
         try {
-            response.setContentType("text/csv; charset=UTF-8");
+            String filename = URLEncoder.encode(gzip ? "assets.csv.gz" : "assets.csv", "UTF-8");
+            response.setContentType(gzip ? "application/gzip" : "text/csv; charset=UTF-8");
             response.setCharacterEncoding("UTF-8");
-            String filename = URLEncoder.encode("assets.csv", "UTF-8");
             response.setHeader("Content-Disposition", "attachment; filename=" + filename);
 
-            // 添加 BOM 以避免 Excel 中文乱码
-            response.getOutputStream().write(0xEF);
-            response.getOutputStream().write(0xBB);
-            response.getOutputStream().write(0xBF);
-
-            PrintWriter writer = new PrintWriter(response.getOutputStream());
-            writer.println("ID,名称,IP,企业,负责人,可见性,是否靶场,启用,备注");
-
-            for (Asset asset : assetRepository.findAll()) {
-                writer.printf("%d,%s,%s,%s,%s,%s,%s,%s,%s%n",
-                        asset.getId(),
-                        asset.getName(),
-                        asset.getIp(),
-                        asset.getCompany(),
-                        asset.getOwner(),
-                        asset.getVisibility(),
-                        asset.isTarget() ? "是" : "否",
-                        asset.isEnabled() ? "启用" : "禁用",
-                        asset.getNotes().replace(",", "，")); // 避免 CSV 逗号破坏格式
+            OutputStream out = gzip ? new GZIPOutputStream(response.getOutputStream(), 8192) : response.getOutputStream();
+            try (Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 64 * 1024)) {
+                // 添加 BOM 以避免 Excel 中文乱码
+                writer.write('\uFEFF');
+                assetExportService.exportCsv(writer, selectedColumns, company, project, assetType, visibility,
+                        enabled, isTarget);
             }
-
-            writer.flush();
-            writer.close();
         } catch (Exception e) {
             throw new RuntimeException("❌ 导出资产失败", e);
         }
@@ -467,9 +512,12 @@ public class AssetController {
         return ResponseEntity.ok(statistics);
     }
 
+    /**
+     * IP 唯一性校验（excludeId 为编辑中的资产ID）
+     */
     @GetMapping("/validate-ip")
-    public ResponseEntity<Boolean> validateIp(@RequestParam String ip) {
-        return ResponseEntity.ok(assetService.isIpUnique(ip));
+    public ResponseEntity<Boolean> validateIp(@RequestParam String ip, @RequestParam(required = false) Long excludeId) {
+        return ResponseEntity.ok(assetService.isIpUnique(ip, excludeId));
     }
 
     @PostMapping("/validate")
@@ -490,9 +538,41 @@ public class AssetController {
         return ResponseEntity.ok(response);
     }
 
+    /**
+     * 按IP范围查询：支持 CIDR、地址范围（a-b）与原文模糊匹配
+     */
     @GetMapping("/ip-range")
     public ResponseEntity<List<Asset>> getAssetsByIpRange(@RequestParam String ipPattern) {
-        return ResponseEntity.ok(assetService.getAssetsByIpRange(ipPattern));
+        try {
+            return ResponseEntity.ok(assetService.getAssetsByIpRange(ipPattern));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    /**
+     * 查询网段内的资产，如 /api/assets/cidr/10.0.0.0/8、/api/assets/cidr/fd00::/64
+     * 路径中无前缀长度时按单个地址查询
+     * @param overlap 为 true 时附带与该网段重叠的资产登记（资产 IP 字段本身是包含该网段的 CIDR）
+     */
+    @GetMapping({"/cidr/{address}", "/cidr/{address}/{prefixLength}"})
+    public ResponseEntity<?> getAssetsInCidr(@PathVariable String address,
+                                             @PathVariable(required = false) Integer prefixLength,
+                                             @RequestParam(defaultValue = "false") boolean overlap) {
+        String cidr = prefixLength != null ? address + "/" + prefixLength : address;
+        try {
+            List<Asset> assets = assetService.getAssetsInCidr(cidr);
+            Map<String, Object> result = new LinkedHashMap<>();
+            result.put("cidr", cidr);
+            result.put("count", assets.size());
+            result.put("assets", assets);
+            if (overlap) {
+                result.put("overlaps", assetIpIndexService.findOverlapping(cidr));
+            }
+            return ResponseEntity.ok(result);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
     }
     
     /**
@@ -545,6 +625,7 @@ public class AssetController {
     
     /**
      * 批量导入容器为资产
+     * 请求体 async=true 时提交为后台任务，返回任务ID，通过 GET /import-containers/{jobId} 查询进度与逐行结果
      */
     @PostMapping("/import-containers")
     public ResponseEntity<?> importContainersAsAssets(@RequestBody Map<String, Object> request) {
@@ -554,58 +635,39 @@ public class AssetController {
             String project = (String) request.get("project");
             @SuppressWarnings("unchecked")
             List<Map<String, Object>> containerData = (List<Map<String, Object>>) request.get("containers");
+            if (containerData == null) {
+                return ResponseEntity.badRequest().body(Map.of("error", "容器列表不能为空"));
+            }
             
             Optional<HostNode> nodeOpt = hostNodeService.getNodeById(nodeId);
             if (nodeOpt.isEmpty()) {
                 return ResponseEntity.badRequest().body(Map.of("error", "节点不存在"));
             }
             
-            HostNode node = nodeOpt.get();
-            List<Asset> importedAssets = new ArrayList<>();
-            List<String> errors = new ArrayList<>();
-            
-            for (Map<String, Object> containerMap : containerData) {
-                try {
-                    // 构建 ContainerInfo 对象
-                    ContainerInfo container = new ContainerInfo();
-                    container.setContainerId((String) containerMap.get("containerId"));
-                    container.setName((String) containerMap.get("name"));
-                    container.setImage((String) containerMap.get("image"));
-                    container.setStatus((String) containerMap.get("status"));
-                    
-                    // 检查是否适合转换为资产
-                    if (!containerDiscoveryService.isContainerSuitableForAsset(container)) {
-                        errors.add("容器 " + container.getName() + " 不适合转换为资产");
-                        continue;
-                    }
-                    
-                    // 转换为资产并保存
-                    Asset asset = containerDiscoveryService.convertContainerToAsset(container, node, company, project);
-                    
-                    // 检查是否已存在相同名称的资产
-                    if (assetRepository.findByNameAndCompany(asset.getName(), asset.getCompany()).isPresent()) {
-                        errors.add("资产 " + asset.getName() + " 已存在");
-                        continue;
-                    }
-                    
-                    Asset savedAsset = assetRepository.save(asset);
-                    importedAssets.add(savedAsset);
-                } catch (Exception e) {
-                    errors.add("导入容器失败: " + e.getMessage());
-                }
+            if (Boolean.parseBoolean(String.valueOf(request.get("async")))) {
+                String jobId = containerImportService.submitImport(nodeOpt.get(), company, project, containerData);
+                return ResponseEntity.status(HttpStatus.ACCEPTED).body(Map.of(
+                    "jobId", jobId,
+                    "totalRequested", containerData.size()
+                ));
             }
             
-            return ResponseEntity.ok(Map.of(
-                "importedCount", importedAssets.size(),
-                "totalRequested", containerData.size(),
-                "importedAssets", importedAssets,
-                "errors", errors
-            ));
+            return ResponseEntity.ok(containerImportService.importContainers(nodeOpt.get(), company, project, containerData));
         } catch (Exception e) {
             return ResponseEntity.internalServerError().body(Map.of("error", "批量导入失败: " + e.getMessage()));
         }
     }
     
+    /**
+     * 查询后台容器导入任务的进度与逐行结果
+     */
+    @GetMapping("/import-containers/{jobId}")
+    public ResponseEntity<?> getContainerImportJob(@PathVariable String jobId) {
+        return containerImportService.getJob(jobId)
+                .<ResponseEntity<?>>map(ResponseEntity::ok)
+                .orElseGet(() -> ResponseEntity.status(HttpStatus.NOT_FOUND).body(Map.of("error", "导入任务不存在或已过期")));
+    }
+    
     /**
      * 获取所有节点的容器概览（用于容器发现界面）
      */
@@ -779,6 +841,36 @@ public class AssetController {
         }
     }
     
+    /**
+     * 后台自动探测统计
+     */
+    @GetMapping("/probe/stats")
+    public ResponseEntity<Map<String, Object>> getProbeStats() {
+        return ResponseEntity.ok(assetProbeService.getStats());
+    }
+
+    /**
+     * 资产的自动探测延迟历史
+     */
+    @GetMapping("/{id}/probe-history")
+    public ResponseEntity<?> getProbeHistory(@PathVariable Long id) {
+        return assetProbeService.getHistory(id)
+                .<ResponseEntity<?>>map(ResponseEntity::ok)
+                .orElseGet(() -> ResponseEntity.status(HttpStatus.NOT_FOUND).body(Map.of("error", "该资产不在自动探测目标中")));
+    }
+
+    /**
+     * 安排资产在下个调度周期立即探测
+     */
+    @PostMapping("/{id}/probe")
+    public ResponseEntity<?> requestProbe(@PathVariable Long id) {
+        boolean scheduled = assetProbeService.requestProbe(id);
+        return ResponseEntity.ok(Map.of(
+            "scheduled", scheduled,
+            "message", scheduled ? "已安排探测" : "该资产不在自动探测目标中（未启用或未配置IP/端口），探测目标将重新加载"
+        ));
+    }
+    
     /**
      * 测试资产主机连接
      */
@@ -901,27 +993,18 @@ public class AssetController {
     @GetMapping("/by-project/{projectId}")
     public ResponseEntity<List<Asset>> getAssetsByProject(@PathVariable String projectId) {
         try {
-            // 支持多种项目ID格式的查询
-            List<Asset> assets = assetRepository.findAll().stream()
-                .filter(asset -> {
-                    // 检查项目名称匹配
-                    if (projectId.equals(asset.getProject())) {
-                        return true;
-                    }
-                    // 检查拓扑项目ID匹配
-                    if (projectId.equals(asset.getTopologyProjectId())) {
-                        return true;
-                    }
-                    // 检查组合项目标识符匹配
-                    String combinedId = String.format("%s|%s", 
-                        asset.getCompany() != null ? asset.getCompany() : "未知企业",
-                        asset.getProject() != null ? asset.getProject() : "未分组"
-                    );
-                    return projectId.equals(combinedId);
-                })
-                .collect(Collectors.toList());
+            // 支持多种项目ID格式的查询：项目名称、拓扑项目ID
+            Map<Long, Asset> assets = new LinkedHashMap<>();
+            assetRepository.findByProjectOrTopologyProjectId(projectId).forEach(asset -> assets.put(asset.getId(), asset));
+
+            // 组合项目标识符："企业|项目"
+            int separator = projectId.indexOf('|');
+            if (separator >= 0) {
+                assetRepository.findByCompanyProjectKey(projectId.substring(0, separator), projectId.substring(separator + 1))
+                    .forEach(asset -> assets.putIfAbsent(asset.getId(), asset));
+            }
             
-            return ResponseEntity.ok(assets);
+            return ResponseEntity.ok(new ArrayList<>(assets.values()));
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
         }
@@ -933,11 +1016,7 @@ public class AssetController {
     @GetMapping("/by-node/{nodeId}")
     public ResponseEntity<List<Asset>> getAssetsByNode(@PathVariable Long nodeId) {
         try {
-            List<Asset> assets = assetRepository.findAll().stream()
-                .filter(asset -> nodeId.equals(asset.getPreferredHostNodeId()))
-                .collect(Collectors.toList());
-            
-            return ResponseEntity.ok(assets);
+            return ResponseEntity.ok(assetRepository.findByPreferredHostNodeId(nodeId));
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
         }
@@ -949,25 +1028,26 @@ public class AssetController {
     @GetMapping("/container-status")
     public ResponseEntity<Map<String, Object>> getAssetsWithContainerStatus() {
         try {
-            List<Asset> allAssets = assetRepository.findAll();
+            // 只查询需要的字段，不加载完整实体
+            List<Object[]> rows = assetRepository.findContainerStatusFields();
             Map<String, Object> result = new HashMap<>();
-            List<Map<String, Object>> assetsWithStatus = new ArrayList<>();
+            List<Map<String, Object>> assetsWithStatus = new ArrayList<>(rows.size());
             
-            for (Asset asset : allAssets) {
+            for (Object[] row : rows) {
                 Map<String, Object> assetInfo = new HashMap<>();
-                assetInfo.put("id", asset.getId());
-                assetInfo.put("name", asset.getName());
-                assetInfo.put("ip", asset.getIp());
-                assetInfo.put("company", asset.getCompany());
-                assetInfo.put("project", asset.getProject());
-                assetInfo.put("assetType", asset.getAssetType());
-                assetInfo.put("dockerImage", asset.getDockerImage());
-                assetInfo.put("preferredHostNodeId", asset.getPreferredHostNodeId());
-                assetInfo.put("preferredHostNodeName", asset.getPreferredHostNodeName());
-                assetInfo.put("deploymentStrategy", asset.getDeploymentStrategy());
+                assetInfo.put("id", row[0]);
+                assetInfo.put("name", row[1]);
+                assetInfo.put("ip", row[2]);
+                assetInfo.put("company", row[3]);
+                assetInfo.put("project", row[4]);
+                assetInfo.put("assetType", row[5]);
+                assetInfo.put("dockerImage", row[6]);
+                assetInfo.put("preferredHostNodeId", row[7]);
+                assetInfo.put("preferredHostNodeName", row[8]);
+                assetInfo.put("deploymentStrategy", row[9]);
                 
                 // 获取容器运行状态（这里可以集成DrillContainerService获取实际状态）
-                if (asset.isContainerAsset()) {
+                if ("container".equals(row[5])) {
                     // TODO: 集成实际的容器状态查询
                     assetInfo.put("containerStatus", "not_deployed");
                     assetInfo.put("runningContainers", 0);
@@ -980,7 +1060,7 @@ public class AssetController {
             }
             
             result.put("assets", assetsWithStatus);
-            result.put("total", allAssets.size());
+            result.put("total", rows.size());
             result.put("containerAssets", assetsWithStatus.stream()
                 .mapToInt(asset -> "container".equals(asset.get("assetType")) ? 1 : 0)
                 .sum());
@@ -997,28 +1077,21 @@ public class AssetController {
     @GetMapping("/node-distribution")
     public ResponseEntity<Map<String, Object>> getNodeAssetDistribution() {
         try {
-            List<Asset> allAssets = assetRepository.findAll();
             Map<String, Object> distribution = new HashMap<>();
             
-            // 按节点分组统计
-            Map<String, List<Asset>> nodeAssets = allAssets.stream()
-                .filter(asset -> asset.getPreferredHostNodeId() != null)
-                .collect(Collectors.groupingBy(asset -> 
-                    asset.getPreferredHostNodeName() != null ? 
-                    asset.getPreferredHostNodeName() : "Unknown Node"));
+            // 按节点分组统计（数据库分组计数）
+            Map<String, Integer> nodeAssets = new HashMap<>();
+            for (Object[] row : assetRepository.countGroupByPreferredHostNodeName()) {
+                String nodeName = row[0] != null ? (String) row[0] : "Unknown Node";
+                nodeAssets.merge(nodeName, ((Number) row[1]).intValue(), Integer::sum);
+            }
             
             // 统计未分配节点的资产
-            long unassignedAssets = allAssets.stream()
-                .filter(asset -> asset.getPreferredHostNodeId() == null)
-                .count();
+            long unassignedAssets = assetRepository.countByPreferredHostNodeIdIsNull();
             
-            distribution.put("nodeAssets", nodeAssets.entrySet().stream()
-                .collect(Collectors.toMap(
-                    Map.Entry::getKey,
-                    entry -> entry.getValue().size()
-                )));
+            distribution.put("nodeAssets", nodeAssets);
             distribution.put("unassignedAssets", unassignedAssets);
-            distribution.put("totalAssets", allAssets.size());
+            distribution.put("totalAssets", assetRepository.count());
             
             return ResponseEntity.ok(distribution);
         } catch (Exception e) {
@@ -1,10 +1,13 @@
 package org.cyberlab.controller;
 
+import io.jsonwebtoken.Claims;
 import org.cyberlab.dto.AuthRequest;
 import org.cyberlab.dto.AuthResponse;
 import org.cyberlab.entity.User;
 import org.cyberlab.repository.UserRepository;
+import org.cyberlab.security.AuthenticationCache;
 import org.cyberlab.security.JwtTokenProvider;
+import org.cyberlab.security.TokenRevocationService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.crypto.password.PasswordEncoder;
@@ -27,6 +30,9 @@ public class AuthController {
     @Autowired
     private PasswordEncoder passwordEncoder;  // ✅ 正确注入 Spring Security 的 PasswordEncoder
 
+    @Autowired
+    private TokenRevocationService revocationService;
+
     @PostMapping("/login")
     public ResponseEntity<?> login(@RequestBody AuthRequest request, HttpServletRequest httpRequest, HttpServletResponse httpResponse) {
         // Debug statement removed
@@ -40,6 +46,11 @@ public class AuthController {
             return ResponseEntity.status(401).body("用户名或密码错误");
         }
 
+        // 请求认证不再查询用户表，禁用用户在签发令牌时拦截
+        if (!user.isEnabled()) {
+            return ResponseEntity.status(403).body("账号已被禁用");
+        }
+
         String token = jwtProvider.generateToken(user);
         String refreshToken = jwtProvider.generateRefreshToken(user);
         // Debug statement removed
@@ -89,12 +100,19 @@ public class AuthController {
         }
         
         // 验证刷新令牌
-        if (!jwtProvider.validateRefreshToken(refreshToken)) {
+        Claims claims = jwtProvider.getClaimsIfValid(refreshToken);
+        if (claims == null || !"refresh".equals(claims.get("type", String.class))) {
             return ResponseEntity.status(401).body("刷新令牌无效或已过期");
         }
         
+        // 检查令牌版本与注销状态（用户被禁用/修改角色/登出后刷新令牌同样失效）
+        AuthenticationCache.CachedPrincipal principal = AuthenticationCache.CachedPrincipal.fromClaims(claims);
+        if (!revocationService.isAllowed(principal)) {
+            return ResponseEntity.status(401).body("刷新令牌已失效，请重新登录");
+        }
+        
         // 获取用户名
-        String username = jwtProvider.getUsernameFromRefreshToken(refreshToken);
+        String username = principal.getUsername();
         if (username == null) {
             return ResponseEntity.status(401).body("无法从刷新令牌获取用户信息");
         }
@@ -104,6 +122,12 @@ public class AuthController {
         if (user == null) {
             return ResponseEntity.status(401).body("用户不存在");
         }
+        if (!user.isEnabled()) {
+            return ResponseEntity.status(403).body("账号已被禁用");
+        }
+        
+        // 刷新令牌轮换：旧刷新令牌立即注销，防止重复使用
+        revocationService.revokeToken(principal.getJti(), principal.getExpiresAt());
         
         // 生成新的访问令牌和刷新令牌
         String newToken = jwtProvider.generateToken(user);
@@ -126,4 +150,48 @@ public class AuthController {
 
         return ResponseEntity.ok(new AuthResponse(newToken, newRefreshToken, user.getUsername(), user.getRole(), user.getId()));
     }
+
+    @PostMapping("/logout")
+    public ResponseEntity<?> logout(@RequestHeader(value = "Authorization", required = false) String authHeader,
+                                    HttpServletRequest httpRequest, HttpServletResponse httpResponse) {
+        String accessToken = null;
+        String refreshToken = null;
+
+        if (authHeader != null && authHeader.startsWith("Bearer ")) {
+            accessToken = authHeader.substring(7).trim();
+        }
+        Cookie[] cookies = httpRequest.getCookies();
+        if (cookies != null) {
+            for (Cookie cookie : cookies) {
+                if ("accessToken".equals(cookie.getName()) && accessToken == null) {
+                    accessToken = cookie.getValue();
+                } else if ("refreshToken".equals(cookie.getName())) {
+                    refreshToken = cookie.getValue();
+                }
+            }
+        }
+
+        // 注销当前访问令牌和刷新令牌（所有实例立即生效）
+        for (String token : new String[]{accessToken, refreshToken}) {
+            if (token == null || token.isEmpty()) {
+                continue;
+            }
+            Claims claims = jwtProvider.getClaimsIfValid(token);
+            if (claims != null) {
+                revocationService.revokeToken(claims.getId(), claims.getExpiration().getTime());
+            }
+        }
+
+        // 清除Cookie
+        for (String name : new String[]{"accessToken", "refreshToken"}) {
+            Cookie cookie = new Cookie(name, "");
+            cookie.setHttpOnly(true);
+            cookie.setSecure(true);
+            cookie.setPath("/");
+            cookie.setMaxAge(0);
+            httpResponse.addCookie(cookie);
+        }
+
+        return ResponseEntity.ok("已退出登录");
+    }
 }
\ No newline at end of file
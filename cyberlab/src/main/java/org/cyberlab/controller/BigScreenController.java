@@ -1,8 +1,11 @@
 package org.cyberlab.controller;
 
 import org.cyberlab.entity.ContainerInfo;
+import org.cyberlab.service.AssetProbeService;
+import org.cyberlab.service.AttackTrendService;
 import org.cyberlab.service.BigScreenService;
 import org.cyberlab.service.DockerService;
+import org.cyberlab.websocket.BigScreenWebSocketHandler;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
@@ -25,6 +28,15 @@ public class BigScreenController {
     @Autowired
     private DockerService dockerService;
 
+    @Autowired
+    private BigScreenWebSocketHandler bigScreenWebSocketHandler;
+
+    @Autowired
+    private AttackTrendService attackTrendService;
+
+    @Autowired
+    private AssetProbeService assetProbeService;
+
     /**
      * 获取大屏展示数据 - 根据用户角色返回不同数据
      */
@@ -114,19 +126,51 @@ public class BigScreenController {
         }
     }
 
+    /**
+     * 获取大屏 WebSocket 推送统计（连接数、积压、合并/丢弃帧数、慢消费者断开数）
+     */
+    @GetMapping("/ws-stats")
+    @PreAuthorize("hasRole('admin')")
+    public ResponseEntity<Map<String, Object>> getWebSocketStats() {
+        return ResponseEntity.ok(bigScreenWebSocketHandler.getStats());
+    }
+
+    /**
+     * 获取实时事件流（成果审批、得分、容器状态、演练启停）
+     */
+    @GetMapping("/events")
+    public ResponseEntity<Map<String, Object>> getLiveEvents() {
+        Map<String, Object> result = new HashMap<>(bigScreenService.getEventPushStats());
+        result.put("events", bigScreenService.getLiveEvents());
+        return ResponseEntity.ok(result);
+    }
+
     /**
      * 获取攻击趋势数据
+     * @param hours 按小时统计的小时数
+     * @param minutes 指定时按分钟统计最近若干分钟（最长 7 天）
      */
     @GetMapping("/trend")
-    public ResponseEntity<Object> getAttackTrend(@RequestParam(defaultValue = "24") int hours) {
+    public ResponseEntity<Object> getAttackTrend(@RequestParam(defaultValue = "24") int hours,
+                                                 @RequestParam(required = false) Integer minutes) {
         try {
-            Object trendData = bigScreenService.getAttackTrend(hours);
+            Object trendData = minutes != null && attackTrendService.isWarmed()
+                    ? attackTrendService.getMinuteTrend(minutes)
+                    : bigScreenService.getAttackTrend(hours);
             return ResponseEntity.ok(trendData);
         } catch (Exception e) {
             return ResponseEntity.internalServerError().build();
         }
     }
     
+    /**
+     * 获取资产探测延迟（可达数、平均延迟、各资产最近的延迟序列，失败的资产优先）
+     */
+    @GetMapping("/probe-latency")
+    public ResponseEntity<Map<String, Object>> getProbeLatency(@RequestParam(defaultValue = "20") int limit) {
+        return ResponseEntity.ok(assetProbeService.getLatencyOverview(Math.min(limit, 200)));
+    }
+    
     /**
      * 获取容器状态信息 - 用于大屏展示
      */
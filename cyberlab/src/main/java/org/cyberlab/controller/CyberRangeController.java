@@ -2,9 +2,11 @@ package org.cyberlab.controller;
 
 import org.cyberlab.dto.TopologyData;
 import org.cyberlab.entity.CyberRange;
+import org.cyberlab.event.DomainEvent;
 import org.cyberlab.repository.CyberRangeRepository;
 import org.cyberlab.service.TopologyService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
@@ -25,6 +27,9 @@ public class CyberRangeController {
     @Autowired
     private TopologyService topologyService;
 
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
     // ✅ 获取所有演练
     @GetMapping
     public List<CyberRange> getAllRanges() {
@@ -203,7 +208,9 @@ public class CyberRangeController {
             CyberRange range = optional.get();
             range.setStatus("running");
             range.setUpdatedAt(LocalDateTime.now());
-            return rangeRepo.save(range);
+            CyberRange saved = rangeRepo.save(range);
+            publishRangeEvent(DomainEvent.Type.RANGE_STARTED, saved);
+            return saved;
         }
         throw new RuntimeException("未找到对应的演练 ID: " + id);
     }
@@ -216,11 +223,18 @@ public class CyberRangeController {
             CyberRange range = optional.get();
             range.setStatus("stopped");
             range.setUpdatedAt(LocalDateTime.now());
-            return rangeRepo.save(range);
+            CyberRange saved = rangeRepo.save(range);
+            publishRangeEvent(DomainEvent.Type.RANGE_STOPPED, saved);
+            return saved;
         }
         throw new RuntimeException("未找到对应的演练 ID: " + id);
     }
 
+    private void publishRangeEvent(DomainEvent.Type type, CyberRange range) {
+        eventPublisher.publishEvent(new DomainEvent(this, type, range.getId(), null, null,
+                Map.of("status", range.getStatus())));
+    }
+
     // ✅ 删除演练
     @DeleteMapping("/delete/{id}")
     public void delete(@PathVariable Long id) {
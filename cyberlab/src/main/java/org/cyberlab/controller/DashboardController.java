@@ -51,6 +51,12 @@ public class DashboardController {
     @Autowired
     private CyberRangeRepository cyberRangeRepository;
 
+    @Autowired
+    private StatisticsService statisticsService;
+
+    @Autowired
+    private AttackTrendService attackTrendService;
+
     // 简单的内存缓存，用于减少数据库查询
     private final Map<String, Object> cache = new ConcurrentHashMap<>();
     private final Map<String, Long> cacheTimestamps = new ConcurrentHashMap<>();
@@ -96,23 +102,21 @@ public class DashboardController {
         AdminDashboardData data = new AdminDashboardData();
 
         // 用户统计
-        List<User> allUsers = userRepository.findAll();
-        data.setTotalUsers(allUsers.size());
-        data.setActiveUsers((int) allUsers.stream().filter(User::isEnabled).count());
-        data.setRedTeamCount((int) allUsers.stream().filter(u -> "red".equals(u.getRole())).count());
-        data.setBlueTeamCount((int) allUsers.stream().filter(u -> "blue".equals(u.getRole())).count());
+        Map<String, Long> usersByRole = statisticsService.countUsersByRole();
+        data.setTotalUsers((int) statisticsService.countUsers());
+        data.setActiveUsers((int) statisticsService.countEnabledUsers());
+        data.setRedTeamCount(usersByRole.getOrDefault("red", 0L).intValue());
+        data.setBlueTeamCount(usersByRole.getOrDefault("blue", 0L).intValue());
 
         // 资产统计
-        List<Asset> allAssets = assetRepository.findAll();
-        data.setTotalAssets(allAssets.size());
-        data.setActiveAssets((int) allAssets.stream().filter(Asset::isEnabled).count());
-        data.setTargetAssets((int) allAssets.stream().filter(Asset::isTarget).count());
+        data.setTotalAssets((int) statisticsService.countAssets());
+        data.setActiveAssets((int) statisticsService.countEnabledAssets());
+        data.setTargetAssets((int) statisticsService.countTargetAssets());
 
         // 成就统计
-        List<Achievement> allAchievements = achievementRepository.findAll();
-        data.setTotalAchievements(allAchievements.size());
-        data.setPendingAchievements((int) allAchievements.stream().filter(a -> "pending".equals(a.getStatus())).count());
-        data.setApprovedAchievements((int) allAchievements.stream().filter(a -> "approved".equals(a.getStatus())).count());
+        data.setTotalAchievements((int) statisticsService.countAchievements());
+        data.setPendingAchievements((int) statisticsService.countAchievementsByStatus("pending"));
+        data.setApprovedAchievements((int) statisticsService.countAchievementsByStatus("approved"));
 
         // 系统状态
         data.setSystemStatus("正常");
@@ -136,50 +140,35 @@ public class DashboardController {
         Map<String, Object> stats = new HashMap<>();
 
         try {
-            logger.info("[DEBUG] 开始查询用户数据...");
-            // 用户统计
-            List<User> allUsers = userRepository.findAll();
-            logger.info("[DEBUG] 用户查询完成，数量: {}", allUsers.size());
-            logger.info("Users query completed: total={}", allUsers.size());
-            stats.put("totalUsers", allUsers.size());
-            stats.put("activeUsers", (int) allUsers.stream().filter(User::isEnabled).count());
+            // 用户统计（来自统计计数服务，不加载整表）
+            long totalUsers = statisticsService.countUsers();
+            logger.info("Users query completed: total={}", totalUsers);
+            stats.put("totalUsers", (int) totalUsers);
+            stats.put("activeUsers", (int) statisticsService.countEnabledUsers());
             // 增强红蓝队统计：使用模糊匹配兼容"red"/"redteam"/"红队"等多种role值
-            int redTeamCount = (int) allUsers.stream()
-                .filter(u -> u.getRole() != null && u.getRole().toLowerCase().contains("red"))
-                .count();
-            int blueTeamCount = (int) allUsers.stream()
-                .filter(u -> u.getRole() != null && u.getRole().toLowerCase().contains("blue"))
-                .count();
+            int redTeamCount = (int) statisticsService.countUsersByRoleContaining("red");
+            int blueTeamCount = (int) statisticsService.countUsersByRoleContaining("blue");
             stats.put("redTeamCount", redTeamCount);
             stats.put("blueTeamCount", blueTeamCount);
             logger.info("User stats: redTeam={}, blueTeam={}, roles={}",
-                redTeamCount, blueTeamCount,
-                allUsers.stream().map(User::getRole).collect(Collectors.toList()));
+                redTeamCount, blueTeamCount, statisticsService.countUsersByRole());
 
             // 资产统计
-            List<Asset> allAssets = assetRepository.findAll();
-            stats.put("totalAssets", allAssets.size());
-            stats.put("activeAssets", (int) allAssets.stream().filter(Asset::isEnabled).count());
-            stats.put("targetAssets", (int) allAssets.stream().filter(Asset::isTarget).count());
+            stats.put("totalAssets", (int) statisticsService.countAssets());
+            stats.put("activeAssets", (int) statisticsService.countEnabledAssets());
+            stats.put("targetAssets", (int) statisticsService.countTargetAssets());
 
             // 成就统计（用作演练统计）
-            List<Achievement> allAchievements = achievementRepository.findAll();
-            stats.put("totalAchievements", allAchievements.size());
+            stats.put("totalAchievements", (int) statisticsService.countAchievements());
 
             // 统计运行中的演练数量（从cyber_range表查询演练项目）
             logger.info("=== [DEBUG] 开始查询 CyberRange 统计数据 ===");
 
-            long totalDrillCount = cyberRangeRepository.count();
-            logger.info("[DEBUG] cyberRangeRepository.count() 返回: {}", totalDrillCount);
-
-            long runningDrillCount = cyberRangeRepository.countByStatus("running");
-            logger.info("[DEBUG] cyberRangeRepository.countByStatus('running') 返回: {}", runningDrillCount);
-
-            long pausedCount = cyberRangeRepository.countByStatus("paused");
-            logger.info("[DEBUG] cyberRangeRepository.countByStatus('paused') 返回: {}", pausedCount);
-
-            long deletedCount = cyberRangeRepository.countByStatus("deleted");
-            logger.info("[DEBUG] cyberRangeRepository.countByStatus('deleted') 返回: {}", deletedCount);
+            Map<String, Long> rangesByStatus = statisticsService.countRangesByStatus();
+            long totalDrillCount = statisticsService.countRanges();
+            long runningDrillCount = rangesByStatus.getOrDefault("running", 0L);
+            long pausedCount = rangesByStatus.getOrDefault("paused", 0L);
+            long deletedCount = rangesByStatus.getOrDefault("deleted", 0L);
 
             stats.put("runningDrills", runningDrillCount);
             logger.info("[DEBUG] stats.put('runningDrills', {})", runningDrillCount);
@@ -191,20 +180,9 @@ public class DashboardController {
             logger.info("Paused ranges: {}", pausedCount);
             logger.info("Deleted ranges: {}", deletedCount);
 
-            // 无论是否为0，都输出所有记录的详细信息用于调试
-            List<CyberRange> allRanges = cyberRangeRepository.findAll();
-            logger.info("[DEBUG] 查询到的所有 CyberRange 记录数: {}", allRanges.size());
-            if (!allRanges.isEmpty()) {
-                logger.info("[DEBUG] CyberRange 详细列表:");
-                for (CyberRange range : allRanges) {
-                    logger.info("  - ID: {}, Name: '{}', Status: '{}', DrillType: '{}', CreatedAt: {}",
-                        range.getId(),
-                        range.getName(),
-                        range.getStatus(),
-                        range.getDrillType(),
-                        range.getCreatedAt());
-                }
-            } else {
+            // 输出各状态分布用于调试（不再逐条加载演练记录）
+            logger.debug("CyberRange status distribution: {}", rangesByStatus);
+            if (totalDrillCount == 0) {
                 logger.warn("[DEBUG] cyber_range 表为空！DataInitializer 可能没有执行");
             }
 
@@ -218,14 +196,14 @@ public class DashboardController {
             // 从数据库统计失败容器数量（不调用Docker API）
             logger.info("[DEBUG] 开始查询数据库统计失败容器数量...");
             long dbQueryStartTime = System.currentTimeMillis();
-            long failedCount = drillContainerRepository.countByStatus("failed");
+            long failedCount = statisticsService.countDrillContainersByStatus().getOrDefault("failed", 0L);
             long dbQueryEndTime = System.currentTimeMillis();
             long dbQueryDuration = dbQueryEndTime - dbQueryStartTime;
             logger.info("数据库查询完成: 耗时 {}ms, 失败容器数={}", dbQueryDuration, failedCount);
             stats.put("systemAlerts", failedCount);
 
-            stats.put("pendingAchievements", (int) allAchievements.stream().filter(a -> "pending".equals(a.getStatus())).count());
-            stats.put("approvedAchievements", (int) allAchievements.stream().filter(a -> "approved".equals(a.getStatus())).count());
+            stats.put("pendingAchievements", (int) statisticsService.countAchievementsByStatus("pending"));
+            stats.put("approvedAchievements", (int) statisticsService.countAchievementsByStatus("approved"));
 
             // 系统状态
             stats.put("systemStatus", "正常");
@@ -319,8 +297,13 @@ public class DashboardController {
             @RequestParam(defaultValue = "7") int days) {
         Map<String, Object> trendData = new HashMap<>();
 
+        // 趋势数据来自内存直方图，最长 7 天
+        days = Math.max(1, Math.min(days, AttackTrendService.MAX_WINDOW_MINUTES / (24 * 60)));
+
         try {
-            List<Achievement> allAchievements = achievementRepository.findAll();
+            if (!attackTrendService.isWarmed()) {
+                throw new IllegalStateException("攻击趋势直方图未预热");
+            }
             LocalDateTime now = LocalDateTime.now();
 
             List<String> timeLabels = new ArrayList<>();
@@ -337,20 +320,9 @@ public class DashboardController {
                     timeLabels.add(hourLabel);
 
                     // 统计该小时内的红队和蓝队提交
-                    long redCount = allAchievements.stream()
-                        .filter(a -> a.getSubmitTime() != null)
-                        .filter(a -> !a.getSubmitTime().isBefore(hourStart) && a.getSubmitTime().isBefore(hourEnd))
-                        .filter(a -> a.getTeamName() != null && a.getTeamName().toLowerCase().contains("red"))
-                        .count();
-
-                    long blueCount = allAchievements.stream()
-                        .filter(a -> a.getSubmitTime() != null)
-                        .filter(a -> !a.getSubmitTime().isBefore(hourStart) && a.getSubmitTime().isBefore(hourEnd))
-                        .filter(a -> a.getTeamName() != null && a.getTeamName().toLowerCase().contains("blue"))
-                        .count();
-
-                    redTeamData.add((int) redCount);
-                    blueTeamData.add((int) blueCount);
+                    long[] counts = attackTrendService.countTeamSubmissions(hourStart, hourEnd);
+                    redTeamData.add((int) counts[0]);
+                    blueTeamData.add((int) counts[1]);
                 }
             } else {
                 // 3天/7天：按天统计（days 个数据点）
@@ -361,20 +333,9 @@ public class DashboardController {
                     timeLabels.add(dayLabel);
 
                     // 统计该天内的红队和蓝队提交
-                    long redCount = allAchievements.stream()
-                        .filter(a -> a.getSubmitTime() != null)
-                        .filter(a -> !a.getSubmitTime().isBefore(dayStart) && a.getSubmitTime().isBefore(dayEnd))
-                        .filter(a -> a.getTeamName() != null && a.getTeamName().toLowerCase().contains("red"))
-                        .count();
-
-                    long blueCount = allAchievements.stream()
-                        .filter(a -> a.getSubmitTime() != null)
-                        .filter(a -> !a.getSubmitTime().isBefore(dayStart) && a.getSubmitTime().isBefore(dayEnd))
-                        .filter(a -> a.getTeamName() != null && a.getTeamName().toLowerCase().contains("blue"))
-                        .count();
-
-                    redTeamData.add((int) redCount);
-                    blueTeamData.add((int) blueCount);
+                    long[] counts = attackTrendService.countTeamSubmissions(dayStart, dayEnd);
+                    redTeamData.add((int) counts[0]);
+                    blueTeamData.add((int) counts[1]);
                 }
             }
 
@@ -431,34 +392,31 @@ public class DashboardController {
         Map<String, Object> resourceData = new HashMap<>();
 
         try {
-            List<Asset> allAssets = assetRepository.findAll();
+            long totalAssets = statisticsService.countAssets();
 
             // 统计不同类型的资产数量
-            long targetAssets = allAssets.stream().filter(Asset::isTarget).count();
-            long containerAssets = allAssets.stream()
-                .filter(a -> a.getAssetType() != null && a.getAssetType().toLowerCase().contains("container"))
-                .count();
-            long networkAssets = allAssets.stream()
-                .filter(a -> a.getAssetType() != null && a.getAssetType().toLowerCase().contains("network"))
-                .count();
-            long storageAssets = allAssets.size() - targetAssets - containerAssets - networkAssets;
-            if (storageAssets < 0) storageAssets = Math.max(allAssets.size() / 5, 1);
+            long targetAssets = statisticsService.countTargetAssets();
+            long containerAssets = statisticsService.countAssetsByTypeContaining("container");
+            long networkAssets = statisticsService.countAssetsByTypeContaining("network");
+            long storageAssets = totalAssets - targetAssets - containerAssets - networkAssets;
+            if (storageAssets < 0) storageAssets = Math.max(totalAssets / 5, 1);
 
             // ✅ 修复：如果 Asset 表为空，使用实际存在的资源数据
-            if (allAssets.isEmpty()) {
+            if (totalAssets == 0) {
                 logger.info("Asset 表为空，使用实际资源数据");
 
                 // 使用演练容器数作为靶机资源
-                targetAssets = drillContainerRepository.count();
+                targetAssets = statisticsService.countDrillContainers();
 
                 // 使用网络空间数作为容器资源
-                containerAssets = cyberRangeRepository.count();
+                containerAssets = statisticsService.countRanges();
 
                 // 使用红队+蓝队数作为网络资源
-                networkAssets = userRepository.countByRole("red") + userRepository.countByRole("blue");
+                Map<String, Long> usersByRole = statisticsService.countUsersByRole();
+                networkAssets = usersByRole.getOrDefault("red", 0L) + usersByRole.getOrDefault("blue", 0L);
 
                 // 使用成就数作为存储资源
-                storageAssets = Math.max(achievementRepository.count() / 10, 5);
+                storageAssets = Math.max(statisticsService.countAchievements() / 10, 5);
 
                 logger.info("实际资源统计 - 演练容器: {}, 网络空间: {}, 用户: {}, 成就: {}",
                     targetAssets, containerAssets, networkAssets, storageAssets);
@@ -504,33 +462,25 @@ public class DashboardController {
         RefereeDashboardData data = new RefereeDashboardData();
         
         // 演练统计
-        List<Achievement> allAchievements = achievementRepository.findAll();
-        data.setTotalSubmissions(allAchievements.size());
-        data.setPendingReviews((int) allAchievements.stream().filter(a -> "pending".equals(a.getStatus())).count());
-        data.setApprovedCount((int) allAchievements.stream().filter(a -> "approved".equals(a.getStatus())).count());
-        data.setRejectedCount((int) allAchievements.stream().filter(a -> "rejected".equals(a.getStatus())).count());
+        long totalSubmissions = statisticsService.countAchievements();
+        data.setTotalSubmissions((int) totalSubmissions);
+        data.setPendingReviews((int) statisticsService.countAchievementsByStatus("pending"));
+        data.setApprovedCount((int) statisticsService.countAchievementsByStatus("approved"));
+        data.setRejectedCount((int) statisticsService.countAchievementsByStatus("rejected"));
         
         // 成功率统计
-        if (allAchievements.size() > 0) {
-            double successRate = (double) data.getApprovedCount() / allAchievements.size() * 100;
+        if (totalSubmissions > 0) {
+            double successRate = (double) data.getApprovedCount() / totalSubmissions * 100;
             data.setSuccessRate(Math.round(successRate * 100.0) / 100.0);
         } else {
             data.setSuccessRate(0.0);
         }
         
         // 团队表现
-        Map<String, Long> teamPerformance = allAchievements.stream()
-            .filter(a -> "approved".equals(a.getStatus()))
-            .collect(Collectors.groupingBy(Achievement::getTeamName, Collectors.counting()));
-        data.setTeamPerformance(teamPerformance);
+        data.setTeamPerformance(statisticsService.countApprovedByTeam());
         
         // 待审核列表
-        List<Achievement> pendingList = allAchievements.stream()
-            .filter(a -> "pending".equals(a.getStatus()))
-            .sorted((a, b) -> b.getSubmitTime().compareTo(a.getSubmitTime()))
-            .limit(10)
-            .collect(Collectors.toList());
-        data.setPendingList(pendingList);
+        data.setPendingList(achievementRepository.findTop10ByStatusOrderBySubmitTimeDesc("pending"));
         
         return ResponseEntity.ok(data);
     }
@@ -547,25 +497,21 @@ public class DashboardController {
         data.setTargetAssets((int) blueAssets.stream().filter(Asset::isTarget).count());
         
         // 攻击统计
-        List<Achievement> attacks = achievementRepository.findAll();
-        data.setTotalAttacks(attacks.size());
-        data.setBlockedAttacks((int) attacks.stream().filter(a -> "rejected".equals(a.getStatus())).count());
-        data.setSuccessfulAttacks((int) attacks.stream().filter(a -> "approved".equals(a.getStatus())).count());
+        long totalAttacks = statisticsService.countAchievements();
+        data.setTotalAttacks((int) totalAttacks);
+        data.setBlockedAttacks((int) statisticsService.countAchievementsByStatus("rejected"));
+        data.setSuccessfulAttacks((int) statisticsService.countAchievementsByStatus("approved"));
         
         // 防护成功率
-        if (attacks.size() > 0) {
-            double defenseRate = (double) data.getBlockedAttacks() / attacks.size() * 100;
+        if (totalAttacks > 0) {
+            double defenseRate = (double) data.getBlockedAttacks() / totalAttacks * 100;
             data.setDefenseSuccessRate(Math.round(defenseRate * 100.0) / 100.0);
         } else {
             data.setDefenseSuccessRate(100.0);
         }
         
         // 最近攻击事件
-        List<Achievement> recentAttacks = attacks.stream()
-            .sorted((a, b) -> b.getSubmitTime().compareTo(a.getSubmitTime()))
-            .limit(10)
-            .collect(Collectors.toList());
-        data.setRecentAttacks(recentAttacks);
+        data.setRecentAttacks(achievementRepository.findTop10ByOrderBySubmitTimeDesc());
         
         // 资产状态
         data.setAssetStatus(blueAssets.stream()
@@ -656,18 +602,12 @@ public class DashboardController {
         
         try {
             // 获取演练统计数据
-            List<Achievement> allAchievements = achievementRepository.findAll();
-            
             stats.put("drillCount", 5); // 演练数量
-            stats.put("pendingCount", allAchievements.stream()
-                .filter(a -> "pending".equals(a.getStatus()))
-                .count());
+            stats.put("pendingCount", statisticsService.countAchievementsByStatus("pending"));
             
             // 计算红队成功率
-            long totalSubmissions = allAchievements.size();
-            long approvedSubmissions = allAchievements.stream()
-                .filter(a -> "approved".equals(a.getStatus()))
-                .count();
+            long totalSubmissions = statisticsService.countAchievements();
+            long approvedSubmissions = statisticsService.countAchievementsByStatus("approved");
             
             double redSuccessRate = totalSubmissions > 0 ? 
                 (double) approvedSubmissions / totalSubmissions * 100 : 0;
@@ -696,11 +636,7 @@ public class DashboardController {
         
         try {
             // 获取待审核的成就
-            List<Achievement> pendingAchievements = achievementRepository.findAll().stream()
-                .filter(a -> "pending".equals(a.getStatus()))
-                .sorted((a, b) -> b.getSubmitTime().compareTo(a.getSubmitTime()))
-                .limit(10)
-                .collect(Collectors.toList());
+            List<Achievement> pendingAchievements = achievementRepository.findTop10ByStatusOrderBySubmitTimeDesc("pending");
             
             for (Achievement achievement : pendingAchievements) {
                 Map<String, Object> submission = new HashMap<>();
@@ -0,0 +1,125 @@
+package org.cyberlab.controller;
+
+import org.cyberlab.entity.EvidenceBlob;
+import org.cyberlab.service.EvidenceStoreService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.http.CacheControl;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Optional;
+
+/**
+ * 成果证据文件访问
+ *
+ * 地址中的哈希即内容本身的 SHA-256，内容永不改变：
+ * 1. 使用强 ETag（哈希值），If-None-Match 命中时直接返回 304，不查询数据库
+ * 2. Cache-Control: public, max-age=1年, immutable，浏览器和代理无需再验证
+ * 3. 返回 Resource，支持 Range 请求（视频拖动播放）
+ */
+@RestController
+@RequestMapping("/api/evidence")
+public class EvidenceController {
+
+    private static final Logger logger = LoggerFactory.getLogger(EvidenceController.class);
+
+    private static final CacheControl IMMUTABLE = CacheControl.maxAge(Duration.ofDays(365)).cachePublic().immutable();
+
+    @Autowired
+    private EvidenceStoreService evidenceStoreService;
+
+    @GetMapping("/{sha256}")
+    public ResponseEntity<Resource> getEvidence(@PathVariable String sha256,
+                                                @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        return serve(sha256, null, ifNoneMatch);
+    }
+
+    @GetMapping("/{sha256}/{fileName}")
+    public ResponseEntity<Resource> getEvidence(@PathVariable String sha256,
+                                                @PathVariable String fileName,
+                                                @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        return serve(sha256, fileName, ifNoneMatch);
+    }
+
+    /**
+     * 截图缩略图：/api/evidence/thumbs/{sha256}.jpg（由 ThumbnailService 生成）
+     */
+    @GetMapping("/thumbs/{name}")
+    public ResponseEntity<Resource> getThumbnail(@PathVariable String name,
+                                                 @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        String sha256 = name.endsWith(".jpg") ? name.substring(0, name.length() - 4) : name;
+        if (!EvidenceStoreService.isValidHash(sha256)) {
+            return ResponseEntity.notFound().build();
+        }
+        String etag = "\"" + sha256 + "-thumb\"";
+        if (ifNoneMatch != null && ifNoneMatch.contains(etag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).cacheControl(IMMUTABLE).build();
+        }
+        Path path = evidenceStoreService.resolveThumbnail(sha256);
+        if (!Files.isRegularFile(path)) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok()
+                .eTag(etag)
+                .cacheControl(IMMUTABLE)
+                .contentType(MediaType.IMAGE_JPEG)
+                .header("X-Content-Type-Options", "nosniff")
+                .body(new FileSystemResource(path));
+    }
+
+    private ResponseEntity<Resource> serve(String sha256, String fileName, String ifNoneMatch) {
+        if (!EvidenceStoreService.isValidHash(sha256)) {
+            return ResponseEntity.notFound().build();
+        }
+        String etag = "\"" + sha256 + "\"";
+        if (ifNoneMatch != null && (ifNoneMatch.contains(etag) || ifNoneMatch.trim().equals("*"))) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).cacheControl(IMMUTABLE).build();
+        }
+
+        Optional<EvidenceBlob> blob = evidenceStoreService.find(sha256);
+        Path path = evidenceStoreService.resolve(sha256);
+        if (blob.isEmpty() || !Files.isRegularFile(path)) {
+            logger.warn("证据文件不存在: {}", sha256);
+            return ResponseEntity.notFound().build();
+        }
+
+        MediaType mediaType = parseMediaType(blob.get().getContentType());
+        // 图片、视频、PDF 和纯文本在浏览器内直接查看，其他类型一律下载，避免上传的 HTML 等在本站域名下执行
+        boolean inline = "image".equals(mediaType.getType()) && !"svg+xml".equals(mediaType.getSubtype())
+                || "video".equals(mediaType.getType())
+                || MediaType.APPLICATION_PDF.equalsTypeAndSubtype(mediaType)
+                || MediaType.TEXT_PLAIN.equalsTypeAndSubtype(mediaType);
+        ContentDisposition.Builder disposition = inline ? ContentDisposition.inline() : ContentDisposition.attachment();
+        if (fileName != null) {
+            disposition.filename(fileName, StandardCharsets.UTF_8);
+        }
+
+        return ResponseEntity.ok()
+                .eTag(etag)
+                .cacheControl(IMMUTABLE)
+                .contentType(mediaType)
+                .header(HttpHeaders.CONTENT_DISPOSITION, disposition.build().toString())
+                .header("X-Content-Type-Options", "nosniff")
+                .body(new FileSystemResource(path));
+    }
+
+    private static MediaType parseMediaType(String contentType) {
+        try {
+            return contentType != null ? MediaType.parseMediaType(contentType) : MediaType.APPLICATION_OCTET_STREAM;
+        } catch (Exception e) {
+            return MediaType.APPLICATION_OCTET_STREAM;
+        }
+    }
+}
@@ -44,10 +44,15 @@ public class RedController {
     // 红队可见的攻击目标资产
     @GetMapping("/assets")
     @PreAuthorize("hasRole('red')")
-    public ResponseEntity<List<Asset>> getAttackableAssets() {
+    public ResponseEntity<List<Asset>> getAttackableAssets(@RequestParam(required = false) String cidr) {
         try {
-            List<Asset> assets = assetService.getVisibleAssets("red");
+            // 指定 cidr 时只返回IP落在该网段内的目标
+            List<Asset> assets = cidr != null && !cidr.trim().isEmpty()
+                    ? assetService.getVisibleAssets("red", cidr)
+                    : assetService.getVisibleAssets("red");
             return ResponseEntity.ok(assets);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
         } catch (Exception e) {
             return ResponseEntity.internalServerError().build();
         }
@@ -1,5 +1,7 @@
 package org.cyberlab.controller;
 
+import org.cyberlab.security.AuthenticationCache;
+import org.cyberlab.security.TokenRevocationService;
 import org.cyberlab.service.DatabaseValidationService;
 import org.cyberlab.service.HostNodeService;
 import org.cyberlab.util.NetworkTestUtil;
@@ -25,6 +27,12 @@ public class SystemAdminController {
     @Autowired
     private HostNodeService hostNodeService;
 
+    @Autowired
+    private AuthenticationCache authCache;
+
+    @Autowired
+    private TokenRevocationService revocationService;
+
     /**
      * 系统健康检查
      */
@@ -40,6 +48,17 @@ public class SystemAdminController {
         }
     }
 
+    /**
+     * 认证缓存与令牌吊销统计
+     */
+    @GetMapping("/auth-cache")
+    public ResponseEntity<?> getAuthCacheStats() {
+        return ResponseEntity.ok(Map.of(
+            "tokenCache", authCache.getStats(),
+            "revocation", revocationService.getStats()
+        ));
+    }
+
     /**
      * 验证VM配置
      */
@@ -1,15 +1,29 @@
 package org.cyberlab.controller;
 
+import org.cyberlab.aspect.LogPayloadSerializer;
+import org.cyberlab.aspect.SystemLogWriter;
+import org.cyberlab.dto.CursorPage;
 import org.cyberlab.entity.SystemLog;
 import org.cyberlab.repository.SystemLogRepository;
+import org.cyberlab.service.LogSearchService;
+import org.cyberlab.service.LogStreamService;
+import org.cyberlab.service.TableStatisticsService;
+import org.cyberlab.service.TraceStoreService;
+import org.cyberlab.util.KeysetCursor;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.*;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import java.io.IOException;
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Map;
 
 @RestController
 @RequestMapping("/api/logs")
@@ -18,6 +32,24 @@ public class SystemLogController {
     @Autowired
     private SystemLogRepository logRepository;
 
+    @Autowired
+    private LogStreamService logStreamService;
+
+    @Autowired
+    private LogPayloadSerializer payloadSerializer;
+
+    @Autowired
+    private SystemLogWriter logWriter;
+
+    @Autowired
+    private TraceStoreService traceStoreService;
+
+    @Autowired
+    private LogSearchService logSearchService;
+
+    @Autowired
+    private TableStatisticsService tableStatisticsService;
+
     // ✅ 原始查询接口（不分页）
     @GetMapping
     public List<SystemLog> getLogs(@RequestParam(defaultValue = "") String username,
@@ -36,31 +68,155 @@ public class SystemLogController {
     }
 
     // ✅ 新增分页接口 /api/logs/page
+    // 带 cursor 参数（首页传空值）时使用游标分页：按 (timestamp, id) 定位下一页，不执行 COUNT，
+    // 返回 nextCursor；withTotal=true 且未带过滤条件时附带表统计信息中的近似总数
     @GetMapping("/page")
-    public Page<SystemLog> getLogsPage(@RequestParam(defaultValue = "") String username,
-                                       @RequestParam(defaultValue = "") String operation,
-                                       @RequestParam(defaultValue = "0") int page,
-                                       @RequestParam(defaultValue = "10") int size,
-                                       @RequestParam(defaultValue = "timestamp") String sortField,
-                                       @RequestParam(defaultValue = "desc") String sortOrder) {
+    public ResponseEntity<?> getLogsPage(@RequestParam(defaultValue = "") String username,
+                                         @RequestParam(defaultValue = "") String operation,
+                                         @RequestParam(defaultValue = "0") int page,
+                                         @RequestParam(defaultValue = "10") int size,
+                                         @RequestParam(defaultValue = "timestamp") String sortField,
+                                         @RequestParam(defaultValue = "desc") String sortOrder,
+                                         @RequestParam(required = false) String cursor,
+                                         @RequestParam(defaultValue = "false") boolean withTotal) {
 
         Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
         String currentUser = authentication.getName();
 
         boolean isAdmin = authentication.getAuthorities().stream()
                 .anyMatch(auth -> auth.getAuthority().equals("ROLE_admin"));
+        String usernameFilter = isAdmin ? username : currentUser;
+
+        Sort.Direction direction = sortOrder.equalsIgnoreCase("desc") ? Sort.Direction.DESC : Sort.Direction.ASC;
+
+        if (cursor != null) {
+            if (!"timestamp".equals(sortField)) {
+                return ResponseEntity.badRequest().body(Map.of("error", "游标分页仅支持按 timestamp 排序"));
+            }
+            try {
+                Window<SystemLog> window = logRepository.findByUsernameContainingAndOperationContaining(
+                        usernameFilter, operation, KeysetCursor.decode(cursor), Limit.of(size),
+                        Sort.by(direction, "timestamp", "id"));
+                Long approximateTotal = withTotal && usernameFilter.isEmpty() && operation.isEmpty()
+                        ? tableStatisticsService.estimateRowCount("system_log")
+                        : null;
+                return ResponseEntity.ok(CursorPage.of(window, approximateTotal));
+            } catch (IllegalArgumentException e) {
+                return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+            }
+        }
 
         // ✅ 排序构造器
-        Sort sort = sortOrder.equalsIgnoreCase("desc") ?
-                Sort.by(sortField).descending() :
-                Sort.by(sortField).ascending();
-        Pageable pageable = PageRequest.of(page, size, sort);
+        Pageable pageable = PageRequest.of(page, size, Sort.by(direction, sortField));
+        return ResponseEntity.ok(logRepository.findByUsernameContainingAndOperationContaining(usernameFilter, operation, pageable));
+    }
 
-        if (isAdmin) {
-            return logRepository.findByUsernameContainingAndOperationContaining(username, operation, pageable);
-        } else {
-            return logRepository.findByUsernameContainingAndOperationContaining(currentUser, operation, pageable);
+    // ✅ 实时日志流（SSE），数据来自日志写入路径，不查询数据库
+    @GetMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamLogs(@RequestParam(required = false) String logLevel,
+                                 @RequestParam(required = false) String logCategory,
+                                 @RequestParam(required = false) String businessModule,
+                                 @RequestParam(required = false) String username,
+                                 @RequestParam(required = false) String traceId) {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        String currentUser = authentication.getName();
+
+        boolean isAdmin = authentication.getAuthorities().stream()
+                .anyMatch(auth -> auth.getAuthority().equals("ROLE_admin"));
+
+        // 非管理员只能订阅自己的日志
+        LogStreamService.LogStreamFilter filter = new LogStreamService.LogStreamFilter(
+                logLevel, logCategory, businessModule, isAdmin ? username : currentUser, traceId);
+        return logStreamService.subscribe(filter);
+    }
+
+    // ✅ 实时日志流订阅统计（仅管理员）
+    @GetMapping("/stream/stats")
+    public ResponseEntity<Map<String, Object>> getStreamStats() {
+        if (!isAdmin()) {
+            return ResponseEntity.status(403).body(Map.of("message", "仅管理员可查看订阅统计"));
+        }
+        return ResponseEntity.ok(logStreamService.getStats());
+    }
+
+    // ✅ 日志载荷序列化统计（按注解方法统计耗时/截断次数，仅管理员）
+    @GetMapping("/serialization-stats")
+    public ResponseEntity<Map<String, Object>> getSerializationStats() {
+        if (!isAdmin()) {
+            return ResponseEntity.status(403).body(Map.of("message", "仅管理员可查看序列化统计"));
+        }
+        return ResponseEntity.ok(Map.of(
+                "captureMode", logWriter.isAsync() ? "async" : "sync",
+                "pendingWrites", logWriter.getPendingCount(),
+                "methods", payloadSerializer.getStats()
+        ));
+    }
+
+    // ✅ 按TraceId查询完整请求链路（含调用树），非管理员只能查看自己的链路
+    @GetMapping("/trace/{traceId}")
+    public ResponseEntity<Map<String, Object>> getTrace(@PathVariable String traceId) {
+        Map<String, Object> trace = traceStoreService.getTrace(traceId);
+        if (trace == null) {
+            return ResponseEntity.notFound().build();
+        }
+        String currentUser = SecurityContextHolder.getContext().getAuthentication().getName();
+        if (!isAdmin() && !currentUser.equals(trace.get("username"))) {
+            return ResponseEntity.status(403).body(Map.of("message", "无权查看该请求链路"));
+        }
+        return ResponseEntity.ok(trace);
+    }
+
+    // ✅ 按SessionId查询用户行为轨迹（链路摘要分页），非管理员只能查看自己的链路
+    @GetMapping("/session/{sessionId}/traces")
+    public Page<Map<String, Object>> getSessionTraces(@PathVariable String sessionId,
+                                                      @RequestParam(defaultValue = "0") int page,
+                                                      @RequestParam(defaultValue = "20") int size) {
+        String currentUser = SecurityContextHolder.getContext().getAuthentication().getName();
+        return traceStoreService.getSessionTraces(sessionId, isAdmin() ? null : currentUser, PageRequest.of(page, size));
+    }
+
+    // ✅ 全文检索（按相关度排序，返回高亮片段）
+    @GetMapping("/search")
+    public Map<String, Object> searchLogs(@RequestParam String q,
+                                          @RequestParam(required = false) String field,
+                                          @RequestParam(required = false) String username,
+                                          @RequestParam(required = false) String logLevel,
+                                          @RequestParam(required = false) String logCategory,
+                                          @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime startTime,
+                                          @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime endTime,
+                                          @RequestParam(defaultValue = "0") int page,
+                                          @RequestParam(defaultValue = "20") int size) throws IOException {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        String currentUser = authentication.getName();
+
+        boolean isAdmin = authentication.getAuthorities().stream()
+                .anyMatch(auth -> auth.getAuthority().equals("ROLE_admin"));
+
+        // 非管理员只能检索自己的日志
+        return logSearchService.search(q, field, isAdmin ? username : currentUser, logLevel, logCategory,
+                startTime, endTime, Math.max(0, page), Math.min(Math.max(1, size), 100));
+    }
+
+    // ✅ 从数据库重建全文索引（仅管理员，后台执行）
+    @PostMapping("/search/reindex")
+    public ResponseEntity<Map<String, Object>> reindex(@RequestParam(defaultValue = "0") long afterId) {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        boolean isAdmin = authentication.getAuthorities().stream()
+                .anyMatch(auth -> auth.getAuthority().equals("ROLE_admin"));
+        if (!isAdmin) {
+            return ResponseEntity.status(403).body(Map.of("message", "仅管理员可重建索引"));
         }
+        boolean started = logSearchService.reindexAsync(afterId);
+        return ResponseEntity.ok(Map.of("started", started, "stats", logSearchService.getStats()));
+    }
+
+    // ✅ 全文索引状态（仅管理员）
+    @GetMapping("/search/stats")
+    public ResponseEntity<Map<String, Object>> getSearchStats() {
+        if (!isAdmin()) {
+            return ResponseEntity.status(403).body(Map.of("message", "仅管理员可查看索引状态"));
+        }
+        return ResponseEntity.ok(logSearchService.getStats());
     }
 
     // ✅ 添加日志
@@ -77,4 +233,10 @@ public class SystemLogController {
                 .anyMatch(auth -> auth.getAuthority().equals("ROLE_admin"));
         return isAdmin ? "你是管理员" : "你不是管理员";
     }
-}
\ No newline at end of file
+
+    private static boolean isAdmin() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        return authentication != null && authentication.getAuthorities().stream()
+                .anyMatch(auth -> auth.getAuthority().equals("ROLE_admin"));
+    }
+}
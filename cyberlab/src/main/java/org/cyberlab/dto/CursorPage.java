@@ -0,0 +1,84 @@
+package org.cyberlab.dto;
+
+import org.cyberlab.util.KeysetCursor;
+import org.springframework.data.domain.Window;
+
+import java.util.List;
+
+/**
+ * 游标分页响应DTO（键集分页，不执行 COUNT）
+ * 取下一页时把 nextCursor 作为 cursor 参数原样回传
+ *
+ * @param <T> 数据类型
+ */
+public class CursorPage<T> {
+    private List<T> content;            // 当前页数据列表
+    private int size;                   // 当前页条数
+    private String nextCursor;          // 下一页游标，没有下一页时为 null
+    private boolean hasNext;            // 是否还有下一页
+    private Long approximateTotal;      // 近似总数（来自表统计信息，仅在请求且未带过滤条件时返回）
+
+    // 无参构造函数
+    public CursorPage() {}
+
+    // 从Spring Data Window对象构造
+    public CursorPage(Window<T> window, Long approximateTotal) {
+        this.content = window.getContent();
+        this.size = window.size();
+        this.hasNext = window.hasNext();
+        this.nextCursor = window.hasNext() && !window.isEmpty()
+                ? KeysetCursor.encode(window.positionAt(window.size() - 1))
+                : null;
+        this.approximateTotal = approximateTotal;
+    }
+
+    // 静态工厂方法：从Window创建CursorPage
+    public static <T> CursorPage<T> of(Window<T> window) {
+        return new CursorPage<>(window, null);
+    }
+
+    public static <T> CursorPage<T> of(Window<T> window, Long approximateTotal) {
+        return new CursorPage<>(window, approximateTotal);
+    }
+
+    // Getters and Setters
+    public List<T> getContent() {
+        return content;
+    }
+
+    public void setContent(List<T> content) {
+        this.content = content;
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    public void setSize(int size) {
+        this.size = size;
+    }
+
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    public void setNextCursor(String nextCursor) {
+        this.nextCursor = nextCursor;
+    }
+
+    public boolean isHasNext() {
+        return hasNext;
+    }
+
+    public void setHasNext(boolean hasNext) {
+        this.hasNext = hasNext;
+    }
+
+    public Long getApproximateTotal() {
+        return approximateTotal;
+    }
+
+    public void setApproximateTotal(Long approximateTotal) {
+        this.approximateTotal = approximateTotal;
+    }
+}
@@ -1,6 +1,7 @@
 package org.cyberlab.entity;
 
 import jakarta.persistence.*;
+import org.cyberlab.event.AchievementListener;
 import org.hibernate.annotations.Cache;
 import org.hibernate.annotations.CacheConcurrencyStrategy;
 import java.time.LocalDateTime;
@@ -8,6 +9,7 @@ import java.time.LocalDateTime;
 @Entity
 @Table(name = "achievements")
 @Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
+@EntityListeners(AchievementListener.class) // 写入后发布 AchievementCreatedEvent（攻击趋势等）
 public class Achievement {
 
     @Id
@@ -35,6 +37,10 @@ public class Achievement {
     @Lob
     private String screenshots; // 漏洞截图路径(JSON格式存储多个文件)
 
+    @Lob
+    @Column(name = "screenshot_thumbnails")
+    private String screenshotThumbnails; // 截图缩略图路径(逗号分隔，与screenshots一一对应，后台异步生成)
+
     @Lob
     private String proofFiles; // 证明文件路径(JSON格式存储多个文件)
 
@@ -100,6 +106,9 @@ public class Achievement {
     public String getScreenshots() { return screenshots; }
     public void setScreenshots(String screenshots) { this.screenshots = screenshots; }
 
+    public String getScreenshotThumbnails() { return screenshotThumbnails; }
+    public void setScreenshotThumbnails(String screenshotThumbnails) { this.screenshotThumbnails = screenshotThumbnails; }
+
     public String getProofFiles() { return proofFiles; }
     public void setProofFiles(String proofFiles) { this.proofFiles = proofFiles; }
 
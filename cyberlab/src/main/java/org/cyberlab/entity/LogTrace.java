@@ -0,0 +1,93 @@
+package org.cyberlab.entity;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * 请求链路记录实体
+ * 按 traceId 聚合同一请求产生的日志，spans 以紧凑JSON保存每个环节的开始时间、耗时、方法和状态，
+ * 查询链路时无需再扫描 system_log
+ */
+@Entity
+@Table(name = "log_traces",
+    indexes = {
+        @Index(name = "idx_log_traces_session_id", columnList = "session_id"),
+        @Index(name = "idx_log_traces_start_time", columnList = "start_time"),
+        @Index(name = "idx_log_traces_username_start", columnList = "username, start_time")
+    },
+    uniqueConstraints = {
+        @UniqueConstraint(name = "uk_log_traces_trace_id", columnNames = {"trace_id"})
+    }
+)
+public class LogTrace {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "trace_id", nullable = false, length = 64)
+    private String traceId;
+
+    @Column(name = "session_id")
+    private String sessionId;
+
+    private String username;
+
+    @Column(name = "start_time")
+    private LocalDateTime startTime;
+
+    @Column(name = "end_time")
+    private LocalDateTime endTime;
+
+    @Column(name = "duration_ms")
+    private Long durationMs;
+
+    @Column(name = "span_count")
+    private Integer spanCount;
+
+    @Column(name = "error_count")
+    private Integer errorCount;
+
+    @Column(columnDefinition = "MEDIUMTEXT")
+    private String spans;
+
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+
+    // Constructors
+    public LogTrace() {}
+
+    // Getters and Setters
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+
+    public String getTraceId() { return traceId; }
+    public void setTraceId(String traceId) { this.traceId = traceId; }
+
+    public String getSessionId() { return sessionId; }
+    public void setSessionId(String sessionId) { this.sessionId = sessionId; }
+
+    public String getUsername() { return username; }
+    public void setUsername(String username) { this.username = username; }
+
+    public LocalDateTime getStartTime() { return startTime; }
+    public void setStartTime(LocalDateTime startTime) { this.startTime = startTime; }
+
+    public LocalDateTime getEndTime() { return endTime; }
+    public void setEndTime(LocalDateTime endTime) { this.endTime = endTime; }
+
+    public Long getDurationMs() { return durationMs; }
+    public void setDurationMs(Long durationMs) { this.durationMs = durationMs; }
+
+    public Integer getSpanCount() { return spanCount; }
+    public void setSpanCount(Integer spanCount) { this.spanCount = spanCount; }
+
+    public Integer getErrorCount() { return errorCount; }
+    public void setErrorCount(Integer errorCount) { this.errorCount = errorCount; }
+
+    public String getSpans() { return spans; }
+    public void setSpans(String spans) { this.spans = spans; }
+
+    public LocalDateTime getUpdatedAt() { return updatedAt; }
+    public void setUpdatedAt(LocalDateTime updatedAt) { this.updatedAt = updatedAt; }
+}
@@ -0,0 +1,88 @@
+package org.cyberlab.entity;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * 计分台账实体
+ * 以成果ID为主键记录已计入团队得分的审批，同一成果重复审批（重试、多个裁判同时提交）只计分一次
+ */
+@Entity
+@Table(name = "score_ledger",
+    indexes = {
+        @Index(name = "idx_score_ledger_range_team", columnList = "range_id, team_name")
+    }
+)
+public class ScoreLedger {
+
+    @Id
+    @Column(name = "achievement_id")
+    private Long achievementId;
+
+    @Column(name = "range_id", nullable = false)
+    private Long rangeId;
+
+    @Column(name = "team_name", nullable = false, length = 100)
+    private String teamName;
+
+    @Column(name = "team_type", nullable = false, length = 20)
+    private String teamType;
+
+    @Column(nullable = false)
+    private Integer score;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    // Constructors
+    public ScoreLedger() {}
+
+    // Getters and Setters
+    public Long getAchievementId() {
+        return achievementId;
+    }
+
+    public void setAchievementId(Long achievementId) {
+        this.achievementId = achievementId;
+    }
+
+    public Long getRangeId() {
+        return rangeId;
+    }
+
+    public void setRangeId(Long rangeId) {
+        this.rangeId = rangeId;
+    }
+
+    public String getTeamName() {
+        return teamName;
+    }
+
+    public void setTeamName(String teamName) {
+        this.teamName = teamName;
+    }
+
+    public String getTeamType() {
+        return teamType;
+    }
+
+    public void setTeamType(String teamType) {
+        this.teamType = teamType;
+    }
+
+    public Integer getScore() {
+        return score;
+    }
+
+    public void setScore(Integer score) {
+        this.score = score;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(LocalDateTime createdAt) {
+        this.createdAt = createdAt;
+    }
+}
@@ -4,6 +4,7 @@ import jakarta.persistence.*;
 import org.cyberlab.enums.BusinessModule;
 import org.cyberlab.enums.OperationStatus;
 import org.cyberlab.enums.OperationType;
+import org.cyberlab.event.SystemLogListener;
 import org.hibernate.annotations.Cache;
 import org.hibernate.annotations.CacheConcurrencyStrategy;
 
@@ -25,6 +26,7 @@ import java.time.LocalDateTime;
     @Index(name = "idx_system_log_business_id", columnList = "business_id")
 })
 @Cache(usage = CacheConcurrencyStrategy.READ_WRITE) // ✅ 明确指定表名，避免默认映射错误
+@EntityListeners(SystemLogListener.class) // 写入后发布 SystemLogCreatedEvent（实时日志流等）
 public class SystemLog {
 
     @Id
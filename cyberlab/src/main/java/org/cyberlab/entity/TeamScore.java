@@ -141,12 +141,4 @@ public class TeamScore {
         this.approvedCount++;
         this.lastUpdateTime = LocalDateTime.now();
     }
-
-    /**
-     * 更新时间戳
-     */
-    @PreUpdate
-    public void preUpdate() {
-        this.lastUpdateTime = LocalDateTime.now();
-    }
 }
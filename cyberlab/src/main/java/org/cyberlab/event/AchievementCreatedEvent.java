@@ -0,0 +1,24 @@
+package org.cyberlab.event;
+
+import org.cyberlab.entity.Achievement;
+import org.springframework.context.ApplicationEvent;
+
+/**
+ * 成果写入事件
+ *
+ * 由 {@link AchievementListener} 在 achievements 插入后发布。
+ * 监听方只能读取成果对象，不应修改其字段。
+ */
+public class AchievementCreatedEvent extends ApplicationEvent {
+
+    private final Achievement achievement;
+
+    public AchievementCreatedEvent(Object source, Achievement achievement) {
+        super(source);
+        this.achievement = achievement;
+    }
+
+    public Achievement getAchievement() {
+        return achievement;
+    }
+}
@@ -0,0 +1,18 @@
+package org.cyberlab.event;
+
+import jakarta.persistence.PostPersist;
+import org.cyberlab.entity.Achievement;
+
+/**
+ * Achievement 实体监听器
+ *
+ * 成果插入后登记 {@link AchievementCreatedEvent}，供攻击趋势等内存统计直接从写入路径更新，
+ * 无需逐个修改提交入口。事件在事务提交后发布，回滚的成果不会计入统计；发布失败不影响成果保存。
+ */
+public class AchievementListener {
+
+    @PostPersist
+    public void afterPersist(Achievement achievement) {
+        EntityEventPublisher.publishAfterCommit(new AchievementCreatedEvent(this, achievement));
+    }
+}
@@ -0,0 +1,25 @@
+package org.cyberlab.event;
+
+import org.springframework.context.ApplicationEvent;
+
+import java.util.Set;
+
+/**
+ * 大屏刷新事件
+ *
+ * 由 BigScreenService 在合并（防抖）领域事件后发布，通知大屏推送立即刷新受影响的主题。
+ * 主题名与大屏 WebSocket 的订阅主题一致，"red:*"、"blue:*" 表示该类型的全部战队主题，"*" 表示全部主题。
+ */
+public class BigScreenRefreshEvent extends ApplicationEvent {
+
+    private final Set<String> topics;
+
+    public BigScreenRefreshEvent(Object source, Set<String> topics) {
+        super(source);
+        this.topics = Set.copyOf(topics);
+    }
+
+    public Set<String> getTopics() {
+        return topics;
+    }
+}
@@ -0,0 +1,79 @@
+package org.cyberlab.event;
+
+import org.springframework.context.ApplicationEvent;
+
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 业务领域事件
+ *
+ * 成果审批、团队得分、容器状态、演练启停等业务变化发生时发布，
+ * 供大屏等组件直接感知变化并即时刷新，而不必等待下一次轮询。
+ * 事件在进程内通过 Spring 事件总线分发，监听方只能读取事件内容。
+ */
+public class DomainEvent extends ApplicationEvent {
+
+    public enum Type {
+        ACHIEVEMENT_APPROVED,
+        ACHIEVEMENT_REJECTED,
+        TEAM_SCORE_UPDATED,
+        CONTAINER_STATE_CHANGED,
+        RANGE_STARTED,
+        RANGE_STOPPED
+    }
+
+    private final Type type;
+    private final Long rangeId;
+    private final String teamName;
+    private final String teamType;
+    private final Map<String, Object> attributes;
+    private final LocalDateTime occurredAt = LocalDateTime.now();
+
+    public DomainEvent(Object source, Type type, Long rangeId, String teamName, String teamType,
+                       Map<String, Object> attributes) {
+        super(source);
+        this.type = type;
+        this.rangeId = rangeId;
+        this.teamName = teamName;
+        this.teamType = teamType;
+        this.attributes = attributes != null
+                ? Collections.unmodifiableMap(new LinkedHashMap<>(attributes))
+                : Map.of();
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public Long getRangeId() {
+        return rangeId;
+    }
+
+    /**
+     * 相关战队名称（与演练/容器相关的事件为 null）
+     */
+    public String getTeamName() {
+        return teamName;
+    }
+
+    /**
+     * 战队类型 red/blue（未知时为 null）
+     */
+    public String getTeamType() {
+        return teamType;
+    }
+
+    /**
+     * 事件附加信息（成果ID、分数、容器状态等）
+     */
+    public Map<String, Object> getAttributes() {
+        return attributes;
+    }
+
+    public LocalDateTime getOccurredAt() {
+        return occurredAt;
+    }
+}
@@ -0,0 +1,43 @@
+package org.cyberlab.event;
+
+import org.cyberlab.util.SpringContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.ApplicationEvent;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * 实体监听器发布事件的辅助类
+ *
+ * JPA 回调（@PostPersist）在事务提交前执行，直接发布会让回滚的写入也被订阅方看到。
+ * 存在事务同步时推迟到提交后发布，没有事务时（自动提交）立即发布。发布失败不影响实体保存。
+ */
+final class EntityEventPublisher {
+
+    private static final Logger log = LoggerFactory.getLogger(EntityEventPublisher.class);
+
+    private EntityEventPublisher() {
+    }
+
+    static void publishAfterCommit(ApplicationEvent event) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    publish(event);
+                }
+            });
+        } else {
+            publish(event);
+        }
+    }
+
+    private static void publish(ApplicationEvent event) {
+        try {
+            SpringContext.getApplicationContext().publishEvent(event);
+        } catch (Exception e) {
+            log.debug("发布实体事件失败: {} - {}", event.getClass().getSimpleName(), e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package org.cyberlab.event;
+
+import org.cyberlab.entity.SystemLog;
+import org.springframework.context.ApplicationEvent;
+
+/**
+ * 日志写入事件
+ *
+ * 由 {@link SystemLogListener} 在 system_log 插入后发布，
+ * 供实时日志流等组件直接从写入路径获取日志，而不必轮询数据库。
+ * 监听方只能读取日志对象，不应修改其字段。
+ */
+public class SystemLogCreatedEvent extends ApplicationEvent {
+
+    private final SystemLog systemLog;
+
+    public SystemLogCreatedEvent(Object source, SystemLog systemLog) {
+        super(source);
+        this.systemLog = systemLog;
+    }
+
+    public SystemLog getSystemLog() {
+        return systemLog;
+    }
+}
@@ -0,0 +1,19 @@
+package org.cyberlab.event;
+
+import jakarta.persistence.PostPersist;
+import org.cyberlab.entity.SystemLog;
+
+/**
+ * SystemLog 实体监听器
+ *
+ * 所有写日志的位置（LogAspect、AuditLogAspect、EnhancedLogService、JwtAuthenticationFilter 等）
+ * 最终都会插入 system_log，因此在 @PostPersist 统一登记 {@link SystemLogCreatedEvent}，
+ * 无需逐个修改写入点。事件在事务提交后发布，回滚的日志不会推送给订阅方或进入链路存储。
+ */
+public class SystemLogListener {
+
+    @PostPersist
+    public void afterPersist(SystemLog systemLog) {
+        EntityEventPublisher.publishAfterCommit(new SystemLogCreatedEvent(this, systemLog));
+    }
+}
@@ -1,10 +1,17 @@
 package org.cyberlab.repository;
 
 import org.cyberlab.entity.Achievement;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
 import java.util.List;
@@ -38,6 +45,38 @@ public interface AchievementRepository extends JpaRepository<Achievement, Long>
      */
     long countBySubmitTimeBetween(LocalDateTime startTime, LocalDateTime endTime);
 
+    /**
+     * 指定状态最新提交的10条
+     */
+    List<Achievement> findTop10ByStatusOrderBySubmitTimeDesc(String status);
+
+    /**
+     * 指定状态最早提交的5条（待审核队列）
+     */
+    List<Achievement> findTop5ByStatusOrderByIdAsc(String status);
+
+    /**
+     * 最新提交的10条
+     */
+    List<Achievement> findTop10ByOrderBySubmitTimeDesc();
+
+    /**
+     * 统计服务预热：按状态、战队、攻击方法分组计数
+     */
+    @Query("SELECT a.status, a.teamName, a.attackMethod, COUNT(a) FROM Achievement a GROUP BY a.status, a.teamName, a.attackMethod")
+    List<Object[]> countGroupByStatusTeamAndMethod();
+
+    /**
+     * 按分钟分组统计提交数（用于预热攻击趋势直方图）
+     * 战队按名称区分红蓝队（与驾驶舱趋势图口径一致）
+     * @return [分钟 yyyy-MM-dd HH:mm, 总数, 红队数, 蓝队数]
+     */
+    @Query(value = "SELECT DATE_FORMAT(submit_time, '%Y-%m-%d %H:%i') AS bucket, COUNT(*), " +
+           "SUM(CASE WHEN LOWER(team_name) LIKE '%red%' THEN 1 ELSE 0 END), " +
+           "SUM(CASE WHEN LOWER(team_name) LIKE '%blue%' THEN 1 ELSE 0 END) FROM achievements " +
+           "WHERE submit_time >= :since GROUP BY bucket", nativeQuery = true)
+    List<Object[]> countPerMinuteSince(@org.springframework.data.repository.query.Param("since") LocalDateTime since);
+
     /**
      * 获取最近审核通过的成果（用于实时展示）
      */
@@ -50,4 +89,17 @@ public interface AchievementRepository extends JpaRepository<Achievement, Long>
      */
     @Query("SELECT a FROM Achievement a WHERE a.status = :status AND a.reviewTime IS NOT NULL ORDER BY a.reviewTime DESC")
     List<Achievement> findTop10ByStatusOrderByReviewTimeDesc(@org.springframework.data.repository.query.Param("status") String status, Pageable pageable);
-}
\ No newline at end of file
+
+    // 管理员审批页面 - 键集分页（按 submitTime、id 定位下一页，不执行 COUNT）
+    Window<Achievement> findAllBy(ScrollPosition position, Limit limit, Sort sort);
+
+    Window<Achievement> findByStatus(String status, ScrollPosition position, Limit limit, Sort sort);
+
+    /**
+     * 写回截图缩略图路径（只更新该列，不覆盖审批等并发修改，也不触发实体事件）
+     */
+    @Transactional
+    @Modifying
+    @Query("UPDATE Achievement a SET a.screenshotThumbnails = :thumbnails WHERE a.id = :id")
+    int updateScreenshotThumbnails(@Param("id") Long id, @Param("thumbnails") String thumbnails);
+}
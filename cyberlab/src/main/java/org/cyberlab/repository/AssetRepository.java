@@ -1,16 +1,28 @@
 package org.cyberlab.repository;
 
+import jakarta.persistence.QueryHint;
 import org.cyberlab.entity.Asset;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public interface AssetRepository extends JpaRepository<Asset, Long> {
@@ -24,6 +36,12 @@ public interface AssetRepository extends JpaRepository<Asset, Long> {
     // 根据名称和公司查找资产 (用于容器导入时检查重复)
     Optional<Asset> findByNameAndCompany(String name, String company);
 
+    /**
+     * 指定公司下已有的资产名称（容器批量导入时一次性预加载，用于查重）
+     */
+    @Query("SELECT a.name FROM Asset a WHERE a.company = :company")
+    List<String> findNamesByCompany(@Param("company") String company);
+
     // 红队视角：只看被标记为靶场的资产
     List<Asset> findByIsTargetTrue();
 
@@ -39,6 +57,25 @@ public interface AssetRepository extends JpaRepository<Asset, Long> {
     // 根据IP地址模糊查找
     List<Asset> findByIpContaining(String ipPattern);
 
+    // 键集分页（按 id 定位下一页，不执行 COUNT）
+    Window<Asset> findAllBy(ScrollPosition position, Limit limit, Sort sort);
+
+    /**
+     * 资产IP（IP 索引预热用）
+     * 在独立事务中查询：调用方所在事务的快照可能早于最近提交的写入，预热结果会漏掉它们
+     * @return [id, ip]
+     */
+    @Transactional(propagation = Propagation.REQUIRES_NEW, readOnly = true)
+    @Query("SELECT a.id, a.ip FROM Asset a WHERE a.ip IS NOT NULL AND TRIM(a.ip) <> ''")
+    List<Object[]> findIdAndIp();
+
+    /**
+     * 指定资产的 IP（其他实例通知 IP 变化后刷新索引用，已删除的资产不返回）
+     * @return [id, ip]
+     */
+    @Query("SELECT a.id, a.ip FROM Asset a WHERE a.id IN :ids")
+    List<Object[]> findIdAndIpByIdIn(@Param("ids") Collection<Long> ids);
+
     // 根据拓扑项目ID查找资产
     List<Asset> findByTopologyProjectId(String topologyProjectId);
 
@@ -105,6 +142,114 @@ public interface AssetRepository extends JpaRepository<Asset, Long> {
     // 根据首选主机节点ID查找资产
     List<Asset> findByPreferredHostNodeId(Long preferredHostNodeId);
 
+    // 统计关联指定节点的资产数量
+    long countByPreferredHostNodeId(Long preferredHostNodeId);
+
+    // 统计未分配节点的资产数量
+    long countByPreferredHostNodeIdIsNull();
+
+    /**
+     * 自动探测目标：启用且配置了IP的资产
+     * @return [id, name, ip, assetPlatform, dockerPort, dockerApiEnabled, k8sPort, containerPorts, healthCheckUrl, probeStatus, probeErrorMessage, assetType]
+     */
+    @Query("SELECT a.id, a.name, a.ip, a.assetPlatform, a.dockerPort, a.dockerApiEnabled, a.k8sPort, " +
+           "a.containerPorts, a.healthCheckUrl, a.probeStatus, a.probeErrorMessage, a.assetType " +
+           "FROM Asset a WHERE a.enabled = true AND a.ip IS NOT NULL AND TRIM(a.ip) <> ''")
+    List<Object[]> findProbeTargets();
+
+    /**
+     * 批量写回探测结果（状态与错误信息相同的资产合并为一条语句）
+     */
+    @Modifying
+    @Query("UPDATE Asset a SET a.probeStatus = :status, a.lastProbeTime = :probeTime, a.probeErrorMessage = :message " +
+           "WHERE a.id IN :ids")
+    int updateProbeResult(@Param("ids") Collection<Long> ids, @Param("status") String status,
+                          @Param("probeTime") String probeTime, @Param("message") String message);
+
+    /**
+     * 清空指定节点的资产引用（部署策略 fixed 改为 any），单条 UPDATE 完成
+     * 只修改节点字段，不影响统计服务的计数维度
+     */
+    @Modifying
+    @Query("UPDATE Asset a SET a.preferredHostNodeId = NULL, a.preferredHostNodeName = NULL, " +
+           "a.deploymentStrategy = CASE WHEN a.deploymentStrategy = 'fixed' THEN 'any' ELSE a.deploymentStrategy END " +
+           "WHERE a.preferredHostNodeId = :nodeId")
+    int clearPreferredHostNode(@Param("nodeId") Long nodeId);
+
+    /**
+     * 指定节点上启用了故障转移的资产
+     * @return [资产ID, 资产名称]
+     */
+    @Query("SELECT a.id, a.name FROM Asset a WHERE a.preferredHostNodeId = :nodeId AND a.enableFailover = true")
+    List<Object[]> findFailoverCandidates(@Param("nodeId") Long nodeId);
+
+    /**
+     * 按项目标识查找资产：项目名称或拓扑项目ID
+     */
+    @Query("SELECT a FROM Asset a WHERE a.project = :projectId OR a.topologyProjectId = :projectId")
+    List<Asset> findByProjectOrTopologyProjectId(@Param("projectId") String projectId);
+
+    /**
+     * 按"企业|项目"组合标识查找资产，企业/项目为空的资产分别以"未知企业"/"未分组"参与匹配
+     */
+    @Query("SELECT a FROM Asset a WHERE (a.company = :company OR (:company = '未知企业' AND a.company IS NULL)) " +
+           "AND (a.project = :project OR (:project = '未分组' AND a.project IS NULL))")
+    List<Asset> findByCompanyProjectKey(@Param("company") String company, @Param("project") String project);
+
+    // 蓝队视角：蓝队可见、双方可见或未设置可见性的资产
+    @Query("SELECT a FROM Asset a WHERE a.visibility IN ('blue', 'both') OR a.visibility IS NULL")
+    List<Asset> findVisibleToBlueTeam();
+
+    /**
+     * 容器状态聚合所需字段
+     * @return [ID, 名称, IP, 企业, 项目, 资产类型, Docker镜像, 首选节点ID, 首选节点名称, 部署策略]
+     */
+    @Query("SELECT a.id, a.name, a.ip, a.company, a.project, a.assetType, a.dockerImage, " +
+           "a.preferredHostNodeId, a.preferredHostNodeName, a.deploymentStrategy FROM Asset a")
+    List<Object[]> findContainerStatusFields();
+
+    /**
+     * 按节点名称统计已分配节点的资产数量
+     */
+    @Query("SELECT a.preferredHostNodeName, COUNT(a) FROM Asset a WHERE a.preferredHostNodeId IS NOT NULL " +
+           "GROUP BY a.preferredHostNodeName")
+    List<Object[]> countGroupByPreferredHostNodeName();
+
+    /**
+     * 项目名称与拓扑项目ID（去重）
+     */
+    @Query("SELECT DISTINCT a.project, a.topologyProjectId FROM Asset a WHERE a.project IS NOT NULL AND TRIM(a.project) <> ''")
+    List<Object[]> findDistinctProjects();
+
+    /**
+     * 导出用只进游标：MySQL 驱动在 fetchSize = Integer.MIN_VALUE 时逐行流式读取结果集，
+     * 只读且不写入二级缓存；须在事务内消费并关闭，调用方逐条 detach
+     * 过滤条件为 null 时不限制
+     */
+    @QueryHints({
+        @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "" + Integer.MIN_VALUE),
+        @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true"),
+        @QueryHint(name = HibernateHints.HINT_CACHE_MODE, value = "IGNORE")
+    })
+    @Query("SELECT a FROM Asset a WHERE (:company IS NULL OR a.company = :company) " +
+           "AND (:project IS NULL OR a.project = :project) " +
+           "AND (:assetType IS NULL OR a.assetType = :assetType) " +
+           "AND (:visibility IS NULL OR a.visibility = :visibility) " +
+           "AND (:enabled IS NULL OR a.enabled = :enabled) " +
+           "AND (:isTarget IS NULL OR a.isTarget = :isTarget) ORDER BY a.id")
+    Stream<Asset> streamForExport(@Param("company") String company,
+                                  @Param("project") String project,
+                                  @Param("assetType") String assetType,
+                                  @Param("visibility") String visibility,
+                                  @Param("enabled") Boolean enabled,
+                                  @Param("isTarget") Boolean isTarget);
+
+    /**
+     * 统计服务预热：按资产类型、启用状态、是否靶标分组计数
+     */
+    @Query("SELECT a.assetType, a.enabled, a.isTarget, COUNT(a) FROM Asset a GROUP BY a.assetType, a.enabled, a.isTarget")
+    List<Object[]> countGroupByTypeEnabledAndTarget();
+
     // ========================================
     // 性能优化查询说明
     // ========================================
@@ -2,6 +2,7 @@ package org.cyberlab.repository;
 
 import org.cyberlab.entity.CyberRange;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 
 import java.util.List;
 
@@ -16,4 +17,10 @@ public interface CyberRangeRepository extends JpaRepository<CyberRange, Long> {
      * 根据状态查找演练列表
      */
     List<CyberRange> findByStatus(String status);
+
+    /**
+     * 统计服务预热：按状态分组计数
+     */
+    @Query("SELECT r.status, COUNT(r) FROM CyberRange r GROUP BY r.status")
+    List<Object[]> countGroupByStatus();
 }
\ No newline at end of file
@@ -84,4 +84,20 @@ public interface DrillContainerRepository extends JpaRepository<DrillContainer,
      * 根据演练ID和资产ID查找容器（用于日志查询）
      */
     List<DrillContainer> findByRangeIdAndAssetId(Long rangeId, Long assetId);
+
+    /**
+     * 最新创建的10个容器（大屏展示）
+     */
+    List<DrillContainer> findTop10ByOrderByIdDesc();
+
+    /**
+     * 指定状态中最新的2个容器（大屏告警）
+     */
+    List<DrillContainer> findTop2ByStatusInOrderByIdDesc(List<String> statuses);
+
+    /**
+     * 统计服务预热：按状态分组计数
+     */
+    @Query("SELECT c.status, COUNT(c) FROM DrillContainer c GROUP BY c.status")
+    List<Object[]> countGroupByStatus();
 }
\ No newline at end of file
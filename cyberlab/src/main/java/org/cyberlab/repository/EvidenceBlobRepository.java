@@ -0,0 +1,49 @@
+package org.cyberlab.repository;
+
+import org.cyberlab.entity.EvidenceBlob;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+
+/**
+ * 成果证据文件Repository
+ */
+@Repository
+public interface EvidenceBlobRepository extends JpaRepository<EvidenceBlob, String> {
+
+    /**
+     * 登记一次引用：内容首次出现时插入（引用数为1），已存在时引用数加1
+     */
+    @Transactional
+    @Modifying
+    @Query(value = "INSERT INTO evidence_blobs (sha256, size, content_type, ref_count, created_at, last_referenced_at) " +
+           "VALUES (:sha256, :size, :contentType, 1, :now, :now) " +
+           "ON DUPLICATE KEY UPDATE ref_count = ref_count + 1, last_referenced_at = :now", nativeQuery = true)
+    int addReference(@Param("sha256") String sha256,
+                     @Param("size") long size,
+                     @Param("contentType") String contentType,
+                     @Param("now") LocalDateTime now);
+
+    /**
+     * 释放一次引用
+     * @return 1 表示已扣减，0 表示记录不存在或引用数已为0
+     */
+    @Transactional
+    @Modifying
+    @Query("UPDATE EvidenceBlob b SET b.refCount = b.refCount - 1 WHERE b.sha256 = :sha256 AND b.refCount > 0")
+    int releaseReference(@Param("sha256") String sha256);
+
+    /**
+     * 删除已无引用的记录
+     * @return 1 表示已删除（调用方随后删除文件）
+     */
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM EvidenceBlob b WHERE b.sha256 = :sha256 AND b.refCount <= 0")
+    int deleteIfUnreferenced(@Param("sha256") String sha256);
+}
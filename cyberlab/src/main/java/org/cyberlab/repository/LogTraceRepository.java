@@ -0,0 +1,49 @@
+package org.cyberlab.repository;
+
+import org.cyberlab.entity.LogTrace;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * 请求链路Repository
+ */
+@Repository
+public interface LogTraceRepository extends JpaRepository<LogTrace, Long> {
+
+    /**
+     * 按追踪ID查询链路
+     */
+    Optional<LogTrace> findByTraceId(String traceId);
+
+    /**
+     * 批量查询已存在的链路（写回时合并）
+     */
+    List<LogTrace> findByTraceIdIn(Collection<String> traceIds);
+
+    /**
+     * 按会话ID查询链路（按开始时间升序）
+     */
+    Page<LogTrace> findBySessionIdOrderByStartTimeAsc(String sessionId, Pageable pageable);
+
+    /**
+     * 按会话ID查询指定用户的链路（非管理员只能查看自己的链路）
+     */
+    Page<LogTrace> findBySessionIdAndUsernameOrderByStartTimeAsc(String sessionId, String username, Pageable pageable);
+
+    /**
+     * 清理指定时间之前的链路
+     */
+    @Modifying
+    @Query("DELETE FROM LogTrace t WHERE t.startTime < :before")
+    int deleteByStartTimeBefore(@Param("before") LocalDateTime before);
+}
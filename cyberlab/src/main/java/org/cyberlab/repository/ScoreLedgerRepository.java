@@ -0,0 +1,70 @@
+package org.cyberlab.repository;
+
+import org.cyberlab.entity.ScoreLedger;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * 计分台账Repository
+ */
+@Repository
+public interface ScoreLedgerRepository extends JpaRepository<ScoreLedger, Long> {
+
+    /**
+     * 登记成果计分（成果ID已存在时不做任何修改）
+     * @return 1 表示首次登记，0 表示该成果已计过分
+     */
+    @Transactional
+    @Modifying
+    @Query(value = "INSERT IGNORE INTO score_ledger (achievement_id, range_id, team_name, team_type, score, created_at) " +
+           "VALUES (:achievementId, :rangeId, :teamName, :teamType, :score, :createdAt)", nativeQuery = true)
+    int insertIfAbsent(@Param("achievementId") Long achievementId,
+                       @Param("rangeId") Long rangeId,
+                       @Param("teamName") String teamName,
+                       @Param("teamType") String teamType,
+                       @Param("score") int score,
+                       @Param("createdAt") LocalDateTime createdAt);
+
+    /**
+     * 读取台账记录（原生查询，不经过持久化上下文缓存，重新审批时总能读到最新分数）
+     * @return [range_id, team_name, team_type, score]，未登记时为空列表
+     */
+    @Query(value = "SELECT range_id, team_name, team_type, score FROM score_ledger WHERE achievement_id = :achievementId",
+           nativeQuery = true)
+    List<Object[]> findEntry(@Param("achievementId") Long achievementId);
+
+    /**
+     * 重新审批改分：仅当台账分数仍为 expectedScore 时修改（比较并交换，并发改分只有一个生效）
+     * @return 1 表示已修改，0 表示分数已被其他审批修改
+     */
+    @Transactional
+    @Modifying
+    @Query(value = "UPDATE score_ledger SET score = :score WHERE achievement_id = :achievementId AND score = :expectedScore",
+           nativeQuery = true)
+    int updateScore(@Param("achievementId") Long achievementId,
+                    @Param("expectedScore") int expectedScore,
+                    @Param("score") int score);
+
+    /**
+     * 按演练和团队汇总台账（排行榜重放的权威来源）
+     * @return [演练ID, 团队名称, 队伍类型, 总分, 计分成果数, 最后计分时间]
+     */
+    @Query("SELECT l.rangeId, l.teamName, MAX(l.teamType), SUM(l.score), COUNT(l), MAX(l.createdAt) FROM ScoreLedger l " +
+           "GROUP BY l.rangeId, l.teamName")
+    List<Object[]> sumScoresGroupByRangeAndTeam();
+
+    /**
+     * 汇总指定演练、团队的台账（多实例部署时按其他实例的计分通知重新读取）
+     * @return [队伍类型, 总分, 计分成果数, 最后计分时间]，无台账时总分等为 null
+     */
+    @Query("SELECT MAX(l.teamType), SUM(l.score), COUNT(l), MAX(l.createdAt) FROM ScoreLedger l " +
+           "WHERE l.rangeId = :rangeId AND l.teamName = :teamName")
+    List<Object[]> sumScoresByRangeAndTeam(@Param("rangeId") Long rangeId, @Param("teamName") String teamName);
+}
@@ -2,6 +2,7 @@ package org.cyberlab.repository;
 
 import org.cyberlab.entity.ScreenRecording;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
@@ -16,6 +17,14 @@ public interface ScreenRecordingRepository extends JpaRepository<ScreenRecording
     // 根据sessionId查找
     Optional<ScreenRecording> findBySessionId(String sessionId);
 
+    // 分片计数加1（相对更新，同一会话并发上传不会丢失计数）
+    @Modifying
+    @Query("UPDATE ScreenRecording sr SET sr.chunkCount = COALESCE(sr.chunkCount, 0) + 1, sr.status = :status, " +
+           "sr.updatedAt = :now WHERE sr.sessionId = :sessionId")
+    int incrementChunkCount(@Param("sessionId") String sessionId,
+                            @Param("status") String status,
+                            @Param("now") LocalDateTime now);
+
     // 检查用户是否有正在录制的会话
     boolean existsByUserIdAndStatus(Long userId, String status);
 
@@ -4,9 +4,15 @@ import org.cyberlab.entity.SystemLog;
 import org.cyberlab.enums.BusinessModule;
 import org.cyberlab.enums.OperationStatus;
 import org.cyberlab.enums.OperationType;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
@@ -30,6 +36,26 @@ public interface SystemLogRepository extends JpaRepository<SystemLog, Long> {
     // ✅ 清理三个月前的日志
     int deleteByTimestampBefore(LocalDateTime time);
 
+    // ========== 日志去重（按主键游标扫描） ==========
+
+    /**
+     * 按主键升序扫描去重所需的窄字段（id, username, operation, description, timestamp, 行字节数）
+     * 行字节数为各文本列 LENGTH 之和，用于估算删除后回收的空间
+     */
+    @Query(value = "SELECT l.id, l.username, l.operation, l.description, l.timestamp, " +
+           "COALESCE(LENGTH(l.username), 0) + COALESCE(LENGTH(l.operation), 0) + " +
+           "COALESCE(LENGTH(l.description), 0) + COALESCE(LENGTH(l.request_url), 0) + " +
+           "COALESCE(LENGTH(l.before_data), 0) + COALESCE(LENGTH(l.after_data), 0) + " +
+           "COALESCE(LENGTH(l.error_stack), 0) + COALESCE(LENGTH(l.browser_info), 0) AS row_bytes " +
+           "FROM system_log l WHERE l.id > :afterId ORDER BY l.id ASC LIMIT :limit",
+           nativeQuery = true)
+    List<Object[]> findDedupKeysAfterId(@Param("afterId") long afterId, @Param("limit") int limit);
+
+    /**
+     * 按主键升序分批读取（用于重建全文索引）
+     */
+    List<SystemLog> findByIdGreaterThanOrderByIdAsc(Long id, Pageable pageable);
+
     // 在现有的SystemLogRepository中添加以下方法
     List<SystemLog> findTop10ByOrderByTimestampDesc();
 
@@ -46,6 +72,14 @@ public interface SystemLogRepository extends JpaRepository<SystemLog, Long> {
      */
     long countByTimestampBetween(LocalDateTime startTime, LocalDateTime endTime);
 
+    /**
+     * 按分钟分组统计日志数（用于预热攻击趋势直方图）
+     * @return [分钟 yyyy-MM-dd HH:mm, 数量]
+     */
+    @Query(value = "SELECT DATE_FORMAT(timestamp, '%Y-%m-%d %H:%i') AS bucket, COUNT(*) FROM system_log " +
+           "WHERE timestamp >= :since GROUP BY bucket", nativeQuery = true)
+    List<Object[]> countPerMinuteSince(@Param("since") LocalDateTime since);
+
     /**
      * 根据时间范围查询日志
      */
@@ -384,4 +418,10 @@ public interface SystemLogRepository extends JpaRepository<SystemLog, Long> {
         String username, BusinessModule businessModule, OperationStatus operationStatus);
     Page<SystemLog> findByUsernameAndBusinessModuleAndOperationStatus(
         String username, BusinessModule businessModule, OperationStatus operationStatus, Pageable pageable);
-}
\ No newline at end of file
+
+    // ========== 键集分页（游标） ==========
+    // 按 (timestamp, id) 定位下一页，深翻页不再随 OFFSET 线性变慢，也不执行 COUNT；排序由调用方通过 Sort 指定
+
+    Window<SystemLog> findByUsernameContainingAndOperationContaining(
+        String username, String operation, ScrollPosition position, Limit limit, Sort sort);
+}
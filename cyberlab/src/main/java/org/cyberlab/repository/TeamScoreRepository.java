@@ -2,10 +2,12 @@ package org.cyberlab.repository;
 
 import org.cyberlab.entity.TeamScore;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
 
@@ -40,6 +42,25 @@ public interface TeamScoreRepository extends JpaRepository<TeamScore, Long> {
            "ORDER BY ts.totalScore DESC, ts.approvedCount DESC, ts.lastUpdateTime ASC")
     List<TeamScore> findForRanking(@Param("rangeId") Long rangeId, @Param("teamType") String teamType);
 
+    /**
+     * 相对更新得分（total_score = total_score + ?），并发写入不会丢失更新
+     */
+    @Modifying
+    @Query("UPDATE TeamScore ts SET ts.totalScore = ts.totalScore + :scoreDelta, " +
+           "ts.approvedCount = ts.approvedCount + :countDelta, ts.lastUpdateTime = :lastUpdateTime " +
+           "WHERE ts.id = :id")
+    int addScore(@Param("id") Long id,
+                 @Param("scoreDelta") int scoreDelta,
+                 @Param("countDelta") int countDelta,
+                 @Param("lastUpdateTime") LocalDateTime lastUpdateTime);
+
+    /**
+     * 更新排名（排名由得分推导，不参与版本控制）
+     */
+    @Modifying
+    @Query("UPDATE TeamScore ts SET ts.ranking = :ranking WHERE ts.id = :id")
+    int updateRanking(@Param("id") Long id, @Param("ranking") Integer ranking);
+
     /**
      * 根据队伍ID查找所有得分记录
      */
@@ -2,6 +2,7 @@ package org.cyberlab.repository;
 
 import org.cyberlab.entity.User;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 
 import java.util.List;
 import java.util.Optional;
@@ -20,4 +21,12 @@ public interface UserRepository extends JpaRepository<User, Long> {
     
     // 按角色统计用户数量
     long countByRole(String role);
+
+    // 令牌校验所需的窄字段（id, username, tokenVersion, enabled），启动时加载到内存
+    @Query("SELECT u.id, u.username, u.tokenVersion, u.enabled FROM User u")
+    List<Object[]> findTokenStates();
+
+    // 统计服务预热：按角色、启用状态分组计数
+    @Query("SELECT u.role, u.enabled, COUNT(u) FROM User u GROUP BY u.role, u.enabled")
+    List<Object[]> countGroupByRoleAndEnabled();
 }
\ No newline at end of file
@@ -0,0 +1,151 @@
+package org.cyberlab.security;
+
+import io.jsonwebtoken.Claims;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * JWT 认证缓存
+ *
+ * 缓存已验签的令牌 → 用户名/权限/令牌版本/jti，避免每个请求都重复解析和验签。
+ * 缓存项有效期不超过令牌本身的过期时间，容量有限（LRU）。
+ * 令牌是否已被注销、用户是否被禁用由 {@link TokenRevocationService} 在每次请求时于内存中判断，
+ * 因此用户状态变化无需清理本缓存。
+ */
+@Component
+public class AuthenticationCache {
+
+    @Value("${cyberlab.security.auth-cache.token-size:10000}")
+    private int tokenCacheSize;
+
+    /**
+     * 令牌缓存最长有效期（秒），实际有效期取其与令牌过期时间的较小值
+     */
+    @Value("${cyberlab.security.auth-cache.token-ttl-seconds:300}")
+    private long tokenTtlSeconds;
+
+    private final AtomicLong tokenHits = new AtomicLong();
+    private final AtomicLong tokenMisses = new AtomicLong();
+
+    private Map<String, CachedPrincipal> tokenCache;
+
+    @PostConstruct
+    public void init() {
+        tokenCache = new LinkedHashMap<>(256, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CachedPrincipal> eldest) {
+                return size() > tokenCacheSize;
+            }
+        };
+    }
+
+    /**
+     * 获取已验证令牌对应的主体（未命中或已过期返回 null）
+     */
+    public CachedPrincipal getPrincipal(String token) {
+        CachedPrincipal principal;
+        synchronized (tokenCache) {
+            principal = tokenCache.get(token);
+            if (principal != null && principal.cacheExpiresAt <= System.currentTimeMillis()) {
+                tokenCache.remove(token);
+                principal = null;
+            }
+        }
+        (principal != null ? tokenHits : tokenMisses).incrementAndGet();
+        return principal;
+    }
+
+    /**
+     * 缓存已验证的令牌
+     */
+    public CachedPrincipal putPrincipal(String token, CachedPrincipal principal) {
+        principal.cacheExpiresAt = Math.min(principal.expiresAt, System.currentTimeMillis() + tokenTtlSeconds * 1000);
+        synchronized (tokenCache) {
+            tokenCache.put(token, principal);
+        }
+        return principal;
+    }
+
+    /**
+     * 获取缓存统计
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        synchronized (tokenCache) {
+            stats.put("tokenEntries", tokenCache.size());
+        }
+        stats.put("tokenHits", tokenHits.get());
+        stats.put("tokenMisses", tokenMisses.get());
+        return stats;
+    }
+
+    /**
+     * 已验证令牌对应的主体
+     */
+    public static class CachedPrincipal {
+        private final String username;
+        private final List<String> authorities;
+        private final String jti;
+        private final Long userId;
+        private final int tokenVersion;
+        private final long expiresAt;
+        private long cacheExpiresAt;
+
+        public CachedPrincipal(String username, List<String> authorities, String jti,
+                               Long userId, int tokenVersion, long expiresAt) {
+            this.username = username;
+            this.authorities = authorities != null ? Collections.unmodifiableList(new ArrayList<>(authorities)) : List.of();
+            this.jti = jti;
+            this.userId = userId;
+            this.tokenVersion = tokenVersion;
+            this.expiresAt = expiresAt;
+        }
+
+        /**
+         * 从已验签的 Claims 构造（旧令牌没有 tv/uid/jti 声明时分别按 0/null/null 处理）
+         */
+        @SuppressWarnings("unchecked")
+        public static CachedPrincipal fromClaims(Claims claims) {
+            Number uid = claims.get("uid", Number.class);
+            Number tv = claims.get("tv", Number.class);
+            return new CachedPrincipal(
+                    claims.getSubject(),
+                    claims.get("authorities", List.class),
+                    claims.getId(),
+                    uid != null ? uid.longValue() : null,
+                    tv != null ? tv.intValue() : 0,
+                    claims.getExpiration() != null ? claims.getExpiration().getTime() : System.currentTimeMillis());
+        }
+
+        public String getUsername() {
+            return username;
+        }
+
+        public List<String> getAuthorities() {
+            return authorities;
+        }
+
+        public String getJti() {
+            return jti;
+        }
+
+        public Long getUserId() {
+            return userId;
+        }
+
+        public int getTokenVersion() {
+            return tokenVersion;
+        }
+
+        /**
+         * 令牌过期时间（毫秒时间戳）
+         */
+        public long getExpiresAt() {
+            return expiresAt;
+        }
+    }
+}
@@ -1,17 +1,16 @@
 package org.cyberlab.security;
 
+import io.jsonwebtoken.Claims;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import jakarta.servlet.http.Cookie;
 import org.cyberlab.entity.SystemLog;
-import org.cyberlab.entity.User;
 import org.cyberlab.enums.BusinessModule;
 import org.cyberlab.enums.OperationStatus;
 import org.cyberlab.enums.OperationType;
 import org.cyberlab.repository.SystemLogRepository;
-import org.cyberlab.repository.UserRepository;
 import org.cyberlab.util.SpringContext;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -38,7 +37,10 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
     private JwtTokenProvider jwtProvider;
 
     @Autowired
-    private UserRepository userRepo;
+    private AuthenticationCache authCache;
+
+    @Autowired
+    private TokenRevocationService revocationService;
     
     @Autowired
     private SystemLogRepository systemLogRepository;
@@ -48,11 +50,11 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         String requestURI = request.getRequestURI();
 
         // 跳过这些路径的JWT验证，与SecurityConfig中的permitAll保持一致
+        // （/api/assets/export 虽允许匿名访问，但需识别已登录用户以开放自选导出列，不在此跳过）
         return requestURI.startsWith("/api/auth/") ||
                requestURI.startsWith("/api/range/") ||
                requestURI.startsWith("/api/drills/") ||
                requestURI.startsWith("/api/health") ||
-               requestURI.startsWith("/api/assets/export") ||
                requestURI.startsWith("/api/admin/exceptions/") || // 允许前端异常报告(包括health接口)
                (requestURI.equals("/api/settings") && "GET".equals(request.getMethod())) || // 只跳过GET请求
                requestURI.equals("/") ||
@@ -69,10 +71,13 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         try {
             String token = getTokenFromRequest(request);
 
-            if (token != null && jwtProvider.validateToken(token)) {
-                authenticateUser(token, request);
-            } else if (token != null) {
-                logger.warn("JWT验证失败，可能已过期或签名无效");
+            if (token != null) {
+                AuthenticationCache.CachedPrincipal principal = resolvePrincipal(token);
+                if (principal != null) {
+                    authenticateUser(principal, request);
+                } else {
+                    logger.warn("JWT验证失败，可能已过期或签名无效");
+                }
             }
         } catch (Exception e) {
             logger.error("JWT过滤器处理异常: {}", e.getMessage(), e);
@@ -83,21 +88,37 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         chain.doFilter(request, response);
     }
 
+    /**
+     * 解析令牌：优先使用认证缓存，未命中时验签并写入缓存
+     */
+    private AuthenticationCache.CachedPrincipal resolvePrincipal(String token) {
+        AuthenticationCache.CachedPrincipal principal = authCache.getPrincipal(token);
+        if (principal != null) {
+            return principal;
+        }
+
+        Claims claims = jwtProvider.getClaimsIfValid(token);
+        if (claims == null) {
+            return null;
+        }
+        return authCache.putPrincipal(token, AuthenticationCache.CachedPrincipal.fromClaims(claims));
+    }
+
     /**
      * 认证用户并设置安全上下文
      */
-    private void authenticateUser(String token, HttpServletRequest request) {
+    private void authenticateUser(AuthenticationCache.CachedPrincipal principal, HttpServletRequest request) {
         try {
-            String username = jwtProvider.getUsername(token);
-            List<String> authorities = jwtProvider.getAuthorities(token);
+            String username = principal.getUsername();
+            List<String> authorities = principal.getAuthorities();
 
             if (username == null || username.trim().isEmpty()) {
                 logger.warn("JWT中用户名为空");
                 return;
             }
 
-            User user = userRepo.findByUsername(username).orElse(null);
-            if (user != null && user.isEnabled()) {
+            // 令牌版本、用户启用状态、jti 黑名单均在内存中判断，不查询用户表
+            if (revocationService.isAllowed(principal)) {
                 // 权限转换
                 List<SimpleGrantedAuthority> grantedAuthorities = authorities.stream()
                         .filter(auth -> auth != null && !auth.trim().isEmpty())
@@ -106,7 +127,7 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
                 UsernamePasswordAuthenticationToken authentication =
                         new UsernamePasswordAuthenticationToken(
-                                user.getUsername(),
+                                username,
                                 null,
                                 grantedAuthorities
                         );
@@ -116,7 +137,7 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
                 // 记录登录日志
                 logUserAccess(username, request);
             } else {
-                logger.warn("用户不存在或已被禁用：{}", username);
+                logger.warn("用户不存在、已被禁用或令牌已注销：{}", username);
             }
         } catch (Exception e) {
             logger.error("用户认证过程异常: {}", e.getMessage(), e);
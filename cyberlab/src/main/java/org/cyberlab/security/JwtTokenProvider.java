@@ -9,6 +9,7 @@ import org.springframework.stereotype.Component;
 import javax.crypto.SecretKey;
 import java.util.Date;
 import java.util.List;
+import java.util.UUID;
 
 @Component
 public class JwtTokenProvider {
@@ -27,8 +28,11 @@ public class JwtTokenProvider {
     // ✅ 生成 JWT，authorities 使用 List<String>
     public String generateToken(User user) {
         return Jwts.builder()
+                .setId(UUID.randomUUID().toString())  // jti，用于注销单个令牌
                 .setSubject(user.getUsername())
                 .claim("authorities", List.of("ROLE_" + user.getRole()))  // ⬅️ 用数组形式存储
+                .claim("uid", user.getId())
+                .claim("tv", user.getTokenVersion())  // 令牌版本，低于用户当前版本即失效
                 .setIssuedAt(new Date())
                 .setExpiration(new Date(System.currentTimeMillis() + EXPIRATION))
                 .signWith(key, SignatureAlgorithm.HS256)
@@ -57,11 +61,23 @@ public class JwtTokenProvider {
         }
     }
 
+    // ✅ 验证并返回 Claims（签名无效或已过期时返回 null），避免验证与取值重复解析
+    public Claims getClaimsIfValid(String token) {
+        try {
+            return parseClaims(token);
+        } catch (JwtException | IllegalArgumentException e) {
+            return null;
+        }
+    }
+
     // ✅ 生成刷新令牌
     public String generateRefreshToken(User user) {
         return Jwts.builder()
+                .setId(UUID.randomUUID().toString())
                 .setSubject(user.getUsername())
                 .claim("type", "refresh")  // 标识为刷新令牌
+                .claim("uid", user.getId())
+                .claim("tv", user.getTokenVersion())
                 .setIssuedAt(new Date())
                 .setExpiration(new Date(System.currentTimeMillis() + REFRESH_EXPIRATION))
                 .signWith(key, SignatureAlgorithm.HS256)
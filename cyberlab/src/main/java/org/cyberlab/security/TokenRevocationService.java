@@ -0,0 +1,406 @@
+package org.cyberlab.security;
+
+import jakarta.annotation.PostConstruct;
+import org.cyberlab.entity.User;
+import org.cyberlab.repository.UserRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ZSetOperations;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 令牌吊销服务
+ *
+ * JWT 校验完全在内存中完成，不查询用户表：
+ * 1. 用户令牌状态表（用户名 → 用户ID/最低令牌版本/启用状态），启动时一次性加载，用户变更时更新，
+ *    数据库恢复后整体重新加载。令牌中的 tv 声明低于用户当前版本即失效（禁用、删除、修改角色或用户名时版本递增）。
+ *    从数据库重新读取的状态按版本合并，不会覆盖并发写入的更新状态；不存在的用户不缓存
+ * 2. jti 黑名单（注销的单个令牌），由布隆过滤器快速排除绝大多数未注销的令牌，
+ *    命中时再查精确集合确认，避免误判。条目在令牌过期后清理，过滤器定期重建
+ * 3. 多实例部署（cyberlab.cluster.enabled=true）时通过 Redis 发布/订阅同步变更，
+ *    jti 黑名单同时保存在 Redis 有序集合中，新启动的实例可加载
+ */
+@Component
+public class TokenRevocationService {
+
+    private static final Logger logger = LoggerFactory.getLogger(TokenRevocationService.class);
+
+    static final String REVOCATION_CHANNEL = "cyberlab:auth:revocation";
+    static final String DENYLIST_KEY = "cyberlab:auth:revoked-jti";
+
+    @Autowired
+    private UserRepository userRepo;
+
+    @Autowired(required = false)
+    private RedisMessageListenerContainer listenerContainer;
+
+    @Autowired(required = false)
+    private StringRedisTemplate stringRedisTemplate;
+
+    /**
+     * 布隆过滤器按此数量的有效注销令牌设计容量
+     */
+    @Value("${cyberlab.security.revocation.expected-revocations:100000}")
+    private int expectedRevocations;
+
+    @Value("${cyberlab.security.revocation.false-positive-rate:0.01}")
+    private double falsePositiveRate;
+
+    private final String instanceId = UUID.randomUUID().toString();
+    private final Map<String, UserTokenState> userStates = new ConcurrentHashMap<>();
+    private final Map<String, Long> revokedJtis = new ConcurrentHashMap<>();
+    private final Object denylistLock = new Object();
+    private final AtomicLong rejectedTokens = new AtomicLong();
+    private final AtomicLong userStateMisses = new AtomicLong();
+    private volatile BloomFilter denyFilter;
+
+    @PostConstruct
+    public void init() {
+        userStates.putAll(loadAllUserStates());
+        denyFilter = new BloomFilter(expectedRevocations, falsePositiveRate);
+
+        if (listenerContainer != null) {
+            listenerContainer.addMessageListener((message, pattern) ->
+                    handleMessage(new String(message.getBody(), StandardCharsets.UTF_8)),
+                    new ChannelTopic(REVOCATION_CHANNEL));
+            loadSharedDenylist();
+        }
+        logger.info("令牌吊销服务初始化完成，用户 {} 个，注销令牌 {} 个", userStates.size(), revokedJtis.size());
+    }
+
+    /**
+     * 判断令牌是否仍然有效（纯内存判断）
+     */
+    public boolean isAllowed(AuthenticationCache.CachedPrincipal principal) {
+        UserTokenState state = userStates.get(principal.getUsername());
+        if (state == null) {
+            // 其他实例新建的用户且未收到通知时才会走到这里
+            userStateMisses.incrementAndGet();
+            state = reloadUserState(principal.getUsername());
+        }
+
+        boolean allowed = state != null && state.enabled
+                && (principal.getUserId() == null || state.userId == null || principal.getUserId().equals(state.userId))
+                && principal.getTokenVersion() >= state.tokenVersion
+                && !isRevoked(principal.getJti());
+        if (!allowed) {
+            rejectedTokens.incrementAndGet();
+        }
+        return allowed;
+    }
+
+    /**
+     * jti 是否已被注销
+     */
+    public boolean isRevoked(String jti) {
+        return jti != null && denyFilter.mightContain(jti) && revokedJtis.containsKey(jti);
+    }
+
+    /**
+     * 注销单个令牌（登出、刷新令牌轮换）
+     * @param expiresAt 令牌过期时间（毫秒时间戳），过期后自动移出黑名单
+     */
+    public void revokeToken(String jti, long expiresAt) {
+        if (jti == null || expiresAt <= System.currentTimeMillis()) {
+            return;
+        }
+        addRevokedLocal(jti, expiresAt);
+        if (isClusterEnabled()) {
+            try {
+                stringRedisTemplate.opsForZSet().add(DENYLIST_KEY, jti, expiresAt);
+            } catch (Exception e) {
+                logger.warn("保存注销令牌到Redis失败: {}", e.getMessage());
+            }
+            publish("jti|" + expiresAt + "|" + jti);
+        }
+    }
+
+    /**
+     * 用户创建或变更后更新令牌状态
+     * @param previousUsername 变更前的用户名（用户名被修改时，旧用户名下的令牌全部失效）
+     */
+    public void onUserChanged(String previousUsername, User user) {
+        if (previousUsername != null && !previousUsername.equals(user.getUsername())) {
+            userStates.put(previousUsername, UserTokenState.disabled(user.getId()));
+            publish("user|" + previousUsername);
+        }
+        userStates.put(user.getUsername(), new UserTokenState(user.getId(), user.getTokenVersion(), user.isEnabled()));
+        publish("user|" + user.getUsername());
+    }
+
+    /**
+     * 用户删除后使其全部令牌失效
+     */
+    public void onUserDeleted(String username) {
+        userStates.compute(username, (key, current) -> UserTokenState.disabled(current != null ? current.userId : null));
+        publish("user|" + username);
+    }
+
+    /**
+     * 用户表被整体替换（数据库恢复）后重新加载全部用户状态，并通知其他实例
+     */
+    public void reloadAllUserStates() {
+        reloadAllLocal();
+        publish("reload|users");
+    }
+
+    /**
+     * 定期清理已过期的注销令牌并重建布隆过滤器
+     */
+    @Scheduled(fixedDelayString = "${cyberlab.security.revocation.purge-interval-ms:300000}")
+    public void purgeExpired() {
+        long now = System.currentTimeMillis();
+        synchronized (denylistLock) {
+            if (!revokedJtis.values().removeIf(expiresAt -> expiresAt <= now)) {
+                return;
+            }
+            BloomFilter rebuilt = new BloomFilter(Math.max(expectedRevocations, revokedJtis.size() * 2), falsePositiveRate);
+            revokedJtis.keySet().forEach(rebuilt::put);
+            denyFilter = rebuilt;
+        }
+        if (isClusterEnabled()) {
+            try {
+                stringRedisTemplate.opsForZSet().removeRangeByScore(DENYLIST_KEY, 0, now);
+            } catch (Exception e) {
+                logger.warn("清理Redis注销令牌失败: {}", e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * 获取统计信息
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("users", userStates.size());
+        stats.put("revokedTokens", revokedJtis.size());
+        stats.put("bloomFilterBits", denyFilter.bitSize());
+        stats.put("bloomFilterHashes", denyFilter.hashCount());
+        stats.put("rejectedTokens", rejectedTokens.get());
+        stats.put("userStateMisses", userStateMisses.get());
+        stats.put("clusterSync", isClusterEnabled());
+        return stats;
+    }
+
+    // ========== 私有辅助方法 ==========
+
+    private void addRevokedLocal(String jti, long expiresAt) {
+        synchronized (denylistLock) {
+            revokedJtis.put(jti, expiresAt);
+            denyFilter.put(jti);
+        }
+    }
+
+    /**
+     * 从数据库重新读取单个用户的状态
+     * @return 用户不存在时返回 null（不缓存，之后创建同名用户无需等待通知）
+     */
+    private UserTokenState reloadUserState(String username) {
+        UserTokenState loaded = userRepo.findByUsername(username)
+                .map(user -> new UserTokenState(user.getId(), user.getTokenVersion(), user.isEnabled()))
+                .orElse(null);
+        if (loaded == null) {
+            // 只移除非本实例刚写入的状态：删除/改名留下的禁用标记保留
+            userStates.computeIfPresent(username, (key, current) -> current.isTombstone() ? current : null);
+            return userStates.get(username);
+        }
+        return userStates.merge(username, loaded, UserTokenState::newer);
+    }
+
+    private void reloadAllLocal() {
+        Map<String, UserTokenState> loaded = loadAllUserStates();
+        // 恢复后的用户表即权威数据，令牌版本可能回退，直接覆盖
+        userStates.putAll(loaded);
+        userStates.keySet().removeIf(username -> !loaded.containsKey(username));
+        logger.info("已重新加载用户令牌状态，用户 {} 个", loaded.size());
+    }
+
+    private Map<String, UserTokenState> loadAllUserStates() {
+        Map<String, UserTokenState> states = new HashMap<>();
+        for (Object[] row : userRepo.findTokenStates()) {
+            states.put((String) row[1], new UserTokenState(
+                    ((Number) row[0]).longValue(), ((Number) row[2]).intValue(), Boolean.TRUE.equals(row[3])));
+        }
+        return states;
+    }
+
+    private void loadSharedDenylist() {
+        try {
+            long now = System.currentTimeMillis();
+            Set<ZSetOperations.TypedTuple<String>> entries =
+                    stringRedisTemplate.opsForZSet().rangeByScoreWithScores(DENYLIST_KEY, now, Double.MAX_VALUE);
+            if (entries != null) {
+                for (ZSetOperations.TypedTuple<String> entry : entries) {
+                    if (entry.getValue() != null && entry.getScore() != null) {
+                        addRevokedLocal(entry.getValue(), entry.getScore().longValue());
+                    }
+                }
+            }
+        } catch (Exception e) {
+            logger.warn("从Redis加载注销令牌失败: {}", e.getMessage());
+        }
+    }
+
+    private void publish(String body) {
+        if (!isClusterEnabled()) {
+            return;
+        }
+        try {
+            stringRedisTemplate.convertAndSend(REVOCATION_CHANNEL, instanceId + "|" + body);
+        } catch (Exception e) {
+            logger.warn("发布令牌吊销通知失败: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 处理其他实例的通知：instanceId|user|username、instanceId|jti|expiresAt|jti 或 instanceId|reload|users
+     */
+    private void handleMessage(String message) {
+        String[] parts = message.split("\\|", 3);
+        if (parts.length < 3 || instanceId.equals(parts[0])) {
+            return;
+        }
+        try {
+            if ("user".equals(parts[1])) {
+                reloadUserState(parts[2]);
+            } else if ("reload".equals(parts[1])) {
+                reloadAllLocal();
+            } else if ("jti".equals(parts[1])) {
+                String[] jtiParts = parts[2].split("\\|", 2);
+                if (jtiParts.length == 2) {
+                    addRevokedLocal(jtiParts[1], Long.parseLong(jtiParts[0]));
+                }
+            }
+        } catch (Exception e) {
+            logger.warn("处理令牌吊销通知失败: {}", e.getMessage());
+        }
+    }
+
+    private boolean isClusterEnabled() {
+        return listenerContainer != null && stringRedisTemplate != null;
+    }
+
+    /**
+     * 用户令牌状态
+     */
+    private static class UserTokenState {
+        private final Long userId;
+        private final int tokenVersion;
+        private final boolean enabled;
+
+        UserTokenState(Long userId, int tokenVersion, boolean enabled) {
+            this.userId = userId;
+            this.tokenVersion = tokenVersion;
+            this.enabled = enabled;
+        }
+
+        /**
+         * 删除或改名后的禁用标记（保留原用户ID，重新创建的同名用户ID不同，不受影响）
+         */
+        static UserTokenState disabled(Long userId) {
+            return new UserTokenState(userId, Integer.MAX_VALUE, false);
+        }
+
+        boolean isTombstone() {
+            return !enabled && tokenVersion == Integer.MAX_VALUE;
+        }
+
+        /**
+         * 合并当前状态与数据库读取的状态，保留较新的一个：
+         * 同一用户版本高者为新；版本相同时启用状态为新（禁用必然递增版本，只有启用不递增）
+         */
+        static UserTokenState newer(UserTokenState current, UserTokenState loaded) {
+            if (current.userId == null || !current.userId.equals(loaded.userId)) {
+                // 同名的另一个用户（重新创建），以数据库为准
+                return loaded;
+            }
+            if (current.tokenVersion != loaded.tokenVersion) {
+                return current.tokenVersion > loaded.tokenVersion ? current : loaded;
+            }
+            return current.enabled ? current : loaded;
+        }
+    }
+
+    /**
+     * 布隆过滤器（双重哈希，位数组使用 AtomicLongArray 保证并发可见性）
+     */
+    static class BloomFilter {
+        private final AtomicLongArray bits;
+        private final long bitSize;
+        private final int hashCount;
+
+        BloomFilter(int expectedInsertions, double fpp) {
+            int n = Math.max(1, expectedInsertions);
+            long m = (long) Math.ceil(-n * Math.log(fpp) / (Math.log(2) * Math.log(2)));
+            this.bitSize = Math.max(64, m);
+            this.hashCount = Math.max(1, (int) Math.round((double) bitSize / n * Math.log(2)));
+            this.bits = new AtomicLongArray((int) ((bitSize + 63) / 64));
+        }
+
+        void put(String value) {
+            long hash = hash64(value);
+            int h1 = (int) hash;
+            int h2 = (int) (hash >>> 32);
+            for (int i = 1; i <= hashCount; i++) {
+                long index = Math.floorMod(h1 + (long) i * h2, bitSize);
+                int word = (int) (index >>> 6);
+                long mask = 1L << index;
+                long current;
+                do {
+                    current = bits.get(word);
+                    if ((current & mask) != 0) {
+                        break;
+                    }
+                } while (!bits.compareAndSet(word, current, current | mask));
+            }
+        }
+
+        boolean mightContain(String value) {
+            long hash = hash64(value);
+            int h1 = (int) hash;
+            int h2 = (int) (hash >>> 32);
+            for (int i = 1; i <= hashCount; i++) {
+                long index = Math.floorMod(h1 + (long) i * h2, bitSize);
+                if ((bits.get((int) (index >>> 6)) & (1L << index)) == 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        long bitSize() {
+            return bitSize;
+        }
+
+        int hashCount() {
+            return hashCount;
+        }
+
+        private static long hash64(String value) {
+            long h = 0xcbf29ce484222325L;
+            for (int i = 0; i < value.length(); i++) {
+                h ^= value.charAt(i);
+                h *= 0x100000001b3L;
+            }
+            // splitmix64 finalizer
+            h ^= h >>> 30;
+            h *= 0xbf58476d1ce4e5b9L;
+            h ^= h >>> 27;
+            h *= 0x94d049bb133111ebL;
+            h ^= h >>> 31;
+            return h;
+        }
+    }
+}
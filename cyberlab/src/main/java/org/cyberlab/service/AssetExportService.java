@@ -0,0 +1,176 @@
+package org.cyberlab.service;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.cyberlab.entity.Asset;
+import org.cyberlab.repository.AssetRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.*;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+/**
+ * 资产 CSV 导出服务
+ *
+ * 通过只进游标逐行读取资产（见 {@link AssetRepository#streamForExport}），每行写出后立即从持久化上下文移除，
+ * 内存占用与表大小无关；输出遵循 RFC 4180（含逗号、引号、换行的字段加引号，引号转义为两个引号，行尾 CRLF）。
+ */
+@Service
+public class AssetExportService {
+
+    private static final Logger logger = LoggerFactory.getLogger(AssetExportService.class);
+
+    /**
+     * 可导出的列：列名 → 表头、取值
+     */
+    private static final Map<String, Column> COLUMNS = new LinkedHashMap<>();
+
+    /**
+     * 默认导出列（与原导出格式一致）
+     */
+    public static final List<String> DEFAULT_COLUMNS = List.of(
+            "id", "name", "ip", "company", "owner", "visibility", "isTarget", "enabled", "notes");
+
+    static {
+        column("id", "ID", Asset::getId);
+        column("name", "名称", Asset::getName);
+        column("ip", "IP", Asset::getIp);
+        column("company", "企业", Asset::getCompany);
+        column("owner", "负责人", Asset::getOwner);
+        column("visibility", "可见性", Asset::getVisibility);
+        column("isTarget", "是否靶场", asset -> asset.isTarget() ? "是" : "否");
+        column("enabled", "启用", asset -> asset.isEnabled() ? "启用" : "禁用");
+        column("notes", "备注", Asset::getNotes);
+        column("project", "项目", Asset::getProject);
+        column("topologyProjectId", "拓扑项目ID", Asset::getTopologyProjectId);
+        column("assetType", "资产类型", Asset::getAssetType);
+        column("assetPlatform", "资产平台", Asset::getAssetPlatform);
+        column("dockerImage", "Docker镜像", Asset::getDockerImage);
+        column("preferredHostNodeName", "首选节点", Asset::getPreferredHostNodeName);
+        column("deploymentStrategy", "部署策略", Asset::getDeploymentStrategy);
+        column("probeStatus", "探测状态", Asset::getProbeStatus);
+        column("lastProbeTime", "最后探测时间", Asset::getLastProbeTime);
+    }
+
+    private static void column(String key, String header, Function<Asset, Object> getter) {
+        COLUMNS.put(key, new Column(header, getter));
+    }
+
+    @Autowired
+    private AssetRepository assetRepository;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    /**
+     * 校验并解析导出列（为空时使用默认列）
+     * @throws IllegalArgumentException 包含未知列名时
+     */
+    public List<String> resolveColumns(List<String> requested) {
+        if (requested == null || requested.isEmpty()) {
+            return DEFAULT_COLUMNS;
+        }
+        List<String> columns = new ArrayList<>();
+        for (String value : requested) {
+            for (String key : value.split(",")) {
+                key = key.trim();
+                if (key.isEmpty()) {
+                    continue;
+                }
+                if (!COLUMNS.containsKey(key)) {
+                    throw new IllegalArgumentException("未知的导出列: " + key + "，可选: " + COLUMNS.keySet());
+                }
+                columns.add(key);
+            }
+        }
+        return columns.isEmpty() ? DEFAULT_COLUMNS : columns;
+    }
+
+    /**
+     * 流式导出资产
+     * 过滤条件为 null 时不限制；调用方负责缓冲与关闭 writer
+     * @return 导出行数
+     */
+    @Transactional(readOnly = true)
+    public long exportCsv(Writer writer, List<String> columns,
+                          String company, String project, String assetType, String visibility,
+                          Boolean enabled, Boolean isTarget) throws IOException {
+        List<Column> selected = columns.stream().map(COLUMNS::get).toList();
+
+        writeRow(writer, selected.stream().map(column -> (Object) column.header).toList());
+
+        long count = 0;
+        List<Object> values = new ArrayList<>(selected.size());
+        try (Stream<Asset> assets = assetRepository.streamForExport(
+                blankToNull(company), blankToNull(project), blankToNull(assetType), blankToNull(visibility),
+                enabled, isTarget)) {
+            Iterator<Asset> iterator = assets.iterator();
+            while (iterator.hasNext()) {
+                Asset asset = iterator.next();
+                values.clear();
+                for (Column column : selected) {
+                    values.add(column.getter.apply(asset));
+                }
+                writeRow(writer, values);
+                // 写出后即从持久化上下文移除，避免已读实体累积
+                entityManager.detach(asset);
+                count++;
+            }
+        }
+        logger.info("导出资产 {} 行，列: {}", count, columns);
+        return count;
+    }
+
+    private static void writeRow(Writer writer, List<Object> values) throws IOException {
+        for (int i = 0; i < values.size(); i++) {
+            if (i > 0) {
+                writer.write(',');
+            }
+            writeField(writer, values.get(i));
+        }
+        writer.write("\r\n");
+    }
+
+    /**
+     * RFC 4180 字段：含逗号、双引号、换行时整体加引号，内部双引号写两次
+     */
+    static void writeField(Writer writer, Object value) throws IOException {
+        if (value == null) {
+            return;
+        }
+        String text = value.toString();
+        boolean quote = false;
+        for (int i = 0; i < text.length() && !quote; i++) {
+            char c = text.charAt(i);
+            quote = c == ',' || c == '"' || c == '\r' || c == '\n';
+        }
+        if (!quote) {
+            writer.write(text);
+            return;
+        }
+        writer.write('"');
+        writer.write(text.replace("\"", "\"\""));
+        writer.write('"');
+    }
+
+    private static String blankToNull(String value) {
+        return value == null || value.trim().isEmpty() ? null : value.trim();
+    }
+
+    private static final class Column {
+        final String header;
+        final Function<Asset, Object> getter;
+
+        Column(String header, Function<Asset, Object> getter) {
+            this.header = header;
+            this.getter = getter;
+        }
+    }
+}
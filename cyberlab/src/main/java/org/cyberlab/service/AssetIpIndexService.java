@@ -0,0 +1,405 @@
+package org.cyberlab.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManagerFactory;
+import org.cyberlab.entity.Asset;
+import org.cyberlab.repository.AssetRepository;
+import org.cyberlab.util.IpPrefix;
+import org.cyberlab.util.IpPrefixTrie;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.*;
+import org.hibernate.persister.entity.EntityPersister;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * 资产 IP 索引
+ *
+ * 把资产的 IP 字段（单个地址或 CIDR，IPv4 / IPv6）放进前缀树，支持：
+ * 1. CIDR / 地址范围查询（真正按地址比较，而不是字符串 LIKE）
+ * 2. 重叠检测：与给定网段相交的资产（资产 IP 落在网段内，或资产自身登记的网段包含它）
+ * 3. IP 唯一性校验（资产表单逐字输入时不再访问数据库）
+ *
+ * 首次使用时执行一次投影查询预热；之后通过 Hibernate 提交后事件（插入/更新/删除）增量维护，回滚的写入不会进入索引。
+ * 预热在写锁内查询，提交后事件在写锁内判断是否已预热：事件要么在预热查询之前处理（结果已包含该提交），要么等预热完成后再应用。
+ * 无法解析为地址的 IP 字段（如主机名）按原文（忽略大小写）参与唯一性校验。
+ * 多实例部署（cyberlab.cluster.enabled=true）时，本实例提交的资产ID通过 Redis 发布/订阅通知其他实例，对方按ID重新读取 IP。
+ *
+ * 注意：批量 JPQL/原生语句修改 IP、数据库恢复后应调用 {@link #invalidate()}。
+ */
+@Service
+public class AssetIpIndexService {
+
+    private static final Logger logger = LoggerFactory.getLogger(AssetIpIndexService.class);
+
+    static final String INVALIDATION_CHANNEL = "cyberlab:asset-ip:invalidate";
+
+    /**
+     * 一次通知的资产ID超过该数量时改为通知整体重新预热
+     */
+    private static final int MAX_NOTIFIED_IDS = 500;
+
+    /**
+     * 通知内容：整体失效
+     */
+    private static final String ALL = "*";
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private AssetRepository assetRepository;
+
+    @Autowired(required = false)
+    private RedisMessageListenerContainer listenerContainer;
+
+    @Autowired(required = false)
+    private StringRedisTemplate stringRedisTemplate;
+
+    private final IpPrefixTrie<Long> trie = new IpPrefixTrie<>();
+    /**
+     * 无法解析的 IP 字段（小写原文）→ 资产ID
+     */
+    private final Map<String, Set<Long>> unparsed = new HashMap<>();
+    /**
+     * 资产ID → 当前已索引的 IP 原文
+     */
+    private final Map<Long, String> indexedIps = new HashMap<>();
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private volatile boolean stale = true;
+    private volatile long warmedAt;
+
+    private final String instanceId = UUID.randomUUID().toString();
+    /**
+     * 待通知其他实例的资产ID
+     */
+    private final Set<Long> pendingInvalidations = ConcurrentHashMap.newKeySet();
+    private volatile boolean pendingInvalidateAll;
+
+    @PostConstruct
+    public void init() {
+        EventListenerRegistry registry = entityManagerFactory.unwrap(SessionFactoryImplementor.class)
+                .getServiceRegistry().getService(EventListenerRegistry.class);
+        IndexListener listener = new IndexListener();
+        registry.appendListeners(EventType.POST_COMMIT_INSERT, listener);
+        registry.appendListeners(EventType.POST_COMMIT_UPDATE, listener);
+        registry.appendListeners(EventType.POST_COMMIT_DELETE, listener);
+
+        if (isClusterEnabled()) {
+            listenerContainer.addMessageListener((message, pattern) ->
+                    handleInvalidation(new String(message.getBody(), StandardCharsets.UTF_8)),
+                    new ChannelTopic(INVALIDATION_CHANNEL));
+        }
+    }
+
+    /**
+     * 标记索引失效，下次查询时重新加载（同时通知其他实例）
+     */
+    public void invalidate() {
+        stale = true;
+        pendingInvalidateAll = true;
+    }
+
+    /**
+     * 把本实例提交的资产变化合并通知其他实例
+     */
+    @Scheduled(fixedDelayString = "${cyberlab.asset.ip-index.invalidation-interval-ms:1000}")
+    public void publishInvalidations() {
+        if (!pendingInvalidateAll && pendingInvalidations.isEmpty()) {
+            return;
+        }
+        List<Long> ids = new ArrayList<>(pendingInvalidations);
+        pendingInvalidations.removeAll(ids);
+        boolean all = pendingInvalidateAll || ids.size() > MAX_NOTIFIED_IDS;
+        pendingInvalidateAll = false;
+        if (!isClusterEnabled()) {
+            return;
+        }
+        String payload = all ? ALL : ids.stream().map(String::valueOf).collect(Collectors.joining(","));
+        try {
+            stringRedisTemplate.convertAndSend(INVALIDATION_CHANNEL, instanceId + "|" + payload);
+        } catch (Exception e) {
+            logger.warn("发布资产IP索引失效通知失败: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 处理其他实例的通知：instanceId|* 或 instanceId|资产ID,资产ID...
+     */
+    private void handleInvalidation(String message) {
+        String[] parts = message.split("\\|", 2);
+        if (parts.length < 2 || instanceId.equals(parts[0]) || stale) {
+            return;
+        }
+        if (ALL.equals(parts[1])) {
+            stale = true;
+            return;
+        }
+        try {
+            Set<Long> ids = new HashSet<>();
+            for (String id : parts[1].split(",")) {
+                ids.add(Long.valueOf(id));
+            }
+            Map<Long, String> current = new HashMap<>();
+            for (Object[] row : assetRepository.findIdAndIpByIdIn(ids)) {
+                current.put((Long) row[0], (String) row[1]);
+            }
+            for (Long id : ids) {
+                String ip = current.get(id);
+                apply(id, ip, !current.containsKey(id));
+            }
+        } catch (Exception e) {
+            logger.warn("处理资产IP索引失效通知失败，重新预热: {}", e.getMessage());
+            stale = true;
+        }
+    }
+
+    private boolean isClusterEnabled() {
+        return listenerContainer != null && stringRedisTemplate != null;
+    }
+
+    private void ensureWarm() {
+        if (!stale) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            if (!stale) {
+                return;
+            }
+            long start = System.currentTimeMillis();
+            trie.clear();
+            unparsed.clear();
+            indexedIps.clear();
+            for (Object[] row : assetRepository.findIdAndIp()) {
+                put((Long) row[0], (String) row[1]);
+            }
+            stale = false;
+            warmedAt = System.currentTimeMillis();
+            logger.info("资产IP索引预热完成: {}个资产, {}个前缀, 耗时{}ms",
+                    indexedIps.size(), trie.prefixCount(), warmedAt - start);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 调用方持有写锁
+     */
+    private void put(Long assetId, String ip) {
+        remove(assetId);
+        if (ip == null || ip.trim().isEmpty()) {
+            return;
+        }
+        IpPrefix prefix = IpPrefix.tryParse(ip);
+        if (prefix != null) {
+            trie.add(prefix, assetId);
+        } else {
+            unparsed.computeIfAbsent(ip.trim().toLowerCase(), key -> new HashSet<>()).add(assetId);
+        }
+        indexedIps.put(assetId, ip);
+    }
+
+    /**
+     * 调用方持有写锁
+     */
+    private void remove(Long assetId) {
+        String ip = indexedIps.remove(assetId);
+        if (ip == null) {
+            return;
+        }
+        IpPrefix prefix = IpPrefix.tryParse(ip);
+        if (prefix != null) {
+            trie.remove(prefix, assetId);
+        } else {
+            String key = ip.trim().toLowerCase();
+            Set<Long> ids = unparsed.get(key);
+            if (ids != null && ids.remove(assetId) && ids.isEmpty()) {
+                unparsed.remove(key);
+            }
+        }
+    }
+
+    /**
+     * IP 是否未被其他资产使用（地址按规范形式比较，如 IPv6 的不同写法视为同一地址）
+     * @param excludeAssetId 编辑资产时排除自身，可为 null
+     */
+    public boolean isIpUnique(String ip, Long excludeAssetId) {
+        if (ip == null || ip.trim().isEmpty()) {
+            return true;
+        }
+        ensureWarm();
+        lock.readLock().lock();
+        try {
+            IpPrefix prefix = IpPrefix.tryParse(ip);
+            Set<Long> ids = prefix != null ? trie.get(prefix) : unparsed.getOrDefault(ip.trim().toLowerCase(), Set.of());
+            return ids.isEmpty() || (ids.size() == 1 && ids.contains(excludeAssetId));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * IP 落在网段内的资产ID（按地址排序）
+     * @throws IllegalArgumentException CIDR 格式不正确时
+     */
+    public List<Long> findAssetIdsWithin(String cidr) {
+        return findAssetIdsWithin(List.of(IpPrefix.parse(cidr)));
+    }
+
+    /**
+     * IP 落在 [start, end] 地址范围内的资产ID（按地址排序）
+     * @throws IllegalArgumentException 地址无效或范围不正确时
+     */
+    public List<Long> findAssetIdsInRange(String start, String end) {
+        return findAssetIdsWithin(IpPrefix.rangeToPrefixes(start, end));
+    }
+
+    private List<Long> findAssetIdsWithin(List<IpPrefix> prefixes) {
+        ensureWarm();
+        Set<Long> ids = new LinkedHashSet<>();
+        lock.readLock().lock();
+        try {
+            for (IpPrefix prefix : prefixes) {
+                trie.findWithin(prefix, (entry, assetId) -> ids.add(assetId));
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return new ArrayList<>(ids);
+    }
+
+    /**
+     * 与网段重叠的资产：资产 IP / 网段落在其内，或资产登记的网段包含它
+     * @return 资产ID → 资产登记的前缀
+     * @throws IllegalArgumentException CIDR 格式不正确时
+     */
+    public Map<Long, String> findOverlapping(String cidr) {
+        IpPrefix prefix = IpPrefix.parse(cidr);
+        ensureWarm();
+        Map<Long, String> overlaps = new LinkedHashMap<>();
+        lock.readLock().lock();
+        try {
+            trie.findCovering(prefix, (entry, assetId) -> overlaps.put(assetId, entry.toString()));
+            trie.findWithin(prefix, (entry, assetId) -> overlaps.put(assetId, entry.toString()));
+        } finally {
+            lock.readLock().unlock();
+        }
+        return overlaps;
+    }
+
+    /**
+     * 索引统计
+     */
+    public Map<String, Object> getStats() {
+        ensureWarm();
+        lock.readLock().lock();
+        try {
+            Map<String, Object> stats = new LinkedHashMap<>();
+            stats.put("indexedAssets", indexedIps.size());
+            stats.put("prefixes", trie.prefixCount());
+            stats.put("unparsedIps", unparsed.size());
+            stats.put("warmedAt", warmedAt);
+            return stats;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void apply(Long assetId, String ip, boolean deleted) {
+        if (assetId == null) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            // 在锁内判断：预热持有写锁查询，此时跳过的写入一定已提交，会包含在下次预热结果中
+            if (stale) {
+                return;
+            }
+            if (deleted) {
+                remove(assetId);
+            } else if (!Objects.equals(indexedIps.get(assetId), ip)) {
+                put(assetId, ip);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Hibernate 提交后事件监听：只处理资产
+     */
+    private class IndexListener implements PostCommitInsertEventListener,
+            PostCommitUpdateEventListener, PostCommitDeleteEventListener {
+
+        private volatile int ipIndex = -1;
+
+        private String ipOf(EntityPersister persister, Object[] state) {
+            int index = ipIndex;
+            if (index < 0) {
+                index = Arrays.asList(persister.getPropertyNames()).indexOf("ip");
+                ipIndex = index;
+            }
+            return state != null && index >= 0 ? (String) state[index] : null;
+        }
+
+        @Override
+        public boolean requiresPostCommitHandling(EntityPersister persister) {
+            return persister.getMappedClass() == Asset.class;
+        }
+
+        @Override
+        public void onPostInsert(PostInsertEvent event) {
+            if (requiresPostCommitHandling(event.getPersister())) {
+                apply((Long) event.getId(), ipOf(event.getPersister(), event.getState()), false);
+                pendingInvalidations.add((Long) event.getId());
+            }
+        }
+
+        @Override
+        public void onPostUpdate(PostUpdateEvent event) {
+            if (requiresPostCommitHandling(event.getPersister())) {
+                String ip = ipOf(event.getPersister(), event.getState());
+                apply((Long) event.getId(), ip, false);
+                // 没有旧状态时无法判断 IP 是否变化，按变化通知
+                if (event.getOldState() == null || !Objects.equals(ipOf(event.getPersister(), event.getOldState()), ip)) {
+                    pendingInvalidations.add((Long) event.getId());
+                }
+            }
+        }
+
+        @Override
+        public void onPostDelete(PostDeleteEvent event) {
+            if (requiresPostCommitHandling(event.getPersister())) {
+                apply((Long) event.getId(), null, true);
+                pendingInvalidations.add((Long) event.getId());
+            }
+        }
+
+        @Override
+        public void onPostInsertCommitFailed(PostInsertEvent event) {
+            // 事务未提交，不更新索引
+        }
+
+        @Override
+        public void onPostUpdateCommitFailed(PostUpdateEvent event) {
+        }
+
+        @Override
+        public void onPostDeleteCommitFailed(PostDeleteEvent event) {
+        }
+    }
+}
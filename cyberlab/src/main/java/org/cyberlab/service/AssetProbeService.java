@@ -0,0 +1,657 @@
+package org.cyberlab.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.cyberlab.repository.AssetRepository;
+import org.cyberlab.util.DaemonThreadFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.URI;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 资产自动探测服务
+ *
+ * 后台并发探测所有启用且配置了IP的资产，结果写回 probeStatus / lastProbeTime / probeErrorMessage：
+ * 1. 探测项：Docker API 端口、K8s API 端口（仅容器类型且明确配置了资产平台的资产，与容器探测的判断一致）、
+ *    容器映射的宿主机端口（TCP 连接），以及 healthCheckUrl（HTTP，localhost 替换为资产IP）；任一探测项可达即视为成功
+ * 2. 调度周期内只派发到期的资产，并发受线程池与在途上限约束；同一主机（IP）按令牌桶限速，
+ *    每秒最多开始 per-host-rate 次探测（同一节点上的容器共用节点IP）
+ * 3. 自适应间隔：失败的资产按最短间隔重试（连续失败过多后逐步退避，不超过基准间隔），
+ *    连续成功的资产间隔逐步加倍，最长 max-interval-ms
+ * 4. 结果先在内存中合并，按周期批量写回；状态或错误信息未变化的资产只按 heartbeat-write-ms 刷新探测时间
+ * 5. 每个资产保留最近若干次探测的延迟，供大屏展示
+ *
+ * 注意：多实例部署时每个实例都会探测，写回结果以最后一次为准。
+ */
+@Service
+public class AssetProbeService {
+
+    private static final Logger logger = LoggerFactory.getLogger(AssetProbeService.class);
+
+    private static final DateTimeFormatter PROBE_TIME_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    /**
+     * containerPorts 中映射的宿主机端口，如 {"80/tcp": "8080"} 中的 8080
+     */
+    private static final Pattern HOST_PORT = Pattern.compile(":\\s*\"?(\\d{1,5})\"?");
+
+    /**
+     * 每个资产保留的延迟样本数
+     */
+    private static final int HISTORY_SIZE = 60;
+
+    /**
+     * 每个资产最多探测的容器映射端口数
+     */
+    private static final int MAX_CONTAINER_PORTS = 5;
+
+    /**
+     * probe_error_message 列长度
+     */
+    private static final int MAX_MESSAGE_LENGTH = 500;
+
+    @Autowired
+    private AssetRepository assetRepository;
+
+    @Value("${cyberlab.asset.probe.enabled:true}")
+    private boolean enabled;
+
+    @Value("${cyberlab.asset.probe.threads:16}")
+    private int threads;
+
+    /**
+     * 同时进行中的探测上限
+     */
+    @Value("${cyberlab.asset.probe.max-in-flight:64}")
+    private int maxInFlight;
+
+    @Value("${cyberlab.asset.probe.timeout-ms:3000}")
+    private int timeoutMs;
+
+    @Value("${cyberlab.asset.probe.base-interval-ms:60000}")
+    private long baseIntervalMs;
+
+    @Value("${cyberlab.asset.probe.min-interval-ms:15000}")
+    private long minIntervalMs;
+
+    @Value("${cyberlab.asset.probe.max-interval-ms:600000}")
+    private long maxIntervalMs;
+
+    /**
+     * 同一主机（IP）每秒最多开始的探测数（令牌桶容量与之相同）
+     */
+    @Value("${cyberlab.asset.probe.per-host-rate:10}")
+    private double perHostRate;
+
+    /**
+     * 探测目标列表的刷新周期
+     */
+    @Value("${cyberlab.asset.probe.target-refresh-ms:60000}")
+    private long targetRefreshMs;
+
+    /**
+     * 状态未变化时刷新 lastProbeTime 的最小间隔
+     */
+    @Value("${cyberlab.asset.probe.heartbeat-write-ms:300000}")
+    private long heartbeatWriteMs;
+
+    private ExecutorService probePool;
+
+    private final Map<Long, ProbeState> states = new ConcurrentHashMap<>();
+    private final Map<String, HostBucket> hostBuckets = new ConcurrentHashMap<>();
+    private final Map<Long, ProbeResult> pendingWrites = new ConcurrentHashMap<>();
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private volatile long targetsLoadedAt;
+
+    private final AtomicLong probeCount = new AtomicLong();
+    private final AtomicLong failureCount = new AtomicLong();
+    private final AtomicLong hostThrottled = new AtomicLong();
+    private final AtomicLong writtenRows = new AtomicLong();
+
+    @PostConstruct
+    public void init() {
+        probePool = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), new DaemonThreadFactory("asset-probe-"));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        probePool.shutdownNow();
+    }
+
+    /**
+     * 派发到期的探测
+     */
+    @Scheduled(fixedDelayString = "${cyberlab.asset.probe.tick-ms:5000}", initialDelayString = "${cyberlab.asset.probe.initial-delay-ms:30000}")
+    public void dispatch() {
+        if (!enabled) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        if (now - targetsLoadedAt >= targetRefreshMs) {
+            try {
+                refreshTargets(now);
+            } catch (Exception e) {
+                logger.warn("刷新资产探测目标失败: {}", e.getMessage());
+                return;
+            }
+        }
+
+        List<ProbeState> due = new ArrayList<>();
+        for (ProbeState state : states.values()) {
+            if (!state.inFlight && state.nextProbeAt <= now) {
+                due.add(state);
+            }
+        }
+        due.sort(Comparator.comparingLong(state -> state.nextProbeAt));
+
+        for (ProbeState state : due) {
+            if (inFlight.get() >= maxInFlight) {
+                break;
+            }
+            if (!acquireHost(state.target.ip, now)) {
+                // 留待下个周期
+                hostThrottled.incrementAndGet();
+                continue;
+            }
+            state.inFlight = true;
+            inFlight.incrementAndGet();
+            try {
+                probePool.execute(() -> runProbe(state));
+            } catch (RejectedExecutionException e) {
+                state.inFlight = false;
+                inFlight.decrementAndGet();
+                break;
+            }
+        }
+    }
+
+    /**
+     * 重新加载探测目标：新增资产在最短间隔内随机错开首次探测，已停用/删除的资产移除
+     */
+    private void refreshTargets(long now) {
+        Set<Long> seen = new HashSet<>();
+        for (Object[] row : assetRepository.findProbeTargets()) {
+            ProbeTarget target = toTarget(row);
+            if (target.ports.isEmpty() && target.httpUrl == null) {
+                continue;
+            }
+            seen.add(target.assetId);
+            ProbeState state = states.get(target.assetId);
+            if (state == null) {
+                state = new ProbeState(target, baseIntervalMs,
+                        now + ThreadLocalRandom.current().nextLong(Math.max(minIntervalMs, 1)));
+                state.persistedStatus = (String) row[9];
+                state.persistedMessage = (String) row[10];
+                states.put(target.assetId, state);
+            } else {
+                state.target = target;
+            }
+        }
+        states.keySet().retainAll(seen);
+        hostBuckets.values().removeIf(bucket -> bucket.isFull(now, perHostRate));
+        targetsLoadedAt = now;
+    }
+
+    /**
+     * @param row 见 {@link AssetRepository#findProbeTargets()}
+     */
+    private static ProbeTarget toTarget(Object[] row) {
+        Long id = (Long) row[0];
+        String name = (String) row[1];
+        String ip = ((String) row[2]).trim();
+        String platform = row[3] != null ? row[3].toString().trim().toLowerCase() : "";
+        Integer dockerPort = (Integer) row[4];
+        Boolean dockerApiEnabled = (Boolean) row[5];
+        Integer k8sPort = (Integer) row[6];
+        String containerPorts = (String) row[7];
+        String healthCheckUrl = (String) row[8];
+        // 只有容器类型的资产（Docker/K8s 主机）才探测 API 端口，普通主机不探测 2375/6443
+        boolean containerHost = "container".equals(row[11]);
+
+        Set<Integer> ports = new LinkedHashSet<>();
+        if (containerHost && !Boolean.FALSE.equals(dockerApiEnabled) && (platform.equals("docker") || platform.equals("both"))) {
+            ports.add(dockerPort != null ? dockerPort : 2375);
+        }
+        if (containerHost && (platform.equals("k8s") || platform.equals("both"))) {
+            ports.add(k8sPort != null ? k8sPort : 6443);
+        }
+        if (containerPorts != null) {
+            Matcher matcher = HOST_PORT.matcher(containerPorts);
+            int added = 0;
+            while (matcher.find() && added < MAX_CONTAINER_PORTS) {
+                int port = Integer.parseInt(matcher.group(1));
+                if (port > 0 && port <= 65535 && ports.add(port)) {
+                    added++;
+                }
+            }
+        }
+        return new ProbeTarget(id, name, ip, new ArrayList<>(ports), resolveHealthCheckUrl(healthCheckUrl, ip));
+    }
+
+    /**
+     * healthCheckUrl 通常写的是容器内地址，localhost / 127.0.0.1 替换为资产IP
+     */
+    private static String resolveHealthCheckUrl(String url, String ip) {
+        if (url == null || !(url.startsWith("http://") || url.startsWith("https://"))) {
+            return null;
+        }
+        try {
+            URI uri = URI.create(url.trim());
+            String host = uri.getHost();
+            if (host == null) {
+                return null;
+            }
+            if (host.equals("localhost") || host.equals("127.0.0.1") || host.equals("0.0.0.0")) {
+                String targetHost = ip.contains(":") ? "[" + ip + "]" : ip;
+                return uri.getScheme() + "://" + targetHost + (uri.getPort() > 0 ? ":" + uri.getPort() : "")
+                        + (uri.getRawPath() != null ? uri.getRawPath() : "")
+                        + (uri.getRawQuery() != null ? "?" + uri.getRawQuery() : "");
+            }
+            return uri.toString();
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    /**
+     * 同一主机的探测速率限制
+     */
+    private boolean acquireHost(String host, long now) {
+        return hostBuckets.computeIfAbsent(host, key -> new HostBucket(perHostRate, now)).tryAcquire(now, perHostRate);
+    }
+
+    private void runProbe(ProbeState state) {
+        ProbeTarget target = state.target;
+        try {
+            long fastest = -1;
+            List<String> failures = new ArrayList<>();
+            for (int port : target.ports) {
+                long start = System.nanoTime();
+                try (Socket socket = new Socket()) {
+                    socket.connect(new InetSocketAddress(target.ip, port), timeoutMs);
+                    fastest = minLatency(fastest, (System.nanoTime() - start) / 1_000_000);
+                } catch (IOException e) {
+                    failures.add("TCP " + port + ": " + e.getMessage());
+                }
+            }
+            if (target.httpUrl != null) {
+                long start = System.nanoTime();
+                try {
+                    int code = httpStatus(target.httpUrl);
+                    if (code < 500) {
+                        fastest = minLatency(fastest, (System.nanoTime() - start) / 1_000_000);
+                    } else {
+                        failures.add("HTTP " + target.httpUrl + ": " + code);
+                    }
+                } catch (IOException | RuntimeException e) {
+                    failures.add("HTTP " + target.httpUrl + ": " + e.getMessage());
+                }
+            }
+
+            boolean success = fastest >= 0;
+            // 部分探测项失败但有可达项时不记录错误信息
+            String message = success ? null : truncate(String.join("; ", failures));
+            record(state, success, fastest, message);
+        } catch (Exception e) {
+            logger.warn("资产探测异常: {} - {}", target.assetId, e.getMessage());
+        } finally {
+            state.inFlight = false;
+            inFlight.decrementAndGet();
+        }
+    }
+
+    private int httpStatus(String url) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) URI.create(url).toURL().openConnection();
+        try {
+            connection.setConnectTimeout(timeoutMs);
+            connection.setReadTimeout(timeoutMs);
+            connection.setInstanceFollowRedirects(false);
+            connection.setRequestMethod("GET");
+            return connection.getResponseCode();
+        } finally {
+            connection.disconnect();
+        }
+    }
+
+    private void record(ProbeState state, boolean success, long latencyMs, String message) {
+        long now = System.currentTimeMillis();
+        probeCount.incrementAndGet();
+        if (!success) {
+            failureCount.incrementAndGet();
+        }
+
+        synchronized (state) {
+            state.addSample(now, success, latencyMs);
+            if (success) {
+                state.consecutiveFailures = 0;
+                state.consecutiveSuccesses++;
+                // 刚恢复时按基准间隔，持续稳定后逐步加倍
+                state.intervalMs = state.consecutiveSuccesses <= 1
+                        ? baseIntervalMs
+                        : Math.min(state.intervalMs * 2, maxIntervalMs);
+            } else {
+                state.consecutiveSuccesses = 0;
+                state.consecutiveFailures++;
+                // 失败的资产更频繁地探测；长时间不可达时逐步退避，但不超过基准间隔
+                int backoff = Math.min(Math.max(state.consecutiveFailures - 5, 0), 10);
+                state.intervalMs = Math.min(minIntervalMs << backoff, baseIntervalMs);
+            }
+            state.nextProbeAt = now + state.intervalMs;
+
+            String status = success ? "success" : "failed";
+            boolean changed = !status.equals(state.persistedStatus) || !Objects.equals(message, state.persistedMessage);
+            if (changed || now - state.persistedAt >= heartbeatWriteMs) {
+                pendingWrites.put(state.target.assetId, new ProbeResult(status, message));
+                state.persistedStatus = status;
+                state.persistedMessage = message;
+                state.persistedAt = now;
+            }
+        }
+    }
+
+    /**
+     * 批量写回探测结果（写入失败时放回队列，下个周期重试）
+     */
+    @Scheduled(fixedDelayString = "${cyberlab.asset.probe.flush-interval-ms:5000}")
+    @Transactional
+    public void flushResults() {
+        if (pendingWrites.isEmpty()) {
+            return;
+        }
+        Map<Long, ProbeResult> batch = new HashMap<>();
+        for (Long assetId : new ArrayList<>(pendingWrites.keySet())) {
+            ProbeResult result = pendingWrites.remove(assetId);
+            if (result != null) {
+                batch.put(assetId, result);
+            }
+        }
+
+        Map<ProbeResult, List<Long>> groups = new HashMap<>();
+        batch.forEach((assetId, result) -> groups.computeIfAbsent(result, key -> new ArrayList<>()).add(assetId));
+
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status != STATUS_COMMITTED) {
+                    batch.forEach(pendingWrites::putIfAbsent);
+                }
+            }
+        });
+
+        String probeTime = LocalDateTime.now().format(PROBE_TIME_FORMAT);
+        int rows = 0;
+        for (Map.Entry<ProbeResult, List<Long>> group : groups.entrySet()) {
+            List<Long> ids = group.getValue();
+            for (int from = 0; from < ids.size(); from += 500) {
+                rows += assetRepository.updateProbeResult(ids.subList(from, Math.min(from + 500, ids.size())),
+                        group.getKey().status, probeTime, group.getKey().message);
+            }
+        }
+        writtenRows.addAndGet(rows);
+        logger.debug("资产探测结果写回 {} 行（{}条语句）", rows, groups.size());
+    }
+
+    /**
+     * 立即安排一次探测（下个派发周期执行）
+     * @return 资产不在探测目标中时返回 false
+     */
+    public boolean requestProbe(Long assetId) {
+        ProbeState state = states.get(assetId);
+        if (state == null) {
+            targetsLoadedAt = 0;
+            return false;
+        }
+        state.nextProbeAt = 0;
+        return true;
+    }
+
+    /**
+     * 单个资产的探测延迟历史
+     */
+    public Optional<Map<String, Object>> getHistory(Long assetId) {
+        ProbeState state = states.get(assetId);
+        return state == null ? Optional.empty() : Optional.of(describe(state, true));
+    }
+
+    /**
+     * 大屏展示：各资产最新状态与延迟序列
+     * @param limit 返回的资产数上限（失败的资产优先，其次按最近延迟从高到低）
+     */
+    public Map<String, Object> getLatencyOverview(int limit) {
+        List<ProbeState> all = new ArrayList<>(states.values());
+        all.removeIf(state -> state.sampleCount == 0);
+
+        long successCount = 0;
+        long latencySum = 0;
+        long latencySamples = 0;
+        for (ProbeState state : all) {
+            synchronized (state) {
+                Sample last = state.lastSample();
+                if (last.success) {
+                    successCount++;
+                    latencySum += last.latencyMs;
+                    latencySamples++;
+                }
+            }
+        }
+        all.sort(Comparator.comparing((ProbeState state) -> state.consecutiveFailures == 0)
+                .thenComparing(state -> -state.lastSample().latencyMs));
+
+        List<Map<String, Object>> assets = new ArrayList<>();
+        for (ProbeState state : all.subList(0, Math.min(Math.max(limit, 0), all.size()))) {
+            assets.add(describe(state, true));
+        }
+
+        Map<String, Object> overview = new LinkedHashMap<>();
+        overview.put("probedAssets", all.size());
+        overview.put("reachable", successCount);
+        overview.put("unreachable", all.size() - successCount);
+        overview.put("avgLatencyMs", latencySamples > 0 ? latencySum / latencySamples : null);
+        overview.put("assets", assets);
+        return overview;
+    }
+
+    private Map<String, Object> describe(ProbeState state, boolean withSamples) {
+        Map<String, Object> item = new LinkedHashMap<>();
+        synchronized (state) {
+            item.put("assetId", state.target.assetId);
+            item.put("name", state.target.name);
+            item.put("ip", state.target.ip);
+            item.put("ports", state.target.ports);
+            item.put("httpUrl", state.target.httpUrl);
+            item.put("status", state.persistedStatus);
+            item.put("message", state.persistedMessage);
+            item.put("consecutiveFailures", state.consecutiveFailures);
+            item.put("intervalMs", state.intervalMs);
+            item.put("nextProbeAt", state.nextProbeAt);
+            if (withSamples) {
+                List<Map<String, Object>> samples = new ArrayList<>(state.sampleCount);
+                for (int i = 0; i < state.sampleCount; i++) {
+                    Sample sample = state.samples[(state.sampleStart + i) % HISTORY_SIZE];
+                    samples.add(Map.of("time", sample.time, "success", sample.success, "latencyMs", sample.latencyMs));
+                }
+                item.put("samples", samples);
+            }
+        }
+        return item;
+    }
+
+    /**
+     * 探测统计
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("targets", states.size());
+        stats.put("inFlight", inFlight.get());
+        stats.put("probes", probeCount.get());
+        stats.put("failures", failureCount.get());
+        stats.put("hostThrottled", hostThrottled.get());
+        stats.put("pendingWrites", pendingWrites.size());
+        stats.put("writtenRows", writtenRows.get());
+        return stats;
+    }
+
+    private static long minLatency(long current, long latency) {
+        return current < 0 ? latency : Math.min(current, latency);
+    }
+
+    private static String truncate(String message) {
+        return message.length() <= MAX_MESSAGE_LENGTH ? message : message.substring(0, MAX_MESSAGE_LENGTH);
+    }
+
+    /**
+     * 单个主机的令牌桶：每秒补充 rate 个令牌，最多积攒 rate 个
+     */
+    private static final class HostBucket {
+        private double tokens;
+        private long refilledAt;
+
+        HostBucket(double rate, long now) {
+            this.tokens = rate;
+            this.refilledAt = now;
+        }
+
+        synchronized boolean tryAcquire(long now, double rate) {
+            refill(now, rate);
+            if (tokens < 1) {
+                return false;
+            }
+            tokens--;
+            return true;
+        }
+
+        synchronized boolean isFull(long now, double rate) {
+            refill(now, rate);
+            return tokens >= rate;
+        }
+
+        private void refill(long now, double rate) {
+            if (now > refilledAt) {
+                tokens = Math.min(rate, tokens + (now - refilledAt) * rate / 1000.0);
+                refilledAt = now;
+            }
+        }
+    }
+
+    /**
+     * 探测目标（资产的探测相关字段快照）
+     */
+    private static final class ProbeTarget {
+        final Long assetId;
+        final String name;
+        final String ip;
+        final List<Integer> ports;
+        final String httpUrl;
+
+        ProbeTarget(Long assetId, String name, String ip, List<Integer> ports, String httpUrl) {
+            this.assetId = assetId;
+            this.name = name;
+            this.ip = ip;
+            this.ports = ports;
+            this.httpUrl = httpUrl;
+        }
+    }
+
+    /**
+     * 单个资产的调度状态与延迟样本（环形缓冲）
+     */
+    private static final class ProbeState {
+        volatile ProbeTarget target;
+        volatile long nextProbeAt;
+        volatile boolean inFlight;
+        long intervalMs;
+        int consecutiveFailures;
+        int consecutiveSuccesses;
+        String persistedStatus;
+        String persistedMessage;
+        long persistedAt;
+        final Sample[] samples = new Sample[HISTORY_SIZE];
+        int sampleStart;
+        volatile int sampleCount;
+
+        ProbeState(ProbeTarget target, long intervalMs, long nextProbeAt) {
+            this.target = target;
+            this.intervalMs = intervalMs;
+            this.nextProbeAt = nextProbeAt;
+        }
+
+        void addSample(long time, boolean success, long latencyMs) {
+            Sample sample = new Sample(time, success, latencyMs);
+            if (sampleCount < HISTORY_SIZE) {
+                samples[(sampleStart + sampleCount) % HISTORY_SIZE] = sample;
+                sampleCount++;
+            } else {
+                samples[sampleStart] = sample;
+                sampleStart = (sampleStart + 1) % HISTORY_SIZE;
+            }
+        }
+
+        Sample lastSample() {
+            return samples[(sampleStart + sampleCount - 1) % HISTORY_SIZE];
+        }
+    }
+
+    private static final class Sample {
+        final long time;
+        final boolean success;
+        final long latencyMs;
+
+        Sample(long time, boolean success, long latencyMs) {
+            this.time = time;
+            this.success = success;
+            this.latencyMs = latencyMs;
+        }
+    }
+
+    /**
+     * 待写回的探测结果（状态与错误信息相同的结果可合并写回）
+     */
+    private static final class ProbeResult {
+        final String status;
+        final String message;
+
+        ProbeResult(String status, String message) {
+            this.status = status;
+            this.message = message;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof ProbeResult)) {
+                return false;
+            }
+            ProbeResult other = (ProbeResult) o;
+            return status.equals(other.status) && Objects.equals(message, other.message);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(status, message);
+        }
+    }
+}
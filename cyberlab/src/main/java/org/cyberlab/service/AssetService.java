@@ -1,18 +1,37 @@
 package org.cyberlab.service;
 
+import org.cyberlab.dto.CursorPage;
 import org.cyberlab.entity.Asset;
 import org.cyberlab.repository.AssetRepository;
+import org.cyberlab.util.IpPrefix;
+import org.cyberlab.util.KeysetCursor;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
 
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Set;
 import java.util.Objects;
 import java.util.Comparator;
 import java.util.stream.Collectors;
@@ -21,12 +40,32 @@ import java.util.stream.Collectors;
 @Transactional
 public class AssetService {
 
+    /**
+     * 批量插入的列：容器导入生成的资产只设置这些字段，其余列取数据库默认值
+     */
+    private static final String BATCH_INSERT_SQL = "INSERT INTO asset (name, ip, company, owner, visibility, is_target, enabled, " +
+            "notes, project, asset_type, docker_image, container_ports, health_check_url, " +
+            "preferred_host_node_id, preferred_host_node_name, deployment_strategy) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
     @Autowired
     private AssetRepository assetRepository;
     
     @Autowired
     private HostNodeService hostNodeService;
 
+    @Autowired
+    private AssetIpIndexService assetIpIndexService;
+
+    @Autowired
+    private TableStatisticsService tableStatisticsService;
+
+    @Autowired
+    private StatisticsService statisticsService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
     public List<Asset> getAllAssets() {
         return assetRepository.findAll();
     }
@@ -35,6 +74,17 @@ public class AssetService {
         return assetRepository.findAll(pageable);
     }
 
+    /**
+     * 游标分页获取资产（按 id 定位下一页）
+     * @param cursor 上一页返回的 nextCursor，为空时取第一页
+     * @param withTotal 是否附带表统计信息中的近似总数
+     * @throws IllegalArgumentException 游标无效时
+     */
+    public CursorPage<Asset> getAssetsAfter(String cursor, int size, Sort.Direction direction, boolean withTotal) {
+        Window<Asset> window = assetRepository.findAllBy(KeysetCursor.decode(cursor), Limit.of(size), Sort.by(direction, "id"));
+        return CursorPage.of(window, withTotal ? tableStatisticsService.estimateRowCount("asset") : null);
+    }
+
     public Optional<Asset> getAssetById(Long id) {
         return assetRepository.findById(id);
     }
@@ -43,6 +93,74 @@ public class AssetService {
         return assetRepository.save(asset);
     }
 
+    /**
+     * 在同一事务中批量插入新资产，调用方按 hibernate.jdbc.batch_size 分段调用
+     *
+     * 资产主键为 IDENTITY，Hibernate 对这类实体逐条 INSERT，batch_size 不生效；
+     * 这里用 JdbcTemplate.batchUpdate 一次提交整段并回填自增ID。
+     * 写入不经过 Hibernate 事件，提交后使资产计数（及登记了 IP 时的 IP 索引）失效。
+     */
+    public List<Asset> insertAll(List<Asset> assets) {
+        if (assets.isEmpty()) {
+            return assets;
+        }
+        KeyHolder keyHolder = new GeneratedKeyHolder();
+        jdbcTemplate.batchUpdate(connection -> connection.prepareStatement(BATCH_INSERT_SQL, Statement.RETURN_GENERATED_KEYS),
+                new BatchPreparedStatementSetter() {
+                    @Override
+                    public void setValues(PreparedStatement ps, int i) throws SQLException {
+                        Asset asset = assets.get(i);
+                        ps.setString(1, asset.getName());
+                        ps.setString(2, asset.getIp());
+                        ps.setString(3, asset.getCompany());
+                        ps.setString(4, asset.getOwner());
+                        ps.setString(5, asset.getVisibility());
+                        ps.setBoolean(6, asset.isTarget());
+                        ps.setBoolean(7, asset.isEnabled());
+                        ps.setString(8, asset.getNotes());
+                        ps.setString(9, asset.getProject());
+                        ps.setString(10, asset.getAssetType());
+                        ps.setString(11, asset.getDockerImage());
+                        ps.setString(12, asset.getContainerPorts());
+                        ps.setString(13, asset.getHealthCheckUrl());
+                        if (asset.getPreferredHostNodeId() != null) {
+                            ps.setLong(14, asset.getPreferredHostNodeId());
+                        } else {
+                            ps.setNull(14, Types.BIGINT);
+                        }
+                        ps.setString(15, asset.getPreferredHostNodeName());
+                        ps.setString(16, asset.getDeploymentStrategy());
+                    }
+
+                    @Override
+                    public int getBatchSize() {
+                        return assets.size();
+                    }
+                }, keyHolder);
+
+        List<Map<String, Object>> keys = keyHolder.getKeyList();
+        if (keys.size() != assets.size()) {
+            throw new IllegalStateException("批量插入返回的主键数量不符: " + keys.size() + "/" + assets.size());
+        }
+        boolean hasIp = false;
+        for (int i = 0; i < assets.size(); i++) {
+            assets.get(i).setId(((Number) keys.get(i).values().iterator().next()).longValue());
+            hasIp |= assets.get(i).getIp() != null && !assets.get(i).getIp().isBlank();
+        }
+
+        boolean invalidateIpIndex = hasIp;
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                statisticsService.invalidate(Asset.class);
+                if (invalidateIpIndex) {
+                    assetIpIndexService.invalidate();
+                }
+            }
+        });
+        return assets;
+    }
+
     public void delete(Long id) {
         assetRepository.deleteById(id);
     }
@@ -116,6 +234,17 @@ public class AssetService {
         }
     }
 
+    /**
+     * 指定角色可见、且IP落在网段内的资产
+     * @throws IllegalArgumentException CIDR 格式不正确时
+     */
+    public List<Asset> getVisibleAssets(String role, String cidr) {
+        Set<Long> inRange = new HashSet<>(assetIpIndexService.findAssetIdsWithin(cidr));
+        return getVisibleAssets(role).stream()
+                .filter(asset -> inRange.contains(asset.getId()))
+                .collect(Collectors.toList());
+    }
+
     public List<Asset> searchAssetsByKeyword(String keyword) {
         return assetRepository.searchByKeyword(keyword);
     }
@@ -124,10 +253,46 @@ public class AssetService {
         return assetRepository.searchByKeyword(keyword, pageable);
     }
 
+    /**
+     * 按IP范围查询资产
+     * @param ipPattern CIDR（10.0.0.0/8）或地址范围（10.0.0.1-10.0.0.100）时走IP索引，
+     *                  其他输入（包括单个地址 "10.0.0.1" 和 "192.168."）仍按原文模糊匹配，与原接口行为一致
+     */
     public List<Asset> getAssetsByIpRange(String ipPattern) {
+        String pattern = ipPattern.trim();
+        int dash = pattern.indexOf('-');
+        if (dash > 0 && IpPrefix.tryParse(pattern.substring(0, dash)) != null) {
+            return getAssetsByIds(assetIpIndexService.findAssetIdsInRange(
+                    pattern.substring(0, dash).trim(), pattern.substring(dash + 1).trim()));
+        }
+        if (pattern.indexOf('/') > 0 && IpPrefix.tryParse(pattern) != null) {
+            return getAssetsInCidr(pattern);
+        }
         return assetRepository.findByIpContaining(ipPattern);
     }
 
+    /**
+     * IP 落在网段内的资产（按地址排序）
+     * @throws IllegalArgumentException CIDR 格式不正确时
+     */
+    public List<Asset> getAssetsInCidr(String cidr) {
+        return getAssetsByIds(assetIpIndexService.findAssetIdsWithin(cidr));
+    }
+
+    /**
+     * 按ID批量加载并保持给定顺序
+     */
+    private List<Asset> getAssetsByIds(List<Long> ids) {
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        Map<Long, Asset> byId = new HashMap<>();
+        for (Asset asset : assetRepository.findAllById(ids)) {
+            byId.put(asset.getId(), asset);
+        }
+        return ids.stream().map(byId::get).filter(Objects::nonNull).collect(Collectors.toList());
+    }
+
     public Map<String, Long> getCompanyStatistics() {
         List<Object[]> results = assetRepository.countByCompany();
         return results.stream().collect(
@@ -161,7 +326,14 @@ public class AssetService {
     }
 
     public boolean isIpUnique(String ip) {
-        return assetRepository.findByIp(ip).isEmpty();
+        return isIpUnique(ip, null);
+    }
+
+    /**
+     * @param excludeAssetId 编辑资产时排除自身
+     */
+    public boolean isIpUnique(String ip, Long excludeAssetId) {
+        return assetIpIndexService.isIpUnique(ip, excludeAssetId);
     }
 
     public boolean validateAssetConfiguration(Asset asset) {
@@ -331,9 +503,7 @@ public class AssetService {
      * 统计关联指定节点的资产数量
      */
     public long countAssetsByNodeId(Long nodeId) {
-        return assetRepository.findAll().stream()
-            .filter(asset -> nodeId.equals(asset.getPreferredHostNodeId()))
-            .count();
+        return assetRepository.countByPreferredHostNodeId(nodeId);
     }
 
     /**
@@ -341,21 +511,8 @@ public class AssetService {
      * 用于删除节点前清理关联
      */
     public int clearNodeReferences(Long nodeId) {
-        List<Asset> affectedAssets = assetRepository.findAll().stream()
-            .filter(asset -> nodeId.equals(asset.getPreferredHostNodeId()))
-            .collect(Collectors.toList());
-
-        for (Asset asset : affectedAssets) {
-            asset.setPreferredHostNodeId(null);
-            asset.setPreferredHostNodeName(null);
-            // 如果部署策略是 fixed，改为 any
-            if ("fixed".equals(asset.getDeploymentStrategy())) {
-                asset.setDeploymentStrategy("any");
-            }
-            assetRepository.save(asset);
-        }
-
-        return affectedAssets.size();
+        // 如果部署策略是 fixed，改为 any
+        return assetRepository.clearPreferredHostNode(nodeId);
     }
 
     /**
@@ -1108,10 +1265,8 @@ public class AssetService {
      * 批量检查并执行故障转移
      */
     public Map<String, Object> batchFailoverCheck(Long failedNodeId) {
-        List<Asset> affectedAssets = assetRepository.findAll().stream()
-            .filter(asset -> failedNodeId.equals(asset.getPreferredHostNodeId()))
-            .filter(Asset::isFailoverEnabled)
-            .collect(Collectors.toList());
+        // 只查询ID和名称，故障转移时再逐个加载
+        List<Object[]> affectedAssets = assetRepository.findFailoverCandidates(failedNodeId);
         
         Map<String, Object> result = new HashMap<>();
         List<Map<String, Object>> failoverResults = new ArrayList<>();
@@ -1119,11 +1274,12 @@ public class AssetService {
         int successCount = 0;
         int failedCount = 0;
         
-        for (Asset asset : affectedAssets) {
-            Map<String, Object> failoverResult = performFailoverIfNeeded(asset.getId(), failedNodeId);
+        for (Object[] asset : affectedAssets) {
+            Long assetId = (Long) asset[0];
+            Map<String, Object> failoverResult = performFailoverIfNeeded(assetId, failedNodeId);
             failoverResults.add(Map.of(
-                "assetId", asset.getId(),
-                "assetName", asset.getName(),
+                "assetId", assetId,
+                "assetName", asset[1] != null ? asset[1] : "",
                 "failoverResult", failoverResult
             ));
             
@@ -0,0 +1,333 @@
+package org.cyberlab.service;
+
+import org.cyberlab.event.AchievementCreatedEvent;
+import org.cyberlab.event.SystemLogCreatedEvent;
+import org.cyberlab.repository.AchievementRepository;
+import org.cyberlab.repository.SystemLogRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import jakarta.annotation.PostConstruct;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 攻击趋势统计服务
+ *
+ * 按分钟维护最近 7 天的滚动直方图（成果提交数、红队/蓝队提交数、日志数）：
+ * 1. 启动时每个序列执行一次 GROUP BY 查询预热
+ * 2. 成果/日志写入时（{@link AchievementCreatedEvent} / {@link SystemLogCreatedEvent}）在内存中累加
+ * 3. 趋势查询（按小时或按分钟，最长 7 天）直接由直方图汇总，不访问数据库
+ *
+ * 4. 多实例部署（cyberlab.cluster.enabled=true）时，本实例的累加按（序列, 分钟）合并，
+ *    通过 Redis 发布/订阅每秒转发一次，其他实例收到后累加到各自的直方图
+ *
+ * 注意：日志去重、手动删除等删除操作不会回写直方图，计数以写入为准，重启后重新预热校正。
+ */
+@Service
+public class AttackTrendService {
+
+    private static final Logger logger = LoggerFactory.getLogger(AttackTrendService.class);
+
+    /**
+     * 直方图覆盖的最大时间窗口（分钟）
+     */
+    public static final int MAX_WINDOW_MINUTES = 7 * 24 * 60;
+
+    static final String INCREMENT_CHANNEL = "cyberlab:attack-trend:increment";
+
+    private static final DateTimeFormatter BUCKET_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm");
+    private static final DateTimeFormatter LABEL_FORMAT = DateTimeFormatter.ofPattern("HH:mm");
+
+    @Autowired
+    private AchievementRepository achievementRepository;
+
+    @Autowired
+    private SystemLogRepository systemLogRepository;
+
+    @Autowired(required = false)
+    private RedisMessageListenerContainer listenerContainer;
+
+    @Autowired(required = false)
+    private StringRedisTemplate stringRedisTemplate;
+
+    private final MinuteHistogram attacks = new MinuteHistogram(MAX_WINDOW_MINUTES + 60);
+    private final MinuteHistogram redSubmissions = new MinuteHistogram(MAX_WINDOW_MINUTES + 60);
+    private final MinuteHistogram blueSubmissions = new MinuteHistogram(MAX_WINDOW_MINUTES + 60);
+    private final MinuteHistogram logs = new MinuteHistogram(MAX_WINDOW_MINUTES + 60);
+    private volatile boolean warmed;
+
+    /**
+     * 序列名 → 直方图（跨实例转发时按名称定位）
+     */
+    private final Map<String, MinuteHistogram> series = Map.of(
+            "attacks", attacks, "red", redSubmissions, "blue", blueSubmissions, "logs", logs);
+
+    private final String instanceId = UUID.randomUUID().toString();
+    /**
+     * 待转发其他实例的累加：序列名:分钟 → 增量
+     */
+    private final Map<String, LongAdder> pendingIncrements = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public void warmUp() {
+        if (isClusterEnabled()) {
+            listenerContainer.addMessageListener((message, pattern) ->
+                    handleIncrements(new String(message.getBody(), StandardCharsets.UTF_8)),
+                    new ChannelTopic(INCREMENT_CHANNEL));
+        }
+        try {
+            LocalDateTime since = LocalDateTime.now().minusMinutes(MAX_WINDOW_MINUTES);
+            long start = System.currentTimeMillis();
+            int attackBuckets = load(achievementRepository.countPerMinuteSince(since), attacks, redSubmissions, blueSubmissions);
+            int logBuckets = load(systemLogRepository.countPerMinuteSince(since), logs);
+            warmed = true;
+            logger.info("攻击趋势直方图预热完成: 成果{}个分钟桶, 日志{}个分钟桶, 耗时{}ms",
+                    attackBuckets, logBuckets, System.currentTimeMillis() - start);
+        } catch (Exception e) {
+            logger.error("攻击趋势直方图预热失败，趋势查询将回退到数据库: {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 载入分组结果：row[0] 为分钟，row[1..] 依次对应各直方图的计数
+     */
+    private int load(List<Object[]> rows, MinuteHistogram... histograms) {
+        for (Object[] row : rows) {
+            if (row[0] == null) {
+                continue;
+            }
+            long minute = minuteOf(LocalDateTime.parse(row[0].toString(), BUCKET_FORMAT));
+            for (int i = 0; i < histograms.length; i++) {
+                if (row[i + 1] != null) {
+                    histograms[i].add(minute, ((Number) row[i + 1]).longValue());
+                }
+            }
+        }
+        return rows.size();
+    }
+
+    @EventListener
+    public void onAchievementCreated(AchievementCreatedEvent event) {
+        LocalDateTime time = event.getAchievement().getSubmitTime();
+        long minute = minuteOf(time != null ? time : LocalDateTime.now());
+        increment("attacks", minute);
+
+        String teamName = event.getAchievement().getTeamName();
+        if (teamName != null) {
+            String lower = teamName.toLowerCase();
+            if (lower.contains("red")) {
+                increment("red", minute);
+            }
+            if (lower.contains("blue")) {
+                increment("blue", minute);
+            }
+        }
+    }
+
+    @EventListener
+    public void onLogCreated(SystemLogCreatedEvent event) {
+        LocalDateTime time = event.getSystemLog().getTimestamp();
+        increment("logs", minuteOf(time != null ? time : LocalDateTime.now()));
+    }
+
+    private void increment(String name, long minute) {
+        series.get(name).add(minute, 1);
+        if (isClusterEnabled()) {
+            pendingIncrements.computeIfAbsent(name + ":" + minute, key -> new LongAdder()).increment();
+        }
+    }
+
+    /**
+     * 把本实例的累加合并转发给其他实例
+     */
+    @Scheduled(fixedDelayString = "${cyberlab.attack-trend.relay-interval-ms:1000}")
+    public void publishIncrements() {
+        if (pendingIncrements.isEmpty() || !isClusterEnabled()) {
+            return;
+        }
+        List<String> entries = new ArrayList<>();
+        for (String key : new ArrayList<>(pendingIncrements.keySet())) {
+            LongAdder adder = pendingIncrements.remove(key);
+            long delta = adder != null ? adder.sumThenReset() : 0;
+            if (delta > 0) {
+                entries.add(key + ":" + delta);
+            }
+        }
+        if (entries.isEmpty()) {
+            return;
+        }
+        try {
+            stringRedisTemplate.convertAndSend(INCREMENT_CHANNEL, instanceId + "|" + String.join(",", entries));
+        } catch (Exception e) {
+            logger.warn("转发攻击趋势增量失败: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 处理其他实例的增量：instanceId|序列名:分钟:增量,...
+     */
+    private void handleIncrements(String message) {
+        String[] parts = message.split("\\|", 2);
+        if (parts.length < 2 || instanceId.equals(parts[0])) {
+            return;
+        }
+        for (String entry : parts[1].split(",")) {
+            String[] fields = entry.split(":");
+            if (fields.length != 3 || !series.containsKey(fields[0])) {
+                continue;
+            }
+            try {
+                series.get(fields[0]).add(Long.parseLong(fields[1]), Long.parseLong(fields[2]));
+            } catch (NumberFormatException e) {
+                logger.debug("忽略无效的攻击趋势增量: {}", entry);
+            }
+        }
+    }
+
+    private boolean isClusterEnabled() {
+        return listenerContainer != null && stringRedisTemplate != null;
+    }
+
+    /**
+     * 直方图是否已预热（未预热时调用方应回退到数据库统计）
+     */
+    public boolean isWarmed() {
+        return warmed;
+    }
+
+    /**
+     * 按小时统计最近 hours 小时的趋势（最长 7 天）
+     * 第 i 个桶覆盖 [now - hours + i, now - hours + i + 1) 小时
+     */
+    public List<Map<String, Object>> getHourlyTrend(int hours) {
+        return getTrend(Math.min(hours, MAX_WINDOW_MINUTES / 60), 60);
+    }
+
+    /**
+     * 按分钟统计最近 minutes 分钟的趋势（最长 7 天）
+     */
+    public List<Map<String, Object>> getMinuteTrend(int minutes) {
+        return getTrend(Math.min(minutes, MAX_WINDOW_MINUTES), 1);
+    }
+
+    private List<Map<String, Object>> getTrend(int buckets, int bucketMinutes) {
+        List<Map<String, Object>> trendData = new ArrayList<>(Math.max(buckets, 0));
+        LocalDateTime now = LocalDateTime.now();
+        long nowMinute = minuteOf(now);
+        long startMinute = nowMinute - (long) buckets * bucketMinutes;
+        LocalDateTime startTime = now.minusMinutes((long) buckets * bucketMinutes);
+
+        for (int i = 0; i < buckets; i++) {
+            long from = startMinute + (long) i * bucketMinutes;
+            long to = from + bucketMinutes;
+
+            Map<String, Object> bucket = new HashMap<>();
+            bucket.put("time", startTime.plusMinutes((long) i * bucketMinutes).format(LABEL_FORMAT));
+            bucket.put("attacks", attacks.sum(from, to));
+            // 蓝队防守数沿用原口径：日志数的一半
+            bucket.put("blocks", logs.sum(from, to) / 2);
+            trendData.add(bucket);
+        }
+        return trendData;
+    }
+
+    /**
+     * 统计 [from, to) 内红队、蓝队（按战队名称区分）的提交数，时间范围须在 7 天窗口内
+     * @return {红队数, 蓝队数}
+     */
+    public long[] countTeamSubmissions(LocalDateTime from, LocalDateTime to) {
+        long fromMinute = minuteOf(from);
+        long toMinute = minuteOf(to);
+        return new long[] { redSubmissions.sum(fromMinute, toMinute), blueSubmissions.sum(fromMinute, toMinute) };
+    }
+
+    /**
+     * 直方图统计信息
+     */
+    public Map<String, Object> getStats() {
+        long nowMinute = minuteOf(LocalDateTime.now());
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("warmed", warmed);
+        stats.put("windowMinutes", MAX_WINDOW_MINUTES);
+        stats.put("attacks7d", attacks.sum(nowMinute - MAX_WINDOW_MINUTES, nowMinute + 1));
+        stats.put("logs7d", logs.sum(nowMinute - MAX_WINDOW_MINUTES, nowMinute + 1));
+        return stats;
+    }
+
+    /**
+     * 本地时间对应的分钟序号（按字面时间计算，与数据库中 DATETIME 的分组口径一致）
+     */
+    private static long minuteOf(LocalDateTime time) {
+        return Math.floorDiv(time.toEpochSecond(ZoneOffset.UTC), 60);
+    }
+
+    /**
+     * 按分钟计数的环形直方图
+     * 每个槽位记录所属的分钟序号，写入新分钟时复用旧槽位；超出窗口的旧数据自然失效
+     */
+    static class MinuteHistogram {
+        private final int size;
+        private final AtomicLongArray counts;
+        private final AtomicLongArray minutes;
+
+        MinuteHistogram(int size) {
+            this.size = size;
+            this.counts = new AtomicLongArray(size);
+            this.minutes = new AtomicLongArray(size);
+            for (int i = 0; i < size; i++) {
+                minutes.set(i, Long.MIN_VALUE);
+            }
+        }
+
+        void add(long minute, long delta) {
+            long nowMinute = minuteOf(LocalDateTime.now());
+            // 超出窗口的历史数据或明显错误的未来时间不计入
+            if (minute <= nowMinute - size || minute > nowMinute + 1) {
+                return;
+            }
+            int index = (int) Math.floorMod(minute, (long) size);
+            if (minutes.get(index) != minute) {
+                synchronized (this) {
+                    if (minutes.get(index) < minute) {
+                        counts.set(index, 0);
+                        minutes.set(index, minute);
+                    } else if (minutes.get(index) != minute) {
+                        // 槽位已被更新的分钟占用
+                        return;
+                    }
+                }
+            }
+            counts.addAndGet(index, delta);
+        }
+
+        long get(long minute) {
+            int index = (int) Math.floorMod(minute, (long) size);
+            return minutes.get(index) == minute ? counts.get(index) : 0;
+        }
+
+        /**
+         * 汇总 [from, to) 分钟内的计数
+         */
+        long sum(long from, long to) {
+            long total = 0;
+            for (long m = Math.max(from, to - size); m < to; m++) {
+                total += get(m);
+            }
+            return total;
+        }
+    }
+}
@@ -1,18 +1,51 @@
 package org.cyberlab.service;
 
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import jakarta.annotation.PreDestroy;
+import org.cyberlab.event.BigScreenRefreshEvent;
+import org.cyberlab.event.DomainEvent;
 import org.cyberlab.repository.*;
 import org.cyberlab.entity.Achievement;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
 
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.stream.Collectors;
 
 @Service
 public class BigScreenService {
 
+    private static final Logger logger = LoggerFactory.getLogger(BigScreenService.class);
+
+    /**
+     * 实时事件流保留条数
+     */
+    private static final int LIVE_EVENT_LIMIT = 50;
+
+    /**
+     * 多实例部署时实时事件流保存在 Redis 列表中（新事件在前），各实例的领域事件都能出现在大屏上
+     */
+    static final String LIVE_EVENTS_KEY = "cyberlab:bigscreen:live-events";
+
+    private static final TypeReference<Map<String, Object>> LIVE_EVENT_TYPE = new TypeReference<>() {};
+
     @Autowired
     private CyberRangeRepository cyberRangeRepository;
     
@@ -28,6 +61,51 @@ public class BigScreenService {
     @Autowired
     private SystemLogRepository systemLogRepository;
 
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private AttackTrendService attackTrendService;
+
+    @Autowired
+    private StatisticsService statisticsService;
+
+    @Autowired(required = false)
+    private RedisMessageListenerContainer listenerContainer;
+
+    @Autowired(required = false)
+    private StringRedisTemplate stringRedisTemplate;
+
+    /**
+     * 领域事件合并窗口（毫秒）：窗口内的连续事件合并为一次推送
+     */
+    @Value("${cyberlab.bigscreen.push-debounce-ms:300}")
+    private long pushDebounceMs;
+
+    /**
+     * 持续有事件时的最长推送延迟（毫秒），避免事件风暴下一直不推送
+     */
+    @Value("${cyberlab.bigscreen.push-max-delay-ms:2000}")
+    private long pushMaxDelayMs;
+
+    /**
+     * 最近的领域事件（新事件在前），作为大屏实时事件流
+     */
+    private final Deque<Map<String, Object>> liveEvents = new ArrayDeque<>();
+    private final ObjectMapper objectMapper = new ObjectMapper()
+            .findAndRegisterModules()
+            .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+    private final Set<String> dirtyTopics = ConcurrentHashMap.newKeySet();
+    private final AtomicLong receivedEvents = new AtomicLong();
+    private final AtomicLong refreshCount = new AtomicLong();
+    private final ScheduledExecutorService pushScheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "big-screen-push");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private ScheduledFuture<?> pendingPush;
+    private long firstPendingAt;
+
     /**
      * 根据用户角色获取大屏数据
      */
@@ -66,6 +144,7 @@ public class BigScreenService {
         result.put("trend", getAttackTrend(24));           // 攻击趋势数据
         result.put("vulnerability", getVulnerabilityDistribution());  // 漏洞类型分布
         result.put("ranking", getTeamRanking());           // 战队排行
+        result.put("liveEvents", getLiveEvents());         // 实时事件流
 
         return result;
     }
@@ -120,6 +199,7 @@ public class BigScreenService {
         result.put("timelineEvents", getCompetitionTimeline());
         result.put("performanceMetrics", getTeamPerformanceMetrics());
         result.put("fairnessIndicators", getFairnessIndicators());
+        result.put("liveEvents", getLiveEvents());
         
         return result;
     }
@@ -138,6 +218,150 @@ public class BigScreenService {
         return result;
     }
 
+    // ========== 领域事件驱动刷新 ==========
+
+    /**
+     * 接收领域事件：并入实时事件流，标记受影响的大屏主题，并在合并窗口结束后通知推送
+     * 事务内发布的事件在提交后处理，保证推送时读到的是已提交的数据
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onDomainEvent(DomainEvent event) {
+        receivedEvents.incrementAndGet();
+
+        Map<String, Object> item = new LinkedHashMap<>();
+        item.put("type", event.getType().name());
+        item.put("rangeId", event.getRangeId());
+        item.put("teamName", event.getTeamName());
+        item.put("teamType", event.getTeamType());
+        item.putAll(event.getAttributes());
+        item.put("time", event.getOccurredAt());
+        synchronized (liveEvents) {
+            liveEvents.addFirst(item);
+            while (liveEvents.size() > LIVE_EVENT_LIMIT) {
+                liveEvents.removeLast();
+            }
+        }
+        if (isClusterEnabled()) {
+            // 先写入共享事件流再请求刷新，快照生产者刷新时能读到本实例的事件
+            try {
+                stringRedisTemplate.opsForList().leftPush(LIVE_EVENTS_KEY, objectMapper.writeValueAsString(item));
+                stringRedisTemplate.opsForList().trim(LIVE_EVENTS_KEY, 0, LIVE_EVENT_LIMIT - 1);
+            } catch (Exception e) {
+                logger.warn("写入共享大屏事件流失败: {}", e.getMessage());
+            }
+        }
+
+        schedulePush(affectedTopics(event));
+    }
+
+    /**
+     * 事件影响的大屏主题（与 WebSocket 订阅主题一致）
+     */
+    private Set<String> affectedTopics(DomainEvent event) {
+        Set<String> topics = new HashSet<>();
+        switch (event.getType()) {
+            case ACHIEVEMENT_APPROVED:
+            case ACHIEVEMENT_REJECTED:
+            case TEAM_SCORE_UPDATED:
+                topics.add("admin");
+                topics.add("judge");
+                if (event.getTeamName() != null) {
+                    // 红队大屏含红队排行，得分变化影响全部红队主题
+                    topics.add("red:*");
+                    topics.add("blue:" + event.getTeamName());
+                }
+                break;
+            case CONTAINER_STATE_CHANGED:
+                topics.add("admin");
+                topics.add("red:*");
+                topics.add("blue:*");
+                break;
+            case RANGE_STARTED:
+            case RANGE_STOPPED:
+            default:
+                topics.add("*");
+                break;
+        }
+        return topics;
+    }
+
+    /**
+     * 合并推送：每个事件把推送推迟一个合并窗口，但从第一个待推送事件起最多推迟 pushMaxDelayMs
+     */
+    private synchronized void schedulePush(Set<String> topics) {
+        dirtyTopics.addAll(topics);
+        long now = System.currentTimeMillis();
+        if (pendingPush == null || pendingPush.isDone()) {
+            firstPendingAt = now;
+        } else if (now - firstPendingAt >= pushMaxDelayMs || !pendingPush.cancel(false)) {
+            // 已到最长延迟或任务正在执行，由当前任务推送
+            return;
+        }
+        long delay = Math.max(0, Math.min(pushDebounceMs, firstPendingAt + pushMaxDelayMs - now));
+        pendingPush = pushScheduler.schedule(this::flushPush, delay, TimeUnit.MILLISECONDS);
+    }
+
+    private void flushPush() {
+        Set<String> topics;
+        synchronized (this) {
+            topics = new HashSet<>(dirtyTopics);
+            dirtyTopics.clear();
+            pendingPush = null;
+        }
+        if (topics.isEmpty()) {
+            return;
+        }
+        try {
+            refreshCount.incrementAndGet();
+            eventPublisher.publishEvent(new BigScreenRefreshEvent(this, topics));
+        } catch (Exception e) {
+            logger.error("大屏事件推送失败: {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 获取实时事件流（多实例部署时读取全集群共享的事件流，Redis 不可用时退化为本实例事件）
+     */
+    public List<Map<String, Object>> getLiveEvents() {
+        if (isClusterEnabled()) {
+            try {
+                List<String> shared = stringRedisTemplate.opsForList().range(LIVE_EVENTS_KEY, 0, LIVE_EVENT_LIMIT - 1);
+                if (shared != null) {
+                    List<Map<String, Object>> result = new ArrayList<>(shared.size());
+                    for (String json : shared) {
+                        result.add(objectMapper.readValue(json, LIVE_EVENT_TYPE));
+                    }
+                    return result;
+                }
+            } catch (Exception e) {
+                logger.warn("读取共享大屏事件流失败，使用本实例事件: {}", e.getMessage());
+            }
+        }
+        synchronized (liveEvents) {
+            return new ArrayList<>(liveEvents);
+        }
+    }
+
+    private boolean isClusterEnabled() {
+        return listenerContainer != null && stringRedisTemplate != null;
+    }
+
+    /**
+     * 事件推送统计：收到的领域事件数与合并后的实际刷新次数
+     */
+    public Map<String, Object> getEventPushStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("receivedEvents", receivedEvents.get());
+        stats.put("refreshCount", refreshCount.get());
+        stats.put("pendingTopics", new ArrayList<>(dirtyTopics));
+        return stats;
+    }
+
+    @PreDestroy
+    public void shutdownPushScheduler() {
+        pushScheduler.shutdownNow();
+    }
+
     /**
      * 获取总览数据
      */
@@ -165,8 +389,13 @@ public class BigScreenService {
 
     /**
      * 获取攻击趋势数据
+     * 7 天内的窗口由内存直方图直接汇总（见 {@link AttackTrendService}），直方图未预热时回退到逐小时查询
      */
     public List<Map<String, Object>> getAttackTrend(int hours) {
+        if (attackTrendService.isWarmed() && hours <= AttackTrendService.MAX_WINDOW_MINUTES / 60) {
+            return attackTrendService.getHourlyTrend(hours);
+        }
+
         List<Map<String, Object>> trendData = new ArrayList<>();
         LocalDateTime endTime = LocalDateTime.now();
         LocalDateTime startTime = endTime.minusHours(hours);
@@ -200,16 +429,8 @@ public class BigScreenService {
         List<Map<String, Object>> vulnData = new ArrayList<>();
 
         try {
-            // 从所有成果提交中统计攻击方法
-            List<Achievement> achievements = achievementRepository.findAll();
-
-            // 按攻击方法分组统计
-            Map<String, Long> vulnTypes = achievements.stream()
-                .filter(a -> a.getAttackMethod() != null && !a.getAttackMethod().trim().isEmpty())
-                .collect(Collectors.groupingBy(
-                    Achievement::getAttackMethod,
-                    Collectors.counting()
-                ));
+            // 按攻击方法分组统计（统计计数服务维护）
+            Map<String, Long> vulnTypes = statisticsService.countAchievementsByAttackMethod();
 
             // 如果没有数据，使用默认示例数据
             if (vulnTypes.isEmpty()) {
@@ -254,8 +475,7 @@ public class BigScreenService {
      * 获取容器状态
      */
     private List<Map<String, Object>> getContainerStatus() {
-        return drillContainerRepository.findAll().stream()
-            .limit(10) // 只显示最新的10个容器
+        return drillContainerRepository.findTop10ByOrderByIdDesc().stream() // 只显示最新的10个容器
             .map(container -> {
                 Map<String, Object> item = new HashMap<>();
                 item.put("name", container.getName());
@@ -349,18 +569,9 @@ public class BigScreenService {
         List<Map<String, Object>> ranking = new ArrayList<>();
 
         try {
-            // 从成果提交中统计各战队的得分
-            List<Achievement> achievements = achievementRepository.findAll();
-
-            // 按战队分组统计成功的成果数
-            Map<String, Long> teamScores = achievements.stream()
-                .filter(a -> "approved".equals(a.getStatus()) &&
-                           a.getTeamName() != null &&
-                           !a.getTeamName().trim().isEmpty())
-                .collect(Collectors.groupingBy(
-                    Achievement::getTeamName,
-                    Collectors.counting()
-                ));
+            // 按战队分组统计成功的成果数（统计计数服务维护）
+            Map<String, Long> teamScores = statisticsService.countApprovedByTeam();
+            teamScores.keySet().removeIf(team -> team.trim().isEmpty());
 
             // 如果没有数据，使用默认示例数据
             if (teamScores.isEmpty()) {
@@ -505,10 +716,7 @@ public class BigScreenService {
                 });
 
             // 2. 从容器状态获取失败的容器作为告警
-            drillContainerRepository.findAll().stream()
-                .filter(container -> "failed".equals(container.getStatus()) ||
-                                   "error".equals(container.getStatus()))
-                .limit(2)
+            drillContainerRepository.findTop2ByStatusInOrderByIdDesc(List.of("failed", "error"))
                 .forEach(container -> {
                     Map<String, Object> alert = new HashMap<>();
                     alert.put("level", "中危");
@@ -864,9 +1072,7 @@ public class BigScreenService {
      * 获取待审核提交
      */
     private List<Map<String, Object>> getPendingSubmissions() {
-        return achievementRepository.findAll().stream()
-            .filter(a -> "pending".equals(a.getStatus()))
-            .limit(5)
+        return achievementRepository.findTop5ByStatusOrderByIdAsc("pending").stream()
             .map(achievement -> createMap(
                 "id", achievement.getId(),
                 "team", achievement.getTeamName(),
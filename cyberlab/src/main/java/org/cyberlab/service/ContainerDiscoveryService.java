@@ -18,6 +18,11 @@ import java.util.HashMap;
  */
 @Service
 public class ContainerDiscoveryService {
+
+    /**
+     * 未指定公司时，发现的容器资产归入的默认公司
+     */
+    public static final String DEFAULT_COMPANY = "发现的容器";
     
     @Autowired
     private DockerService dockerService;
@@ -34,7 +39,7 @@ public class ContainerDiscoveryService {
         // 基本信息
         asset.setName(generateAssetName(container));
         asset.setAssetType("container");
-        asset.setCompany(company != null ? company : "发现的容器");
+        asset.setCompany(company != null ? company : DEFAULT_COMPANY);
         asset.setProject(project != null ? project : "未分组");
         asset.setOwner("系统发现");
         asset.setEnabled(true);
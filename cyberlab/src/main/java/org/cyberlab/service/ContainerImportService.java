@@ -0,0 +1,252 @@
+package org.cyberlab.service;
+
+import jakarta.annotation.PreDestroy;
+import org.cyberlab.entity.Asset;
+import org.cyberlab.entity.ContainerInfo;
+import org.cyberlab.entity.HostNode;
+import org.cyberlab.repository.AssetRepository;
+import org.cyberlab.util.DaemonThreadFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 容器批量导入为资产
+ *
+ * 1. 一次查询预加载目标公司下已有的资产名称，查重在内存中完成（同一批次内重名的容器也只导入第一个）
+ * 2. 转换后的资产按 hibernate.jdbc.batch_size 分段批量插入（JdbcTemplate.batchUpdate），每段一个事务；某段保存失败时逐行重试，定位失败的行
+ * 3. 返回逐行结果：imported / duplicate / unsuitable / failed
+ * 4. 大批量导入可提交为后台任务，通过任务ID查询进度与结果
+ */
+@Service
+public class ContainerImportService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ContainerImportService.class);
+
+    @Autowired
+    private AssetRepository assetRepository;
+
+    @Autowired
+    private AssetService assetService;
+
+    @Autowired
+    private ContainerDiscoveryService containerDiscoveryService;
+
+    /**
+     * 每个事务保存的资产数
+     */
+    @Value("${spring.jpa.properties.hibernate.jdbc.batch_size:25}")
+    private int batchSize;
+
+    /**
+     * 已结束的后台任务保留时间（毫秒）
+     */
+    @Value("${cyberlab.asset.import.job-retention-ms:3600000}")
+    private long jobRetentionMs;
+
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(new DaemonThreadFactory("container-import-"));
+    private final Map<String, ImportJob> jobs = new ConcurrentHashMap<>();
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * 同步导入
+     * @param containers 容器列表，每项包含 containerId、name、image、status
+     */
+    public Map<String, Object> importContainers(HostNode node, String company, String project,
+                                                List<Map<String, Object>> containers) {
+        ImportJob job = new ImportJob(UUID.randomUUID().toString(), containers.size());
+        run(job, node, company, project, containers);
+        return job.toResult(true);
+    }
+
+    /**
+     * 提交后台导入任务
+     * @return 任务ID
+     */
+    public String submitImport(HostNode node, String company, String project,
+                               List<Map<String, Object>> containers) {
+        purgeFinishedJobs();
+        ImportJob job = new ImportJob(UUID.randomUUID().toString(), containers.size());
+        jobs.put(job.id, job);
+        // 复制一份，避免请求体在任务执行期间被修改
+        List<Map<String, Object>> snapshot = new ArrayList<>(containers);
+        executor.submit(() -> run(job, node, company, project, snapshot));
+        return job.id;
+    }
+
+    /**
+     * 后台任务的进度与结果（任务不存在或已过期时为空）
+     */
+    public Optional<Map<String, Object>> getJob(String jobId) {
+        ImportJob job = jobs.get(jobId);
+        return job == null ? Optional.empty() : Optional.of(job.toResult(false));
+    }
+
+    private void run(ImportJob job, HostNode node, String company, String project,
+                     List<Map<String, Object>> containers) {
+        job.status = "running";
+        long start = System.currentTimeMillis();
+        try {
+            String targetCompany = company != null ? company : ContainerDiscoveryService.DEFAULT_COMPANY;
+            Set<String> existingNames = new HashSet<>(assetRepository.findNamesByCompany(targetCompany));
+
+            List<Asset> pending = new ArrayList<>(batchSize);
+            List<Integer> pendingRows = new ArrayList<>(batchSize);
+            for (int i = 0; i < containers.size(); i++) {
+                Map<String, Object> containerMap = containers.get(i);
+                ContainerInfo container = new ContainerInfo();
+                container.setContainerId((String) containerMap.get("containerId"));
+                container.setName((String) containerMap.get("name"));
+                container.setImage((String) containerMap.get("image"));
+                container.setStatus((String) containerMap.get("status"));
+
+                try {
+                    if (!containerDiscoveryService.isContainerSuitableForAsset(container)) {
+                        job.record(i, container.getName(), "unsuitable", null, "容器 " + container.getName() + " 不适合转换为资产");
+                        continue;
+                    }
+                    Asset asset = containerDiscoveryService.convertContainerToAsset(container, node, company, project);
+                    if (!existingNames.add(asset.getName())) {
+                        job.record(i, asset.getName(), "duplicate", null, "资产 " + asset.getName() + " 已存在");
+                        continue;
+                    }
+                    pending.add(asset);
+                    pendingRows.add(i);
+                } catch (Exception e) {
+                    job.record(i, container.getName(), "failed", null, "导入容器失败: " + e.getMessage());
+                    continue;
+                }
+
+                if (pending.size() >= batchSize) {
+                    saveBatch(job, pending, pendingRows);
+                }
+            }
+            saveBatch(job, pending, pendingRows);
+            job.status = "completed";
+        } catch (Exception e) {
+            logger.error("容器批量导入失败: {}", e.getMessage(), e);
+            job.status = "failed";
+            job.error = e.getMessage();
+        } finally {
+            job.finishedAt = System.currentTimeMillis();
+        }
+        logger.info("容器批量导入完成: 请求{}个, 导入{}个, 耗时{}ms",
+                job.total, job.imported.get(), job.finishedAt - start);
+    }
+
+    private void saveBatch(ImportJob job, List<Asset> pending, List<Integer> pendingRows) {
+        if (pending.isEmpty()) {
+            return;
+        }
+        try {
+            List<Asset> saved = assetService.insertAll(pending);
+            for (int i = 0; i < saved.size(); i++) {
+                job.imported(pendingRows.get(i), saved.get(i));
+            }
+        } catch (Exception batchError) {
+            logger.warn("批量保存资产失败，逐条重试: {}", batchError.getMessage());
+            for (int i = 0; i < pending.size(); i++) {
+                Asset asset = pending.get(i);
+                // 回滚的事务中已分配的自增ID无效
+                asset.setId(null);
+                try {
+                    job.imported(pendingRows.get(i), assetService.save(asset));
+                } catch (Exception e) {
+                    job.record(pendingRows.get(i), asset.getName(), "failed", null, "保存资产失败: " + e.getMessage());
+                }
+            }
+        }
+        pending.clear();
+        pendingRows.clear();
+    }
+
+    private void purgeFinishedJobs() {
+        long expireBefore = System.currentTimeMillis() - jobRetentionMs;
+        jobs.values().removeIf(job -> job.finishedAt > 0 && job.finishedAt < expireBefore);
+    }
+
+    /**
+     * 导入任务（同步导入也用它收集结果）
+     */
+    private static class ImportJob {
+        final String id;
+        final int total;
+        final LocalDateTime createdAt = LocalDateTime.now();
+        final AtomicInteger processed = new AtomicInteger();
+        final AtomicInteger imported = new AtomicInteger();
+        final List<Map<String, Object>> rows = Collections.synchronizedList(new ArrayList<>());
+        final List<Asset> importedAssets = Collections.synchronizedList(new ArrayList<>());
+        final List<String> errors = Collections.synchronizedList(new ArrayList<>());
+        volatile String status = "pending";
+        volatile String error;
+        volatile long finishedAt;
+
+        ImportJob(String id, int total) {
+            this.id = id;
+            this.total = total;
+        }
+
+        void imported(int index, Asset asset) {
+            imported.incrementAndGet();
+            importedAssets.add(asset);
+            record(index, asset.getName(), "imported", asset.getId(), null);
+        }
+
+        void record(int index, String name, String status, Long assetId, String message) {
+            Map<String, Object> row = new LinkedHashMap<>();
+            row.put("index", index);
+            row.put("name", name);
+            row.put("status", status);
+            row.put("assetId", assetId);
+            row.put("message", message);
+            rows.add(row);
+            if (message != null) {
+                errors.add(message);
+            }
+            processed.incrementAndGet();
+        }
+
+        /**
+         * @param includeAssets 同步导入时返回已导入的资产（保持原接口格式），后台任务只返回逐行结果
+         */
+        Map<String, Object> toResult(boolean includeAssets) {
+            Map<String, Object> result = new LinkedHashMap<>();
+            result.put("jobId", id);
+            result.put("status", status);
+            result.put("createdAt", createdAt);
+            result.put("totalRequested", total);
+            result.put("processedCount", processed.get());
+            result.put("importedCount", imported.get());
+            synchronized (rows) {
+                List<Map<String, Object>> sorted = new ArrayList<>(rows);
+                sorted.sort(Comparator.comparingInt(row -> (Integer) row.get("index")));
+                result.put("results", sorted);
+            }
+            synchronized (errors) {
+                result.put("errors", new ArrayList<>(errors));
+            }
+            if (includeAssets) {
+                synchronized (importedAssets) {
+                    result.put("importedAssets", new ArrayList<>(importedAssets));
+                }
+            }
+            if (error != null) {
+                result.put("error", error);
+            }
+            return result;
+        }
+    }
+}
@@ -4,8 +4,10 @@ import org.cyberlab.entity.ContainerInfo;
 import org.cyberlab.entity.ContainerState;
 import org.cyberlab.entity.Asset;
 import org.cyberlab.entity.HostNode;
+import org.cyberlab.event.DomainEvent;
 import org.cyberlab.repository.ContainerStateRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -33,6 +35,9 @@ public class ContainerStateService {
     @Autowired
     private AssetService assetService;
 
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
     // 用于限流的计数器：主机ID -> 最后访问时间
     private final Map<Long, LocalDateTime> hostAccessMap = new ConcurrentHashMap<>();
     
@@ -53,8 +58,10 @@ public class ContainerStateService {
         Optional<ContainerState> existingOpt = containerStateRepository.findByAssetIdAndContainerId(assetId, containerId);
         
         ContainerState containerState;
+        String previousDesired = null;
         if (existingOpt.isPresent()) {
             containerState = existingOpt.get();
+            previousDesired = containerState.getDesiredStatus();
             containerState.setDesiredStatus(desiredStatus);
             containerState.setUpdatedAt(LocalDateTime.now());
         } else {
@@ -62,7 +69,11 @@ public class ContainerStateService {
             containerState.setCreatedBy(createdBy);
         }
         
-        return containerStateRepository.save(containerState);
+        ContainerState saved = containerStateRepository.save(containerState);
+        if (!Objects.equals(previousDesired, desiredStatus)) {
+            publishStateChange(saved, "desiredStatus", previousDesired, desiredStatus);
+        }
+        return saved;
     }
 
     /**
@@ -70,6 +81,7 @@ public class ContainerStateService {
      */
     @Transactional
     public boolean syncContainerState(ContainerState containerState) {
+        String previousStatus = containerState.getCurrentStatus();
         try {
             containerState.startSync();
             containerStateRepository.save(containerState);
@@ -101,6 +113,9 @@ public class ContainerStateService {
             }
             
             containerStateRepository.save(containerState);
+            if (!Objects.equals(previousStatus, containerState.getCurrentStatus())) {
+                publishStateChange(containerState, "currentStatus", previousStatus, containerState.getCurrentStatus());
+            }
             return "SYNCED".equals(containerState.getSyncStatus());
             
         } catch (Exception e) {
@@ -110,6 +125,21 @@ public class ContainerStateService {
         }
     }
 
+    /**
+     * 发布容器状态变化事件（供大屏即时刷新）
+     */
+    private void publishStateChange(ContainerState containerState, String field, String from, String to) {
+        Map<String, Object> attributes = new HashMap<>();
+        attributes.put("assetId", containerState.getAssetId());
+        attributes.put("containerId", containerState.getContainerId());
+        attributes.put("containerName", containerState.getContainerName());
+        attributes.put("field", field);
+        attributes.put("from", from);
+        attributes.put("to", to);
+        eventPublisher.publishEvent(new DomainEvent(this, DomainEvent.Type.CONTAINER_STATE_CHANGED,
+                null, null, null, attributes));
+    }
+
     /**
      * 执行状态调和
      */
@@ -1,6 +1,7 @@
 package org.cyberlab.service;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import org.cyberlab.aspect.LogPayloadSerializer;
 import org.cyberlab.entity.SystemLog;
 import org.cyberlab.enums.BusinessModule;
 import org.cyberlab.enums.OperationStatus;
@@ -36,6 +37,9 @@ public class EnhancedLogService {
     @Autowired
     private SystemLogRepository logRepository;
 
+    @Autowired
+    private LogPayloadSerializer payloadSerializer;
+
     // ========== 分类日志记录 ==========
 
     /**
@@ -99,8 +103,8 @@ public class EnhancedLogService {
         systemLog.setBusinessId(businessId);
 
         // 序列化前后数据
-        systemLog.setBeforeData(serializeObject(beforeData));
-        systemLog.setAfterData(serializeObject(afterData));
+        systemLog.setBeforeData(payloadSerializer.serializeObject("EnhancedLogService.logAudit", beforeData));
+        systemLog.setAfterData(payloadSerializer.serializeObject("EnhancedLogService.logAudit", afterData));
 
         // 设置标签
         if (tags != null && tags.length > 0) {
@@ -524,26 +528,6 @@ public class EnhancedLogService {
         return systemLog;
     }
 
-    /**
-     * 序列化对象为JSON
-     */
-    private String serializeObject(Object obj) {
-        if (obj == null) {
-            return null;
-        }
-
-        try {
-            String json = objectMapper.writeValueAsString(obj);
-            // 限制长度
-            if (json.length() > 4000) {
-                return json.substring(0, 4000) + "...(已截断)";
-            }
-            return json;
-        } catch (Exception e) {
-            return "序列化失败: " + e.getMessage();
-        }
-    }
-
     /**
      * 安全地保存日志（失败不影响业务）
      */
@@ -0,0 +1,272 @@
+package org.cyberlab.service;
+
+import jakarta.annotation.PostConstruct;
+import org.cyberlab.entity.EvidenceBlob;
+import org.cyberlab.repository.EvidenceBlobRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.http.MediaTypeFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.*;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDateTime;
+import java.util.HexFormat;
+import java.util.Optional;
+import java.util.regex.Pattern;
+
+/**
+ * 成果证据文件存储（内容寻址）
+ *
+ * 1. 上传内容边读边计算 SHA-256，直接写入同一文件系统下的临时文件，不在内存中缓冲
+ * 2. 按哈希去重：目标文件已存在时丢弃临时文件，只增加引用计数
+ * 3. 目录按哈希前缀分片：evidence/ab/cd/abcd...，避免单目录文件过多
+ * 4. 内容不可变，访问地址 /api/evidence/{sha256}/{文件名} 可使用强 ETag 与长期缓存
+ *
+ * 同一哈希的落盘/登记与释放/删除在进程内按分段锁串行执行，避免释放删除文件的同时有新的上传复用它。
+ */
+@Service
+public class EvidenceStoreService {
+
+    private static final Logger logger = LoggerFactory.getLogger(EvidenceStoreService.class);
+
+    public static final String URL_PREFIX = "/api/evidence/";
+    public static final String THUMBNAIL_URL_PREFIX = URL_PREFIX + "thumbs/";
+
+    private static final Pattern SHA256_PATTERN = Pattern.compile("[0-9a-f]{64}");
+    private static final int LOCK_STRIPES = 64;
+
+    @Autowired
+    private EvidenceBlobRepository evidenceBlobRepository;
+
+    @Value("${file.upload.path:uploads}")
+    private String uploadBasePath;
+
+    private final Object[] locks = new Object[LOCK_STRIPES];
+
+    private Path storeRoot;
+    private Path tempDir;
+
+    public EvidenceStoreService() {
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            locks[i] = new Object();
+        }
+    }
+
+    @PostConstruct
+    public void init() {
+        storeRoot = Paths.get(uploadBasePath, "evidence").toAbsolutePath().normalize();
+        // 临时文件与正式文件位于同一目录树，保证落盘时可以原子重命名
+        tempDir = storeRoot.resolve("tmp");
+        try {
+            Files.createDirectories(tempDir);
+        } catch (IOException e) {
+            logger.error("无法创建证据存储目录: {} - {}", tempDir, e.getMessage());
+        }
+    }
+
+    /**
+     * 存储结果
+     */
+    public static final class StoredEvidence {
+        private final String sha256;
+        private final long size;
+        private final String url;
+        private final boolean deduplicated;
+
+        StoredEvidence(String sha256, long size, String url, boolean deduplicated) {
+            this.sha256 = sha256;
+            this.size = size;
+            this.url = url;
+            this.deduplicated = deduplicated;
+        }
+
+        public String getSha256() {
+            return sha256;
+        }
+
+        public long getSize() {
+            return size;
+        }
+
+        public String getUrl() {
+            return url;
+        }
+
+        /**
+         * 内容此前已存在，本次未写入新文件
+         */
+        public boolean isDeduplicated() {
+            return deduplicated;
+        }
+    }
+
+    /**
+     * 存储上传文件并登记一次引用
+     * @return 访问地址为 /api/evidence/{sha256}/{原文件名}，前端按最后一段显示文件名
+     */
+    public StoredEvidence store(MultipartFile file) throws IOException {
+        String fileName = sanitizeFileName(file.getOriginalFilename());
+        Path temp = Files.createTempFile(tempDir, "upload-", ".part");
+        String sha256;
+        long size;
+        try {
+            MessageDigest digest = newDigest();
+            try (InputStream in = new DigestInputStream(file.getInputStream(), digest)) {
+                size = Files.copy(in, temp, StandardCopyOption.REPLACE_EXISTING);
+            }
+            sha256 = HexFormat.of().formatHex(digest.digest());
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+
+        boolean deduplicated;
+        synchronized (lockFor(sha256)) {
+            Path target = resolve(sha256);
+            if (Files.exists(target)) {
+                Files.deleteIfExists(temp);
+                deduplicated = true;
+            } else {
+                Files.createDirectories(target.getParent());
+                try {
+                    Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+                } catch (AtomicMoveNotSupportedException e) {
+                    Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+                }
+                deduplicated = false;
+            }
+            evidenceBlobRepository.addReference(sha256, size, detectContentType(file, fileName), LocalDateTime.now());
+        }
+
+        logger.debug("证据文件已存储: {} -> {} ({} bytes{})", fileName, sha256, size, deduplicated ? ", 去重" : "");
+        return new StoredEvidence(sha256, size, URL_PREFIX + sha256 + "/" + fileName, deduplicated);
+    }
+
+    /**
+     * 释放一次引用；引用数归零时删除记录和文件
+     */
+    public void release(String sha256) {
+        if (!isValidHash(sha256)) {
+            return;
+        }
+        synchronized (lockFor(sha256)) {
+            if (evidenceBlobRepository.releaseReference(sha256) == 0) {
+                return;
+            }
+            if (evidenceBlobRepository.deleteIfUnreferenced(sha256) > 0) {
+                try {
+                    Files.deleteIfExists(resolve(sha256));
+                    logger.debug("证据文件已无引用，已删除: {}", sha256);
+                } catch (IOException e) {
+                    logger.warn("删除证据文件失败: {} - {}", sha256, e.getMessage());
+                }
+            }
+        }
+    }
+
+    /**
+     * 查询内容记录
+     */
+    public Optional<EvidenceBlob> find(String sha256) {
+        if (!isValidHash(sha256)) {
+            return Optional.empty();
+        }
+        return evidenceBlobRepository.findById(sha256);
+    }
+
+    /**
+     * 哈希对应的存储路径：evidence/{前2位}/{3-4位}/{sha256}
+     * @throws IllegalArgumentException 哈希格式不正确时
+     */
+    public Path resolve(String sha256) {
+        if (!isValidHash(sha256)) {
+            throw new IllegalArgumentException("无效的文件哈希: " + sha256);
+        }
+        return storeRoot.resolve(sha256.substring(0, 2)).resolve(sha256.substring(2, 4)).resolve(sha256);
+    }
+
+    /**
+     * 哈希对应的缩略图路径：evidence/thumbs/{前2位}/{sha256}.jpg（缩略图由内容唯一决定，同样不可变）
+     * @throws IllegalArgumentException 哈希格式不正确时
+     */
+    public Path resolveThumbnail(String sha256) {
+        if (!isValidHash(sha256)) {
+            throw new IllegalArgumentException("无效的文件哈希: " + sha256);
+        }
+        return storeRoot.resolve("thumbs").resolve(sha256.substring(0, 2)).resolve(sha256 + ".jpg");
+    }
+
+    public static String thumbnailUrl(String sha256) {
+        return THUMBNAIL_URL_PREFIX + sha256 + ".jpg";
+    }
+
+    /**
+     * 临时文件目录（与存储目录位于同一文件系统，可原子重命名）
+     */
+    public Path getTempDir() {
+        return tempDir;
+    }
+
+    /**
+     * 从访问地址中提取哈希（非证据存储地址返回 null）
+     */
+    public static String hashFromUrl(String url) {
+        if (url == null || !url.startsWith(URL_PREFIX)) {
+            return null;
+        }
+        String rest = url.substring(URL_PREFIX.length());
+        int slash = rest.indexOf('/');
+        String sha256 = slash >= 0 ? rest.substring(0, slash) : rest;
+        return isValidHash(sha256) ? sha256 : null;
+    }
+
+    public static boolean isValidHash(String sha256) {
+        return sha256 != null && SHA256_PATTERN.matcher(sha256).matches();
+    }
+
+    private Object lockFor(String sha256) {
+        return locks[Integer.parseInt(sha256.substring(0, 2), 16) % LOCK_STRIPES];
+    }
+
+    static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 不可用", e);
+        }
+    }
+
+    /**
+     * 文件名只保留最后一段，去掉路径分隔符和会破坏逗号分隔存储的字符
+     */
+    private static String sanitizeFileName(String originalName) {
+        String name = originalName != null ? originalName : "";
+        name = name.substring(Math.max(name.lastIndexOf('/'), name.lastIndexOf('\\')) + 1);
+        name = name.replaceAll("[,;?#%\\p{Cntrl}]", "_").trim();
+        if (name.isEmpty() || name.equals(".") || name.equals("..")) {
+            name = "file";
+        }
+        return name.length() > 200 ? name.substring(name.length() - 200) : name;
+    }
+
+    /**
+     * 优先按扩展名判断类型，客户端声明的类型仅作为兜底
+     */
+    private static String detectContentType(MultipartFile file, String fileName) {
+        Optional<MediaType> byName = MediaTypeFactory.getMediaType(fileName);
+        if (byName.isPresent()) {
+            return byName.get().toString();
+        }
+        String declared = file.getContentType();
+        return declared != null && declared.length() <= 150 ? declared : MediaType.APPLICATION_OCTET_STREAM_VALUE;
+    }
+}
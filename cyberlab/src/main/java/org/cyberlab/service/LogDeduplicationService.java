@@ -0,0 +1,240 @@
+package org.cyberlab.service;
+
+import org.cyberlab.repository.SystemLogRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.*;
+
+/**
+ * 日志去重服务
+ *
+ * 去重规则：相同 username + operation + description + timestamp(秒级) 的日志视为重复，保留ID最小的一条。
+ *
+ * 实现方式：
+ * 1. 按主键升序分批扫描 system_log（游标为上一批的最大ID），不加载整表
+ * 2. 去重键哈希为64位摘要，放入有界的滑动窗口（超出容量时淘汰最早的键）
+ * 3. 重复记录按批次删除，并累计回收的字节数
+ * 4. 扫描进度（水位线）保存在 system_settings 中，下次从水位线继续增量执行
+ */
+@Service
+public class LogDeduplicationService {
+
+    private static final Logger log = LoggerFactory.getLogger(LogDeduplicationService.class);
+
+    /**
+     * 水位线在 system_settings 中的键
+     */
+    static final String WATERMARK_KEY = "log_dedup_watermark";
+
+    @Autowired
+    private SystemLogRepository logRepository;
+
+    @Autowired
+    private SystemSettingService settingService;
+
+    @Autowired(required = false)
+    private LogSearchService logSearchService;
+
+    /**
+     * 每批扫描的行数
+     */
+    @Value("${cyberlab.log.dedup.batch-size:1000}")
+    private int batchSize;
+
+    /**
+     * 去重窗口最多保留的键数量（重复日志通常在同一秒内相邻写入，窗口无需覆盖全表）
+     */
+    @Value("${cyberlab.log.dedup.window-size:20000}")
+    private int windowSize;
+
+    /**
+     * 增量执行时从水位线向前回看的ID跨度，用于跨批次识别与上次末尾记录重复的新日志
+     */
+    @Value("${cyberlab.log.dedup.overlap:500}")
+    private long overlap;
+
+    /**
+     * 从保存的水位线开始增量去重
+     * @return 执行报告：scanned（扫描行数）、deleted（删除行数）、bytesReclaimed（回收字节数）、
+     *         fromId / watermark（扫描范围）、elapsedMs（耗时）
+     */
+    public Map<String, Object> deduplicate() {
+        return deduplicateFrom(loadWatermark());
+    }
+
+    /**
+     * 从指定ID之后开始去重（0 表示全表重新扫描）
+     */
+    public Map<String, Object> deduplicateFrom(long watermark) {
+        long start = System.currentTimeMillis();
+        long cursor = Math.max(0, watermark - overlap);
+
+        DedupWindow window = new DedupWindow(windowSize);
+        List<Long> pendingDeletes = new ArrayList<>();
+        long scanned = 0;
+        long deleted = 0;
+        long bytesReclaimed = 0;
+        long lastId = watermark;
+
+        while (true) {
+            List<Object[]> rows = logRepository.findDedupKeysAfterId(cursor, batchSize);
+            if (rows.isEmpty()) {
+                break;
+            }
+
+            for (Object[] row : rows) {
+                long id = ((Number) row[0]).longValue();
+                long key = hashKey((String) row[1], (String) row[2], (String) row[3], toLocalDateTime(row[4]));
+                boolean duplicate = !window.add(key);
+
+                // 回看区间内的记录已在上次执行时处理过，只用于填充窗口
+                if (id <= watermark) {
+                    continue;
+                }
+
+                scanned++;
+                lastId = id;
+                if (duplicate) {
+                    pendingDeletes.add(id);
+                    bytesReclaimed += row[5] != null ? ((Number) row[5]).longValue() : 0;
+                }
+            }
+
+            cursor = ((Number) rows.get(rows.size() - 1)[0]).longValue();
+
+            if (pendingDeletes.size() >= batchSize) {
+                deleted += flushDeletes(pendingDeletes);
+                saveWatermark(lastId);
+            }
+
+            if (rows.size() < batchSize) {
+                break;
+            }
+        }
+
+        deleted += flushDeletes(pendingDeletes);
+        saveWatermark(lastId);
+
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("fromId", watermark);
+        report.put("watermark", lastId);
+        report.put("scanned", scanned);
+        report.put("deleted", deleted);
+        report.put("bytesReclaimed", bytesReclaimed);
+        report.put("elapsedMs", System.currentTimeMillis() - start);
+
+        log.info("日志去重完成: 扫描 {} 条, 删除 {} 条, 回收约 {} 字节, 水位线 {} -> {}",
+                scanned, deleted, bytesReclaimed, watermark, lastId);
+        return report;
+    }
+
+    /**
+     * 获取当前水位线
+     */
+    public long loadWatermark() {
+        String value = settingService.getSetting(WATERMARK_KEY);
+        if (value == null || value.isEmpty()) {
+            return 0L;
+        }
+        try {
+            return Long.parseLong(value.trim());
+        } catch (NumberFormatException e) {
+            log.warn("日志去重水位线格式错误: {}，从头开始扫描", value);
+            return 0L;
+        }
+    }
+
+    // ========== 私有辅助方法 ==========
+
+    private int flushDeletes(List<Long> ids) {
+        if (ids.isEmpty()) {
+            return 0;
+        }
+        int count = ids.size();
+        logRepository.deleteAllByIdInBatch(new ArrayList<>(ids));
+        if (logSearchService != null) {
+            logSearchService.deleteFromIndex(ids);
+        }
+        ids.clear();
+        return count;
+    }
+
+    private void saveWatermark(long id) {
+        settingService.saveSetting(WATERMARK_KEY, String.valueOf(id), "number", "日志去重水位线（最后扫描的日志ID）");
+    }
+
+    /**
+     * 计算去重键的64位摘要（MD5前8字节）
+     */
+    private long hashKey(String username, String operation, String description, LocalDateTime timestamp) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("MD5");
+            update(digest, username);
+            update(digest, operation);
+            update(digest, description);
+            update(digest, timestamp != null ? timestamp.truncatedTo(ChronoUnit.SECONDS).toString() : null);
+            byte[] hash = digest.digest();
+            long value = 0;
+            for (int i = 0; i < 8; i++) {
+                value = (value << 8) | (hash[i] & 0xff);
+            }
+            return value;
+        } catch (Exception e) {
+            throw new IllegalStateException("计算日志去重键失败", e);
+        }
+    }
+
+    private void update(MessageDigest digest, String value) {
+        if (value != null) {
+            digest.update(value.getBytes(StandardCharsets.UTF_8));
+        }
+        // 字段分隔符，避免 "ab"+"c" 与 "a"+"bc" 冲突
+        digest.update((byte) 0);
+    }
+
+    private LocalDateTime toLocalDateTime(Object value) {
+        if (value instanceof LocalDateTime) {
+            return (LocalDateTime) value;
+        }
+        if (value instanceof Timestamp) {
+            return ((Timestamp) value).toLocalDateTime();
+        }
+        return null;
+    }
+
+    /**
+     * 有界去重窗口：按插入顺序淘汰最早的键
+     */
+    private static class DedupWindow {
+        private final int capacity;
+        private final Set<Long> keys = new HashSet<>();
+        private final ArrayDeque<Long> order = new ArrayDeque<>();
+
+        DedupWindow(int capacity) {
+            this.capacity = Math.max(1, capacity);
+        }
+
+        /**
+         * @return true 表示首次出现，false 表示窗口内已存在（重复）
+         */
+        boolean add(long key) {
+            if (!keys.add(key)) {
+                return false;
+            }
+            order.addLast(key);
+            if (order.size() > capacity) {
+                keys.remove(order.pollFirst());
+            }
+            return true;
+        }
+    }
+}
@@ -0,0 +1,727 @@
+package org.cyberlab.service;
+
+import jakarta.annotation.PreDestroy;
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.cjk.CJKAnalyzer;
+import org.apache.lucene.document.*;
+import org.apache.lucene.index.*;
+import org.apache.lucene.queryparser.classic.MultiFieldQueryParser;
+import org.apache.lucene.queryparser.classic.ParseException;
+import org.apache.lucene.queryparser.classic.QueryParser;
+import org.apache.lucene.search.*;
+import org.apache.lucene.search.highlight.Highlighter;
+import org.apache.lucene.search.highlight.QueryScorer;
+import org.apache.lucene.search.highlight.SimpleHTMLEncoder;
+import org.apache.lucene.search.highlight.SimpleHTMLFormatter;
+import org.apache.lucene.search.highlight.SimpleSpanFragmenter;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.FSDirectory;
+import org.cyberlab.entity.SystemLog;
+import org.cyberlab.event.SystemLogCreatedEvent;
+import org.cyberlab.repository.SystemLogRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * 日志全文检索服务（Lucene 本地磁盘索引）
+ *
+ * 1. 索引字段：operation、description、异常类型/堆栈、请求URL、用户名，中英文混合文本使用 CJKAnalyzer
+ * 2. 日志写入时（{@link SystemLogCreatedEvent}）放入队列，由独立的索引线程批量写入，不占用请求线程
+ * 3. 索引按月分段（{indexPath}/yyyy-MM），超过日志保留期限的分段整体删除，与日志归档保持一致
+ * 4. 检索结果按相关度排序、分页，并返回高亮片段
+ *
+ * 分段按引用计数管理：检索、索引线程、重建和清理在使用分段期间持有引用，删除过期分段时只摘除并释放
+ * 创建时的引用，最后一个使用者释放后才关闭并删除目录，不会关闭正在使用的分段。
+ *
+ * 注意：索引保存在本机磁盘，多实例部署时每个实例只索引本实例写入的日志，可通过重建索引补齐。
+ */
+@Service
+public class LogSearchService {
+
+    private static final Logger log = LoggerFactory.getLogger(LogSearchService.class);
+    private static final DateTimeFormatter SEGMENT_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM");
+
+    private static final String F_ID = "id";
+    private static final String F_TIMESTAMP = "timestamp";
+    private static final String F_USERNAME = "username";
+    private static final String F_USERNAME_TEXT = "usernameText";
+    private static final String F_LEVEL = "level";
+    private static final String F_CATEGORY = "category";
+    private static final String F_OPERATION = "operation";
+    private static final String F_DESCRIPTION = "description";
+    private static final String F_EXCEPTION = "exception";
+    private static final String F_URL = "url";
+
+    /**
+     * 可检索的文本字段及权重
+     */
+    private static final Map<String, Float> SEARCH_FIELDS = Map.of(
+            F_OPERATION, 3.0f,
+            F_DESCRIPTION, 1.0f,
+            F_EXCEPTION, 1.5f,
+            F_URL, 1.5f,
+            F_USERNAME_TEXT, 2.0f
+    );
+
+    /**
+     * 单次检索最多可翻阅的结果数量
+     */
+    private static final int MAX_WINDOW = 1000;
+
+    @Autowired
+    private SystemLogRepository logRepository;
+
+    @Value("${cyberlab.log.search.index-path:${user.dir}/data/log-index}")
+    private String indexPath;
+
+    @Value("${cyberlab.log.search.enabled:true}")
+    private boolean enabled;
+
+    @Value("${cyberlab.log.search.queue-size:20000}")
+    private int queueSize;
+
+    private final Analyzer analyzer = new CJKAnalyzer();
+    private final Map<String, Segment> segments = new ConcurrentHashMap<>();
+    private final AtomicLong droppedDocuments = new AtomicLong();
+    private final AtomicLong indexedDocuments = new AtomicLong();
+    private final AtomicBoolean reindexing = new AtomicBoolean(false);
+
+    /**
+     * 已删除分段的截止月份，早于该月份的分段不再打开（过期日志不再索引）
+     */
+    private volatile YearMonth retentionFloor;
+
+    private volatile BlockingQueue<LogDocument> queue;
+    private volatile Thread indexThread;
+    private volatile boolean running = true;
+
+    /**
+     * 日志写入回调：转换为索引文档后放入队列
+     */
+    @EventListener
+    public void onLogCreated(SystemLogCreatedEvent event) {
+        if (!enabled) {
+            return;
+        }
+        ensureIndexThread();
+        if (!queue.offer(LogDocument.from(event.getSystemLog()))) {
+            droppedDocuments.incrementAndGet();
+        }
+    }
+
+    /**
+     * 全文检索
+     * @param keyword   检索词（支持 Lucene 查询语法，语法错误时按普通文本检索）
+     * @param field     限定字段（operation/description/exception/url/username），为空检索全部
+     * @param username  精确限定用户名（非管理员只能检索自己的日志）
+     * @param level     日志级别
+     * @param category  日志分类
+     * @param startTime 开始时间（可选）
+     * @param endTime   结束时间（可选）
+     */
+    public Map<String, Object> search(String keyword, String field, String username, String level, String category,
+                                      LocalDateTime startTime, LocalDateTime endTime, int page, int size) throws IOException {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("page", page);
+        result.put("size", size);
+
+        if (keyword == null || keyword.trim().isEmpty()) {
+            result.put("total", 0L);
+            result.put("hits", Collections.emptyList());
+            return result;
+        }
+
+        Query textQuery = parseQuery(keyword.trim(), field);
+        BooleanQuery.Builder builder = new BooleanQuery.Builder().add(textQuery, BooleanClause.Occur.MUST);
+        if (username != null && !username.isEmpty()) {
+            builder.add(new TermQuery(new Term(F_USERNAME, username)), BooleanClause.Occur.FILTER);
+        }
+        if (level != null && !level.isEmpty()) {
+            builder.add(new TermQuery(new Term(F_LEVEL, level.toUpperCase())), BooleanClause.Occur.FILTER);
+        }
+        if (category != null && !category.isEmpty()) {
+            builder.add(new TermQuery(new Term(F_CATEGORY, category.toUpperCase())), BooleanClause.Occur.FILTER);
+        }
+        if (startTime != null || endTime != null) {
+            long from = startTime != null ? toEpochMilli(startTime) : Long.MIN_VALUE;
+            long to = endTime != null ? toEpochMilli(endTime) : Long.MAX_VALUE;
+            builder.add(LongPoint.newRangeQuery(F_TIMESTAMP, from, to), BooleanClause.Occur.FILTER);
+        }
+        Query query = builder.build();
+
+        List<Segment> selected = selectSegments(startTime, endTime);
+        if (selected.isEmpty()) {
+            result.put("total", 0L);
+            result.put("hits", Collections.emptyList());
+            return result;
+        }
+
+        List<IndexSearcher> acquired = new ArrayList<>();
+        try {
+            IndexReader[] readers = new IndexReader[selected.size()];
+            for (int i = 0; i < selected.size(); i++) {
+                IndexSearcher segmentSearcher = selected.get(i).searcherManager.acquire();
+                acquired.add(segmentSearcher);
+                readers[i] = segmentSearcher.getIndexReader();
+            }
+
+            try (MultiReader multiReader = new MultiReader(readers, false)) {
+                IndexSearcher searcher = new IndexSearcher(multiReader);
+                int window = Math.min(MAX_WINDOW, (page + 1) * size);
+                TopDocs topDocs = searcher.search(query, Math.max(1, window));
+
+                QueryScorer scorer = new QueryScorer(textQuery);
+                Highlighter highlighter = new Highlighter(new SimpleHTMLFormatter("<em>", "</em>"), new SimpleHTMLEncoder(), scorer);
+                highlighter.setTextFragmenter(new SimpleSpanFragmenter(scorer, 120));
+                StoredFields storedFields = searcher.storedFields();
+
+                List<Map<String, Object>> hits = new ArrayList<>();
+                for (int i = page * size; i < topDocs.scoreDocs.length && i < (page + 1) * size; i++) {
+                    ScoreDoc scoreDoc = topDocs.scoreDocs[i];
+                    hits.add(toHit(storedFields.document(scoreDoc.doc), scoreDoc.score, highlighter));
+                }
+
+                result.put("total", topDocs.totalHits.value);
+                result.put("totalRelation", topDocs.totalHits.relation.name());
+                result.put("hits", hits);
+            }
+        } finally {
+            for (int i = 0; i < acquired.size(); i++) {
+                selected.get(i).searcherManager.release(acquired.get(i));
+            }
+            selected.forEach(Segment::release);
+        }
+        return result;
+    }
+
+    /**
+     * 从数据库重建指定ID之后的索引（后台执行，按主键分批读取）
+     * @return 是否成功启动（已有重建任务运行时返回 false）
+     */
+    public boolean reindexAsync(long afterId) {
+        if (!reindexing.compareAndSet(false, true)) {
+            return false;
+        }
+        Thread thread = new Thread(() -> {
+            long cursor = afterId;
+            long count = 0;
+            try {
+                while (running) {
+                    List<SystemLog> batch = logRepository.findByIdGreaterThanOrderByIdAsc(cursor, PageRequest.of(0, 500));
+                    if (batch.isEmpty()) {
+                        break;
+                    }
+                    for (SystemLog systemLog : batch) {
+                        indexDocument(LogDocument.from(systemLog));
+                    }
+                    count += batch.size();
+                    cursor = batch.get(batch.size() - 1).getId();
+                }
+                refreshAll(true);
+                log.info("日志全文索引重建完成，共索引 {} 条", count);
+            } catch (Exception e) {
+                log.error("日志全文索引重建失败: {}", e.getMessage(), e);
+            } finally {
+                reindexing.set(false);
+            }
+        }, "log-search-reindex");
+        thread.setDaemon(true);
+        thread.start();
+        return true;
+    }
+
+    /**
+     * 从索引中删除日志（日志去重删除记录后调用）
+     */
+    public void deleteFromIndex(Collection<Long> logIds) {
+        if (!enabled || logIds.isEmpty()) {
+            return;
+        }
+        Term[] terms = logIds.stream().map(id -> new Term(F_ID, String.valueOf(id))).toArray(Term[]::new);
+        for (Segment segment : acquireAllSegments()) {
+            try {
+                segment.writer.deleteDocuments(terms);
+            } catch (IOException e) {
+                log.warn("从日志索引分段 {} 删除文档失败: {}", segment.name, e.getMessage());
+            } finally {
+                segment.release();
+            }
+        }
+    }
+
+    /**
+     * 删除早于指定时间的整月分段，并清理截止月份中的过期文档（与日志保留期限一致）
+     * @return 删除的分段数量
+     */
+    public int dropSegmentsBefore(LocalDateTime cutoff) {
+        YearMonth cutoffMonth = YearMonth.from(cutoff);
+        List<String> names = listSegmentNames();
+        synchronized (segments) {
+            if (retentionFloor == null || cutoffMonth.isAfter(retentionFloor)) {
+                retentionFloor = cutoffMonth;
+            }
+        }
+        int dropped = 0;
+        for (String name : names) {
+            YearMonth month = YearMonth.parse(name, SEGMENT_FORMAT);
+            if (!month.isBefore(cutoffMonth)) {
+                continue;
+            }
+            Segment segment;
+            synchronized (segments) {
+                segment = segments.remove(name);
+            }
+            try {
+                if (segment != null) {
+                    // 释放创建时的引用；仍在使用时由最后一个使用者关闭并删除目录
+                    segment.deleteOnClose = true;
+                    segment.release();
+                } else {
+                    deleteDirectory(Paths.get(indexPath, name));
+                }
+                dropped++;
+            } catch (IOException e) {
+                log.warn("删除日志索引分段 {} 失败: {}", name, e.getMessage());
+            }
+        }
+        // 保留期限所在月份的分段只删除早于截止时间的文档
+        Segment current = segments.get(cutoffMonth.format(SEGMENT_FORMAT));
+        if (current != null && current.tryAcquire()) {
+            try {
+                current.writer.deleteDocuments(LongPoint.newRangeQuery(F_TIMESTAMP, Long.MIN_VALUE, toEpochMilli(cutoff) - 1));
+            } catch (IOException e) {
+                log.warn("清理日志索引分段 {} 失败: {}", current.name, e.getMessage());
+            } finally {
+                current.release();
+            }
+        }
+        if (dropped > 0) {
+            log.info("删除过期日志索引分段 {} 个（早于 {}）", dropped, cutoffMonth);
+        }
+        return dropped;
+    }
+
+    /**
+     * 获取索引状态
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("indexPath", indexPath);
+        stats.put("segments", listSegmentNames());
+        stats.put("pending", queue != null ? queue.size() : 0);
+        stats.put("indexed", indexedDocuments.get());
+        stats.put("dropped", droppedDocuments.get());
+        stats.put("reindexing", reindexing.get());
+        return stats;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        running = false;
+        if (indexThread != null) {
+            // 不能中断索引线程：中断 NIO 文件通道会使索引写锁失效，这里等待其自行退出
+            try {
+                indexThread.join(5000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        List<Segment> open;
+        synchronized (segments) {
+            open = new ArrayList<>(segments.values());
+            segments.clear();
+        }
+        open.forEach(Segment::release);
+        try {
+            analyzer.close();
+        } catch (Exception e) {
+            // ignore
+        }
+    }
+
+    // ========== 索引写入 ==========
+
+    private void ensureIndexThread() {
+        if (indexThread != null) {
+            return;
+        }
+        synchronized (this) {
+            if (indexThread != null) {
+                return;
+            }
+            queue = new ArrayBlockingQueue<>(Math.max(1, queueSize));
+            Thread thread = new Thread(this::indexLoop, "log-search-indexer");
+            thread.setDaemon(true);
+            thread.start();
+            indexThread = thread;
+        }
+    }
+
+    private void indexLoop() {
+        long lastRefresh = System.currentTimeMillis();
+        long lastCommit = lastRefresh;
+        List<LogDocument> batch = new ArrayList<>();
+
+        while (running) {
+            try {
+                LogDocument first = queue.poll(1, TimeUnit.SECONDS);
+                if (first != null) {
+                    batch.add(first);
+                    queue.drainTo(batch, 999);
+                    for (LogDocument document : batch) {
+                        indexDocument(document);
+                    }
+                    batch.clear();
+                }
+
+                long now = System.currentTimeMillis();
+                if (now - lastRefresh >= 1000) {
+                    boolean commit = now - lastCommit >= 30000;
+                    refreshAll(commit);
+                    lastRefresh = now;
+                    if (commit) {
+                        lastCommit = now;
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (Exception e) {
+                batch.clear();
+                log.warn("写入日志全文索引失败: {}", e.getMessage());
+            }
+        }
+        refreshAll(true);
+    }
+
+    private void indexDocument(LogDocument document) throws IOException {
+        if (document.id == null) {
+            return;
+        }
+        LocalDateTime time = document.timestamp != null ? document.timestamp : LocalDateTime.now();
+        Segment segment = acquireSegment(time.format(SEGMENT_FORMAT));
+        if (segment == null) {
+            return;
+        }
+        try {
+            writeDocument(segment, document, time);
+        } finally {
+            segment.release();
+        }
+    }
+
+    private void writeDocument(Segment segment, LogDocument document, LocalDateTime time) throws IOException {
+        Document doc = new Document();
+        doc.add(new StringField(F_ID, String.valueOf(document.id), Field.Store.YES));
+        long epochMilli = toEpochMilli(time);
+        doc.add(new LongPoint(F_TIMESTAMP, epochMilli));
+        doc.add(new StoredField(F_TIMESTAMP, epochMilli));
+        addKeyword(doc, F_USERNAME, document.username);
+        addText(doc, F_USERNAME_TEXT, document.username, false);
+        addKeyword(doc, F_LEVEL, document.level != null ? document.level.toUpperCase() : null);
+        addKeyword(doc, F_CATEGORY, document.category != null ? document.category.toUpperCase() : null);
+        addText(doc, F_OPERATION, document.operation, true);
+        addText(doc, F_DESCRIPTION, document.description, true);
+        addText(doc, F_EXCEPTION, document.exception, true);
+        addText(doc, F_URL, document.url, true);
+
+        segment.writer.updateDocument(new Term(F_ID, String.valueOf(document.id)), doc);
+        indexedDocuments.incrementAndGet();
+    }
+
+    private void refreshAll(boolean commit) {
+        for (Segment segment : new ArrayList<>(segments.values())) {
+            if (!segment.tryAcquire()) {
+                continue;
+            }
+            try {
+                segment.searcherManager.maybeRefresh();
+                if (commit && segment.writer.hasUncommittedChanges()) {
+                    segment.writer.commit();
+                }
+            } catch (Exception e) {
+                log.warn("刷新日志索引分段 {} 失败: {}", segment.name, e.getMessage());
+            } finally {
+                segment.release();
+            }
+        }
+    }
+
+    private static void addKeyword(Document doc, String name, String value) {
+        if (value != null && !value.isEmpty()) {
+            doc.add(new StringField(name, value, Field.Store.YES));
+        }
+    }
+
+    private static void addText(Document doc, String name, String value, boolean store) {
+        if (value != null && !value.isEmpty()) {
+            doc.add(new TextField(name, value, store ? Field.Store.YES : Field.Store.NO));
+        }
+    }
+
+    // ========== 分段管理 ==========
+
+    /**
+     * 打开（必要时创建）分段并持有一个引用，使用完毕后调用 {@link Segment#release()}
+     * @return 分段早于保留期限或服务已关闭时返回 null
+     */
+    private Segment acquireSegment(String name) throws IOException {
+        synchronized (segments) {
+            YearMonth floor = retentionFloor;
+            if (!running || (floor != null && YearMonth.parse(name, SEGMENT_FORMAT).isBefore(floor))) {
+                return null;
+            }
+            Segment segment = segments.get(name);
+            if (segment == null) {
+                segment = new Segment(name, Paths.get(indexPath, name), analyzer);
+                segments.put(name, segment);
+            }
+            // 仍在映射中的分段至少持有创建时的引用，这里必然成功
+            segment.tryAcquire();
+            return segment;
+        }
+    }
+
+    private List<Segment> acquireAllSegments() {
+        List<Segment> result = new ArrayList<>();
+        for (String name : listSegmentNames()) {
+            try {
+                Segment segment = acquireSegment(name);
+                if (segment != null) {
+                    result.add(segment);
+                }
+            } catch (IOException e) {
+                log.warn("打开日志索引分段 {} 失败: {}", name, e.getMessage());
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 时间范围内的分段（已持有引用）
+     */
+    private List<Segment> selectSegments(LocalDateTime startTime, LocalDateTime endTime) {
+        YearMonth from = startTime != null ? YearMonth.from(startTime) : null;
+        YearMonth to = endTime != null ? YearMonth.from(endTime) : null;
+        List<Segment> result = new ArrayList<>();
+        for (Segment segment : acquireAllSegments()) {
+            YearMonth month = YearMonth.parse(segment.name, SEGMENT_FORMAT);
+            if ((from == null || !month.isBefore(from)) && (to == null || !month.isAfter(to))) {
+                result.add(segment);
+            } else {
+                segment.release();
+            }
+        }
+        return result;
+    }
+
+    private List<String> listSegmentNames() {
+        Path base = Paths.get(indexPath);
+        if (!Files.isDirectory(base)) {
+            return new ArrayList<>(segments.keySet());
+        }
+        Set<String> names = new TreeSet<>(segments.keySet());
+        YearMonth floor = retentionFloor;
+        try (Stream<Path> children = Files.list(base)) {
+            children.filter(Files::isDirectory)
+                    .map(path -> path.getFileName().toString())
+                    .filter(name -> name.matches("\\d{4}-\\d{2}"))
+                    // 已摘除、等待最后一个使用者释放后删除的分段目录不再打开
+                    .filter(name -> floor == null || !YearMonth.parse(name, SEGMENT_FORMAT).isBefore(floor))
+                    .forEach(names::add);
+        } catch (IOException e) {
+            log.warn("读取日志索引目录失败: {}", e.getMessage());
+        }
+        return new ArrayList<>(names);
+    }
+
+    private static void deleteDirectory(Path dir) throws IOException {
+        if (!Files.exists(dir)) {
+            return;
+        }
+        try (Stream<Path> paths = Files.walk(dir)) {
+            List<Path> sorted = new ArrayList<>();
+            paths.forEach(sorted::add);
+            Collections.reverse(sorted);
+            for (Path path : sorted) {
+                Files.deleteIfExists(path);
+            }
+        }
+    }
+
+    // ========== 检索辅助 ==========
+
+    private Query parseQuery(String keyword, String field) {
+        Map<String, Float> fields = SEARCH_FIELDS;
+        if (field != null && !field.isEmpty()) {
+            String target = "username".equals(field) ? F_USERNAME_TEXT : field;
+            if (SEARCH_FIELDS.containsKey(target)) {
+                fields = Map.of(target, 1.0f);
+            }
+        }
+
+        MultiFieldQueryParser parser = new MultiFieldQueryParser(fields.keySet().toArray(new String[0]), analyzer, fields);
+        parser.setDefaultOperator(QueryParser.Operator.AND);
+        try {
+            return parser.parse(keyword);
+        } catch (ParseException e) {
+            try {
+                return parser.parse(QueryParser.escape(keyword));
+            } catch (ParseException ex) {
+                return new MatchNoDocsQuery();
+            }
+        }
+    }
+
+    private Map<String, Object> toHit(Document doc, float score, Highlighter highlighter) {
+        Map<String, Object> hit = new LinkedHashMap<>();
+        hit.put("id", Long.valueOf(doc.get(F_ID)));
+        hit.put("score", score);
+        IndexableField timestamp = doc.getField(F_TIMESTAMP);
+        hit.put("timestamp", timestamp != null ? fromEpochMilli(timestamp.numericValue().longValue()) : null);
+        hit.put("username", doc.get(F_USERNAME));
+        hit.put("logLevel", doc.get(F_LEVEL));
+        hit.put("logCategory", doc.get(F_CATEGORY));
+        hit.put("operation", doc.get(F_OPERATION));
+        hit.put("requestUrl", doc.get(F_URL));
+
+        Map<String, String> highlights = new LinkedHashMap<>();
+        for (String name : new String[]{F_OPERATION, F_DESCRIPTION, F_EXCEPTION, F_URL}) {
+            String text = doc.get(name);
+            if (text == null) {
+                continue;
+            }
+            try {
+                String fragment = highlighter.getBestFragments(analyzer.tokenStream(name, text), text, 2, " ... ");
+                if (fragment != null && !fragment.isEmpty()) {
+                    highlights.put(name, fragment);
+                }
+            } catch (Exception e) {
+                // 高亮失败不影响结果
+            }
+        }
+        hit.put("highlights", highlights);
+        return hit;
+    }
+
+    private static long toEpochMilli(LocalDateTime time) {
+        return time.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+
+    private static LocalDateTime fromEpochMilli(long millis) {
+        return LocalDateTime.ofInstant(java.time.Instant.ofEpochMilli(millis), ZoneId.systemDefault());
+    }
+
+    /**
+     * 按月分段的索引
+     */
+    private static class Segment {
+        private final String name;
+        private final Path path;
+        private final Directory directory;
+        private final IndexWriter writer;
+        private final SearcherManager searcherManager;
+        /**
+         * 引用计数：创建时为 1（由分段映射持有），归零时关闭
+         */
+        private final AtomicInteger refCount = new AtomicInteger(1);
+        private volatile boolean deleteOnClose;
+
+        Segment(String name, Path path, Analyzer analyzer) throws IOException {
+            Files.createDirectories(path);
+            this.name = name;
+            this.path = path;
+            this.directory = FSDirectory.open(path);
+            IndexWriterConfig config = new IndexWriterConfig(analyzer);
+            config.setOpenMode(IndexWriterConfig.OpenMode.CREATE_OR_APPEND);
+            this.writer = new IndexWriter(directory, config);
+            this.searcherManager = new SearcherManager(writer, null);
+        }
+
+        /**
+         * 增加引用；分段已关闭（引用已归零）时返回 false
+         */
+        boolean tryAcquire() {
+            int count;
+            do {
+                count = refCount.get();
+                if (count <= 0) {
+                    return false;
+                }
+            } while (!refCount.compareAndSet(count, count + 1));
+            return true;
+        }
+
+        /**
+         * 释放引用；最后一个引用释放时关闭分段，已过期的分段同时删除目录
+         */
+        void release() {
+            if (refCount.decrementAndGet() != 0) {
+                return;
+            }
+            try {
+                searcherManager.close();
+                writer.close();
+                directory.close();
+                if (deleteOnClose) {
+                    deleteDirectory(path);
+                }
+            } catch (IOException e) {
+                log.warn("关闭日志索引分段 {} 失败: {}", name, e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * 待索引的日志文档（写入事件时复制所需字段）
+     */
+    private static class LogDocument {
+        private Long id;
+        private LocalDateTime timestamp;
+        private String username;
+        private String level;
+        private String category;
+        private String operation;
+        private String description;
+        private String exception;
+        private String url;
+
+        static LogDocument from(SystemLog systemLog) {
+            LogDocument document = new LogDocument();
+            document.id = systemLog.getId();
+            document.timestamp = systemLog.getTimestamp();
+            document.username = systemLog.getUsername();
+            document.level = systemLog.getLogLevel();
+            document.category = systemLog.getLogCategory();
+            document.operation = systemLog.getOperation();
+            document.description = systemLog.getDescription();
+            if (systemLog.getExceptionType() != null || systemLog.getErrorStack() != null) {
+                document.exception = (systemLog.getExceptionType() != null ? systemLog.getExceptionType() : "")
+                        + (systemLog.getErrorStack() != null ? "\n" + systemLog.getErrorStack() : "");
+            }
+            document.url = systemLog.getRequestUrl();
+            return document;
+        }
+    }
+}
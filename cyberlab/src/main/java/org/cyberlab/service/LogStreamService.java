@@ -0,0 +1,270 @@
+package org.cyberlab.service;
+
+import org.cyberlab.entity.SystemLog;
+import org.cyberlab.event.SystemLogCreatedEvent;
+import org.cyberlab.util.DaemonThreadFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import jakarta.annotation.PreDestroy;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 实时日志流服务（Server-Sent Events）
+ *
+ * 数据直接来自日志写入路径（{@link SystemLogCreatedEvent}），不查询数据库：
+ * 1. 每个订阅者有独立的过滤条件（级别/分类/业务模块/用户名/TraceId），在服务端过滤
+ * 2. 每个订阅者有容量固定的缓冲队列，队列写满说明消费过慢，直接断开该订阅者
+ * 3. 推送由少量工作线程完成，单个慢连接不会阻塞日志写入线程
+ */
+@Service
+public class LogStreamService {
+
+    private static final Logger log = LoggerFactory.getLogger(LogStreamService.class);
+
+    /**
+     * 单个订阅者的缓冲队列容量
+     */
+    @Value("${cyberlab.log.stream.buffer-size:256}")
+    private int bufferSize;
+
+    /**
+     * 最大订阅者数量
+     */
+    @Value("${cyberlab.log.stream.max-subscribers:50}")
+    private int maxSubscribers;
+
+    /**
+     * SSE连接超时时间（毫秒），超时后由前端 EventSource 自动重连
+     */
+    @Value("${cyberlab.log.stream.timeout-ms:1800000}")
+    private long timeoutMs;
+
+    private final Map<String, Subscriber> subscribers = new ConcurrentHashMap<>();
+    private final ExecutorService dispatcher = Executors.newFixedThreadPool(2, new DaemonThreadFactory("log-stream-"));
+    private final ScheduledExecutorService heartbeat = Executors.newSingleThreadScheduledExecutor(new DaemonThreadFactory("log-stream-heartbeat-"));
+    private final AtomicLong droppedSubscribers = new AtomicLong();
+
+    public LogStreamService() {
+        heartbeat.scheduleAtFixedRate(this::sendHeartbeats, 15, 15, TimeUnit.SECONDS);
+    }
+
+    /**
+     * 创建订阅
+     * @param filter 过滤条件，字段为空表示不过滤
+     */
+    public SseEmitter subscribe(LogStreamFilter filter) {
+        if (subscribers.size() >= maxSubscribers) {
+            throw new IllegalStateException("实时日志订阅数已达上限: " + maxSubscribers);
+        }
+
+        SseEmitter emitter = new SseEmitter(timeoutMs);
+        String id = UUID.randomUUID().toString();
+        Subscriber subscriber = new Subscriber(id, emitter, filter, bufferSize);
+        subscribers.put(id, subscriber);
+
+        emitter.onCompletion(() -> subscribers.remove(id));
+        emitter.onTimeout(() -> subscribers.remove(id));
+        emitter.onError(e -> subscribers.remove(id));
+
+        try {
+            emitter.send(SseEmitter.event().name("connected").data(Map.of("subscriberId", id)));
+        } catch (Exception e) {
+            subscribers.remove(id);
+            emitter.completeWithError(e);
+        }
+
+        log.info("实时日志订阅建立: {}, 当前订阅数: {}", id, subscribers.size());
+        return emitter;
+    }
+
+    /**
+     * 日志写入回调：按订阅者过滤并放入缓冲队列
+     */
+    @EventListener
+    public void onLogCreated(SystemLogCreatedEvent event) {
+        if (subscribers.isEmpty()) {
+            return;
+        }
+
+        SystemLog systemLog = event.getSystemLog();
+        Map<String, Object> payload = null;
+
+        for (Subscriber subscriber : subscribers.values()) {
+            if (!subscriber.filter.matches(systemLog)) {
+                continue;
+            }
+            if (payload == null) {
+                payload = toPayload(systemLog);
+            }
+            if (!subscriber.queue.offer(payload)) {
+                drop(subscriber, "缓冲区已满");
+                continue;
+            }
+            scheduleDrain(subscriber);
+        }
+    }
+
+    /**
+     * 获取订阅统计
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("subscribers", subscribers.size());
+        stats.put("maxSubscribers", maxSubscribers);
+        stats.put("bufferSize", bufferSize);
+        stats.put("droppedSubscribers", droppedSubscribers.get());
+        return stats;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        heartbeat.shutdownNow();
+        dispatcher.shutdownNow();
+        subscribers.values().forEach(subscriber -> subscriber.emitter.complete());
+        subscribers.clear();
+    }
+
+    // ========== 私有辅助方法 ==========
+
+    private void scheduleDrain(Subscriber subscriber) {
+        if (subscriber.draining.compareAndSet(false, true)) {
+            try {
+                dispatcher.execute(() -> drain(subscriber));
+            } catch (RejectedExecutionException e) {
+                subscriber.draining.set(false);
+            }
+        }
+    }
+
+    private void drain(Subscriber subscriber) {
+        try {
+            Map<String, Object> payload;
+            while ((payload = subscriber.queue.poll()) != null) {
+                subscriber.emitter.send(SseEmitter.event().name("log").data(payload, MediaType.APPLICATION_JSON));
+            }
+        } catch (Exception e) {
+            drop(subscriber, e.getMessage());
+            return;
+        } finally {
+            subscriber.draining.set(false);
+        }
+
+        // 释放标记后又有新日志进入，继续推送
+        if (!subscriber.queue.isEmpty()) {
+            scheduleDrain(subscriber);
+        }
+    }
+
+    private void drop(Subscriber subscriber, String reason) {
+        if (subscribers.remove(subscriber.id) != null) {
+            droppedSubscribers.incrementAndGet();
+            subscriber.queue.clear();
+            log.warn("实时日志订阅被断开: {}, 原因: {}", subscriber.id, reason);
+            try {
+                subscriber.emitter.complete();
+            } catch (Exception e) {
+                // 连接可能已关闭
+            }
+        }
+    }
+
+    private void sendHeartbeats() {
+        for (Subscriber subscriber : subscribers.values()) {
+            try {
+                subscriber.emitter.send(SseEmitter.event().comment("heartbeat"));
+            } catch (Exception e) {
+                drop(subscriber, "心跳发送失败");
+            }
+        }
+    }
+
+    private Map<String, Object> toPayload(SystemLog systemLog) {
+        Map<String, Object> payload = new LinkedHashMap<>();
+        payload.put("id", systemLog.getId());
+        payload.put("timestamp", systemLog.getTimestamp() != null ? systemLog.getTimestamp().toString() : null);
+        payload.put("logLevel", systemLog.getLogLevel());
+        payload.put("logCategory", systemLog.getLogCategory());
+        payload.put("businessModule", systemLog.getBusinessModule() != null ? systemLog.getBusinessModule().name() : null);
+        payload.put("operationType", systemLog.getOperationType() != null ? systemLog.getOperationType().name() : null);
+        payload.put("operationStatus", systemLog.getOperationStatus() != null ? systemLog.getOperationStatus().name() : null);
+        payload.put("username", systemLog.getUsername());
+        payload.put("operation", systemLog.getOperation());
+        payload.put("description", systemLog.getDescription());
+        payload.put("ip", systemLog.getIp());
+        payload.put("traceId", systemLog.getTraceId());
+        payload.put("requestUrl", systemLog.getRequestUrl());
+        payload.put("requestMethod", systemLog.getRequestMethod());
+        payload.put("responseStatus", systemLog.getResponseStatus());
+        payload.put("executionTime", systemLog.getExecutionTime());
+        payload.put("exceptionType", systemLog.getExceptionType());
+        return payload;
+    }
+
+    /**
+     * 订阅者
+     */
+    private static class Subscriber {
+        private final String id;
+        private final SseEmitter emitter;
+        private final LogStreamFilter filter;
+        private final BlockingQueue<Map<String, Object>> queue;
+        private final AtomicBoolean draining = new AtomicBoolean(false);
+
+        Subscriber(String id, SseEmitter emitter, LogStreamFilter filter, int bufferSize) {
+            this.id = id;
+            this.emitter = emitter;
+            this.filter = filter;
+            this.queue = new ArrayBlockingQueue<>(Math.max(1, bufferSize));
+        }
+    }
+
+    /**
+     * 订阅过滤条件（字段为空表示不限制）
+     */
+    public static class LogStreamFilter {
+        private final String logLevel;
+        private final String logCategory;
+        private final String businessModule;
+        private final String username;
+        private final String traceId;
+
+        public LogStreamFilter(String logLevel, String logCategory, String businessModule,
+                               String username, String traceId) {
+            this.logLevel = blankToNull(logLevel);
+            this.logCategory = blankToNull(logCategory);
+            this.businessModule = blankToNull(businessModule);
+            this.username = blankToNull(username);
+            this.traceId = blankToNull(traceId);
+        }
+
+        public boolean matches(SystemLog systemLog) {
+            if (logLevel != null && !logLevel.equalsIgnoreCase(systemLog.getLogLevel())) {
+                return false;
+            }
+            if (logCategory != null && !logCategory.equalsIgnoreCase(systemLog.getLogCategory())) {
+                return false;
+            }
+            if (businessModule != null && (systemLog.getBusinessModule() == null
+                    || !businessModule.equalsIgnoreCase(systemLog.getBusinessModule().name()))) {
+                return false;
+            }
+            if (username != null && !username.equals(systemLog.getUsername())) {
+                return false;
+            }
+            return traceId == null || traceId.equals(systemLog.getTraceId());
+        }
+
+        private static String blankToNull(String value) {
+            return value == null || value.trim().isEmpty() ? null : value.trim();
+        }
+    }
+}
@@ -2,6 +2,7 @@ package org.cyberlab.service;
 
 import org.cyberlab.entity.Backup;
 import org.cyberlab.repository.BackupRepository;
+import org.cyberlab.security.TokenRevocationService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -30,6 +31,15 @@ public class RestoreService {
     @Autowired
     private BackupRepository backupRepository;
 
+    @Autowired
+    private StatisticsService statisticsService;
+
+    @Autowired
+    private AssetIpIndexService assetIpIndexService;
+
+    @Autowired
+    private TokenRevocationService tokenRevocationService;
+
     @Value("${spring.datasource.url}")
     private String datasourceUrl;
 
@@ -102,6 +112,10 @@ public class RestoreService {
             if ("full".equals(type) || "database".equals(type)) {
                 // 恢复数据库
                 restoreDatabase(tempRestoreDir);
+                // mysql 命令直接改写数据，统计计数与IP索引需重新预热，用户令牌状态需重新加载
+                statisticsService.invalidateAll();
+                assetIpIndexService.invalidate();
+                tokenRevocationService.reloadAllUserStates();
             }
 
             if ("full".equals(type) || "files".equals(type)) {
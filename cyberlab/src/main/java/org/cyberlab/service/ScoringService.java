@@ -1,30 +1,89 @@
 package org.cyberlab.service;
 
+import org.cyberlab.entity.Team;
 import org.cyberlab.entity.TeamScore;
 import org.cyberlab.enums.AchievementType;
+import org.cyberlab.event.DomainEvent;
+import org.cyberlab.repository.ScoreLedgerRepository;
+import org.cyberlab.repository.TeamRepository;
 import org.cyberlab.repository.TeamScoreRepository;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
+import jakarta.annotation.PostConstruct;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
-import java.util.List;
-import java.util.Optional;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Collectors;
 
 /**
  * 打分系统核心服务
  * 负责团队得分的计算、更新和排名管理
+ *
+ * 排行榜按（演练, 队伍类型）常驻内存：
+ * - 审批按成果ID登记计分台账（score_ledger），重复审批不会重复计分，重新审批改分只计入差额
+ * - 得分在内存中原子累加，排名读取时按当前顺序计算，审批不再逐队写库
+ * - 有变化的行由定时任务批量写回 team_scores（cyberlab.scoring.flush-interval-ms），得分为相对更新
+ * - 启动时用计分台账重放校正，写回前进程退出不会丢分
+ * - 多实例部署（cyberlab.cluster.enabled=true）时，计分提交后通过 Redis 发布/订阅通知（演练, 队伍），
+ *   各实例（含本实例）按台账重新读取该队伍的总分，排行榜及写回的排名在各实例间保持一致；
+ *   从台账同步来的得分记为其他实例的部分，只有本实例审批产生的得分才会写回 team_scores
  */
 @Service
 public class ScoringService {
 
     private static final Logger logger = LoggerFactory.getLogger(ScoringService.class);
 
+    static final String CHANGE_CHANNEL = "cyberlab:scoring:changed";
+
     @Autowired
     private TeamScoreRepository teamScoreRepo;
 
+    @Autowired
+    private ScoreLedgerRepository scoreLedgerRepo;
+
+    @Autowired
+    private TeamRepository teamRepository;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired(required = false)
+    private RedisMessageListenerContainer listenerContainer;
+
+    @Autowired(required = false)
+    private StringRedisTemplate stringRedisTemplate;
+
+    /**
+     * 演练ID → 队伍类型 → 排行榜
+     */
+    private final Map<Long, Map<String, Leaderboard>> boards = new ConcurrentHashMap<>();
+    /**
+     * 有待写回变化的排行榜
+     */
+    private final Set<Leaderboard> dirtyBoards = ConcurrentHashMap.newKeySet();
+    private final AtomicLong revisions = new AtomicLong();
+
+    private final String instanceId = UUID.randomUUID().toString();
+    /**
+     * 已提交、待通知的计分变化：演练ID:队伍名称
+     */
+    private final Set<String> pendingChanges = ConcurrentHashMap.newKeySet();
+
     /**
      * 根据成果类型计算基础分值
      */
@@ -38,90 +97,568 @@ public class ScoringService {
     }
 
     /**
-     * 更新团队得分
+     * 根据队伍名称判断队伍类型：优先使用 teams 表登记的类型，
+     * 未登记的队伍（如旧数据中手工填写的队名）按名称规则判断
+     */
+    public String determineTeamType(String teamName) {
+        if (teamName == null) {
+            return "red"; // 默认红队
+        }
+        Optional<String> registered = teamRepository.findByName(teamName)
+                .map(Team::getTeamType)
+                .map(type -> type.trim().toLowerCase())
+                .filter(type -> type.equals("red") || type.equals("blue"));
+        if (registered.isPresent()) {
+            return registered.get();
+        }
+        String lowerName = teamName.toLowerCase();
+        if (lowerName.contains("红队") || lowerName.contains("red")) {
+            return "red";
+        } else if (lowerName.contains("蓝队") || lowerName.contains("blue")) {
+            return "blue";
+        }
+        return "red"; // 默认红队
+    }
+
+    /**
+     * 启动时载入排行榜：以 team_scores 为基础，用计分台账汇总校正
+     * （台账与计分同步提交，得分在写回前进程退出时，重放后由下一次写回修复 team_scores）
+     */
+    @PostConstruct
+    public void replay() {
+        if (isClusterEnabled()) {
+            listenerContainer.addMessageListener((message, pattern) ->
+                    handleChanges(new String(message.getBody(), StandardCharsets.UTF_8)),
+                    new ChannelTopic(CHANGE_CHANNEL));
+        }
+        long start = System.currentTimeMillis();
+        Map<String, TeamScore> rows = new HashMap<>();
+        for (TeamScore row : teamScoreRepo.findAll()) {
+            rows.put(row.getRangeId() + "|" + row.getTeamName(), row);
+            board(row.getRangeId(), row.getTeamType()).load(row);
+        }
+
+        int repaired = 0;
+        for (Object[] total : scoreLedgerRepo.sumScoresGroupByRangeAndTeam()) {
+            Long rangeId = ((Number) total[0]).longValue();
+            String teamName = (String) total[1];
+            int score = ((Number) total[3]).intValue();
+            int count = ((Number) total[4]).intValue();
+            TeamScore row = rows.get(rangeId + "|" + teamName);
+            if (row != null && row.getTotalScore() == score && row.getApprovedCount() == count) {
+                continue;
+            }
+            LocalDateTime lastUpdate = row != null && row.getLastUpdateTime() != null
+                    ? row.getLastUpdateTime() : (LocalDateTime) total[5];
+            Leaderboard board = board(rangeId, row != null ? row.getTeamType() : (String) total[2]);
+            board.put(new Standing(teamName, score, count, lastUpdate, revisions.incrementAndGet()));
+            dirtyBoards.add(board);
+            repaired++;
+        }
+        logger.info("排行榜载入完成: {}个演练, 校正{}支队伍, 耗时{}ms",
+                boards.size(), repaired, System.currentTimeMillis() - start);
+    }
+
+    private Leaderboard board(Long rangeId, String teamType) {
+        return boards.computeIfAbsent(rangeId, id -> new ConcurrentHashMap<>())
+                .computeIfAbsent(teamType, type -> new Leaderboard(rangeId, type));
+    }
+
+    /**
+     * 更新团队得分（内存中原子累加，变化由 {@link #flushScores()} 批量写回）
+     * 以成果ID幂等：同一成果重复审批只计分一次；重新审批改分时以台账为准，只计入新旧分数的差额
+     * @param achievementId 成果ID
      * @param teamName 团队名称
      * @param rangeId 演练ID
      * @param score 新增分数
      * @param teamType 队伍类型(red/blue)
+     * @return 得分是否变化（成果已按相同分数计过分或缺少演练ID时返回 false）
      */
-    @Transactional
-    public void updateTeamScore(String teamName, Long rangeId, int score, String teamType) {
-        logger.info("📊 开始更新团队得分: team={}, range={}, score=+{}, type={}",
-                teamName, rangeId, score, teamType);
-
-        // 查找或创建得分记录
-        Optional<TeamScore> optional = teamScoreRepo.findByTeamNameAndRangeId(teamName, rangeId);
-        TeamScore teamScore;
-
-        if (optional.isPresent()) {
-            teamScore = optional.get();
-            teamScore.addScore(score);
-            logger.info("更新已有记录: totalScore={}, approvedCount={}",
-                    teamScore.getTotalScore(), teamScore.getApprovedCount());
+    public boolean updateTeamScore(Long achievementId, String teamName, Long rangeId, int score, String teamType) {
+        if (rangeId == null || teamName == null) {
+            logger.warn("成果{}缺少演练或团队信息，不计分", achievementId);
+            return false;
+        }
+        if (scoreLedgerRepo.insertIfAbsent(achievementId, rangeId, teamName, teamType, score, LocalDateTime.now()) == 0) {
+            return rescore(achievementId, score);
+        }
+
+        Leaderboard board = board(rangeId, teamType);
+        Standing standing = board.add(teamName, score, 1, LocalDateTime.now(), revisions.incrementAndGet());
+        dirtyBoards.add(board);
+        markChanged(rangeId, teamName);
+        logger.info("📊 更新团队得分: team={}, range={}, score=+{}, type={}, totalScore={}, approvedCount={}",
+                teamName, rangeId, score, teamType, standing.totalScore, standing.approvedCount);
+
+        eventPublisher.publishEvent(new DomainEvent(this, DomainEvent.Type.TEAM_SCORE_UPDATED,
+                rangeId, teamName, teamType,
+                Map.of("score", score, "totalScore", standing.totalScore)));
+        return true;
+    }
+
+    /**
+     * 已计过分的成果重新审批：分数不同时把台账改为新分数，并按差额调整台账登记的团队得分
+     * （台账是得分的权威来源，重放时按台账汇总，与内存排行榜一致）
+     */
+    private boolean rescore(Long achievementId, int score) {
+        while (true) {
+            List<Object[]> entries = scoreLedgerRepo.findEntry(achievementId);
+            if (entries.isEmpty()) {
+                return false;
+            }
+            Object[] entry = entries.get(0);
+            int previous = ((Number) entry[3]).intValue();
+            if (previous == score) {
+                logger.info("成果{}已计过分，忽略重复审批", achievementId);
+                return false;
+            }
+            if (scoreLedgerRepo.updateScore(achievementId, previous, score) == 0) {
+                // 其他审批同时改分，重新读取后再比较
+                continue;
+            }
+            Long rangeId = ((Number) entry[0]).longValue();
+            String teamName = (String) entry[1];
+            String teamType = (String) entry[2];
+            Leaderboard board = board(rangeId, teamType);
+            Standing standing = board.add(teamName, score - previous, 0, LocalDateTime.now(), revisions.incrementAndGet());
+            dirtyBoards.add(board);
+            markChanged(rangeId, teamName);
+            logger.info("📊 成果{}重新审批改分: team={}, range={}, score={} -> {}, totalScore={}",
+                    achievementId, teamName, rangeId, previous, score, standing.totalScore);
+
+            eventPublisher.publishEvent(new DomainEvent(this, DomainEvent.Type.TEAM_SCORE_UPDATED,
+                    rangeId, teamName, teamType,
+                    Map.of("score", score - previous, "totalScore", standing.totalScore)));
+            return true;
+        }
+    }
+
+    /**
+     * 多实例部署时登记计分变化，审批事务提交后（台账已可见）才会通知
+     */
+    private void markChanged(Long rangeId, String teamName) {
+        if (!isClusterEnabled()) {
+            return;
+        }
+        String key = rangeId + ":" + teamName;
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    pendingChanges.add(key);
+                }
+            });
         } else {
-            // 创建新记录
-            teamScore = new TeamScore();
-            teamScore.setTeamName(teamName);
-            teamScore.setRangeId(rangeId);
-            teamScore.setTeamType(teamType);
-            teamScore.setTotalScore(score);
-            teamScore.setApprovedCount(1);
-            teamScore.setLastUpdateTime(LocalDateTime.now());
-            logger.info("创建新得分记录: team={}, initialScore={}", teamName, score);
+            pendingChanges.add(key);
         }
+    }
 
-        teamScoreRepo.save(teamScore);
+    /**
+     * 把已提交的计分变化合并通知其他实例，并按台账校正本实例的排行榜
+     * （本实例读取台账时若有其他审批尚未提交，其得分会在该审批提交后的下一次校正中补上）
+     */
+    @Scheduled(fixedDelayString = "${cyberlab.scoring.sync-interval-ms:1000}")
+    public void publishChanges() {
+        if (pendingChanges.isEmpty() || !isClusterEnabled()) {
+            return;
+        }
+        List<String> keys = new ArrayList<>(pendingChanges);
+        pendingChanges.removeAll(keys);
+        try {
+            stringRedisTemplate.convertAndSend(CHANGE_CHANNEL, instanceId + "|" + String.join("\n", keys));
+        } catch (Exception e) {
+            logger.warn("发布计分变化通知失败: {}", e.getMessage());
+        }
+        syncFromLedger(keys);
+    }
+
+    /**
+     * 处理其他实例的通知：instanceId|演练ID:队伍名称（每行一个）
+     */
+    private void handleChanges(String message) {
+        String[] parts = message.split("\\|", 2);
+        if (parts.length < 2 || instanceId.equals(parts[0])) {
+            return;
+        }
+        syncFromLedger(Arrays.asList(parts[1].split("\n")));
+    }
+
+    /**
+     * 按台账重新读取队伍总分；与内存得分的差额记为其他实例的部分，不影响本实例待写回的差额
+     */
+    private void syncFromLedger(Collection<String> keys) {
+        for (String key : keys) {
+            int separator = key.indexOf(':');
+            if (separator <= 0) {
+                continue;
+            }
+            try {
+                Long rangeId = Long.valueOf(key.substring(0, separator));
+                String teamName = key.substring(separator + 1);
+                List<Object[]> totals = scoreLedgerRepo.sumScoresByRangeAndTeam(rangeId, teamName);
+                if (totals.isEmpty() || totals.get(0)[0] == null) {
+                    continue;
+                }
+                Object[] total = totals.get(0);
+                Leaderboard board = board(rangeId, (String) total[0]);
+                board.sync(teamName, ((Number) total[1]).intValue(), ((Number) total[2]).intValue(),
+                        (LocalDateTime) total[3], revisions.incrementAndGet());
+                dirtyBoards.add(board);
+            } catch (Exception e) {
+                logger.warn("按台账同步队伍得分失败: {}, {}", key, e.getMessage());
+            }
+        }
+    }
 
-        // 更新排名
-        recalculateRanking(rangeId, teamType);
+    private boolean isClusterEnabled() {
+        return listenerContainer != null && stringRedisTemplate != null;
     }
 
     /**
-     * 重新计算指定演练指定类型队伍的排名
+     * 批量写回：只写入得分或排名有变化的行，一个事务内完成；提交失败时保留脏标记下次重试
+     * 得分按本实例审批产生的、与上次写回值的差额相对更新（total_score = total_score + ?），
+     * 多实例同时写回也不会互相覆盖；各实例排行榜按台账同步一致，写回的排名相同
      */
+    @Scheduled(fixedDelayString = "${cyberlab.scoring.flush-interval-ms:2000}")
     @Transactional
-    public void recalculateRanking(Long rangeId, String teamType) {
-        logger.info("🔄 重新计算排名: range={}, type={}", rangeId, teamType);
+    public void flushScores() {
+        if (dirtyBoards.isEmpty()) {
+            return;
+        }
+        List<Leaderboard> batch = new ArrayList<>(dirtyBoards);
+        dirtyBoards.removeAll(batch);
 
-        // 获取该类型所有队伍，按分数降序
-        List<TeamScore> teams = teamScoreRepo.findForRanking(rangeId, teamType);
+        List<PendingWrite> writes = new ArrayList<>();
+        for (Leaderboard board : batch) {
+            int rank = 1;
+            for (Standing standing : board.ranked()) {
+                PersistedRow row = board.rows.get(standing.teamName);
+                if (row == null && standing.localScore() == 0 && standing.localCount() == 0) {
+                    // 只有其他实例的得分：由计分的实例建行
+                    rank++;
+                    continue;
+                }
+                if (row == null || row.revision < standing.revision || !Objects.equals(row.ranking, rank)) {
+                    writes.add(new PendingWrite(board, standing, rank, row));
+                }
+                rank++;
+            }
+        }
+        if (writes.isEmpty()) {
+            return;
+        }
 
-        // 更新排名
-        int rank = 1;
-        for (TeamScore team : teams) {
-            team.setRanking(rank++);
-            teamScoreRepo.save(team);
+        List<PersistedRow> written = new ArrayList<>(writes.size());
+        for (PendingWrite write : writes) {
+            written.add(write.row != null && write.row.id != null ? update(write) : insert(write));
         }
 
-        logger.info("排名更新完成，共 {} 支队伍", teams.size());
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status != STATUS_COMMITTED) {
+                    dirtyBoards.addAll(batch);
+                    return;
+                }
+                for (int i = 0; i < writes.size(); i++) {
+                    writes.get(i).board.rows.put(writes.get(i).standing.teamName, written.get(i));
+                }
+            }
+        });
+        logger.debug("排行榜写回 {} 行（{}个榜单）", writes.size(), batch.size());
+    }
+
+    private PersistedRow update(PendingWrite write) {
+        PersistedRow row = write.row;
+        Standing standing = write.standing;
+        int scoreDelta = standing.localScore() - row.totalScore;
+        int countDelta = standing.localCount() - row.approvedCount;
+        if (scoreDelta != 0 || countDelta != 0) {
+            teamScoreRepo.addScore(row.id, scoreDelta, countDelta, standing.lastUpdateTime);
+        }
+        if (!Objects.equals(row.ranking, write.rank)) {
+            teamScoreRepo.updateRanking(row.id, write.rank);
+        }
+        return new PersistedRow(row.id, row.teamId, row.createdAt, standing.revision, write.rank,
+                standing.localScore(), standing.localCount());
+    }
+
+    private PersistedRow insert(PendingWrite write) {
+        Standing standing = write.standing;
+        Optional<TeamScore> existing = teamScoreRepo.findByTeamNameAndRangeId(standing.teamName, write.board.rangeId);
+        if (existing.isPresent()) {
+            // 其他实例已建行：本实例的成绩从零开始累计，整体作为差额累加
+            TeamScore entity = existing.get();
+            return update(new PendingWrite(write.board, standing, write.rank,
+                    new PersistedRow(entity.getId(), entity.getTeamId(), entity.getCreatedAt(), 0, entity.getRanking(), 0, 0)));
+        }
+        TeamScore entity = new TeamScore();
+        entity.setTeamName(standing.teamName);
+        entity.setRangeId(write.board.rangeId);
+        entity.setTeamType(write.board.teamType);
+        entity.setTotalScore(standing.localScore());
+        entity.setApprovedCount(standing.localCount());
+        entity.setLastUpdateTime(standing.lastUpdateTime);
+        entity.setRanking(write.rank);
+        entity = teamScoreRepo.save(entity);
+        return new PersistedRow(entity.getId(), entity.getTeamId(), entity.getCreatedAt(), standing.revision, write.rank,
+                standing.localScore(), standing.localCount());
     }
 
     /**
-     * 获取指定演练指定类型的排行榜
+     * 获取指定演练指定类型的排行榜（排名在读取时按当前顺序计算）
      */
     public List<TeamScore> getTeamRanking(Long rangeId, String teamType) {
-        return teamScoreRepo.findByRangeIdAndTeamTypeOrderByTotalScoreDescApprovedCountDescLastUpdateTimeAsc(
-                rangeId, teamType);
+        Leaderboard board = boards.getOrDefault(rangeId, Map.of()).get(teamType);
+        if (board == null) {
+            return new ArrayList<>();
+        }
+        List<TeamScore> ranking = new ArrayList<>();
+        int rank = 1;
+        for (Standing standing : board.ranked()) {
+            ranking.add(toTeamScore(board, standing, rank++));
+        }
+        return ranking;
     }
 
     /**
-     * 获取指定演练所有队伍的排行榜
+     * 获取指定演练所有队伍的排行榜（排名为同类型队伍中的名次）
      */
     public List<TeamScore> getAllTeamRanking(Long rangeId) {
-        return teamScoreRepo.findByRangeIdOrderByTotalScoreDescApprovedCountDescLastUpdateTimeAsc(rangeId);
+        List<Standing> order = new ArrayList<>();
+        Map<Standing, TeamScore> scores = new HashMap<>();
+        for (Leaderboard board : boards.getOrDefault(rangeId, Map.of()).values()) {
+            int rank = 1;
+            for (Standing standing : board.ranked()) {
+                order.add(standing);
+                scores.put(standing, toTeamScore(board, standing, rank++));
+            }
+        }
+        order.sort(STANDING_ORDER);
+        return order.stream().map(scores::get).collect(Collectors.toList());
     }
 
     /**
      * 获取指定队伍在指定演练的得分详情
      */
     public Optional<TeamScore> getTeamScore(String teamName, Long rangeId) {
-        return teamScoreRepo.findByTeamNameAndRangeId(teamName, rangeId);
+        for (Leaderboard board : boards.getOrDefault(rangeId, Map.of()).values()) {
+            Optional<TeamScore> score = board.find(teamName).map(s -> toTeamScore(board, s, board.rankOf(s)));
+            if (score.isPresent()) {
+                return score;
+            }
+        }
+        return Optional.empty();
+    }
+
+    private TeamScore toTeamScore(Leaderboard board, Standing standing, int rank) {
+        TeamScore score = new TeamScore();
+        PersistedRow row = board.rows.get(standing.teamName);
+        if (row != null) {
+            score.setId(row.id);
+            score.setTeamId(row.teamId);
+            score.setCreatedAt(row.createdAt);
+        }
+        score.setTeamName(standing.teamName);
+        score.setTeamType(board.teamType);
+        score.setRangeId(board.rangeId);
+        score.setTotalScore(standing.totalScore);
+        score.setApprovedCount(standing.approvedCount);
+        score.setLastUpdateTime(standing.lastUpdateTime);
+        score.setRanking(rank);
+        return score;
     }
 
     /**
      * 统计指定演练中指定类型队伍的数量
      */
     public long countTeams(Long rangeId, String teamType) {
-        return teamScoreRepo.countByRangeIdAndTeamType(rangeId, teamType);
+        Leaderboard board = boards.getOrDefault(rangeId, Map.of()).get(teamType);
+        return board != null ? board.size() : 0;
+    }
+
+    /**
+     * 排行顺序：总分降序、通过数降序、最后得分时间升序（先达到者靠前），队伍名称保证唯一
+     */
+    static final Comparator<Standing> STANDING_ORDER = Comparator
+            .comparingInt((Standing s) -> s.totalScore).reversed()
+            .thenComparing(Comparator.comparingInt((Standing s) -> s.approvedCount).reversed())
+            .thenComparing(s -> s.lastUpdateTime, Comparator.nullsLast(Comparator.naturalOrder()))
+            .thenComparing(s -> s.teamName);
+
+    /**
+     * 队伍当前成绩（不可变，每次变化替换为新对象）
+     */
+    static final class Standing {
+        final String teamName;
+        final int totalScore;
+        final int approvedCount;
+        final LocalDateTime lastUpdateTime;
+        /**
+         * 变更序号，用于判断是否已写回
+         */
+        final long revision;
+        /**
+         * 从台账同步来的其他实例得分（累计值，不由本实例写回）
+         */
+        final int remoteScore;
+        final int remoteCount;
+
+        Standing(String teamName, int totalScore, int approvedCount, LocalDateTime lastUpdateTime, long revision) {
+            this(teamName, totalScore, approvedCount, lastUpdateTime, revision, 0, 0);
+        }
+
+        Standing(String teamName, int totalScore, int approvedCount, LocalDateTime lastUpdateTime, long revision,
+                 int remoteScore, int remoteCount) {
+            this.teamName = teamName;
+            this.totalScore = totalScore;
+            this.approvedCount = approvedCount;
+            this.lastUpdateTime = lastUpdateTime;
+            this.revision = revision;
+            this.remoteScore = remoteScore;
+            this.remoteCount = remoteCount;
+        }
+
+        int localScore() {
+            return totalScore - remoteScore;
+        }
+
+        int localCount() {
+            return approvedCount - remoteCount;
+        }
+    }
+
+    /**
+     * 已写入数据库的行（totalScore / approvedCount 为本实例已计入 team_scores 的得分，用于计算相对更新的差额）
+     */
+    static final class PersistedRow {
+        final Long id;
+        final Long teamId;
+        final LocalDateTime createdAt;
+        final long revision;
+        final Integer ranking;
+        final int totalScore;
+        final int approvedCount;
+
+        PersistedRow(Long id, Long teamId, LocalDateTime createdAt, long revision, Integer ranking,
+                     int totalScore, int approvedCount) {
+            this.id = id;
+            this.teamId = teamId;
+            this.createdAt = createdAt;
+            this.revision = revision;
+            this.ranking = ranking;
+            this.totalScore = totalScore;
+            this.approvedCount = approvedCount;
+        }
+    }
+
+    private static final class PendingWrite {
+        final Leaderboard board;
+        final Standing standing;
+        final int rank;
+        final PersistedRow row;
+
+        PendingWrite(Leaderboard board, Standing standing, int rank, PersistedRow row) {
+            this.board = board;
+            this.standing = standing;
+            this.rank = rank;
+            this.row = row;
+        }
+    }
+
+    /**
+     * 单个演练、单种队伍类型的排行榜
+     * 有序集合按 {@link #STANDING_ORDER} 排列；写入持写锁（替换成绩需先删后插），读取持读锁，互不阻塞读者
+     */
+    static final class Leaderboard {
+        final Long rangeId;
+        final String teamType;
+        private final ConcurrentSkipListSet<Standing> order = new ConcurrentSkipListSet<>(STANDING_ORDER);
+        private final Map<String, Standing> standings = new ConcurrentHashMap<>();
+        final Map<String, PersistedRow> rows = new ConcurrentHashMap<>();
+        private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+        Leaderboard(Long rangeId, String teamType) {
+            this.rangeId = rangeId;
+            this.teamType = teamType;
+        }
+
+        void load(TeamScore row) {
+            put(new Standing(row.getTeamName(), row.getTotalScore(), row.getApprovedCount(), row.getLastUpdateTime(), 0));
+            rows.put(row.getTeamName(), new PersistedRow(row.getId(), row.getTeamId(), row.getCreatedAt(), 0, row.getRanking(),
+                    row.getTotalScore(), row.getApprovedCount()));
+        }
+
+        void put(Standing standing) {
+            lock.writeLock().lock();
+            try {
+                Standing previous = standings.put(standing.teamName, standing);
+                if (previous != null) {
+                    order.remove(previous);
+                }
+                order.add(standing);
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        Standing add(String teamName, int score, int count, LocalDateTime time, long revision) {
+            lock.writeLock().lock();
+            try {
+                Standing previous = standings.get(teamName);
+                Standing next = previous == null
+                        ? new Standing(teamName, score, count, time, revision)
+                        : new Standing(teamName, previous.totalScore + score, previous.approvedCount + count, time, revision,
+                                previous.remoteScore, previous.remoteCount);
+                put(next);
+                return next;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        /**
+         * 以台账汇总替换成绩：本实例的得分不变，其余记为其他实例的得分
+         */
+        Standing sync(String teamName, int totalScore, int approvedCount, LocalDateTime time, long revision) {
+            lock.writeLock().lock();
+            try {
+                Standing previous = standings.get(teamName);
+                int localScore = previous != null ? previous.localScore() : 0;
+                int localCount = previous != null ? previous.localCount() : 0;
+                Standing next = new Standing(teamName, totalScore, approvedCount, time, revision,
+                        totalScore - localScore, approvedCount - localCount);
+                put(next);
+                return next;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        List<Standing> ranked() {
+            lock.readLock().lock();
+            try {
+                return new ArrayList<>(order);
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+
+        Optional<Standing> find(String teamName) {
+            return Optional.ofNullable(standings.get(teamName));
+        }
+
+        int rankOf(Standing standing) {
+            lock.readLock().lock();
+            try {
+                return order.headSet(standing).size() + 1;
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+
+        int size() {
+            return standings.size();
+        }
     }
 }
@@ -11,16 +11,33 @@ import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.File;
-import java.io.FileOutputStream;
 import java.io.IOException;
-import java.nio.file.Files;
-import java.nio.file.Path;
-import java.nio.file.Paths;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
-
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 录屏服务
+ *
+ * 分片到达时即按序追加到最终文件（{最终文件}.part），停止录屏时只需重命名，不再有合并过程：
+ * 1. 下一个期望的分片直接以定位写入（FileChannel.transferFrom）追加到文件末尾
+ * 2. 提前到达的分片暂存在分片目录，缺口补齐后立即依次追加并删除
+ * 3. 重复上传的分片（序号小于已追加位置）直接忽略
+ *
+ * 追加进度（下一个分片序号 + .part 的有效长度）在每个分片写入并 fsync 后原子替换到 {最终文件}.part.progress，
+ * 进度落盘后才向客户端返回成功。服务重启后按进度文件恢复，并把 .part 截断到记录的长度：
+ * 崩溃时写了一半、或已写入但未记录进度的分片被丢弃，客户端重传时只追加一次。
+ */
 @Service
 public class ScreenRecordingService {
 
@@ -34,6 +51,40 @@ public class ScreenRecordingService {
 
     private static final String RECORDING_DIR = "screen-recordings";
     private static final String CHUNKS_DIR = "chunks";
+    private static final String PARTIAL_SUFFIX = ".part";
+    private static final String PROGRESS_SUFFIX = ".progress";
+
+    /**
+     * sessionId → 追加进度
+     */
+    private final Map<String, ChunkAssembler> assemblers = new ConcurrentHashMap<>();
+
+    /**
+     * 单个录屏会话的追加进度，访问时对实例加锁
+     */
+    private static final class ChunkAssembler {
+        final Path partialFile;
+        final Path progressFile;
+        final Path chunkDir;
+        /**
+         * 下一个待追加的分片序号
+         */
+        int nextIndex;
+        /**
+         * .part 中已追加分片的总长度
+         */
+        long position;
+        /**
+         * 提前到达、等待缺口补齐的分片：序号 → 暂存文件
+         */
+        final TreeMap<Integer, Path> held = new TreeMap<>();
+
+        ChunkAssembler(Path partialFile, Path chunkDir) {
+            this.partialFile = partialFile;
+            this.progressFile = partialFile.resolveSibling(partialFile.getFileName() + PROGRESS_SUFFIX);
+            this.chunkDir = chunkDir;
+        }
+    }
 
     /**
      * 开始录屏会话
@@ -85,36 +136,56 @@ public class ScreenRecordingService {
         }
 
         ScreenRecording recording = recordingOpt.get();
+        ChunkAssembler assembler = getAssembler(recording);
 
-        // 创建分片存储目录 - 使用Files.createDirectories确保创建成功
-        String chunkDir = getChunkDirectory(sessionId);
-        Path chunkDirPath = Paths.get(chunkDir);
-
-        try {
-            // 使用Files.createDirectories()会自动创建所有父目录，更可靠
-            Files.createDirectories(chunkDirPath);
-            logger.debug("分片目录已确保存在: {}", chunkDir);
-        } catch (IOException e) {
-            logger.error("创建分片目录失败: {}, error: {}", chunkDir, e.getMessage());
-            throw new IOException("无法创建分片存储目录: " + chunkDir, e);
-        }
+        synchronized (assembler) {
+            if (chunkIndex < assembler.nextIndex || assembler.held.containsKey(chunkIndex)) {
+                logger.warn("重复的分片已忽略: session={}, chunk={}", sessionId, chunkIndex);
+                return;
+            }
 
-        // 保存分片文件
-        String chunkFileName = String.format("chunk_%05d.webm", chunkIndex);
-        File chunkFile = new File(chunkDir, chunkFileName);
+            if (chunkIndex == assembler.nextIndex) {
+                // 按序到达：直接追加到最终文件，进度落盘后即视为保存成功
+                try (FileChannel out = openPartialFile(assembler);
+                     ReadableByteChannel in = Channels.newChannel(file.getInputStream())) {
+                    appendChunk(assembler, out, in, file.getSize());
+                } catch (IOException e) {
+                    logger.error("追加分片失败: session={}, chunk={}, error={}", sessionId, chunkIndex, e.getMessage());
+                    throw new IOException("无法保存分片文件: " + chunkIndex, e);
+                }
+            } else {
+                // 提前到达：暂存到分片目录（先写临时文件再重命名，崩溃时不会留下不完整的暂存分片），等待前面的分片
+                Path chunkFile = assembler.chunkDir.resolve(String.format("chunk_%05d.webm", chunkIndex));
+                Path tempFile = chunkFile.resolveSibling(chunkFile.getFileName() + ".tmp");
+                try {
+                    Files.createDirectories(assembler.chunkDir);
+                    file.transferTo(tempFile);
+                    try (FileChannel channel = FileChannel.open(tempFile, StandardOpenOption.WRITE)) {
+                        channel.force(false);
+                    }
+                    moveAtomically(tempFile, chunkFile);
+                } catch (IOException e) {
+                    logger.error("保存分片文件失败: {}, error: {}", chunkFile.toAbsolutePath(), e.getMessage());
+                    Files.deleteIfExists(tempFile);
+                    throw new IOException("无法保存分片文件: " + chunkFile.getFileName(), e);
+                }
+                assembler.held.put(chunkIndex, chunkFile);
+                logger.debug("分片提前到达，暂存等待: session={}, chunk={}, 期望={}", sessionId, chunkIndex, assembler.nextIndex);
+            }
 
-        try {
-            file.transferTo(chunkFile);
-            logger.debug("分片文件已保存: {}", chunkFile.getAbsolutePath());
-        } catch (IOException e) {
-            logger.error("保存分片文件失败: {}, error: {}", chunkFile.getAbsolutePath(), e.getMessage());
-            throw new IOException("无法保存分片文件: " + chunkFileName, e);
+            // 依次追加缺口补齐后的暂存分片。本分片已保存，追加失败不影响本次上传，暂存分片留待下次上传或停止录屏时重试
+            if (assembler.held.containsKey(assembler.nextIndex)) {
+                try (FileChannel out = openPartialFile(assembler)) {
+                    drainHeldChunks(assembler, out);
+                } catch (IOException e) {
+                    logger.warn("追加暂存分片失败，稍后重试: session={}, chunk={}, error={}",
+                        sessionId, assembler.nextIndex, e.getMessage());
+                }
+            }
         }
 
         // 更新录屏记录
-        recording.incrementChunkCount();
-        recording.setStatus("uploading");
-        screenRecordingRepository.save(recording);
+        screenRecordingRepository.incrementChunkCount(sessionId, "uploading", LocalDateTime.now());
 
         logger.info("📤 分片上传成功: session={}, chunk={}/{}, size={}KB",
             sessionId, chunkIndex + 1, recording.getTotalChunks() != null ? recording.getTotalChunks() : "?",
@@ -122,7 +193,7 @@ public class ScreenRecordingService {
     }
 
     /**
-     * 停止录屏并合并分片
+     * 停止录屏（分片已在上传时追加，这里只需重命名最终文件）
      */
     @Transactional
     public ScreenRecording stopRecording(String sessionId, LocalDateTime endTime) throws IOException {
@@ -153,8 +224,8 @@ public class ScreenRecordingService {
             recording.setDurationSeconds((int) Math.max(0, seconds));
         }
 
-        // 合并分片文件
-        String mergedFilePath = mergeChunks(recording);
+        // 完成最终文件
+        String mergedFilePath = finalizeRecording(recording);
         recording.setFilePath(mergedFilePath);
         recording.setFileName(new File(mergedFilePath).getName());
 
@@ -172,50 +243,166 @@ public class ScreenRecordingService {
     }
 
     /**
-     * 合并分片文件
+     * 完成最终文件：.part 重命名为最终文件名
+     * 仍有暂存分片时说明中间分片丢失，跳过缺口按序追加剩余分片（与原先合并目录中全部分片的行为一致）
      */
-    private String mergeChunks(ScreenRecording recording) throws IOException {
-        String chunkDir = getChunkDirectory(recording.getSessionId());
-        File chunkDirectory = new File(chunkDir);
+    private String finalizeRecording(ScreenRecording recording) throws IOException {
+        ChunkAssembler assembler = getAssembler(recording);
+
+        synchronized (assembler) {
+            try {
+                if (!assembler.held.isEmpty()) {
+                    logger.warn("录屏缺少分片 {}，跳过缺口追加剩余 {} 个分片: session={}",
+                        assembler.nextIndex, assembler.held.size(), recording.getSessionId());
+                    try (FileChannel out = openPartialFile(assembler)) {
+                        while (!assembler.held.isEmpty()) {
+                            assembler.nextIndex = assembler.held.firstKey();
+                            drainHeldChunks(assembler, out);
+                        }
+                    }
+                }
 
-        if (!chunkDirectory.exists() || !chunkDirectory.isDirectory()) {
-            throw new IOException("分片目录不存在: " + chunkDir);
+                if (!Files.exists(assembler.partialFile)) {
+                    throw new IOException("未收到任何录屏分片: " + recording.getSessionId());
+                }
+
+                Path finalFile = getFinalFile(recording);
+                moveAtomically(assembler.partialFile, finalFile);
+                Files.deleteIfExists(assembler.progressFile);
+
+                // 分片目录只用于暂存乱序分片，此时已为空
+                deleteDirectory(assembler.chunkDir.toFile());
+                return finalFile.toString();
+            } finally {
+                assemblers.remove(recording.getSessionId());
+            }
         }
+    }
 
-        // 创建最终文件路径
-        String finalDir = getFinalDirectory(recording.getUsername());
-        Path finalDirPath = Paths.get(finalDir);
+    /**
+     * 获取（或恢复）会话的追加进度
+     * 服务重启后按进度文件恢复，并把 .part 截断到记录的长度（丢弃未记录进度的写入）；
+     * 已追加过的暂存分片（追加后、删除前崩溃）直接删除
+     */
+    private ChunkAssembler getAssembler(ScreenRecording recording) throws IOException {
+        ChunkAssembler existing = assemblers.get(recording.getSessionId());
+        if (existing != null) {
+            return existing;
+        }
 
-        try {
-            Files.createDirectories(finalDirPath);
-            logger.debug("最终文件目录已确保存在: {}", finalDir);
-        } catch (IOException e) {
-            logger.error("创建最终文件目录失败: {}, error: {}", finalDir, e.getMessage());
-            throw new IOException("无法创建最终文件目录: " + finalDir, e);
+        Path finalFile = getFinalFile(recording);
+        ChunkAssembler assembler = new ChunkAssembler(
+                finalFile.resolveSibling(finalFile.getFileName() + PARTIAL_SUFFIX),
+                Paths.get(getChunkDirectory(recording.getSessionId())));
+        if (Files.isDirectory(assembler.chunkDir)) {
+            try (DirectoryStream<Path> chunks = Files.newDirectoryStream(assembler.chunkDir, "chunk_*.webm")) {
+                for (Path chunk : chunks) {
+                    String name = chunk.getFileName().toString();
+                    assembler.held.put(Integer.parseInt(name.substring(6, name.length() - 5)), chunk);
+                }
+            }
+        }
+        long size = Files.exists(assembler.partialFile) ? Files.size(assembler.partialFile) : 0;
+        if (Files.exists(assembler.progressFile)) {
+            String[] progress = Files.readString(assembler.progressFile, StandardCharsets.UTF_8).trim().split("\\s+");
+            assembler.nextIndex = Integer.parseInt(progress[0]);
+            assembler.position = Long.parseLong(progress[1]);
+        } else if (size > 0) {
+            // 升级前开始、尚无进度文件的会话：按已上传分片数与 .part 大小估算一次，之后以进度文件为准
+            int uploaded = recording.getChunkCount() != null ? recording.getChunkCount() : 0;
+            assembler.nextIndex = Math.max(0, uploaded - assembler.held.size());
+            assembler.position = size;
+            writeProgress(assembler);
+        }
+        if (size < assembler.position) {
+            throw new IOException("录屏文件短于已记录的追加进度: " + assembler.partialFile.getFileName()
+                    + " (" + size + " < " + assembler.position + ")");
+        }
+        if (size > assembler.position) {
+            logger.warn("丢弃录屏文件中未记录进度的 {} 字节: session={}", size - assembler.position, recording.getSessionId());
+            try (FileChannel out = openPartialFile(assembler)) {
+                out.truncate(assembler.position);
+                out.force(true);
+            }
+        }
+        while (!assembler.held.isEmpty() && assembler.held.firstKey() < assembler.nextIndex) {
+            Files.deleteIfExists(assembler.held.pollFirstEntry().getValue());
         }
 
-        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyyMMdd_HHmmss");
-        String timestamp = recording.getStartTime().format(formatter);
-        String finalFileName = String.format("%s_%s.webm", recording.getUsername(), timestamp);
-        String finalFilePath = finalDir + File.separator + finalFileName;
+        existing = assemblers.putIfAbsent(recording.getSessionId(), assembler);
+        return existing != null ? existing : assembler;
+    }
 
-        // 按顺序读取分片并合并
-        File finalFile = new File(finalFilePath);
-        try (FileOutputStream fos = new FileOutputStream(finalFile)) {
-            File[] chunks = chunkDirectory.listFiles((dir, name) -> name.startsWith("chunk_"));
-            if (chunks != null) {
-                java.util.Arrays.sort(chunks, (a, b) -> a.getName().compareTo(b.getName()));
+    private FileChannel openPartialFile(ChunkAssembler assembler) throws IOException {
+        Files.createDirectories(assembler.partialFile.getParent());
+        return FileChannel.open(assembler.partialFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+    }
 
-                for (File chunk : chunks) {
-                    Files.copy(chunk.toPath(), fos);
+    /**
+     * 追加序号为 nextIndex 的分片：写入 size 字节并 fsync，再原子更新进度文件。
+     * 任一步失败时截断到写入前的位置并恢复内存中的进度，重传的分片不会重复
+     */
+    private void appendChunk(ChunkAssembler assembler, FileChannel out, ReadableByteChannel in, long size) throws IOException {
+        long start = assembler.position;
+        int index = assembler.nextIndex;
+        try {
+            long written = 0;
+            while (written < size) {
+                long transferred = out.transferFrom(in, start + written, size - written);
+                if (transferred <= 0) {
+                    throw new IOException("分片数据不完整: 期望 " + size + " 字节，实际 " + written + " 字节");
                 }
+                written += transferred;
             }
+            out.force(false);
+            assembler.position = start + size;
+            assembler.nextIndex = index + 1;
+            writeProgress(assembler);
+        } catch (IOException e) {
+            assembler.position = start;
+            assembler.nextIndex = index;
+            out.truncate(start);
+            throw e;
         }
+    }
 
-        // 删除分片文件
-        deleteDirectory(chunkDirectory);
+    /**
+     * 依次追加序号连续的暂存分片
+     */
+    private void drainHeldChunks(ChunkAssembler assembler, FileChannel out) throws IOException {
+        Path chunk;
+        while ((chunk = assembler.held.get(assembler.nextIndex)) != null) {
+            try (FileChannel in = FileChannel.open(chunk, StandardOpenOption.READ)) {
+                appendChunk(assembler, out, in, in.size());
+            }
+            assembler.held.remove(assembler.nextIndex - 1);
+            Files.deleteIfExists(chunk);
+        }
+    }
+
+    /**
+     * 写入临时文件并 fsync 后原子替换进度文件：内容为 "下一个分片序号 .part有效长度"
+     */
+    private void writeProgress(ChunkAssembler assembler) throws IOException {
+        Path temp = assembler.progressFile.resolveSibling(assembler.progressFile.getFileName() + ".tmp");
+        byte[] content = (assembler.nextIndex + " " + assembler.position).getBytes(StandardCharsets.UTF_8);
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buffer = ByteBuffer.wrap(content);
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(true);
+        }
+        moveAtomically(temp, assembler.progressFile);
+    }
 
-        return finalFilePath;
+    private static void moveAtomically(Path source, Path target) throws IOException {
+        try {
+            Files.move(source, target, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+        }
     }
 
     /**
@@ -282,10 +469,15 @@ public class ScreenRecordingService {
         return uploadBasePath + File.separator + RECORDING_DIR + File.separator + CHUNKS_DIR + File.separator + sessionId;
     }
 
-    private String getFinalDirectory(String username) {
-        LocalDateTime now = LocalDateTime.now();
-        String yearMonth = now.format(DateTimeFormatter.ofPattern("yyyy/MM"));
-        return uploadBasePath + File.separator + RECORDING_DIR + File.separator + yearMonth;
+    /**
+     * 最终文件路径：按录制开始时间确定，分片追加期间与停止时保持一致
+     */
+    private Path getFinalFile(ScreenRecording recording) {
+        LocalDateTime startTime = recording.getStartTime() != null ? recording.getStartTime() : recording.getCreatedAt();
+        String yearMonth = startTime.format(DateTimeFormatter.ofPattern("yyyy/MM"));
+        String timestamp = startTime.format(DateTimeFormatter.ofPattern("yyyyMMdd_HHmmss"));
+        String finalFileName = String.format("%s_%s.webm", recording.getUsername(), timestamp);
+        return Paths.get(uploadBasePath, RECORDING_DIR, yearMonth, finalFileName);
     }
 
     private void deleteDirectory(File directory) {
@@ -0,0 +1,550 @@
+package org.cyberlab.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManagerFactory;
+import org.cyberlab.entity.Achievement;
+import org.cyberlab.entity.Asset;
+import org.cyberlab.entity.CyberRange;
+import org.cyberlab.entity.DrillContainer;
+import org.cyberlab.entity.User;
+import org.cyberlab.repository.*;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.*;
+import org.hibernate.persister.entity.EntityPersister;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * 统计计数服务
+ *
+ * 为驾驶舱和大屏维护用户、资产、成果、演练、演练容器的聚合计数（按角色、状态、类型、战队等维度），
+ * 替代每次请求 findAll() 后在内存中过滤计数：
+ * 1. 首次使用时每张表执行一次 GROUP BY 查询预热
+ * 2. 注册 Hibernate 提交后事件监听（插入/更新/删除），按新旧状态增量调整计数，事务回滚的写入不会计入
+ * 3. 读取只遍历维度组合（与行数无关）
+ * 4. 刷新（flush）时登记未提交的写入，提交/回滚后注销。预热查询期间存在未完成或刚提交的写入时，
+ *    无法判断查询结果是否已包含这些写入，本次结果照常返回，但计数保持待预热，下次读取重新查询，
+ *    预热窗口内的写入既不会丢失也不会重复计入
+ * 5. 多实例部署（cyberlab.cluster.enabled=true）时，本实例的写入通过 Redis 发布/订阅通知其他实例
+ *    （按实体类型合并，每秒最多一次），其他实例收到后重新预热对应计数
+ *
+ * 注意：批量 JPQL/原生 UPDATE、DELETE 以及数据库恢复不经过实体事件，执行后应调用
+ * {@link #invalidate(Class)} / {@link #invalidateAll()} 重新预热（同时通知其他实例）。
+ */
+@Service
+public class StatisticsService {
+
+    private static final Logger logger = LoggerFactory.getLogger(StatisticsService.class);
+
+    static final String INVALIDATION_CHANNEL = "cyberlab:stats:invalidate";
+
+    /**
+     * 预热查询期间有写入时的重试次数，仍有写入则下次读取再预热
+     */
+    private static final int WARM_UP_ATTEMPTS = 3;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private AssetRepository assetRepository;
+
+    @Autowired
+    private AchievementRepository achievementRepository;
+
+    @Autowired
+    private CyberRangeRepository cyberRangeRepository;
+
+    @Autowired
+    private DrillContainerRepository drillContainerRepository;
+
+    @Autowired(required = false)
+    private RedisMessageListenerContainer listenerContainer;
+
+    @Autowired(required = false)
+    private StringRedisTemplate stringRedisTemplate;
+
+    /**
+     * 实体类型 → 计数（维度与预热查询的分组字段一一对应）
+     */
+    private final Map<Class<?>, TupleCounter> counters = new ConcurrentHashMap<>();
+
+    private final String instanceId = UUID.randomUUID().toString();
+    /**
+     * 待通知其他实例的实体类型（计数名）
+     */
+    private final Set<String> pendingInvalidations = ConcurrentHashMap.newKeySet();
+
+    @PostConstruct
+    public void init() {
+        track(User.class, userRepository::countGroupByRoleAndEnabled, "role", "enabled");
+        track(Asset.class, assetRepository::countGroupByTypeEnabledAndTarget, "assetType", "enabled", "isTarget");
+        track(Achievement.class, achievementRepository::countGroupByStatusTeamAndMethod, "status", "teamName", "attackMethod");
+        track(CyberRange.class, cyberRangeRepository::countGroupByStatus, "status");
+        track(DrillContainer.class, drillContainerRepository::countGroupByStatus, "status");
+
+        EventListenerRegistry registry = entityManagerFactory.unwrap(SessionFactoryImplementor.class)
+                .getServiceRegistry().getService(EventListenerRegistry.class);
+        InFlightListener inFlightListener = new InFlightListener();
+        registry.appendListeners(EventType.POST_INSERT, inFlightListener);
+        registry.appendListeners(EventType.POST_UPDATE, inFlightListener);
+        registry.appendListeners(EventType.POST_DELETE, inFlightListener);
+        CountingListener listener = new CountingListener();
+        registry.appendListeners(EventType.POST_COMMIT_INSERT, listener);
+        registry.appendListeners(EventType.POST_COMMIT_UPDATE, listener);
+        registry.appendListeners(EventType.POST_COMMIT_DELETE, listener);
+
+        if (isClusterEnabled()) {
+            listenerContainer.addMessageListener((message, pattern) ->
+                    handleInvalidation(new String(message.getBody(), StandardCharsets.UTF_8)),
+                    new ChannelTopic(INVALIDATION_CHANNEL));
+        }
+
+        counters.values().forEach(TupleCounter::warmUp);
+        logger.info("统计计数预热完成: {}", getStats());
+    }
+
+    private void track(Class<?> entityType, Supplier<List<Object[]>> warmQuery, String... properties) {
+        counters.put(entityType, new TupleCounter(entityType.getSimpleName(), properties, warmQuery));
+    }
+
+    /**
+     * 批量更新/删除后重新预热指定实体的计数
+     */
+    public void invalidate(Class<?> entityType) {
+        TupleCounter counter = counters.get(entityType);
+        if (counter != null) {
+            counter.markStale();
+            pendingInvalidations.add(counter.name);
+        }
+    }
+
+    /**
+     * 数据库整体变化（如备份恢复）后重新预热全部计数
+     */
+    public void invalidateAll() {
+        counters.values().forEach(counter -> {
+            counter.markStale();
+            pendingInvalidations.add(counter.name);
+        });
+    }
+
+    /**
+     * 把本实例的写入合并通知其他实例
+     */
+    @Scheduled(fixedDelayString = "${cyberlab.stats.invalidation-interval-ms:1000}")
+    public void publishInvalidations() {
+        if (pendingInvalidations.isEmpty()) {
+            return;
+        }
+        List<String> names = new ArrayList<>(pendingInvalidations);
+        pendingInvalidations.removeAll(names);
+        if (!isClusterEnabled()) {
+            return;
+        }
+        try {
+            stringRedisTemplate.convertAndSend(INVALIDATION_CHANNEL, instanceId + "|" + String.join(",", names));
+        } catch (Exception e) {
+            logger.warn("发布统计计数失效通知失败: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 处理其他实例的通知：instanceId|计数名,计数名...
+     */
+    private void handleInvalidation(String message) {
+        String[] parts = message.split("\\|", 2);
+        if (parts.length < 2 || instanceId.equals(parts[0])) {
+            return;
+        }
+        Set<String> names = new HashSet<>(Arrays.asList(parts[1].split(",")));
+        counters.values().stream()
+                .filter(counter -> names.contains(counter.name))
+                .forEach(TupleCounter::markStale);
+    }
+
+    private boolean isClusterEnabled() {
+        return listenerContainer != null && stringRedisTemplate != null;
+    }
+
+    private TupleCounter counter(Class<?> entityType) {
+        TupleCounter counter = counters.get(entityType);
+        if (counter.stale) {
+            counter.warmUp();
+        }
+        return counter;
+    }
+
+    // ========== 用户 ==========
+
+    public long countUsers() {
+        return counter(User.class).total();
+    }
+
+    public long countEnabledUsers() {
+        return counter(User.class).count(t -> Boolean.TRUE.equals(t.get(1)));
+    }
+
+    /**
+     * 按角色计数（角色值原样，未归一化）
+     */
+    public Map<String, Long> countUsersByRole() {
+        return counter(User.class).countBy(0);
+    }
+
+    /**
+     * 角色名包含指定关键字（忽略大小写）的用户数，兼容 "red"/"redteam" 等多种角色值
+     */
+    public long countUsersByRoleContaining(String keyword) {
+        String lower = keyword.toLowerCase();
+        return counter(User.class).count(t -> t.get(0) != null && t.get(0).toString().toLowerCase().contains(lower));
+    }
+
+    // ========== 资产 ==========
+
+    public long countAssets() {
+        return counter(Asset.class).total();
+    }
+
+    public long countEnabledAssets() {
+        return counter(Asset.class).count(t -> Boolean.TRUE.equals(t.get(1)));
+    }
+
+    public long countTargetAssets() {
+        return counter(Asset.class).count(t -> Boolean.TRUE.equals(t.get(2)));
+    }
+
+    /**
+     * 资产类型包含指定关键字（忽略大小写）的资产数
+     */
+    public long countAssetsByTypeContaining(String keyword) {
+        String lower = keyword.toLowerCase();
+        return counter(Asset.class).count(t -> t.get(0) != null && t.get(0).toString().toLowerCase().contains(lower));
+    }
+
+    // ========== 成果 ==========
+
+    public long countAchievements() {
+        return counter(Achievement.class).total();
+    }
+
+    public long countAchievementsByStatus(String status) {
+        return counter(Achievement.class).count(t -> status.equals(t.get(0)));
+    }
+
+    /**
+     * 各战队审核通过的成果数
+     */
+    public Map<String, Long> countApprovedByTeam() {
+        return counter(Achievement.class).countBy(1, t -> "approved".equals(t.get(0)));
+    }
+
+    /**
+     * 按攻击方法计数（忽略空值）
+     */
+    public Map<String, Long> countAchievementsByAttackMethod() {
+        Map<String, Long> result = counter(Achievement.class).countBy(2);
+        result.keySet().removeIf(method -> method.trim().isEmpty());
+        return result;
+    }
+
+    // ========== 演练 / 演练容器 ==========
+
+    public long countRanges() {
+        return counter(CyberRange.class).total();
+    }
+
+    public Map<String, Long> countRangesByStatus() {
+        return counter(CyberRange.class).countBy(0);
+    }
+
+    public long countDrillContainers() {
+        return counter(DrillContainer.class).total();
+    }
+
+    public Map<String, Long> countDrillContainersByStatus() {
+        return counter(DrillContainer.class).countBy(0);
+    }
+
+    /**
+     * 计数概况（各实体的总数与维度组合数）
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        counters.values().forEach(counter -> stats.put(counter.name, Map.of(
+                "total", counter.total(),
+                "groups", counter.counts.size(),
+                "warmedAt", counter.warmedAt,
+                "stale", counter.stale)));
+        return stats;
+    }
+
+    /**
+     * 按维度组合计数
+     */
+    static class TupleCounter {
+        final String name;
+        final String[] properties;
+        final Supplier<List<Object[]>> warmQuery;
+        final Map<List<Object>, Long> counts = new ConcurrentHashMap<>();
+        /**
+         * 持久化器属性下标（首次收到事件时解析）
+         */
+        volatile int[] propertyIndexes;
+        volatile boolean stale = true;
+        volatile long warmedAt;
+        /**
+         * 收到的写入事件数（含待预热期间未计入的），用于判断预热查询期间是否有写入
+         */
+        final AtomicLong changes = new AtomicLong();
+        /**
+         * 已刷新到数据库但尚未提交/回滚的写入数
+         */
+        final AtomicInteger inFlight = new AtomicInteger();
+        private final Object warmLock = new Object();
+
+        TupleCounter(String name, String[] properties, Supplier<List<Object[]>> warmQuery) {
+            this.name = name;
+            this.properties = properties;
+            this.warmQuery = warmQuery;
+        }
+
+        /**
+         * 重新查询计数。查询前后存在未完成的写入或有写入提交时，结果可能已包含也可能未包含这些写入，
+         * 重试仍有写入则保持待预热，下次读取再查询
+         */
+        void warmUp() {
+            synchronized (warmLock) {
+                for (int attempt = 0; attempt < WARM_UP_ATTEMPTS && stale; attempt++) {
+                    long before = changes.get();
+                    boolean quiet = inFlight.get() == 0;
+                    List<Object[]> rows = warmQuery.get();
+                    synchronized (this) {
+                        counts.clear();
+                        for (Object[] row : rows) {
+                            List<Object> tuple = Arrays.asList(Arrays.copyOf(row, properties.length));
+                            counts.merge(tuple, ((Number) row[properties.length]).longValue(), Long::sum);
+                        }
+                        warmedAt = System.currentTimeMillis();
+                        if (quiet && inFlight.get() == 0 && changes.get() == before) {
+                            stale = false;
+                        }
+                    }
+                }
+            }
+        }
+
+        void completed() {
+            inFlight.updateAndGet(count -> Math.max(0, count - 1));
+        }
+
+        void markStale() {
+            changes.incrementAndGet();
+            stale = true;
+        }
+
+        /**
+         * 记录一次写入：已预热时增量调整，待预热时只登记（由下次预热查询覆盖）
+         */
+        void record(List<Object> before, List<Object> after) {
+            changes.incrementAndGet();
+            synchronized (this) {
+                if (stale) {
+                    return;
+                }
+                if (before != null) {
+                    add(before, -1);
+                }
+                if (after != null) {
+                    add(after, 1);
+                }
+            }
+        }
+
+        private void add(List<Object> tuple, long delta) {
+            counts.merge(tuple, delta, (a, b) -> a + b == 0 ? null : a + b);
+        }
+
+        long total() {
+            return counts.values().stream().mapToLong(Long::longValue).sum();
+        }
+
+        long count(Predicate<List<Object>> filter) {
+            long total = 0;
+            for (Map.Entry<List<Object>, Long> entry : counts.entrySet()) {
+                if (filter.test(entry.getKey())) {
+                    total += entry.getValue();
+                }
+            }
+            return total;
+        }
+
+        Map<String, Long> countBy(int dimension) {
+            return countBy(dimension, t -> true);
+        }
+
+        Map<String, Long> countBy(int dimension, Predicate<List<Object>> filter) {
+            Map<String, Long> result = new HashMap<>();
+            for (Map.Entry<List<Object>, Long> entry : counts.entrySet()) {
+                Object value = entry.getKey().get(dimension);
+                if (value != null && filter.test(entry.getKey())) {
+                    result.merge(value.toString(), entry.getValue(), Long::sum);
+                }
+            }
+            return result;
+        }
+
+        List<Object> tupleOf(EntityPersister persister, Object[] state) {
+            int[] indexes = propertyIndexes;
+            if (indexes == null) {
+                List<String> names = Arrays.asList(persister.getPropertyNames());
+                indexes = new int[properties.length];
+                for (int i = 0; i < properties.length; i++) {
+                    indexes[i] = names.indexOf(properties[i]);
+                }
+                propertyIndexes = indexes;
+            }
+            Object[] tuple = new Object[indexes.length];
+            for (int i = 0; i < indexes.length; i++) {
+                tuple[i] = indexes[i] >= 0 ? state[indexes[i]] : null;
+            }
+            return Arrays.asList(tuple);
+        }
+    }
+
+    /**
+     * Hibernate 提交后事件监听：只处理已跟踪的实体类型
+     */
+    private class CountingListener implements PostCommitInsertEventListener,
+            PostCommitUpdateEventListener, PostCommitDeleteEventListener {
+
+        private TupleCounter counterFor(EntityPersister persister) {
+            return counters.get(persister.getMappedClass());
+        }
+
+        @Override
+        public boolean requiresPostCommitHandling(EntityPersister persister) {
+            return counterFor(persister) != null;
+        }
+
+        @Override
+        public void onPostInsert(PostInsertEvent event) {
+            TupleCounter counter = counterFor(event.getPersister());
+            if (counter != null) {
+                counter.record(null, counter.tupleOf(event.getPersister(), event.getState()));
+                counter.completed();
+                pendingInvalidations.add(counter.name);
+            }
+        }
+
+        @Override
+        public void onPostUpdate(PostUpdateEvent event) {
+            TupleCounter counter = counterFor(event.getPersister());
+            if (counter == null) {
+                return;
+            }
+            if (event.getOldState() == null) {
+                // 没有旧状态（如直接 update 游离对象）时无法增量调整，下次读取时重新预热
+                counter.markStale();
+                pendingInvalidations.add(counter.name);
+            } else {
+                List<Object> before = counter.tupleOf(event.getPersister(), event.getOldState());
+                List<Object> after = counter.tupleOf(event.getPersister(), event.getState());
+                if (!before.equals(after)) {
+                    counter.record(before, after);
+                    pendingInvalidations.add(counter.name);
+                }
+            }
+            counter.completed();
+        }
+
+        @Override
+        public void onPostDelete(PostDeleteEvent event) {
+            TupleCounter counter = counterFor(event.getPersister());
+            if (counter == null) {
+                return;
+            }
+            if (event.getDeletedState() == null) {
+                counter.markStale();
+            } else {
+                counter.record(counter.tupleOf(event.getPersister(), event.getDeletedState()), null);
+            }
+            counter.completed();
+            pendingInvalidations.add(counter.name);
+        }
+
+        @Override
+        public void onPostInsertCommitFailed(PostInsertEvent event) {
+            // 事务未提交，不计数
+            commitFailed(event.getPersister());
+        }
+
+        @Override
+        public void onPostUpdateCommitFailed(PostUpdateEvent event) {
+            commitFailed(event.getPersister());
+        }
+
+        @Override
+        public void onPostDeleteCommitFailed(PostDeleteEvent event) {
+            commitFailed(event.getPersister());
+        }
+
+        private void commitFailed(EntityPersister persister) {
+            TupleCounter counter = counterFor(persister);
+            if (counter != null) {
+                counter.completed();
+            }
+        }
+    }
+
+    /**
+     * Hibernate 刷新时事件监听：登记已写入数据库但尚未提交的写入，供预热判断查询结果是否可靠
+     */
+    private class InFlightListener implements PostInsertEventListener, PostUpdateEventListener, PostDeleteEventListener {
+
+        @Override
+        public boolean requiresPostCommitHandling(EntityPersister persister) {
+            return false;
+        }
+
+        @Override
+        public void onPostInsert(PostInsertEvent event) {
+            begin(event.getPersister());
+        }
+
+        @Override
+        public void onPostUpdate(PostUpdateEvent event) {
+            begin(event.getPersister());
+        }
+
+        @Override
+        public void onPostDelete(PostDeleteEvent event) {
+            begin(event.getPersister());
+        }
+
+        private void begin(EntityPersister persister) {
+            TupleCounter counter = counters.get(persister.getMappedClass());
+            if (counter != null) {
+                counter.inFlight.incrementAndGet();
+            }
+        }
+    }
+}
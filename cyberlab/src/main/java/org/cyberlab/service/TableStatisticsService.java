@@ -0,0 +1,43 @@
+package org.cyberlab.service;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+
+/**
+ * 表统计信息
+ *
+ * 从 information_schema.TABLES 读取 InnoDB 维护的近似行数，供游标分页返回近似总数，代替 COUNT(*) 全表扫描。
+ * 该值由存储引擎抽样估算，误差可能达到数十个百分点，只适合展示"约 N 条"。
+ */
+@Service
+public class TableStatisticsService {
+
+    private static final Logger logger = LoggerFactory.getLogger(TableStatisticsService.class);
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    /**
+     * 表的近似行数（表不存在或查询失败时返回 null）
+     */
+    public Long estimateRowCount(String tableName) {
+        try {
+            List<?> rows = entityManager.createNativeQuery(
+                            "SELECT TABLE_ROWS FROM INFORMATION_SCHEMA.TABLES WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = ?1")
+                    .setParameter(1, tableName)
+                    .getResultList();
+            if (rows.isEmpty() || rows.get(0) == null) {
+                return null;
+            }
+            return ((Number) rows.get(0)).longValue();
+        } catch (Exception e) {
+            logger.warn("读取表统计信息失败: {} - {}", tableName, e.getMessage());
+            return null;
+        }
+    }
+}
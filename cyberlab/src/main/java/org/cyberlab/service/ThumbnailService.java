@@ -0,0 +1,269 @@
+package org.cyberlab.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.cyberlab.repository.AchievementRepository;
+import org.cyberlab.util.DaemonThreadFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.*;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * 成果截图缩略图生成
+ *
+ * 成果提交后把截图交给有界线程池，用 ImageIO 生成缩略图并写回 achievements.screenshot_thumbnails，
+ * 审批列表加载缩略图，原图只在点击预览时加载。
+ * 1. 解码时按目标尺寸设置源图抽样（subsampling），大尺寸截图不会整张解码进内存
+ * 2. 缩略图以原图内容的 SHA-256 命名，同一截图只生成一次，可与原图一样长期缓存
+ * 3. 队列已满时丢弃任务（不阻塞提交请求），审批列表发现缺少缩略图时会重新入队
+ * 4. 无法解码的文件（非图片、损坏）在对应位置保留原图路径
+ */
+@Service
+public class ThumbnailService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ThumbnailService.class);
+
+    @Autowired
+    private EvidenceStoreService evidenceStoreService;
+
+    @Autowired
+    private AchievementRepository achievementRepository;
+
+    @Value("${file.upload.path:uploads}")
+    private String uploadBasePath;
+
+    @Value("${cyberlab.media.thumbnail.workers:2}")
+    private int workers;
+
+    @Value("${cyberlab.media.thumbnail.queue-capacity:200}")
+    private int queueCapacity;
+
+    /**
+     * 缩略图最长边（像素）
+     */
+    @Value("${cyberlab.media.thumbnail.max-size:320}")
+    private int maxSize;
+
+    @Value("${cyberlab.media.thumbnail.quality:0.8}")
+    private float quality;
+
+    /**
+     * 超过该像素数的图片不生成缩略图（防止解压炸弹）
+     */
+    @Value("${cyberlab.media.thumbnail.max-source-pixels:100000000}")
+    private long maxSourcePixels;
+
+    private ThreadPoolExecutor executor;
+    private Path uploadRoot;
+    /**
+     * 已入队或正在处理的成果ID，避免重复入队
+     */
+    private final Set<Long> pending = ConcurrentHashMap.newKeySet();
+
+    @PostConstruct
+    public void init() {
+        uploadRoot = Paths.get(uploadBasePath).toAbsolutePath().normalize();
+        executor = new ThreadPoolExecutor(workers, workers, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), new DaemonThreadFactory("thumbnail-"));
+        executor.allowCoreThreadTimeOut(true);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * 为成果截图生成缩略图（异步，立即返回）
+     * @param screenshots 逗号分隔的截图路径
+     */
+    public void submit(Long achievementId, String screenshots) {
+        if (achievementId == null || screenshots == null || screenshots.isBlank() || !pending.add(achievementId)) {
+            return;
+        }
+        try {
+            executor.execute(() -> {
+                try {
+                    generateForAchievement(achievementId, screenshots);
+                } finally {
+                    pending.remove(achievementId);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            pending.remove(achievementId);
+            logger.debug("缩略图队列已满，跳过成果 {}", achievementId);
+        }
+    }
+
+    private void generateForAchievement(Long achievementId, String screenshots) {
+        List<String> thumbnails = new ArrayList<>();
+        for (String path : screenshots.split(",")) {
+            String original = path.trim();
+            String thumbnail = null;
+            try {
+                thumbnail = thumbnailFor(original);
+            } catch (Exception e) {
+                logger.warn("生成缩略图失败: 成果 {} - {} - {}", achievementId, original, e.getMessage());
+            }
+            thumbnails.add(thumbnail != null ? thumbnail : original);
+        }
+        achievementRepository.updateScreenshotThumbnails(achievementId, String.join(",", thumbnails));
+    }
+
+    /**
+     * 生成（或复用）单张截图的缩略图
+     * @return 缩略图地址；源文件不存在或不是可解码的图片时返回 null
+     */
+    private String thumbnailFor(String original) throws IOException {
+        String sha256 = EvidenceStoreService.hashFromUrl(original);
+        Path source;
+        if (sha256 != null) {
+            source = evidenceStoreService.resolve(sha256);
+        } else {
+            // 旧版本上传的 /uploads/... 路径，按文件内容计算哈希
+            source = resolveLegacyUpload(original);
+            if (source == null || !Files.isRegularFile(source)) {
+                return null;
+            }
+            sha256 = hashFile(source);
+        }
+
+        Path target = evidenceStoreService.resolveThumbnail(sha256);
+        if (Files.exists(target)) {
+            return EvidenceStoreService.thumbnailUrl(sha256);
+        }
+        if (!Files.isRegularFile(source)) {
+            return null;
+        }
+
+        BufferedImage image = readScaled(source);
+        if (image == null) {
+            return null;
+        }
+        Files.createDirectories(target.getParent());
+        Path temp = Files.createTempFile(evidenceStoreService.getTempDir(), "thumb-", ".jpg");
+        try {
+            writeJpeg(image, temp);
+            try {
+                Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+        return EvidenceStoreService.thumbnailUrl(sha256);
+    }
+
+    /**
+     * 解码并缩放到最长边不超过 maxSize
+     */
+    private BufferedImage readScaled(Path source) throws IOException {
+        try (ImageInputStream input = ImageIO.createImageInputStream(source.toFile())) {
+            if (input == null) {
+                return null;
+            }
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(input);
+            if (!readers.hasNext()) {
+                return null;
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(input, true, true);
+                int width = reader.getWidth(0);
+                int height = reader.getHeight(0);
+                if ((long) width * height > maxSourcePixels) {
+                    logger.warn("图片尺寸过大，跳过缩略图: {} ({}x{})", source.getFileName(), width, height);
+                    return null;
+                }
+
+                // 抽样到目标尺寸的 2 倍左右，后续平滑缩放保证画质
+                ImageReadParam param = reader.getDefaultReadParam();
+                int step = Math.max(1, Math.max(width, height) / (maxSize * 2));
+                if (step > 1) {
+                    param.setSourceSubsampling(step, step, 0, 0);
+                }
+                BufferedImage decoded = reader.read(0, param);
+                return scale(decoded);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    private BufferedImage scale(BufferedImage source) {
+        double ratio = Math.min(1.0, (double) maxSize / Math.max(source.getWidth(), source.getHeight()));
+        int width = Math.max(1, (int) Math.round(source.getWidth() * ratio));
+        int height = Math.max(1, (int) Math.round(source.getHeight() * ratio));
+
+        // JPEG 不支持透明通道，统一转为 RGB 白底
+        BufferedImage target = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = target.createGraphics();
+        try {
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            graphics.setColor(Color.WHITE);
+            graphics.fillRect(0, 0, width, height);
+            graphics.drawImage(source, 0, 0, width, height, null);
+        } finally {
+            graphics.dispose();
+        }
+        return target;
+    }
+
+    private void writeJpeg(BufferedImage image, Path target) throws IOException {
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+        try (ImageOutputStream output = ImageIO.createImageOutputStream(target.toFile())) {
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            param.setCompressionQuality(quality);
+            writer.setOutput(output);
+            writer.write(null, new IIOImage(image, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+    }
+
+    /**
+     * 旧版本上传路径 → 本地文件（限制在上传目录内）
+     */
+    private Path resolveLegacyUpload(String url) {
+        int index = url.indexOf("/uploads/");
+        if (index < 0) {
+            return null;
+        }
+        Path path = uploadRoot.resolve(url.substring(index + "/uploads/".length())).normalize();
+        return path.startsWith(uploadRoot) ? path : null;
+    }
+
+    private static String hashFile(Path path) throws IOException {
+        MessageDigest digest = EvidenceStoreService.newDigest();
+        try (InputStream in = new DigestInputStream(Files.newInputStream(path), digest)) {
+            in.transferTo(OutputStream.nullOutputStream());
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+}
@@ -0,0 +1,542 @@
+package org.cyberlab.service;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.cyberlab.entity.LogTrace;
+import org.cyberlab.entity.SystemLog;
+import org.cyberlab.event.SystemLogCreatedEvent;
+import org.cyberlab.repository.LogTraceRepository;
+import org.cyberlab.repository.SystemLogRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * 请求链路存储服务
+ *
+ * 日志写入时（{@link SystemLogCreatedEvent}）按 traceId 聚合为紧凑的链路记录：
+ * 1. 最近的链路保存在内存 LRU 中，查询直接命中
+ * 2. 有变化的链路定期批量写回 log_traces 表（按 trace_id 唯一索引、session_id 索引）
+ * 3. 内存和链路表都没有时，回退到 system_log 组装（只缓存在内存中，查询路径不写数据库）
+ * 查询结果包含按时间嵌套的调用树（父环节的时间区间包含子环节）。
+ */
+@Service
+public class TraceStoreService {
+
+    private static final Logger log = LoggerFactory.getLogger(TraceStoreService.class);
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+    private static final TypeReference<List<Span>> SPAN_LIST_TYPE = new TypeReference<>() {};
+
+    @Autowired
+    private LogTraceRepository traceRepository;
+
+    @Autowired
+    private SystemLogRepository logRepository;
+
+    /**
+     * 内存中保留的最近链路数量
+     */
+    @Value("${cyberlab.log.trace.cache-size:2000}")
+    private int cacheSize;
+
+    /**
+     * 单条链路最多保留的环节数量
+     */
+    @Value("${cyberlab.log.trace.max-spans:500}")
+    private int maxSpans;
+
+    private final Map<String, TraceRecord> recentTraces = new LinkedHashMap<>(256, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, TraceRecord> eldest) {
+            return size() > cacheSize;
+        }
+    };
+
+    /**
+     * 待写回链路数量上限（数据库不可用时防止无限增长）
+     */
+    @Value("${cyberlab.log.trace.max-dirty:10000}")
+    private int maxDirty;
+
+    private final Map<String, TraceRecord> dirtyTraces = new ConcurrentHashMap<>();
+    private final AtomicLong droppedTraces = new AtomicLong();
+
+    /**
+     * 日志写入回调：把日志作为一个环节追加到所属链路
+     */
+    @EventListener
+    public void onLogCreated(SystemLogCreatedEvent event) {
+        SystemLog systemLog = event.getSystemLog();
+        String traceId = systemLog.getTraceId();
+        if (traceId == null || traceId.isEmpty()) {
+            return;
+        }
+
+        TraceRecord record;
+        synchronized (recentTraces) {
+            record = recentTraces.get(traceId);
+            if (record == null) {
+                record = dirtyTraces.getOrDefault(traceId, new TraceRecord(traceId, false));
+                recentTraces.put(traceId, record);
+            }
+        }
+
+        record.add(systemLog, Span.from(systemLog), maxSpans);
+        markDirty(record);
+    }
+
+    /**
+     * 登记待写回；达到上限时丢弃新链路的写回（环节仍在 system_log 中，链路表没有记录时查询会重新组装）
+     */
+    private void markDirty(TraceRecord record) {
+        if (dirtyTraces.size() >= maxDirty && !dirtyTraces.containsKey(record.traceId)) {
+            if (droppedTraces.incrementAndGet() % 1000 == 1) {
+                log.warn("待写回链路已达上限 {}，新链路不再写回（累计丢弃 {} 条）", maxDirty, droppedTraces.get());
+            }
+            return;
+        }
+        dirtyTraces.put(record.traceId, record);
+    }
+
+    /**
+     * 查询完整链路（含调用树）
+     * @return 链路信息，不存在时返回 null
+     */
+    public Map<String, Object> getTrace(String traceId) {
+        if (traceId == null || traceId.isEmpty()) {
+            return null;
+        }
+
+        TraceRecord record;
+        String source = "memory";
+        synchronized (recentTraces) {
+            record = recentTraces.get(traceId);
+        }
+        if (record == null) {
+            record = dirtyTraces.get(traceId);
+        }
+
+        if (record != null && !record.isComplete()) {
+            // 链路被逐出内存后又收到新环节：内存中只有新环节，需与已存储的链路合并
+            record.mergeStored(loadStored(traceId), maxSpans);
+        } else if (record == null) {
+            Optional<LogTrace> stored = traceRepository.findByTraceId(traceId);
+            if (stored.isPresent()) {
+                record = TraceRecord.fromEntity(stored.get());
+                source = "index";
+            } else {
+                record = loadFromSystemLog(traceId);
+                if (record == null) {
+                    return null;
+                }
+                source = "system_log";
+            }
+            synchronized (recentTraces) {
+                recentTraces.putIfAbsent(traceId, record);
+            }
+        }
+
+        Map<String, Object> result = record.toMap();
+        result.put("source", source);
+        return result;
+    }
+
+    /**
+     * 已存储的完整链路：优先链路表，其次 system_log；都没有时返回空记录
+     */
+    private TraceRecord loadStored(String traceId) {
+        Optional<LogTrace> stored = traceRepository.findByTraceId(traceId);
+        if (stored.isPresent()) {
+            return TraceRecord.fromEntity(stored.get());
+        }
+        TraceRecord record = loadFromSystemLog(traceId);
+        return record != null ? record : new TraceRecord(traceId, true);
+    }
+
+    private TraceRecord loadFromSystemLog(String traceId) {
+        List<SystemLog> logs = logRepository.findByTraceIdOrderByTimestampAsc(traceId);
+        if (logs.isEmpty()) {
+            return null;
+        }
+        TraceRecord record = new TraceRecord(traceId, true);
+        for (SystemLog systemLog : logs) {
+            record.add(systemLog, Span.from(systemLog), maxSpans);
+        }
+        return record;
+    }
+
+    /**
+     * 按会话查询链路摘要（按开始时间升序分页）
+     * 只读链路表，最近的请求在下一次定期写回（cyberlab.log.trace.flush-interval-ms）后出现
+     * @param username 只返回该用户的链路，为 null 时不限制
+     */
+    public Page<Map<String, Object>> getSessionTraces(String sessionId, String username, Pageable pageable) {
+        Page<LogTrace> traces = username == null
+                ? traceRepository.findBySessionIdOrderByStartTimeAsc(sessionId, pageable)
+                : traceRepository.findBySessionIdAndUsernameOrderByStartTimeAsc(sessionId, username, pageable);
+        return traces.map(TraceStoreService::toSummary);
+    }
+
+    /**
+     * 定期把有变化的链路批量写回链路表
+     */
+    @Scheduled(fixedDelayString = "${cyberlab.log.trace.flush-interval-ms:5000}")
+    public synchronized void flushDirtyTraces() {
+        if (dirtyTraces.isEmpty()) {
+            return;
+        }
+
+        Map<String, TraceRecord> batch = new HashMap<>();
+        for (String traceId : new ArrayList<>(dirtyTraces.keySet())) {
+            TraceRecord record = dirtyTraces.remove(traceId);
+            if (record != null) {
+                batch.put(traceId, record);
+            }
+        }
+        if (batch.isEmpty()) {
+            return;
+        }
+
+        try {
+            Map<String, LogTrace> existing = traceRepository.findByTraceIdIn(batch.keySet()).stream()
+                    .collect(Collectors.toMap(LogTrace::getTraceId, Function.identity(), (a, b) -> a));
+
+            List<LogTrace> toSave = new ArrayList<>(batch.size());
+            for (TraceRecord record : batch.values()) {
+                LogTrace entity = existing.get(record.traceId);
+                if (entity == null) {
+                    entity = new LogTrace();
+                    entity.setTraceId(record.traceId);
+                } else if (!record.isComplete()) {
+                    // 内存中只有新追加的环节，合并链路表中已有的环节
+                    record.mergeStored(TraceRecord.fromEntity(entity), maxSpans);
+                }
+                record.writeTo(entity);
+                toSave.add(entity);
+            }
+            traceRepository.saveAll(toSave);
+        } catch (Exception e) {
+            // 写回失败时放回待写队列，下次重试（受待写上限约束）
+            batch.values().forEach(record -> {
+                if (!dirtyTraces.containsKey(record.traceId)) {
+                    markDirty(record);
+                }
+            });
+            log.warn("写回请求链路失败（{} 条）: {}", batch.size(), e.getMessage());
+        }
+    }
+
+    /**
+     * 清理指定时间之前的链路（与日志保留期限保持一致）
+     */
+    @Transactional
+    public int cleanOldTraces(LocalDateTime before) {
+        synchronized (recentTraces) {
+            recentTraces.values().removeIf(record -> record.endTime != null && record.endTime.isBefore(before));
+        }
+        int deleted = traceRepository.deleteByStartTimeBefore(before);
+        log.info("清理请求链路完成，删除 {} 条记录（时间早于 {}）", deleted, before);
+        return deleted;
+    }
+
+    // ========== 私有辅助方法 ==========
+
+    private static Map<String, Object> toSummary(LogTrace trace) {
+        Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put("traceId", trace.getTraceId());
+        summary.put("sessionId", trace.getSessionId());
+        summary.put("username", trace.getUsername());
+        summary.put("startTime", trace.getStartTime());
+        summary.put("endTime", trace.getEndTime());
+        summary.put("durationMs", trace.getDurationMs());
+        summary.put("spanCount", trace.getSpanCount());
+        summary.put("errorCount", trace.getErrorCount());
+        return summary;
+    }
+
+    private static long toEpochMilli(LocalDateTime time) {
+        return time.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+
+    private static LocalDateTime fromEpochMilli(long millis) {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(millis), ZoneId.systemDefault());
+    }
+
+    /**
+     * 内存中的链路记录
+     */
+    private static class TraceRecord {
+        private final String traceId;
+        /**
+         * 是否包含该链路的全部环节（从链路表或 system_log 完整加载）
+         */
+        private boolean complete;
+        private String sessionId;
+        private String username;
+        private LocalDateTime endTime;
+        private final List<Span> spans = new ArrayList<>();
+
+        TraceRecord(String traceId, boolean complete) {
+            this.traceId = traceId;
+            this.complete = complete;
+        }
+
+        static TraceRecord fromEntity(LogTrace entity) {
+            TraceRecord record = new TraceRecord(entity.getTraceId(), true);
+            record.sessionId = entity.getSessionId();
+            record.username = entity.getUsername();
+            record.endTime = entity.getEndTime();
+            if (entity.getSpans() != null && !entity.getSpans().isEmpty()) {
+                try {
+                    record.spans.addAll(objectMapper.readValue(entity.getSpans(), SPAN_LIST_TYPE));
+                } catch (Exception e) {
+                    log.warn("解析请求链路失败: {}", entity.getTraceId());
+                }
+            }
+            return record;
+        }
+
+        synchronized boolean isComplete() {
+            return complete;
+        }
+
+        synchronized void add(SystemLog systemLog, Span span, int maxSpans) {
+            if (sessionId == null) {
+                sessionId = systemLog.getSessionId();
+            }
+            if (username == null || "anonymous".equals(username) || "system".equals(username)) {
+                username = systemLog.getUsername();
+            }
+            if (spans.size() < maxSpans) {
+                spans.add(span);
+            }
+            LocalDateTime end = fromEpochMilli(span.getStart() + span.getDuration());
+            if (endTime == null || end.isAfter(endTime)) {
+                endTime = end;
+            }
+        }
+
+        synchronized void mergeStored(TraceRecord stored, int maxSpans) {
+            Set<Long> known = new HashSet<>();
+            for (Span span : spans) {
+                known.add(span.getLogId());
+            }
+            for (Span span : stored.spans) {
+                if (spans.size() >= maxSpans) {
+                    break;
+                }
+                if (span.getLogId() == null || known.add(span.getLogId())) {
+                    spans.add(span);
+                }
+            }
+            if (sessionId == null) {
+                sessionId = stored.sessionId;
+            }
+            if (username == null) {
+                username = stored.username;
+            }
+            if (stored.endTime != null && (endTime == null || stored.endTime.isAfter(endTime))) {
+                endTime = stored.endTime;
+            }
+            complete = true;
+        }
+
+        synchronized void writeTo(LogTrace entity) throws Exception {
+            List<Span> sorted = sortedSpans();
+            long start = sorted.isEmpty() ? 0 : sorted.get(0).getStart();
+            long end = start;
+            int errors = 0;
+            for (Span span : sorted) {
+                end = Math.max(end, span.getStart() + span.getDuration());
+                if (span.isError()) {
+                    errors++;
+                }
+            }
+            entity.setSessionId(sessionId);
+            entity.setUsername(username);
+            entity.setStartTime(sorted.isEmpty() ? null : fromEpochMilli(start));
+            entity.setEndTime(sorted.isEmpty() ? null : fromEpochMilli(end));
+            entity.setDurationMs(end - start);
+            entity.setSpanCount(sorted.size());
+            entity.setErrorCount(errors);
+            entity.setSpans(objectMapper.writeValueAsString(sorted));
+            entity.setUpdatedAt(LocalDateTime.now());
+            // 写回后链路表与内存一致，后续写回无需再合并
+            complete = true;
+        }
+
+        synchronized Map<String, Object> toMap() {
+            List<Span> sorted = sortedSpans();
+            long start = sorted.isEmpty() ? 0 : sorted.get(0).getStart();
+            long end = start;
+            int errors = 0;
+            for (Span span : sorted) {
+                end = Math.max(end, span.getStart() + span.getDuration());
+                if (span.isError()) {
+                    errors++;
+                }
+            }
+
+            Map<String, Object> result = new LinkedHashMap<>();
+            result.put("traceId", traceId);
+            result.put("sessionId", sessionId);
+            result.put("username", username);
+            result.put("startTime", sorted.isEmpty() ? null : fromEpochMilli(start));
+            result.put("endTime", sorted.isEmpty() ? null : fromEpochMilli(end));
+            result.put("durationMs", end - start);
+            result.put("spanCount", sorted.size());
+            result.put("errorCount", errors);
+            result.put("tree", buildTree(sorted, start));
+            return result;
+        }
+
+        private List<Span> sortedSpans() {
+            List<Span> sorted = new ArrayList<>(spans);
+            sorted.sort(Comparator.comparingLong(Span::getStart)
+                    .thenComparing(Comparator.comparingLong(Span::getDuration).reversed()));
+            return sorted;
+        }
+
+        /**
+         * 按时间区间嵌套构建调用树：开始时间升序、耗时降序排序后，
+         * 栈顶环节的区间包含当前环节时作为其子节点
+         */
+        private static List<Map<String, Object>> buildTree(List<Span> sorted, long traceStart) {
+            List<Map<String, Object>> roots = new ArrayList<>();
+            Deque<Object[]> stack = new ArrayDeque<>();
+
+            for (Span span : sorted) {
+                long spanEnd = span.getStart() + span.getDuration();
+                while (!stack.isEmpty() && spanEnd > (Long) stack.peek()[1]) {
+                    stack.pop();
+                }
+
+                Map<String, Object> node = span.toMap(traceStart);
+                List<Map<String, Object>> children = new ArrayList<>();
+                node.put("children", children);
+
+                if (stack.isEmpty()) {
+                    roots.add(node);
+                } else {
+                    @SuppressWarnings("unchecked")
+                    List<Map<String, Object>> parentChildren = (List<Map<String, Object>>) stack.peek()[0];
+                    parentChildren.add(node);
+                }
+                stack.push(new Object[]{children, spanEnd});
+            }
+            return roots;
+        }
+    }
+
+    /**
+     * 链路环节（对应一条日志）
+     */
+    public static class Span {
+        private Long logId;
+        private long start;
+        private long duration;
+        private String operation;
+        private String method;
+        private String http;
+        private String status;
+        private String level;
+
+        public Span() {}
+
+        static Span from(SystemLog systemLog) {
+            Span span = new Span();
+            long end = systemLog.getTimestamp() != null ? toEpochMilli(systemLog.getTimestamp()) : System.currentTimeMillis();
+            long duration = systemLog.getExecutionTime() != null ? Math.max(0, systemLog.getExecutionTime()) : 0;
+            span.logId = systemLog.getId();
+            span.start = end - duration;
+            span.duration = duration;
+            span.operation = systemLog.getOperation();
+            span.method = extractMethod(systemLog.getDescription());
+            if (systemLog.getRequestUrl() != null) {
+                span.http = (systemLog.getRequestMethod() != null ? systemLog.getRequestMethod() + " " : "")
+                        + systemLog.getRequestUrl();
+            }
+            if (systemLog.getOperationStatus() != null) {
+                span.status = systemLog.getOperationStatus().name();
+            } else if (systemLog.getResponseStatus() != null) {
+                span.status = String.valueOf(systemLog.getResponseStatus());
+            }
+            span.level = systemLog.getLogLevel();
+            return span;
+        }
+
+        /**
+         * 从日志描述中提取 "方法: xxx" 行（LogAspect / AuditLogAspect 的格式）
+         */
+        private static String extractMethod(String description) {
+            if (description == null) {
+                return null;
+            }
+            int index = description.indexOf("方法: ");
+            if (index < 0) {
+                return null;
+            }
+            int begin = index + "方法: ".length();
+            int newline = description.indexOf('\n', begin);
+            return description.substring(begin, newline > 0 ? newline : description.length()).trim();
+        }
+
+        boolean isError() {
+            return "FAILED".equals(status) || "ERROR".equals(level)
+                    || (status != null && status.length() == 3 && status.charAt(0) == '5');
+        }
+
+        Map<String, Object> toMap(long traceStart) {
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("logId", logId);
+            map.put("offsetMs", start - traceStart);
+            map.put("durationMs", duration);
+            map.put("operation", operation);
+            map.put("method", method);
+            map.put("http", http);
+            map.put("status", status);
+            map.put("level", level);
+            return map;
+        }
+
+        public Long getLogId() { return logId; }
+        public void setLogId(Long logId) { this.logId = logId; }
+
+        public long getStart() { return start; }
+        public void setStart(long start) { this.start = start; }
+
+        public long getDuration() { return duration; }
+        public void setDuration(long duration) { this.duration = duration; }
+
+        public String getOperation() { return operation; }
+        public void setOperation(String operation) { this.operation = operation; }
+
+        public String getMethod() { return method; }
+        public void setMethod(String method) { this.method = method; }
+
+        public String getHttp() { return http; }
+        public void setHttp(String http) { this.http = http; }
+
+        public String getStatus() { return status; }
+        public void setStatus(String status) { this.status = status; }
+
+        public String getLevel() { return level; }
+        public void setLevel(String level) { this.level = level; }
+    }
+}
@@ -4,11 +4,13 @@ import org.cyberlab.dto.UserBasicDTO;
 import org.cyberlab.entity.User;
 import org.cyberlab.enums.UserRole;
 import org.cyberlab.repository.UserRepository;
+import org.cyberlab.security.TokenRevocationService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 
 import java.util.List;
+import java.util.Objects;
 import java.util.stream.Collectors;
 
 @Service
@@ -20,6 +22,9 @@ public class UserService {
     @Autowired
     private PasswordEncoder passwordEncoder;
 
+    @Autowired
+    private TokenRevocationService revocationService;
+
     // 获取所有用户
     public List<User> getAllUsers() {
         return userRepo.findAll();
@@ -56,13 +61,18 @@ public class UserService {
         user.setRole(role);
         user.setEnabled(true);
         
-        return userRepo.save(user);
+        User saved = userRepo.save(user);
+        revocationService.onUserChanged(null, saved);
+        return saved;
     }
     
     // 新增：更新用户
     public User updateUser(Long id, String username, String role, Boolean enabled) {
         User user = userRepo.findById(id)
             .orElseThrow(() -> new IllegalArgumentException("用户不存在: " + id));
+        String originalUsername = user.getUsername();
+        String originalRole = user.getRole();
+        boolean originalEnabled = user.isEnabled();
             
         if (username != null && !username.trim().isEmpty()) {
             // 检查用户名是否被其他用户使用
@@ -88,15 +98,26 @@ public class UserService {
             user.setEnabled(enabled);
         }
         
-        return userRepo.save(user);
+        // 用户名/角色变更或被禁用时递增令牌版本，已签发的令牌立即失效
+        if (!user.getUsername().equals(originalUsername)
+                || !Objects.equals(user.getRole(), originalRole)
+                || (originalEnabled && !user.isEnabled())) {
+            user.setTokenVersion(user.getTokenVersion() + 1);
+        }
+        
+        User saved = userRepo.save(user);
+        revocationService.onUserChanged(originalUsername, saved);
+        return saved;
     }
 
     // 删除指定 ID 用户
     public boolean deleteUser(Long id) {
-        if (!userRepo.existsById(id)) {
+        User user = userRepo.findById(id).orElse(null);
+        if (user == null) {
             return false;
         }
         userRepo.deleteById(id);
+        revocationService.onUserDeleted(user.getUsername());
         return true;
     }
 
@@ -104,7 +125,12 @@ public class UserService {
     public boolean toggleUserStatus(Long id) {
         return userRepo.findById(id).map(user -> {
             user.setEnabled(!user.isEnabled());
-            userRepo.save(user);
+            if (!user.isEnabled()) {
+                // 禁用时递增令牌版本，已签发的令牌立即失效
+                user.setTokenVersion(user.getTokenVersion() + 1);
+            }
+            User saved = userRepo.save(user);
+            revocationService.onUserChanged(null, saved);
             return true;
         }).orElse(false);
     }
@@ -1,6 +1,9 @@
 package org.cyberlab.task;
 
 import org.cyberlab.service.EnhancedLogService;
+import org.cyberlab.service.LogDeduplicationService;
+import org.cyberlab.service.LogSearchService;
+import org.cyberlab.service.TraceStoreService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -10,6 +13,7 @@ import org.springframework.stereotype.Component;
 
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.Map;
 
 /**
  * 日志归档定时任务
@@ -32,6 +36,15 @@ public class LogArchiveTask {
     @Autowired(required = false)
     private EnhancedLogService logService;
 
+    @Autowired(required = false)
+    private LogDeduplicationService deduplicationService;
+
+    @Autowired(required = false)
+    private TraceStoreService traceStoreService;
+
+    @Autowired(required = false)
+    private LogSearchService logSearchService;
+
     /**
      * 日志保留天数（默认90天）
      * 可以在 application.yml 中配置：
@@ -79,6 +92,16 @@ public class LogArchiveTask {
                 log.info("ℹ️ 没有需要清理的日志记录");
             }
 
+            // 同步清理请求链路表，保持与日志相同的保留期限
+            if (traceStoreService != null) {
+                traceStoreService.cleanOldTraces(cutoffTime);
+            }
+
+            // 删除过期的全文索引分段
+            if (logSearchService != null) {
+                logSearchService.dropSegmentsBefore(cutoffTime);
+            }
+
         } catch (Exception e) {
             log.error("日志清理失败: {}", e.getMessage(), e);
         }
@@ -128,8 +151,8 @@ public class LogArchiveTask {
      */
     @Scheduled(cron = "0 0 4 ? * SUN")
     public void deduplicateLogs() {
-        if (logService == null) {
-            log.warn("EnhancedLogService未注入，跳过日志去重任务");
+        if (deduplicationService == null) {
+            log.warn("LogDeduplicationService未注入，跳过日志去重任务");
             return;
         }
 
@@ -139,9 +162,11 @@ public class LogArchiveTask {
             // 去重逻辑：
             // 1. 相同 username + operation + description + timestamp(秒级) 的日志视为重复
             // 2. 保留第一条，删除后续重复记录
-            // 注：实际实现需要复杂的SQL或分批查询，这里仅记录任务
+            // 3. 从上次保存的水位线开始按ID分批扫描，不加载整表
+            Map<String, Object> report = deduplicationService.deduplicate();
 
-            log.info("ℹ️ 日志去重任务执行完成（当前版本仅记录）");
+            log.info("日志去重任务执行完成：扫描 {} 条，删除 {} 条重复记录，回收约 {} 字节",
+                    report.get("scanned"), report.get("deleted"), report.get("bytesReclaimed"));
 
         } catch (Exception e) {
             log.error("日志去重失败: {}", e.getMessage(), e);
@@ -216,6 +241,18 @@ public class LogArchiveTask {
         log.info("手动清理完成！删除了 {} 条记录（{}天前）", deletedCount, days);
     }
 
+    /**
+     * 手动触发日志去重（从保存的水位线继续）
+     * 可通过管理接口调用
+     */
+    public Map<String, Object> manualDeduplicate() {
+        if (deduplicationService == null) {
+            throw new IllegalStateException("LogDeduplicationService未注入");
+        }
+
+        return deduplicationService.deduplicate();
+    }
+
     /**
      * 获取任务配置信息
      */
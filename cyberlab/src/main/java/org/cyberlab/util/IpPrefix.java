@@ -0,0 +1,251 @@
+package org.cyberlab.util;
+
+import java.math.BigInteger;
+import java.net.Inet4Address;
+import java.net.Inet6Address;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * IPv4 / IPv6 地址前缀（单个地址即 /32 或 /128）
+ *
+ * 解析不做 DNS 查询：IPv4 只接受四段十进制，IPv6 只接受字面量；主机位会被清零（192.168.1.7/24 → 192.168.1.0/24）。
+ */
+public final class IpPrefix {
+
+    private final byte[] address;
+    private final int length;
+
+    private IpPrefix(byte[] address, int length) {
+        this.address = address;
+        this.length = length;
+        int bits = address.length * 8;
+        for (int i = length; i < bits; i++) {
+            address[i >> 3] &= (byte) ~(0x80 >>> (i & 7));
+        }
+    }
+
+    /**
+     * 解析地址或 CIDR（如 10.0.0.5、10.0.0.0/8、fd00::/64）
+     * @throws IllegalArgumentException 格式不正确时
+     */
+    public static IpPrefix parse(String text) {
+        IpPrefix prefix = tryParse(text);
+        if (prefix == null) {
+            throw new IllegalArgumentException("无效的IP地址或CIDR: " + text);
+        }
+        return prefix;
+    }
+
+    /**
+     * 解析地址或 CIDR，格式不正确（如主机名）时返回 null
+     */
+    public static IpPrefix tryParse(String text) {
+        if (text == null) {
+            return null;
+        }
+        String value = text.trim();
+        int slash = value.indexOf('/');
+        String addressPart = slash >= 0 ? value.substring(0, slash) : value;
+        byte[] address = parseAddress(addressPart);
+        if (address == null) {
+            return null;
+        }
+        int bits = address.length * 8;
+        int length = bits;
+        if (slash >= 0) {
+            try {
+                length = Integer.parseInt(value.substring(slash + 1).trim());
+            } catch (NumberFormatException e) {
+                return null;
+            }
+            if (length < 0 || length > bits) {
+                return null;
+            }
+        }
+        return new IpPrefix(address, length);
+    }
+
+    private static byte[] parseAddress(String text) {
+        if (text.isEmpty()) {
+            return null;
+        }
+        if (text.indexOf(':') >= 0) {
+            String literal = text.startsWith("[") && text.endsWith("]") ? text.substring(1, text.length() - 1) : text;
+            if (literal.indexOf('%') >= 0) {
+                return null;
+            }
+            try {
+                // 加方括号后 JDK 只按 IPv6 字面量解析，格式错误直接抛出，不会触发 DNS 查询
+                InetAddress address = InetAddress.getByName("[" + literal + "]");
+                if (address instanceof Inet6Address) {
+                    return address.getAddress();
+                }
+                // IPv4 映射地址（::ffff:a.b.c.d）按 IPv4 处理
+                return address instanceof Inet4Address ? address.getAddress() : null;
+            } catch (UnknownHostException e) {
+                return null;
+            }
+        }
+        String[] parts = text.split("\\.", -1);
+        if (parts.length != 4) {
+            return null;
+        }
+        byte[] address = new byte[4];
+        for (int i = 0; i < 4; i++) {
+            String part = parts[i];
+            if (part.isEmpty() || part.length() > 3) {
+                return null;
+            }
+            int value = 0;
+            for (int j = 0; j < part.length(); j++) {
+                char c = part.charAt(j);
+                if (c < '0' || c > '9') {
+                    return null;
+                }
+                value = value * 10 + (c - '0');
+            }
+            if (value > 255) {
+                return null;
+            }
+            address[i] = (byte) value;
+        }
+        return address;
+    }
+
+    /**
+     * 覆盖 [start, end] 的最少 CIDR 列表（两端须为同一地址族的单个地址）
+     * @throws IllegalArgumentException 地址无效、地址族不同或 start > end 时
+     */
+    public static List<IpPrefix> rangeToPrefixes(String start, String end) {
+        IpPrefix from = parse(start);
+        IpPrefix to = parse(end);
+        if (!from.isHost() || !to.isHost() || from.isIpv4() != to.isIpv4()) {
+            throw new IllegalArgumentException("IP范围两端必须是同一地址族的单个地址: " + start + " - " + end);
+        }
+        BigInteger low = from.toBigInteger();
+        BigInteger high = to.toBigInteger();
+        if (low.compareTo(high) > 0) {
+            throw new IllegalArgumentException("IP范围起始地址大于结束地址: " + start + " - " + end);
+        }
+        int bits = from.bitWidth();
+        List<IpPrefix> prefixes = new ArrayList<>();
+        while (low.compareTo(high) <= 0) {
+            // 以 low 为起点、对齐且不超过 high 的最大块
+            int size = low.signum() == 0 ? bits : Math.min(low.getLowestSetBit(), bits);
+            while (size > 0 && low.add(BigInteger.ONE.shiftLeft(size)).subtract(BigInteger.ONE).compareTo(high) > 0) {
+                size--;
+            }
+            prefixes.add(new IpPrefix(toBytes(low, bits / 8), bits - size));
+            low = low.add(BigInteger.ONE.shiftLeft(size));
+        }
+        return prefixes;
+    }
+
+    private static byte[] toBytes(BigInteger value, int size) {
+        byte[] raw = value.toByteArray();
+        byte[] bytes = new byte[size];
+        int copy = Math.min(raw.length, size);
+        System.arraycopy(raw, raw.length - copy, bytes, size - copy, copy);
+        return bytes;
+    }
+
+    private BigInteger toBigInteger() {
+        return new BigInteger(1, address);
+    }
+
+    public boolean isIpv4() {
+        return address.length == 4;
+    }
+
+    public int bitWidth() {
+        return address.length * 8;
+    }
+
+    public int getLength() {
+        return length;
+    }
+
+    /**
+     * 是否为单个地址（/32 或 /128）
+     */
+    public boolean isHost() {
+        return length == bitWidth();
+    }
+
+    /**
+     * 第 index 位（从最高位开始，0 或 1）
+     */
+    int bit(int index) {
+        return (address[index >> 3] >> (7 - (index & 7))) & 1;
+    }
+
+    /**
+     * 与另一前缀（同一地址族）相同的前导位数，不超过 limit
+     */
+    int commonBits(IpPrefix other, int limit) {
+        int i = 0;
+        while (i + 8 <= limit && address[i >> 3] == other.address[i >> 3]) {
+            i += 8;
+        }
+        while (i < limit && bit(i) == other.bit(i)) {
+            i++;
+        }
+        return i;
+    }
+
+    /**
+     * 截取前 length 位
+     */
+    IpPrefix truncate(int length) {
+        return new IpPrefix(address.clone(), length);
+    }
+
+    /**
+     * 是否包含另一前缀（同一地址族且本前缀更短或相等）
+     */
+    public boolean contains(IpPrefix other) {
+        return isIpv4() == other.isIpv4() && length <= other.length && commonBits(other, length) == length;
+    }
+
+    /**
+     * 规范文本：单个地址不带前缀长度，IPv6 为不压缩的八段十六进制
+     */
+    @Override
+    public String toString() {
+        String text;
+        if (isIpv4()) {
+            text = (address[0] & 0xff) + "." + (address[1] & 0xff) + "." + (address[2] & 0xff) + "." + (address[3] & 0xff);
+        } else {
+            StringBuilder builder = new StringBuilder();
+            for (int i = 0; i < 16; i += 2) {
+                if (i > 0) {
+                    builder.append(':');
+                }
+                builder.append(Integer.toHexString(((address[i] & 0xff) << 8) | (address[i + 1] & 0xff)));
+            }
+            text = builder.toString();
+        }
+        return isHost() ? text : text + "/" + length;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof IpPrefix)) {
+            return false;
+        }
+        IpPrefix other = (IpPrefix) o;
+        return length == other.length && Arrays.equals(address, other.address);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * Arrays.hashCode(address) + length;
+    }
+}
@@ -0,0 +1,229 @@
+package org.cyberlab.util;
+
+import java.util.*;
+import java.util.function.BiConsumer;
+
+/**
+ * IP 前缀树（路径压缩的二叉 Patricia 树，IPv4 与 IPv6 各一棵）
+ *
+ * 每个节点对应一个前缀，可挂多个值（如同一 IP 的多个资产）。
+ * 查询代价与前缀长度相关（最多 32 / 128 层），与条目总数无关：
+ * 1. {@link #findWithin}：落在某个 CIDR 内的条目（子树遍历）
+ * 2. {@link #findCovering}：包含某个前缀的条目（沿路径向下）
+ * 3. {@link #get}：精确匹配
+ *
+ * 非线程安全，由调用方加锁。
+ */
+public class IpPrefixTrie<V> {
+
+    private final Node<V> ipv4Root = new Node<>(IpPrefix.parse("0.0.0.0/0"));
+    private final Node<V> ipv6Root = new Node<>(IpPrefix.parse("::/0"));
+    private int prefixCount;
+    private int valueCount;
+
+    private static final class Node<V> {
+        IpPrefix prefix;
+        Node<V> parent;
+        final Node<V>[] children;
+        final Set<V> values = new LinkedHashSet<>(2);
+
+        @SuppressWarnings("unchecked")
+        Node(IpPrefix prefix) {
+            this.prefix = prefix;
+            this.children = (Node<V>[]) new Node[2];
+        }
+
+        void setChild(int bit, Node<V> child) {
+            children[bit] = child;
+            if (child != null) {
+                child.parent = this;
+            }
+        }
+
+        int childCount() {
+            return (children[0] != null ? 1 : 0) + (children[1] != null ? 1 : 0);
+        }
+    }
+
+    private Node<V> root(IpPrefix prefix) {
+        return prefix.isIpv4() ? ipv4Root : ipv6Root;
+    }
+
+    /**
+     * 添加条目
+     * @return 该前缀下此前不存在该值时返回 true
+     */
+    public boolean add(IpPrefix prefix, V value) {
+        Node<V> node = findOrCreate(prefix);
+        if (node.values.isEmpty()) {
+            prefixCount++;
+        }
+        boolean added = node.values.add(value);
+        if (added) {
+            valueCount++;
+        }
+        return added;
+    }
+
+    private Node<V> findOrCreate(IpPrefix prefix) {
+        Node<V> node = root(prefix);
+        while (true) {
+            int common = node.prefix.commonBits(prefix, Math.min(node.prefix.getLength(), prefix.getLength()));
+            if (common < node.prefix.getLength()) {
+                // 在 node 之上插入分叉节点
+                Node<V> parent = node.parent;
+                Node<V> split = new Node<>(prefix.truncate(common));
+                parent.setChild(prefix.bit(parent.prefix.getLength()), split);
+                split.setChild(node.prefix.bit(common), node);
+                if (common == prefix.getLength()) {
+                    return split;
+                }
+                Node<V> leaf = new Node<>(prefix);
+                split.setChild(prefix.bit(common), leaf);
+                return leaf;
+            }
+            if (node.prefix.getLength() == prefix.getLength()) {
+                return node;
+            }
+            int bit = prefix.bit(node.prefix.getLength());
+            Node<V> child = node.children[bit];
+            if (child == null) {
+                Node<V> leaf = new Node<>(prefix);
+                node.setChild(bit, leaf);
+                return leaf;
+            }
+            node = child;
+        }
+    }
+
+    /**
+     * 移除条目，并合并不再需要的中间节点
+     * @return 条目存在时返回 true
+     */
+    public boolean remove(IpPrefix prefix, V value) {
+        Node<V> node = find(prefix);
+        if (node == null || !node.values.remove(value)) {
+            return false;
+        }
+        valueCount--;
+        if (node.values.isEmpty()) {
+            prefixCount--;
+            prune(node);
+        }
+        return true;
+    }
+
+    private void prune(Node<V> node) {
+        while (node.parent != null && node.values.isEmpty() && node.childCount() < 2) {
+            Node<V> parent = node.parent;
+            Node<V> child = node.children[0] != null ? node.children[0] : node.children[1];
+            int bit = parent.children[0] == node ? 0 : 1;
+            parent.setChild(bit, child);
+            node.parent = null;
+            node = parent;
+        }
+    }
+
+    private Node<V> find(IpPrefix prefix) {
+        Node<V> node = root(prefix);
+        while (node != null) {
+            int length = node.prefix.getLength();
+            if (length > prefix.getLength() || node.prefix.commonBits(prefix, length) < length) {
+                return null;
+            }
+            if (length == prefix.getLength()) {
+                return node;
+            }
+            node = node.children[prefix.bit(length)];
+        }
+        return null;
+    }
+
+    /**
+     * 精确匹配的值（不存在时为空集合）
+     */
+    public Set<V> get(IpPrefix prefix) {
+        Node<V> node = find(prefix);
+        return node == null ? Set.of() : Collections.unmodifiableSet(node.values);
+    }
+
+    /**
+     * 遍历落在 prefix 内（含相等）的条目
+     */
+    public void findWithin(IpPrefix prefix, BiConsumer<IpPrefix, V> consumer) {
+        Node<V> node = root(prefix);
+        while (node != null) {
+            int length = node.prefix.getLength();
+            int limit = Math.min(length, prefix.getLength());
+            if (node.prefix.commonBits(prefix, limit) < limit) {
+                return;
+            }
+            if (length >= prefix.getLength()) {
+                collect(node, consumer);
+                return;
+            }
+            node = node.children[prefix.bit(length)];
+        }
+    }
+
+    /**
+     * 遍历包含 prefix（含相等）的条目，由短到长
+     */
+    public void findCovering(IpPrefix prefix, BiConsumer<IpPrefix, V> consumer) {
+        Node<V> node = root(prefix);
+        while (node != null) {
+            int length = node.prefix.getLength();
+            if (length > prefix.getLength() || node.prefix.commonBits(prefix, length) < length) {
+                return;
+            }
+            for (V value : node.values) {
+                consumer.accept(node.prefix, value);
+            }
+            if (length == prefix.getLength()) {
+                return;
+            }
+            node = node.children[prefix.bit(length)];
+        }
+    }
+
+    private void collect(Node<V> start, BiConsumer<IpPrefix, V> consumer) {
+        Deque<Node<V>> stack = new ArrayDeque<>();
+        stack.push(start);
+        while (!stack.isEmpty()) {
+            Node<V> node = stack.pop();
+            for (V value : node.values) {
+                consumer.accept(node.prefix, value);
+            }
+            // 先压右子树，按地址从小到大输出
+            if (node.children[1] != null) {
+                stack.push(node.children[1]);
+            }
+            if (node.children[0] != null) {
+                stack.push(node.children[0]);
+            }
+        }
+    }
+
+    public void clear() {
+        Arrays.fill(ipv4Root.children, null);
+        Arrays.fill(ipv6Root.children, null);
+        ipv4Root.values.clear();
+        ipv6Root.values.clear();
+        prefixCount = 0;
+        valueCount = 0;
+    }
+
+    /**
+     * 不同前缀的数量
+     */
+    public int prefixCount() {
+        return prefixCount;
+    }
+
+    /**
+     * 条目数量（前缀 + 值）
+     */
+    public int size() {
+        return valueCount;
+    }
+}
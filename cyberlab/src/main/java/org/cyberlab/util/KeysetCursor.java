@@ -0,0 +1,101 @@
+package org.cyberlab.util;
+
+import org.springframework.data.domain.KeysetScrollPosition;
+import org.springframework.data.domain.ScrollPosition;
+
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 键集分页游标编解码
+ *
+ * 把 {@link KeysetScrollPosition} 的键值（如 timestamp + id）编码为不透明的 URL 安全字符串，前端原样回传即可取下一页。
+ * 支持的键类型：Long、Integer、String、LocalDateTime。
+ */
+public final class KeysetCursor {
+
+    private static final String VERSION = "v1";
+
+    private KeysetCursor() {
+    }
+
+    /**
+     * 编码游标（非键集位置或初始位置返回 null）
+     * @throws IllegalArgumentException 键值为 null 或类型不支持时（键集查询无法按 null 定位下一页）
+     */
+    public static String encode(ScrollPosition position) {
+        if (!(position instanceof KeysetScrollPosition keyset) || keyset.isInitial()) {
+            return null;
+        }
+        StringBuilder builder = new StringBuilder(VERSION);
+        for (Map.Entry<String, Object> entry : keyset.getKeys().entrySet()) {
+            if (entry.getValue() == null) {
+                throw new IllegalArgumentException("排序字段 " + entry.getKey() + " 为空，无法生成分页游标");
+            }
+            builder.append('&').append(entry.getKey()).append('=').append(encodeValue(entry.getValue()));
+        }
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(builder.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * 解码游标；为空时返回初始位置（第一页）
+     * @throws IllegalArgumentException 游标无法解析时
+     */
+    public static KeysetScrollPosition decode(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return ScrollPosition.keyset();
+        }
+        try {
+            String text = new String(Base64.getUrlDecoder().decode(cursor.trim()), StandardCharsets.UTF_8);
+            String[] parts = text.split("&");
+            if (!VERSION.equals(parts[0]) || parts.length < 2) {
+                throw new IllegalArgumentException("无效的分页游标");
+            }
+            Map<String, Object> keys = new LinkedHashMap<>();
+            for (int i = 1; i < parts.length; i++) {
+                int eq = parts[i].indexOf('=');
+                keys.put(parts[i].substring(0, eq), decodeValue(parts[i].substring(eq + 1)));
+            }
+            return ScrollPosition.forward(keys);
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("无效的分页游标", e);
+        }
+    }
+
+    private static String encodeValue(Object value) {
+        String type;
+        if (value instanceof Long) {
+            type = "L";
+        } else if (value instanceof Integer) {
+            type = "I";
+        } else if (value instanceof LocalDateTime) {
+            type = "T";
+        } else if (value instanceof String) {
+            type = "S";
+        } else {
+            throw new IllegalArgumentException("不支持的游标键类型: " + value.getClass().getSimpleName());
+        }
+        return type + URLEncoder.encode(value.toString(), StandardCharsets.UTF_8);
+    }
+
+    private static Object decodeValue(String encoded) {
+        String value = URLDecoder.decode(encoded.substring(1), StandardCharsets.UTF_8);
+        switch (encoded.charAt(0)) {
+            case 'L':
+                return Long.valueOf(value);
+            case 'I':
+                return Integer.valueOf(value);
+            case 'T':
+                return LocalDateTime.parse(value);
+            case 'S':
+                return value;
+            default:
+                throw new IllegalArgumentException("无效的分页游标");
+        }
+    }
+}
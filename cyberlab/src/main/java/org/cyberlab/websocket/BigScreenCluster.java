@@ -0,0 +1,307 @@
+package org.cyberlab.websocket;
+
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Component;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 大屏多实例协同（仅 cyberlab.cluster.enabled=true 且配置了 Redis 时生效）
+ *
+ * 集群内只有一个实例（快照生产者）计算大屏快照：
+ * 1. 各实例通过 Redis 键 SET NX PX 竞争生产者租约，生产者每个周期续租；租约过期后由其他实例接替
+ * 2. 各实例把本地有订阅者的主题登记到 Redis 有序集合（分值为过期时间），生产者计算全集群订阅的主题
+ * 3. 生产者把序列化好的帧（增量帧 + 全量帧）发布到帧频道，其他实例只负责转发给本地会话
+ * 4. 非生产者实例的新订阅、领域事件刷新通过请求频道转交生产者处理
+ *
+ * 未启用集群或 Redis 不可用时按单实例处理：每个实例为自己的会话计算快照。
+ */
+@Component
+public class BigScreenCluster {
+
+    private static final Logger logger = LoggerFactory.getLogger(BigScreenCluster.class);
+
+    static final String PRODUCER_KEY = "cyberlab:bigscreen:producer";
+    static final String TOPICS_KEY = "cyberlab:bigscreen:topics";
+    static final String FRAME_CHANNEL = "cyberlab:bigscreen:frames";
+    static final String REQUEST_CHANNEL = "cyberlab:bigscreen:requests";
+
+    /**
+     * 仅当租约仍属于本实例时续期
+     */
+    private static final RedisScript<Long> RENEW_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('get', KEYS[1]) == ARGV[1] then return redis.call('pexpire', KEYS[1], ARGV[2]) else return 0 end",
+            Long.class);
+
+    /**
+     * 本实例在大屏推送中的角色
+     */
+    public enum Role {
+        /** 未启用集群（或 Redis 不可用）：为本地会话计算快照 */
+        STANDALONE,
+        /** 集群快照生产者：计算全集群订阅的主题并发布帧 */
+        PRODUCER,
+        /** 转发者：只把生产者发布的帧转发给本地会话 */
+        RELAY
+    }
+
+    /**
+     * 集群消息回调（由 Redis 监听线程调用，实现不应阻塞）
+     */
+    public interface Listener {
+        void onFrame(String producerId, String topic, long version, long baseVersion, byte[] delta, byte[] full);
+
+        void onSubscribeRequest(String topic);
+
+        void onRefreshRequest(Set<String> topics);
+    }
+
+    @Autowired(required = false)
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Autowired(required = false)
+    private RedisMessageListenerContainer listenerContainer;
+
+    /**
+     * 生产者租约与主题登记的有效期（毫秒），应为推送周期的数倍
+     */
+    @Value("${cyberlab.bigscreen.cluster.lease-ms:15000}")
+    private long leaseMs;
+
+    private final String instanceId = UUID.randomUUID().toString();
+    private volatile Listener listener;
+    private volatile Role role = Role.STANDALONE;
+
+    private final AtomicLong publishedFrames = new AtomicLong();
+    private final AtomicLong publishedBytes = new AtomicLong();
+    private final AtomicLong receivedFrames = new AtomicLong();
+    private final AtomicLong leadershipChanges = new AtomicLong();
+
+    @PostConstruct
+    public void init() {
+        if (!isClusterEnabled()) {
+            return;
+        }
+        listenerContainer.addMessageListener((message, pattern) -> handleFrame(message.getBody()),
+                new ChannelTopic(FRAME_CHANNEL));
+        listenerContainer.addMessageListener((message, pattern) ->
+                        handleRequest(new String(message.getBody(), StandardCharsets.UTF_8)),
+                new ChannelTopic(REQUEST_CHANNEL));
+        logger.info("大屏集群推送已启用，实例ID: {}", instanceId);
+    }
+
+    public boolean isClusterEnabled() {
+        return stringRedisTemplate != null && listenerContainer != null;
+    }
+
+    public void setListener(Listener listener) {
+        this.listener = listener;
+    }
+
+    public Role getRole() {
+        return role;
+    }
+
+    /**
+     * 竞争或续期生产者租约，返回本周期的角色
+     */
+    public Role renewRole() {
+        Role next;
+        if (!isClusterEnabled()) {
+            next = Role.STANDALONE;
+        } else {
+            try {
+                Long renewed = stringRedisTemplate.execute(RENEW_SCRIPT, List.of(PRODUCER_KEY),
+                        instanceId, String.valueOf(leaseMs));
+                boolean producer = (renewed != null && renewed == 1)
+                        || Boolean.TRUE.equals(stringRedisTemplate.opsForValue()
+                                .setIfAbsent(PRODUCER_KEY, instanceId, Duration.ofMillis(leaseMs)));
+                next = producer ? Role.PRODUCER : Role.RELAY;
+            } catch (Exception e) {
+                // Redis 不可用时退化为单实例计算，保证本地大屏不断更
+                logger.warn("大屏生产者租约续期失败，按单实例推送: {}", e.getMessage());
+                next = Role.STANDALONE;
+            }
+        }
+        if (next != role) {
+            logger.info("大屏推送角色变更: {} -> {}", role, next);
+            leadershipChanges.incrementAndGet();
+            role = next;
+        }
+        return next;
+    }
+
+    /**
+     * 登记本地有订阅者的主题
+     */
+    public void advertise(Collection<String> topics) {
+        if (!isClusterEnabled() || topics.isEmpty()) {
+            return;
+        }
+        try {
+            double expireAt = System.currentTimeMillis() + leaseMs;
+            for (String topic : topics) {
+                stringRedisTemplate.opsForZSet().add(TOPICS_KEY, topic, expireAt);
+            }
+        } catch (Exception e) {
+            logger.warn("登记大屏订阅主题失败: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 全集群仍有订阅者的主题（同时清理过期登记）
+     */
+    public Set<String> getClusterTopics() {
+        if (!isClusterEnabled()) {
+            return Set.of();
+        }
+        try {
+            long now = System.currentTimeMillis();
+            stringRedisTemplate.opsForZSet().removeRangeByScore(TOPICS_KEY, Double.NEGATIVE_INFINITY, now);
+            Set<String> topics = stringRedisTemplate.opsForZSet().rangeByScore(TOPICS_KEY, now, Double.POSITIVE_INFINITY);
+            return topics != null ? topics : Set.of();
+        } catch (Exception e) {
+            logger.warn("读取大屏订阅主题失败: {}", e.getMessage());
+            return Set.of();
+        }
+    }
+
+    /**
+     * 发布一帧（增量帧可为 null；重发当前全量帧时 version 不变）
+     *
+     * 消息体为二进制：实例ID、主题、版本、基准版本、增量帧、全量帧
+     */
+    public void publishFrame(String topic, long version, long baseVersion, byte[] delta, byte[] full) {
+        if (role != Role.PRODUCER) {
+            return;
+        }
+        try {
+            ByteArrayOutputStream buffer = new ByteArrayOutputStream(full.length + (delta != null ? delta.length : 0) + 128);
+            DataOutputStream out = new DataOutputStream(buffer);
+            out.writeUTF(instanceId);
+            out.writeUTF(topic);
+            out.writeLong(version);
+            out.writeLong(baseVersion);
+            writeBytes(out, delta);
+            writeBytes(out, full);
+            byte[] body = buffer.toByteArray();
+
+            byte[] channel = FRAME_CHANNEL.getBytes(StandardCharsets.UTF_8);
+            stringRedisTemplate.execute((RedisCallback<Long>) connection -> connection.publish(channel, body));
+            publishedFrames.incrementAndGet();
+            publishedBytes.addAndGet(body.length);
+        } catch (Exception e) {
+            logger.warn("发布大屏帧失败: {} - {}", topic, e.getMessage());
+        }
+    }
+
+    /**
+     * 请求生产者为新订阅的主题发送全量帧
+     */
+    public void requestSubscribe(String topic) {
+        sendRequest("subscribe", topic);
+    }
+
+    /**
+     * 把领域事件触发的刷新转交生产者
+     */
+    public void requestRefresh(Set<String> topics) {
+        sendRequest("refresh", String.join(",", topics));
+    }
+
+    private void sendRequest(String type, String payload) {
+        if (!isClusterEnabled()) {
+            return;
+        }
+        try {
+            stringRedisTemplate.convertAndSend(REQUEST_CHANNEL, instanceId + "|" + type + "|" + payload);
+        } catch (Exception e) {
+            logger.warn("发送大屏集群请求失败: {} - {}", type, e.getMessage());
+        }
+    }
+
+    private void handleFrame(byte[] body) {
+        Listener current = listener;
+        if (current == null) {
+            return;
+        }
+        try {
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(body));
+            String producerId = in.readUTF();
+            if (instanceId.equals(producerId)) {
+                // 本实例发布的帧已直接推送给本地会话
+                return;
+            }
+            String topic = in.readUTF();
+            long version = in.readLong();
+            long baseVersion = in.readLong();
+            byte[] delta = readBytes(in);
+            byte[] full = readBytes(in);
+            receivedFrames.incrementAndGet();
+            current.onFrame(producerId, topic, version, baseVersion, delta, full);
+        } catch (IOException e) {
+            logger.warn("解析大屏集群帧失败: {}", e.getMessage());
+        }
+    }
+
+    private void handleRequest(String body) {
+        Listener current = listener;
+        String[] parts = body.split("\\|", 3);
+        if (current == null || parts.length < 3 || instanceId.equals(parts[0]) || role != Role.PRODUCER) {
+            return;
+        }
+        if ("subscribe".equals(parts[1])) {
+            current.onSubscribeRequest(parts[2]);
+        } else if ("refresh".equals(parts[1])) {
+            current.onRefreshRequest(new HashSet<>(Arrays.asList(parts[2].split(","))));
+        }
+    }
+
+    private static void writeBytes(DataOutputStream out, byte[] bytes) throws IOException {
+        if (bytes == null) {
+            out.writeInt(-1);
+            return;
+        }
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static byte[] readBytes(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return bytes;
+    }
+
+    /**
+     * 集群推送统计
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", isClusterEnabled());
+        stats.put("instanceId", instanceId);
+        stats.put("role", role.name());
+        stats.put("publishedFrames", publishedFrames.get());
+        stats.put("publishedBytes", publishedBytes.get());
+        stats.put("receivedFrames", receivedFrames.get());
+        stats.put("roleChanges", leadershipChanges.get());
+        return stats;
+    }
+}
@@ -1,62 +1,237 @@
 package org.cyberlab.websocket;
 
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.cyberlab.entity.User;
+import org.cyberlab.event.BigScreenRefreshEvent;
+import org.cyberlab.repository.TeamRepository;
+import org.cyberlab.repository.UserRepository;
 import org.cyberlab.service.BigScreenService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.security.core.Authentication;
 import org.springframework.stereotype.Component;
 import org.springframework.web.socket.CloseStatus;
 import org.springframework.web.socket.TextMessage;
 import org.springframework.web.socket.WebSocketSession;
 import org.springframework.web.socket.handler.TextWebSocketHandler;
+import org.springframework.web.util.UriComponentsBuilder;
 
 import java.io.IOException;
-import java.util.Map;
+import java.security.Principal;
+import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
 
+/**
+ * 大屏 WebSocket 推送
+ *
+ * 按主题订阅：public / admin / judge / red:{战队名} / blue:{战队名}
+ * - 连接时通过 ?topics=admin,red:xxx 指定，或发送 {"type":"subscribe","topic":"..."} / {"type":"unsubscribe","topic":"..."}，默认 public
+ * - 每个主题每个周期只计算一次快照、只序列化一次，所有订阅者共享同一帧，开销随主题数而非连接数增长
+ *
+ * 推送版本化快照（见 {@link SnapshotChannel}）：
+ * - 订阅时发送全量帧，之后只推送与上一版本的差异（JSON Patch），数据无变化时不推送
+ * - 客户端版本与增量帧的 baseVersion 不一致（断档）时改发全量帧；客户端也可发送 {"type":"resync","topic":"..."} 主动请求全量帧
+ *
+ * 除每 5 秒的定时刷新外，成果审批、得分、容器状态、演练启停等领域事件经 BigScreenService 合并后
+ * 发布 {@link BigScreenRefreshEvent}，受影响的主题立即推送。
+ *
+ * 发送经由每个会话的 {@link SessionSender} 异步进行：推送线程只负责入队，慢速或卡住的客户端
+ * 不会拖慢其他会话；积压的旧帧按主题合并，超时或积压过久的会话按慢消费者断开。
+ *
+ * 多实例部署时（见 {@link BigScreenCluster}）只有快照生产者计算快照并经 Redis 发布帧，
+ * 其他实例作为转发者把收到的帧交给本地会话；生产者切换或版本回退时转发者改发全量帧。
+ */
 @Component
 public class BigScreenWebSocketHandler extends TextWebSocketHandler {
 
     private static final Logger logger = LoggerFactory.getLogger(BigScreenWebSocketHandler.class);
 
+    static final String TOPIC_PUBLIC = "public";
+    static final String TOPIC_ADMIN = "admin";
+    static final String TOPIC_JUDGE = "judge";
+    static final String TOPIC_RED_PREFIX = "red:";
+    static final String TOPIC_BLUE_PREFIX = "blue:";
+
+    private static final String ATTR_ROLE = "bigScreenRole";
+    private static final String ATTR_TEAM = "bigScreenTeam";
+
     private final BigScreenService bigScreenService;
+    private final UserRepository userRepository;
+    private final TeamRepository teamRepository;
+    private final BigScreenCluster cluster;
     private final ObjectMapper objectMapper;
-    private final Map<String, WebSocketSession> sessions = new ConcurrentHashMap<>();
+    private final Map<String, SessionSender> sessions = new ConcurrentHashMap<>();
+    private final Map<String, SnapshotChannel> channels = new ConcurrentHashMap<>();
+    /**
+     * 主题 → 订阅会话ID
+     */
+    private final Map<String, Set<String>> subscribers = new ConcurrentHashMap<>();
+    /**
+     * 转发者模式下各主题最近收到的帧（新订阅和重新同步时发送）
+     */
+    private final Map<String, RelayedFrame> relayed = new ConcurrentHashMap<>();
     private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+    private ExecutorService sendExecutor;
+
+    /**
+     * 发送线程数：卡住的会话最多占用其中一个线程直到发送超时
+     */
+    @Value("${cyberlab.websocket.send-threads:4}")
+    private int sendThreads;
+
+    /**
+     * 单帧发送时限（毫秒），超时的会话按慢消费者断开
+     */
+    @Value("${cyberlab.websocket.send-time-limit-ms:10000}")
+    private long sendTimeLimitMs;
 
-    public BigScreenWebSocketHandler(BigScreenService bigScreenService) {
+    /**
+     * 最大积压时间（毫秒）：最早未发送的帧等待超过该时间时断开会话
+     */
+    @Value("${cyberlab.websocket.max-lag-ms:30000}")
+    private long maxLagMs;
+
+    @Value("${cyberlab.websocket.control-queue-size:16}")
+    private int controlQueueSize;
+
+    private final AtomicLong disconnects = new AtomicLong();
+    private final AtomicLong slowConsumerDisconnects = new AtomicLong();
+    /**
+     * 已关闭会话的合并/丢弃计数（在线会话的计数在各自的 SessionSender 中）
+     */
+    private final AtomicLong closedCoalesced = new AtomicLong();
+    private final AtomicLong closedDroppedControl = new AtomicLong();
+
+    public BigScreenWebSocketHandler(BigScreenService bigScreenService,
+                                     UserRepository userRepository,
+                                     TeamRepository teamRepository,
+                                     BigScreenCluster cluster) {
         this.bigScreenService = bigScreenService;
-        this.objectMapper = new ObjectMapper();
+        this.userRepository = userRepository;
+        this.teamRepository = teamRepository;
+        this.cluster = cluster;
+        this.objectMapper = new ObjectMapper()
+                .findAndRegisterModules()
+                .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
         startDataPushScheduler();
     }
 
+    @PostConstruct
+    public void initSendExecutor() {
+        AtomicInteger counter = new AtomicInteger();
+        sendExecutor = Executors.newFixedThreadPool(sendThreads, r -> {
+            Thread thread = new Thread(r, "big-screen-send-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        cluster.setListener(new ClusterListener());
+        cluster.renewRole();
+    }
+
     @Override
     public void afterConnectionEstablished(WebSocketSession session) throws Exception {
-        sessions.put(session.getId(), session);
+        sessions.put(session.getId(), new SessionSender(session, sendExecutor, sendTimeLimitMs, maxLagMs,
+                controlQueueSize, slowConsumerDisconnects::incrementAndGet));
+        resolveIdentity(session);
         logger.info("WebSocket连接建立: {}, 当前连接数: {}", session.getId(), sessions.size());
 
-        sendInitialData(session);
+        List<String> topics = session.getUri() != null
+                ? UriComponentsBuilder.fromUri(session.getUri()).build().getQueryParams().getOrDefault("topics", List.of())
+                : List.of();
+        List<String> requested = new ArrayList<>();
+        topics.forEach(value -> Arrays.stream(value.split(",")).map(String::trim).filter(t -> !t.isEmpty()).forEach(requested::add));
+        if (requested.isEmpty()) {
+            requested.add(TOPIC_PUBLIC);
+        }
+        for (String topic : requested) {
+            subscribe(session, topic);
+        }
     }
 
     @Override
     public void afterConnectionClosed(WebSocketSession session, CloseStatus status) throws Exception {
-        sessions.remove(session.getId());
-        logger.info("WebSocket连接关闭: {}, 当前连接数: {}", session.getId(), sessions.size());
+        SessionSender sender = sessions.remove(session.getId());
+        if (sender != null) {
+            sender.close();
+            closedCoalesced.addAndGet(sender.getCoalescedFrames());
+            closedDroppedControl.addAndGet(sender.getDroppedControl());
+        }
+        disconnects.incrementAndGet();
+        subscribers.values().forEach(ids -> ids.remove(session.getId()));
+        logger.info("WebSocket连接关闭: {}, 状态: {}, 当前连接数: {}", session.getId(), status, sessions.size());
     }
 
     @Override
     protected void handleTextMessage(WebSocketSession session, TextMessage message) throws Exception {
         logger.debug("收到WebSocket消息: {}", message.getPayload());
+        JsonNode request;
+        try {
+            request = objectMapper.readTree(message.getPayload());
+        } catch (IOException e) {
+            // 忽略无法解析的消息
+            return;
+        }
+
+        String topic = request.path("topic").asText(TOPIC_PUBLIC);
+        switch (request.path("type").asText()) {
+            case "subscribe":
+                subscribe(session, topic);
+                break;
+            case "unsubscribe":
+                Set<String> ids = subscribers.get(topic);
+                if (ids != null) {
+                    ids.remove(session.getId());
+                }
+                SessionSender sender = sessions.get(session.getId());
+                if (sender != null) {
+                    sender.forget(topic);
+                }
+                break;
+            case "resync":
+                sendFullFrame(session, topic);
+                break;
+            default:
+                break;
+        }
     }
 
-    private void sendInitialData(WebSocketSession session) {
+    /**
+     * 订阅主题（校验权限），并发送该主题的全量帧
+     */
+    private void subscribe(WebSocketSession session, String topic) {
+        if (!canSubscribe(session, topic)) {
+            logger.warn("会话{}无权订阅大屏主题: {}", session.getId(), topic);
+            sendError(session, "无权订阅主题: " + topic);
+            return;
+        }
+        subscribers.computeIfAbsent(topic, t -> ConcurrentHashMap.newKeySet()).add(session.getId());
+
+        if (isRelay()) {
+            // 转发者：先发送已缓存的帧，再请求生产者计算（或重发）该主题
+            cluster.advertise(List.of(topic));
+            sendFullFrame(session, topic);
+            cluster.requestSubscribe(topic);
+            return;
+        }
         try {
-            Map<String, Object> data = bigScreenService.getPublicBigScreenData();
-            String jsonData = objectMapper.writeValueAsString(data);
-            session.sendMessage(new TextMessage(jsonData));
+            SnapshotChannel channel = channels.computeIfAbsent(topic, t -> new SnapshotChannel(t, objectMapper));
+            if (channel.getFullFrame() == null) {
+                pushTopic(channel);
+            }
+            sendFullFrame(session, topic);
         } catch (Exception e) {
             logger.error("发送初始数据失败", e);
         }
@@ -64,33 +239,353 @@ public class BigScreenWebSocketHandler extends TextWebSocketHandler {
 
     private void startDataPushScheduler() {
         scheduler.scheduleAtFixedRate(() -> {
-            if (sessions.isEmpty()) {
-                return;
+            try {
+                tick();
+            } catch (Exception e) {
+                logger.error("大屏定时推送失败", e);
             }
+        }, 5, 5, TimeUnit.SECONDS);
+    }
+
+    /**
+     * 定时刷新：续期生产者租约、登记本地主题；转发者到此为止，生产者/单实例计算各主题快照
+     */
+    private void tick() {
+        boolean wasRelay = isRelay();
+        BigScreenCluster.Role role = cluster.renewRole();
+        Set<String> localTopics = activeLocalTopics();
+        cluster.advertise(localTopics);
+        if (role == BigScreenCluster.Role.RELAY) {
+            return;
+        }
+        relayed.clear();
 
+        Set<String> topics = new HashSet<>(localTopics);
+        if (role == BigScreenCluster.Role.PRODUCER) {
+            topics.addAll(cluster.getClusterTopics());
+        }
+        // 无订阅者的主题不再计算
+        channels.keySet().retainAll(topics);
+
+        for (String topic : topics) {
             try {
-                Map<String, Object> data = bigScreenService.getPublicBigScreenData();
-                String jsonData = objectMapper.writeValueAsString(data);
-                TextMessage message = new TextMessage(jsonData);
-
-                sessions.values().forEach(session -> {
-                    if (session.isOpen()) {
-                        try {
-                            session.sendMessage(message);
-                        } catch (IOException e) {
-                            logger.error("推送数据到会话{}失败", session.getId(), e);
+                pushTopic(channels.computeIfAbsent(topic, t -> new SnapshotChannel(t, objectMapper)));
+                if (wasRelay) {
+                    // 刚从转发者转为计算快照，本地会话持有的是原生产者的版本，改发全量帧
+                    subscribers.getOrDefault(topic, Set.of()).forEach(id -> {
+                        SessionSender sender = sessions.get(id);
+                        if (sender != null) {
+                            sendFullFrame(sender.getSession(), topic);
                         }
-                    }
-                });
+                    });
+                }
+            } catch (Exception e) {
+                logger.error("获取大屏数据失败: {}", topic, e);
+            }
+        }
+    }
+
+    private Set<String> activeLocalTopics() {
+        return subscribers.entrySet().stream()
+                .filter(e -> !e.getValue().isEmpty())
+                .map(Map.Entry::getKey)
+                .collect(Collectors.toSet());
+    }
+
+    private boolean isRelay() {
+        return cluster.getRole() == BigScreenCluster.Role.RELAY;
+    }
 
-                logger.debug("推送大屏数据到{}个活跃连接", sessions.size());
+    /**
+     * 领域事件触发的即时刷新（已由 BigScreenService 合并防抖）
+     */
+    @EventListener
+    public void onBigScreenRefresh(BigScreenRefreshEvent event) {
+        if (isRelay()) {
+            cluster.requestRefresh(event.getTopics());
+            return;
+        }
+        refreshTopics(event.getTopics());
+    }
+
+    private void refreshTopics(Set<String> patterns) {
+        // 生产者还需刷新其他实例订阅的主题（即已有快照的主题）
+        Set<String> topics = activeLocalTopics();
+        topics.addAll(channels.keySet());
+        for (String topic : topics) {
+            if (!matchesAny(topic, patterns)) {
+                continue;
+            }
+            try {
+                pushTopic(channels.computeIfAbsent(topic, t -> new SnapshotChannel(t, objectMapper)));
             } catch (Exception e) {
-                logger.error("获取大屏数据失败", e);
+                logger.error("事件触发的大屏推送失败: {}", topic, e);
             }
-        }, 5, 5, TimeUnit.SECONDS);
+        }
+    }
+
+    /**
+     * 主题是否匹配刷新范围（"*" 匹配全部，"red:*" 匹配全部红队主题）
+     */
+    private boolean matchesAny(String topic, Set<String> patterns) {
+        for (String pattern : patterns) {
+            if ("*".equals(pattern) || pattern.equals(topic)
+                    || (pattern.endsWith(":*") && topic.startsWith(pattern.substring(0, pattern.length() - 1)))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 计算主题的最新快照（每周期一次），有变化时推送给该主题的全部订阅者
+     */
+    private boolean pushTopic(SnapshotChannel channel) throws IOException {
+        SnapshotChannel.Update update;
+        synchronized (channel) {
+            update = channel.update(computeTopicData(channel.getTopic()));
+        }
+        if (update == null) {
+            logger.debug("大屏主题 {} 数据无变化，跳过推送", channel.getTopic());
+            return false;
+        }
+
+        // 同一帧只构造一次，所有订阅者共享
+        TextMessage delta = update.getDeltaFrame() != null ? new TextMessage(update.getDeltaFrame()) : null;
+        TextMessage full = new TextMessage(update.getFullFrame());
+        String topic = channel.getTopic();
+
+        // 只入队，不在推送线程上阻塞发送；由各会话按已收到的版本选择增量帧或全量帧
+        Set<String> ids = subscribers.getOrDefault(topic, Set.of());
+        for (String id : ids) {
+            SessionSender sender = sessions.get(id);
+            if (sender != null && sender.getSession().isOpen()) {
+                sender.offerSnapshot(topic, update.getVersion(), update.getBaseVersion(), delta, full);
+            }
+        }
+
+        // 集群生产者同时发布到 Redis，由其他实例转发
+        cluster.publishFrame(topic, update.getVersion(), update.getBaseVersion(),
+                update.getDeltaFrame(), update.getFullFrame());
+
+        logger.debug("推送大屏主题 {} v{} 到{}个订阅者", topic, update.getVersion(), ids.size());
+        return true;
     }
 
+    /**
+     * 转发生产者发布的帧：生产者切换或版本回退（主题快照被重建）时给所有订阅者发全量帧，
+     * 否则与本地推送相同，由各会话按已收到的版本选择增量帧或全量帧（重发的同版本全量帧只发给尚未收到的会话）
+     */
+    private void relayFrame(String producerId, String topic, long version, long baseVersion, byte[] delta, byte[] full) {
+        TextMessage fullMessage = new TextMessage(full);
+        RelayedFrame last = relayed.put(topic, new RelayedFrame(producerId, version, fullMessage));
+        boolean reset = last == null || !last.producerId.equals(producerId) || version < last.version;
+        TextMessage deltaMessage = delta != null ? new TextMessage(delta) : null;
+
+        for (String id : subscribers.getOrDefault(topic, Set.of())) {
+            SessionSender sender = sessions.get(id);
+            if (sender == null || !sender.getSession().isOpen()) {
+                continue;
+            }
+            if (reset) {
+                sender.offerFull(topic, version, fullMessage);
+            } else {
+                sender.offerSnapshot(topic, version, baseVersion, deltaMessage, fullMessage);
+            }
+        }
+    }
+
+    private void sendFullFrame(WebSocketSession session, String topic) {
+        Set<String> ids = subscribers.get(topic);
+        SessionSender sender = sessions.get(session.getId());
+        if (ids == null || sender == null || !ids.contains(session.getId())) {
+            return;
+        }
+        if (isRelay()) {
+            RelayedFrame frame = relayed.get(topic);
+            if (frame != null) {
+                sender.offerFull(topic, frame.version, frame.full);
+            }
+            return;
+        }
+        SnapshotChannel channel = channels.get(topic);
+        if (channel == null) {
+            return;
+        }
+        byte[] frame;
+        long version;
+        synchronized (channel) {
+            frame = channel.getFullFrame();
+            version = channel.getVersion();
+        }
+        if (frame != null) {
+            sender.offerFull(topic, version, new TextMessage(frame));
+        }
+    }
+
+    private void sendError(WebSocketSession session, String message) {
+        SessionSender sender = sessions.get(session.getId());
+        if (sender == null) {
+            return;
+        }
+        try {
+            sender.offerControl(new TextMessage(objectMapper.writeValueAsBytes(Map.of("type", "error", "message", message))));
+        } catch (IOException e) {
+            logger.debug("发送错误消息失败: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 推送统计：连接数、断开数（含慢消费者）、合并/丢弃的帧数，以及每个会话的积压与发送情况
+     */
+    public Map<String, Object> getStats() {
+        List<Map<String, Object>> sessionStats = new ArrayList<>();
+        long coalesced = closedCoalesced.get();
+        long droppedControl = closedDroppedControl.get();
+        for (SessionSender sender : sessions.values()) {
+            sessionStats.add(sender.getStats());
+            coalesced += sender.getCoalescedFrames();
+            droppedControl += sender.getDroppedControl();
+        }
+
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("connections", sessions.size());
+        stats.put("topics", subscribers.entrySet().stream()
+                .filter(e -> !e.getValue().isEmpty())
+                .collect(Collectors.toMap(Map.Entry::getKey, e -> e.getValue().size())));
+        stats.put("disconnects", disconnects.get());
+        stats.put("slowConsumerDisconnects", slowConsumerDisconnects.get());
+        stats.put("coalescedFrames", coalesced);
+        stats.put("droppedControl", droppedControl);
+        stats.put("cluster", cluster.getStats());
+        stats.put("sessions", sessionStats);
+        return stats;
+    }
+
+    // ========== 主题与权限 ==========
+
+    private Map<String, Object> computeTopicData(String topic) {
+        if (TOPIC_ADMIN.equals(topic)) {
+            return bigScreenService.getAdminBigScreenData();
+        }
+        if (TOPIC_JUDGE.equals(topic)) {
+            return bigScreenService.getJudgeBigScreenData();
+        }
+        if (topic.startsWith(TOPIC_RED_PREFIX)) {
+            return bigScreenService.getRedTeamBigScreenData(topic.substring(TOPIC_RED_PREFIX.length()));
+        }
+        if (topic.startsWith(TOPIC_BLUE_PREFIX)) {
+            return bigScreenService.getBlueTeamBigScreenData(topic.substring(TOPIC_BLUE_PREFIX.length()));
+        }
+        return bigScreenService.getPublicBigScreenData();
+    }
+
+    /**
+     * 订阅权限：public 所有人；admin 可订阅全部；judge 可订阅 judge；红/蓝队只能订阅本队主题
+     */
+    private boolean canSubscribe(WebSocketSession session, String topic) {
+        if (TOPIC_PUBLIC.equals(topic)) {
+            return true;
+        }
+        String role = (String) session.getAttributes().get(ATTR_ROLE);
+        String team = (String) session.getAttributes().get(ATTR_TEAM);
+        if ("admin".equals(role)) {
+            return TOPIC_ADMIN.equals(topic) || TOPIC_JUDGE.equals(topic)
+                    || topic.startsWith(TOPIC_RED_PREFIX) || topic.startsWith(TOPIC_BLUE_PREFIX);
+        }
+        if (TOPIC_JUDGE.equals(topic)) {
+            return "judge".equals(role);
+        }
+        if (team == null) {
+            return false;
+        }
+        return ("red".equals(role) && topic.equals(TOPIC_RED_PREFIX + team))
+                || ("blue".equals(role) && topic.equals(TOPIC_BLUE_PREFIX + team));
+    }
+
+    /**
+     * 从握手时的认证信息解析角色和所属战队
+     */
+    private void resolveIdentity(WebSocketSession session) {
+        Principal principal = session.getPrincipal();
+        if (!(principal instanceof Authentication)) {
+            return;
+        }
+        Authentication authentication = (Authentication) principal;
+        authentication.getAuthorities().stream()
+                .map(authority -> authority.getAuthority())
+                .filter(authority -> authority.startsWith("ROLE_"))
+                .map(authority -> authority.substring(5))
+                .findFirst()
+                .ifPresent(role -> session.getAttributes().put(ATTR_ROLE, role));
+
+        Object role = session.getAttributes().get(ATTR_ROLE);
+        if ("red".equals(role) || "blue".equals(role)) {
+            userRepository.findByUsername(authentication.getName())
+                    .map(User::getTeamId)
+                    .flatMap(teamRepository::findById)
+                    .ifPresent(team -> session.getAttributes().put(ATTR_TEAM, team.getName()));
+        }
+    }
+
+    /**
+     * Redis 集群消息：帧直接转发（只入队）；生产者收到的请求交给推送线程执行，与定时刷新串行
+     */
+    private class ClusterListener implements BigScreenCluster.Listener {
+
+        @Override
+        public void onFrame(String producerId, String topic, long version, long baseVersion, byte[] delta, byte[] full) {
+            if (isRelay()) {
+                relayFrame(producerId, topic, version, baseVersion, delta, full);
+            }
+        }
+
+        @Override
+        public void onSubscribeRequest(String topic) {
+            scheduler.execute(() -> {
+                try {
+                    SnapshotChannel channel = channels.computeIfAbsent(topic, t -> new SnapshotChannel(t, objectMapper));
+                    if (!pushTopic(channel)) {
+                        // 数据无变化：重发当前全量帧，已收到该版本的会话会自动跳过
+                        byte[] frame;
+                        long version;
+                        synchronized (channel) {
+                            frame = channel.getFullFrame();
+                            version = channel.getVersion();
+                        }
+                        if (frame != null) {
+                            cluster.publishFrame(topic, version, -1, null, frame);
+                        }
+                    }
+                } catch (Exception e) {
+                    logger.error("处理大屏订阅请求失败: {}", topic, e);
+                }
+            });
+        }
+
+        @Override
+        public void onRefreshRequest(Set<String> topics) {
+            scheduler.execute(() -> refreshTopics(topics));
+        }
+    }
+
+    private static class RelayedFrame {
+        final String producerId;
+        final long version;
+        final TextMessage full;
+
+        RelayedFrame(String producerId, long version, TextMessage full) {
+            this.producerId = producerId;
+            this.version = version;
+            this.full = full;
+        }
+    }
+
+    @PreDestroy
     public void shutdown() {
+        if (sendExecutor != null) {
+            sendExecutor.shutdownNow();
+        }
         scheduler.shutdown();
         try {
             if (!scheduler.awaitTermination(5, TimeUnit.SECONDS)) {
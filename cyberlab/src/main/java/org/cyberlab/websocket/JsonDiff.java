@@ -0,0 +1,110 @@
+package org.cyberlab.websocket;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * JSON 结构差异计算
+ *
+ * 输出 JSON Patch（RFC 6902）的 add / remove / replace 操作：
+ * - 对象逐字段递归比较
+ * - 数组长度相同时逐元素递归比较，长度变化时整体替换（大屏数据的列表较短，整体替换更简单可靠）
+ */
+public final class JsonDiff {
+
+    private JsonDiff() {
+    }
+
+    /**
+     * 计算从 source 到 target 的差异
+     * @param ignoredTopLevelFields 不参与比较的顶层字段（如每次都会变化的时间戳）
+     * @return JSON Patch 操作数组，无变化时为空数组
+     */
+    public static ArrayNode diff(JsonNode source, JsonNode target, Set<String> ignoredTopLevelFields) {
+        ArrayNode ops = JsonNodeFactory.instance.arrayNode();
+        if (source instanceof ObjectNode && target instanceof ObjectNode) {
+            diffObjects("", (ObjectNode) source, (ObjectNode) target, ops, ignoredTopLevelFields);
+        } else {
+            diffNodes("", source, target, ops);
+        }
+        return ops;
+    }
+
+    private static void diffNodes(String path, JsonNode source, JsonNode target, ArrayNode ops) {
+        if (source == null || target == null) {
+            if (target != null) {
+                addOp(ops, "add", path, target);
+            } else if (source != null) {
+                addOp(ops, "remove", path, null);
+            }
+            return;
+        }
+        if (source.getNodeType() != target.getNodeType()) {
+            addOp(ops, "replace", path, target);
+            return;
+        }
+        if (source.isObject()) {
+            diffObjects(path, (ObjectNode) source, (ObjectNode) target, ops, Set.of());
+        } else if (source.isArray()) {
+            diffArrays(path, (ArrayNode) source, (ArrayNode) target, ops);
+        } else if (!source.equals(target)) {
+            addOp(ops, "replace", path, target);
+        }
+    }
+
+    private static void diffObjects(String path, ObjectNode source, ObjectNode target, ArrayNode ops, Set<String> ignored) {
+        Iterator<String> sourceFields = source.fieldNames();
+        while (sourceFields.hasNext()) {
+            String field = sourceFields.next();
+            if (!ignored.contains(field) && !target.has(field)) {
+                addOp(ops, "remove", path + "/" + escape(field), null);
+            }
+        }
+        for (Map.Entry<String, JsonNode> entry : target.properties()) {
+            if (ignored.contains(entry.getKey())) {
+                continue;
+            }
+            String childPath = path + "/" + escape(entry.getKey());
+            JsonNode sourceValue = source.get(entry.getKey());
+            if (sourceValue == null) {
+                addOp(ops, "add", childPath, entry.getValue());
+            } else {
+                diffNodes(childPath, sourceValue, entry.getValue(), ops);
+            }
+        }
+    }
+
+    private static void diffArrays(String path, ArrayNode source, ArrayNode target, ArrayNode ops) {
+        if (source.size() != target.size()) {
+            if (!source.equals(target)) {
+                addOp(ops, "replace", path, target);
+            }
+            return;
+        }
+        for (int i = 0; i < source.size(); i++) {
+            diffNodes(path + "/" + i, source.get(i), target.get(i), ops);
+        }
+    }
+
+    private static void addOp(ArrayNode ops, String op, String path, JsonNode value) {
+        ObjectNode node = ops.addObject();
+        node.put("op", op);
+        node.put("path", path);
+        if (value != null) {
+            node.set("value", value);
+        }
+    }
+
+    /**
+     * JSON Pointer 转义（RFC 6901）
+     */
+    private static String escape(String field) {
+        return field.replace("~", "~0").replace("/", "~1");
+    }
+}
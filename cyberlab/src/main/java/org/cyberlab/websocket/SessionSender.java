@@ -0,0 +1,293 @@
+package org.cyberlab.websocket;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.adapter.NativeWebSocketSession;
+
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 单个 WebSocket 会话的异步发送器
+ *
+ * 推送线程只把帧放入本会话的缓冲区后立即返回，由共享发送线程池逐个会话发送，
+ * 一个卡住的浏览器只会占用一个发送线程，不会阻塞其他大屏和推送调度。
+ * - 快照帧按主题合并：未发出的旧帧被新帧替换（只有最新快照有意义），缓冲区大小以主题数为上限；
+ *   发送时按会话已确认的版本选择增量帧或全量帧，因此丢弃中间的增量帧不会破坏版本链
+ * - 控制消息（错误提示等）使用有界队列，满时丢弃
+ * - 单次发送超过 sendTimeLimit 失败、或积压超过 maxLag 时按慢消费者断开连接
+ */
+public class SessionSender {
+
+    private static final Logger logger = LoggerFactory.getLogger(SessionSender.class);
+
+    /**
+     * Tomcat 阻塞发送超时（毫秒），标准 WebSocket API 没有对应设置
+     */
+    private static final String TOMCAT_BLOCKING_SEND_TIMEOUT = "org.apache.tomcat.websocket.BLOCKING_SEND_TIMEOUT";
+
+    private final WebSocketSession session;
+    private final Executor executor;
+    private final long maxLagMillis;
+    private final Runnable onSlowConsumer;
+
+    /**
+     * 主题 → 待发送的最新帧
+     */
+    private final Map<String, PendingFrame> pending = new ConcurrentHashMap<>();
+    private final BlockingQueue<TextMessage> controlQueue;
+    /**
+     * 主题 → 客户端已收到的版本
+     */
+    private final Map<String, Long> versions = new ConcurrentHashMap<>();
+    private final AtomicBoolean draining = new AtomicBoolean();
+    private volatile boolean closed;
+
+    private final AtomicLong sentFrames = new AtomicLong();
+    private final AtomicLong sentDeltas = new AtomicLong();
+    private final AtomicLong coalescedFrames = new AtomicLong();
+    private final AtomicLong droppedControl = new AtomicLong();
+    private final AtomicLong sentBytes = new AtomicLong();
+    private volatile long lastLagMillis;
+    private volatile long maxLagSeen;
+    private volatile long lastSendMillis;
+    private volatile long inFlightSince;
+
+    public SessionSender(WebSocketSession session, Executor executor, long sendTimeLimitMillis,
+                         long maxLagMillis, int controlQueueSize, Runnable onSlowConsumer) {
+        this.session = session;
+        this.executor = executor;
+        this.maxLagMillis = maxLagMillis;
+        this.controlQueue = new ArrayBlockingQueue<>(controlQueueSize);
+        this.onSlowConsumer = onSlowConsumer;
+
+        if (session instanceof NativeWebSocketSession) {
+            jakarta.websocket.Session nativeSession =
+                    ((NativeWebSocketSession) session).getNativeSession(jakarta.websocket.Session.class);
+            if (nativeSession != null) {
+                nativeSession.getUserProperties().put(TOMCAT_BLOCKING_SEND_TIMEOUT, sendTimeLimitMillis);
+            }
+        }
+    }
+
+    public WebSocketSession getSession() {
+        return session;
+    }
+
+    /**
+     * 放入一帧快照更新（增量帧可为 null）
+     */
+    public void offerSnapshot(String topic, long version, long baseVersion, TextMessage delta, TextMessage full) {
+        if (closed) {
+            return;
+        }
+        Long acked = versions.get(topic);
+        if (acked != null && acked >= version) {
+            return;
+        }
+        enqueue(topic, new PendingFrame(version, baseVersion, delta, full, System.currentTimeMillis()));
+    }
+
+    /**
+     * 放入全量帧（订阅或客户端请求重新同步时），忽略客户端已有的版本
+     */
+    public void offerFull(String topic, long version, TextMessage full) {
+        if (closed) {
+            return;
+        }
+        versions.remove(topic);
+        enqueue(topic, new PendingFrame(version, -1, null, full, System.currentTimeMillis()));
+    }
+
+    /**
+     * 放入控制消息，队列满时丢弃
+     */
+    public void offerControl(TextMessage message) {
+        if (closed) {
+            return;
+        }
+        if (!controlQueue.offer(message)) {
+            droppedControl.incrementAndGet();
+            return;
+        }
+        scheduleDrain();
+    }
+
+    /**
+     * 取消订阅：丢弃该主题未发送的帧和版本记录
+     */
+    public void forget(String topic) {
+        pending.remove(topic);
+        versions.remove(topic);
+    }
+
+    public void close() {
+        closed = true;
+        pending.clear();
+        controlQueue.clear();
+    }
+
+    private void enqueue(String topic, PendingFrame frame) {
+        PendingFrame previous = pending.put(topic, frame);
+        if (previous != null) {
+            // 旧帧尚未发出即被替换，积压时间从最早的未发送帧算起
+            coalescedFrames.incrementAndGet();
+            frame.enqueuedAt = Math.min(frame.enqueuedAt, previous.enqueuedAt);
+        }
+        if (maxLagMillis > 0 && System.currentTimeMillis() - frame.enqueuedAt > maxLagMillis) {
+            logger.warn("WebSocket会话{}积压超过{}ms，按慢消费者断开", session.getId(), maxLagMillis);
+            disconnectSlow();
+            return;
+        }
+        scheduleDrain();
+    }
+
+    private void scheduleDrain() {
+        if (draining.compareAndSet(false, true)) {
+            try {
+                executor.execute(this::drain);
+            } catch (RejectedExecutionException e) {
+                draining.set(false);
+            }
+        }
+    }
+
+    private void drain() {
+        try {
+            while (!closed && session.isOpen()) {
+                TextMessage control = controlQueue.poll();
+                if (control != null) {
+                    send(control);
+                    continue;
+                }
+                Iterator<Map.Entry<String, PendingFrame>> it = pending.entrySet().iterator();
+                if (!it.hasNext()) {
+                    break;
+                }
+                Map.Entry<String, PendingFrame> entry = it.next();
+                String topic = entry.getKey();
+                PendingFrame frame = entry.getValue();
+                if (!pending.remove(topic, frame)) {
+                    // 刚被更新的帧替换，下一轮发送新帧
+                    continue;
+                }
+
+                Long acked = versions.get(topic);
+                if (acked != null && acked >= frame.version) {
+                    continue;
+                }
+                boolean useDelta = frame.delta != null && acked != null && acked == frame.baseVersion;
+                send(useDelta ? frame.delta : frame.full);
+                versions.put(topic, frame.version);
+                if (useDelta) {
+                    sentDeltas.incrementAndGet();
+                }
+                lastLagMillis = System.currentTimeMillis() - frame.enqueuedAt;
+                maxLagSeen = Math.max(maxLagSeen, lastLagMillis);
+            }
+        } catch (IOException e) {
+            logger.warn("WebSocket会话{}发送失败（{}），断开连接", session.getId(), e.getMessage());
+            disconnectSlow();
+        } finally {
+            draining.set(false);
+        }
+        if (!closed && (!pending.isEmpty() || !controlQueue.isEmpty())) {
+            scheduleDrain();
+        }
+    }
+
+    private void send(TextMessage message) throws IOException {
+        long start = System.currentTimeMillis();
+        inFlightSince = start;
+        try {
+            session.sendMessage(message);
+        } finally {
+            inFlightSince = 0;
+            lastSendMillis = System.currentTimeMillis() - start;
+        }
+        sentFrames.incrementAndGet();
+        sentBytes.addAndGet(message.getPayloadLength());
+    }
+
+    private void disconnectSlow() {
+        if (closed) {
+            return;
+        }
+        close();
+        onSlowConsumer.run();
+        // 关闭帧同样可能阻塞，交给发送线程执行，不占用推送线程
+        Runnable closeTask = () -> {
+            try {
+                session.close(CloseStatus.SESSION_NOT_RELIABLE);
+            } catch (IOException | IllegalStateException e) {
+                logger.debug("关闭慢消费者会话失败: {}", e.getMessage());
+            }
+        };
+        try {
+            executor.execute(closeTask);
+        } catch (RejectedExecutionException e) {
+            closeTask.run();
+        }
+    }
+
+    /**
+     * 会话发送统计
+     */
+    public Map<String, Object> getStats() {
+        long now = System.currentTimeMillis();
+        long oldestPending = pending.values().stream().mapToLong(f -> f.enqueuedAt).min().orElse(now);
+        long inFlight = inFlightSince;
+
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("sessionId", session.getId());
+        stats.put("topics", new ArrayList<>(versions.keySet()));
+        stats.put("pendingFrames", pending.size());
+        stats.put("pendingControl", controlQueue.size());
+        stats.put("currentLagMs", now - oldestPending);
+        stats.put("lastLagMs", lastLagMillis);
+        stats.put("maxLagMs", maxLagSeen);
+        stats.put("lastSendMs", lastSendMillis);
+        stats.put("inFlightMs", inFlight > 0 ? now - inFlight : 0);
+        stats.put("sentFrames", sentFrames.get());
+        stats.put("sentDeltas", sentDeltas.get());
+        stats.put("sentBytes", sentBytes.get());
+        stats.put("coalescedFrames", coalescedFrames.get());
+        stats.put("droppedControl", droppedControl.get());
+        stats.put("extensions", session.getExtensions().stream().map(e -> e.getName()).toList());
+        return stats;
+    }
+
+    long getCoalescedFrames() {
+        return coalescedFrames.get();
+    }
+
+    long getDroppedControl() {
+        return droppedControl.get();
+    }
+
+    private static class PendingFrame {
+        final long version;
+        final long baseVersion;
+        final TextMessage delta;
+        final TextMessage full;
+        volatile long enqueuedAt;
+
+        PendingFrame(long version, long baseVersion, TextMessage delta, TextMessage full, long enqueuedAt) {
+            this.version = version;
+            this.baseVersion = baseVersion;
+            this.delta = delta;
+            this.full = full;
+            this.enqueuedAt = enqueuedAt;
+        }
+    }
+}
@@ -0,0 +1,139 @@
+package org.cyberlab.websocket;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.time.LocalDateTime;
+import java.util.Set;
+
+/**
+ * 版本化的大屏快照
+ *
+ * 每次更新与上一版本比较结构差异：
+ * - 无变化：返回 null，不推送
+ * - 有变化：版本号加一，生成增量帧（delta）并同时更新全量帧（full），供新连接和版本断档的客户端重新同步
+ *
+ * 帧格式：
+ * {"type":"full","topic":"...","version":N,"timestamp":"...","data":{...}}
+ * {"type":"delta","topic":"...","version":N,"baseVersion":N-1,"timestamp":"...","ops":[JSON Patch]}
+ *
+ * 帧只序列化一次（UTF-8 字节），由同一主题的所有订阅者共享。
+ */
+public class SnapshotChannel {
+
+    /**
+     * 每次都会变化、不参与比较的顶层字段（随帧的 timestamp 下发）
+     */
+    private static final Set<String> VOLATILE_FIELDS = Set.of("timestamp");
+
+    private final String topic;
+    private final ObjectMapper objectMapper;
+
+    private long version;
+    private JsonNode current;
+    private byte[] fullFrame;
+
+    public SnapshotChannel(String topic, ObjectMapper objectMapper) {
+        this.topic = topic;
+        this.objectMapper = objectMapper;
+    }
+
+    public String getTopic() {
+        return topic;
+    }
+
+    /**
+     * 用新数据更新快照
+     * @return 本次更新；数据无变化时返回 null
+     */
+    public synchronized Update update(Object data) throws JsonProcessingException {
+        JsonNode next = objectMapper.valueToTree(data);
+        String timestamp = next.has("timestamp") ? next.get("timestamp").asText() : LocalDateTime.now().toString();
+
+        if (current == null) {
+            version = 1;
+            current = next;
+            fullFrame = buildFullFrame(timestamp);
+            return new Update(version, 0, null, fullFrame);
+        }
+
+        ArrayNode ops = JsonDiff.diff(current, next, VOLATILE_FIELDS);
+        if (ops.isEmpty()) {
+            return null;
+        }
+
+        long baseVersion = version;
+        version++;
+        current = next;
+        fullFrame = buildFullFrame(timestamp);
+
+        ObjectNode delta = objectMapper.createObjectNode();
+        delta.put("type", "delta");
+        delta.put("topic", topic);
+        delta.put("version", version);
+        delta.put("baseVersion", baseVersion);
+        delta.put("timestamp", timestamp);
+        delta.set("ops", ops);
+        return new Update(version, baseVersion, objectMapper.writeValueAsBytes(delta), fullFrame);
+    }
+
+    /**
+     * 当前全量帧（尚未生成快照时返回 null）
+     */
+    public synchronized byte[] getFullFrame() {
+        return fullFrame;
+    }
+
+    public synchronized long getVersion() {
+        return version;
+    }
+
+    private byte[] buildFullFrame(String timestamp) throws JsonProcessingException {
+        ObjectNode full = objectMapper.createObjectNode();
+        full.put("type", "full");
+        full.put("topic", topic);
+        full.put("version", version);
+        full.put("timestamp", timestamp);
+        full.set("data", current);
+        return objectMapper.writeValueAsBytes(full);
+    }
+
+    /**
+     * 一次快照更新的结果
+     */
+    public static class Update {
+        private final long version;
+        private final long baseVersion;
+        private final byte[] deltaFrame;
+        private final byte[] fullFrame;
+
+        Update(long version, long baseVersion, byte[] deltaFrame, byte[] fullFrame) {
+            this.version = version;
+            this.baseVersion = baseVersion;
+            this.deltaFrame = deltaFrame;
+            this.fullFrame = fullFrame;
+        }
+
+        public long getVersion() {
+            return version;
+        }
+
+        public long getBaseVersion() {
+            return baseVersion;
+        }
+
+        /**
+         * 增量帧（首个快照没有增量帧）
+         */
+        public byte[] getDeltaFrame() {
+            return deltaFrame;
+        }
+
+        public byte[] getFullFrame() {
+            return fullFrame;
+        }
+    }
+}
@@ -0,0 +1,22 @@
+-- 请求链路表
+-- 按 trace_id 聚合 system_log，spans 保存紧凑的链路环节（开始时间、耗时、方法、状态）
+-- 查询 getTraceChain / 会话轨迹时直接读取本表，无需扫描 system_log
+
+CREATE TABLE IF NOT EXISTS log_traces (
+    id BIGINT PRIMARY KEY AUTO_INCREMENT COMMENT '主键ID',
+    trace_id VARCHAR(64) NOT NULL COMMENT '请求追踪ID',
+    session_id VARCHAR(255) COMMENT '用户会话ID',
+    username VARCHAR(255) COMMENT '用户名',
+    start_time DATETIME(3) COMMENT '链路开始时间',
+    end_time DATETIME(3) COMMENT '链路结束时间',
+    duration_ms BIGINT COMMENT '链路总耗时（毫秒）',
+    span_count INT COMMENT '环节数量',
+    error_count INT COMMENT '失败环节数量',
+    spans MEDIUMTEXT COMMENT '链路环节（JSON数组）',
+    updated_at DATETIME COMMENT '最后更新时间',
+
+    UNIQUE KEY uk_log_traces_trace_id (trace_id),
+    INDEX idx_log_traces_session_id (session_id),
+    INDEX idx_log_traces_start_time (start_time),
+    INDEX idx_log_traces_username_start (username, start_time)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='请求链路表';
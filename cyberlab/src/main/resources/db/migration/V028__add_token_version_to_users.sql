@@ -0,0 +1,5 @@
+-- 用户令牌版本
+-- JWT 中携带签发时的 token_version（tv 声明），禁用/删除用户或修改角色时版本号递增，
+-- 旧版本令牌立即失效，请求认证时无需查询用户表
+
+ALTER TABLE users ADD COLUMN token_version INT NOT NULL DEFAULT 0 COMMENT '令牌版本号，递增后旧令牌失效';
@@ -0,0 +1,44 @@
+-- 计分台账
+-- score_ledger 以成果ID为主键记录已计入团队得分的审批，重复审批（重试、并发提交）不会重复计分
+
+CREATE TABLE IF NOT EXISTS score_ledger (
+    achievement_id BIGINT PRIMARY KEY COMMENT '成果ID（幂等键）',
+    range_id BIGINT NOT NULL COMMENT '演练ID',
+    team_name VARCHAR(100) NOT NULL COMMENT '团队名称',
+    team_type VARCHAR(20) NOT NULL COMMENT '队伍类型: red, blue',
+    score INT NOT NULL COMMENT '计入的分数',
+    created_at DATETIME NOT NULL COMMENT '计分时间',
+
+    INDEX idx_score_ledger_range_team (range_id, team_name)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='计分台账';
+
+-- achievements 由 JPA 建表，全新库执行迁移时可能尚不存在，需先检查
+
+-- 已审核通过的成果登记到台账，避免升级后重复审批再次计分
+-- 队伍类型与 ScoringService.determineTeamType 一致：优先使用 teams 表登记的类型，未登记的队伍按名称规则判断
+SET @achievements_exist = (
+    SELECT COUNT(*) > 0
+    FROM INFORMATION_SCHEMA.TABLES
+    WHERE TABLE_SCHEMA = DATABASE()
+      AND TABLE_NAME = 'achievements'
+);
+
+SET @sql = IF(@achievements_exist,
+    'INSERT IGNORE INTO score_ledger (achievement_id, range_id, team_name, team_type, score, created_at)
+     SELECT a.id, a.range_id, a.team_name,
+            CASE
+                WHEN LOWER(TRIM(t.team_type)) IN (''red'', ''blue'') THEN LOWER(TRIM(t.team_type))
+                WHEN LOWER(a.team_name) LIKE ''%red%'' OR a.team_name LIKE ''%红队%'' THEN ''red''
+                WHEN LOWER(a.team_name) LIKE ''%blue%'' OR a.team_name LIKE ''%蓝队%'' THEN ''blue''
+                ELSE ''red''
+            END,
+            COALESCE(a.final_score, 0), COALESCE(a.review_time, NOW())
+     FROM achievements a
+     LEFT JOIN teams t ON t.name = CONVERT(a.team_name USING utf8mb4) COLLATE utf8mb4_unicode_ci
+     WHERE a.status = ''approved'' AND a.range_id IS NOT NULL AND a.team_name IS NOT NULL',
+    'SELECT "achievements table missing" as message'
+);
+
+PREPARE stmt FROM @sql;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
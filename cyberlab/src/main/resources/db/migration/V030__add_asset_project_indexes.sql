@@ -0,0 +1,7 @@
+-- 资产项目/可见性索引
+-- 按项目、"企业|项目"组合标识、蓝队可见性查询资产时走索引，不再加载全部资产后在内存中过滤
+-- （按项目查询走 V017 的 idx_asset_project_platform(project, asset_platform)；
+--  preferred_host_node_id、topology_project_id、asset_type 已有索引，见 V006 / V007 / V022）
+
+CREATE INDEX idx_asset_company_project ON asset(company, project);
+CREATE INDEX idx_asset_visibility ON asset(visibility);
@@ -0,0 +1,48 @@
+-- 成果列表键集分页索引
+-- 管理员审批列表按 (submit_time, id) 倒序定位下一页（可按状态过滤），索引覆盖排序后不再需要 filesort 与 OFFSET 扫描
+-- system_log 已有 timestamp 索引（InnoDB 二级索引隐含主键），无需新增
+
+-- achievements 由 JPA 建表，全新库执行迁移时可能尚不存在，需先检查
+
+SET @achievements_exist = (
+    SELECT COUNT(*) > 0
+    FROM INFORMATION_SCHEMA.TABLES
+    WHERE TABLE_SCHEMA = DATABASE()
+      AND TABLE_NAME = 'achievements'
+);
+
+-- 1. (submit_time, id)
+SET @index_missing = @achievements_exist AND (
+    SELECT COUNT(*) = 0
+    FROM INFORMATION_SCHEMA.STATISTICS
+    WHERE TABLE_SCHEMA = DATABASE()
+      AND TABLE_NAME = 'achievements'
+      AND INDEX_NAME = 'idx_achievements_submit_time_id'
+);
+
+SET @sql = IF(@index_missing,
+    'CREATE INDEX idx_achievements_submit_time_id ON achievements(submit_time, id)',
+    'SELECT "idx_achievements_submit_time_id already exists or table missing" as message'
+);
+
+PREPARE stmt FROM @sql;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
+
+-- 2. (status, submit_time, id)
+SET @index_missing = @achievements_exist AND (
+    SELECT COUNT(*) = 0
+    FROM INFORMATION_SCHEMA.STATISTICS
+    WHERE TABLE_SCHEMA = DATABASE()
+      AND TABLE_NAME = 'achievements'
+      AND INDEX_NAME = 'idx_achievements_status_submit_time_id'
+);
+
+SET @sql = IF(@index_missing,
+    'CREATE INDEX idx_achievements_status_submit_time_id ON achievements(status, submit_time, id)',
+    'SELECT "idx_achievements_status_submit_time_id already exists or table missing" as message'
+);
+
+PREPARE stmt FROM @sql;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
@@ -0,0 +1,12 @@
+-- 成果证据文件内容寻址存储
+-- 文件按 SHA-256 存放在 uploads/evidence/{前2位}/{3-4位}/{sha256}，同一内容只保存一份
+-- ref_count 记录引用该内容的上传次数，归零时删除文件
+
+CREATE TABLE IF NOT EXISTS evidence_blobs (
+    sha256 CHAR(64) PRIMARY KEY COMMENT '内容SHA-256（十六进制小写）',
+    size BIGINT NOT NULL COMMENT '文件大小（字节）',
+    content_type VARCHAR(150) COMMENT '首次上传时记录的MIME类型',
+    ref_count INT NOT NULL DEFAULT 0 COMMENT '引用次数',
+    created_at DATETIME NOT NULL COMMENT '首次上传时间',
+    last_referenced_at DATETIME COMMENT '最近一次被引用时间'
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='成果证据文件（内容寻址）';
@@ -0,0 +1,26 @@
+-- 成果截图缩略图
+-- 提交后由后台线程池生成缩略图，路径按逗号分隔与 screenshots 一一对应，审批列表加载缩略图而不是原图
+
+-- achievements 由 JPA 建表，全新库执行迁移时可能尚不存在，需先检查
+
+SET @column_missing = (
+    SELECT COUNT(*) = 0
+    FROM INFORMATION_SCHEMA.COLUMNS
+    WHERE TABLE_SCHEMA = DATABASE()
+      AND TABLE_NAME = 'achievements'
+      AND COLUMN_NAME = 'screenshot_thumbnails'
+) AND (
+    SELECT COUNT(*) > 0
+    FROM INFORMATION_SCHEMA.TABLES
+    WHERE TABLE_SCHEMA = DATABASE()
+      AND TABLE_NAME = 'achievements'
+);
+
+SET @sql = IF(@column_missing,
+    'ALTER TABLE achievements ADD COLUMN screenshot_thumbnails TEXT COMMENT ''截图缩略图路径（逗号分隔，与screenshots对应）''',
+    'SELECT "achievements.screenshot_thumbnails already exists or table missing" as message'
+);
+
+PREPARE stmt FROM @sql;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
@@ -0,0 +1,185 @@
+package org.cyberlab.controller;
+
+import org.cyberlab.entity.Asset;
+import org.cyberlab.repository.AssetRepository;
+import org.cyberlab.service.AssetService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.*;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+/**
+ * 资产查询回归测试：固定种子生成 5 万条资产
+ *
+ * 1. 各接口结果与原先"全表加载后内存过滤"的结果一致
+ * 2. 不再调用 findAll()（全表扫描回归）
+ *
+ * 仓库为 mock，只返回预先计算好的查询结果（模拟数据库完成过滤/分组），不涉及数据库，不衡量查询性能。
+ */
+class AssetQueryEquivalenceTest {
+
+    private static final int ASSET_COUNT = 50_000;
+    private static final long SEED = 20260101L;
+    private static final int NODES = 50;
+    private static final int PROJECTS = 200;
+    private static final int COMPANIES = 20;
+
+    private final List<Asset> assets = new ArrayList<>(ASSET_COUNT);
+    private AssetRepository assetRepository;
+    private AssetController controller;
+    private AssetService assetService;
+
+    @BeforeEach
+    void setUp() {
+        Random random = new Random(SEED);
+        Map<String, String> topologyByProject = new HashMap<>();
+        for (int p = 0; p < PROJECTS; p++) {
+            // 每个项目固定一个拓扑ID（部分项目没有），与原实现的去重结果可比
+            topologyByProject.put("项目" + p, p % 5 == 0 ? null : "topo-" + p);
+        }
+        String[] visibilities = {"blue", "red", "both", null};
+        for (long id = 1; id <= ASSET_COUNT; id++) {
+            Asset asset = new Asset();
+            asset.setId(id);
+            asset.setName("asset-" + id);
+            asset.setIp("10." + random.nextInt(256) + "." + random.nextInt(256) + "." + random.nextInt(256));
+            asset.setCompany(random.nextInt(50) == 0 ? null : "企业" + random.nextInt(COMPANIES));
+            String project = random.nextInt(40) == 0 ? null : "项目" + random.nextInt(PROJECTS);
+            asset.setProject(project);
+            asset.setTopologyProjectId(project != null ? topologyByProject.get(project) : null);
+            asset.setVisibility(visibilities[random.nextInt(visibilities.length)]);
+            asset.setAssetType(random.nextBoolean() ? "container" : "host");
+            asset.setDockerImage("nginx:1." + random.nextInt(20));
+            if (random.nextInt(4) != 0) {
+                long node = random.nextInt(NODES);
+                asset.setPreferredHostNodeId(node);
+                asset.setPreferredHostNodeName("node-" + node);
+            }
+            asset.setDeploymentStrategy(random.nextBoolean() ? "fixed" : "any");
+            asset.setEnableFailover(random.nextInt(3) == 0);
+            assets.add(asset);
+        }
+
+        assetRepository = mock(AssetRepository.class);
+        when(assetRepository.findAll()).thenReturn(assets);
+        when(assetRepository.count()).thenReturn((long) ASSET_COUNT);
+
+        // 以下为数据库完成过滤/分组后返回的结果
+        Map<Long, List<Asset>> byNode = assets.stream().filter(a -> a.getPreferredHostNodeId() != null)
+                .collect(Collectors.groupingBy(Asset::getPreferredHostNodeId));
+        when(assetRepository.findByPreferredHostNodeId(anyLong()))
+                .thenAnswer(invocation -> byNode.getOrDefault(invocation.<Long>getArgument(0), List.of()));
+        when(assetRepository.countByPreferredHostNodeId(anyLong()))
+                .thenAnswer(invocation -> (long) byNode.getOrDefault(invocation.<Long>getArgument(0), List.of()).size());
+        when(assetRepository.countByPreferredHostNodeIdIsNull())
+                .thenReturn(assets.stream().filter(a -> a.getPreferredHostNodeId() == null).count());
+        List<Object[]> nodeCounts = assets.stream().filter(a -> a.getPreferredHostNodeId() != null)
+                .collect(Collectors.groupingBy(Asset::getPreferredHostNodeName, Collectors.counting()))
+                .entrySet().stream().map(e -> new Object[]{e.getKey(), e.getValue()}).collect(Collectors.toList());
+        when(assetRepository.countGroupByPreferredHostNodeName()).thenReturn(nodeCounts);
+        List<Object[]> distinctProjects = assets.stream()
+                .filter(a -> a.getProject() != null && !a.getProject().trim().isEmpty())
+                .map(a -> Arrays.asList(a.getProject(), a.getTopologyProjectId())).distinct()
+                .map(List::toArray).collect(Collectors.toList());
+        when(assetRepository.findDistinctProjects()).thenReturn(distinctProjects);
+        when(assetRepository.findByProjectOrTopologyProjectId(anyString())).thenAnswer(invocation -> {
+            String projectId = invocation.getArgument(0);
+            return assets.stream().filter(a -> projectId.equals(a.getProject()) || projectId.equals(a.getTopologyProjectId()))
+                    .collect(Collectors.toList());
+        });
+        when(assetRepository.findByCompanyProjectKey(anyString(), anyString())).thenAnswer(invocation -> {
+            String company = invocation.getArgument(0);
+            String project = invocation.getArgument(1);
+            return assets.stream()
+                    .filter(a -> company.equals(a.getCompany()) || ("未知企业".equals(company) && a.getCompany() == null))
+                    .filter(a -> project.equals(a.getProject()) || ("未分组".equals(project) && a.getProject() == null))
+                    .collect(Collectors.toList());
+        });
+        when(assetRepository.findVisibleToBlueTeam()).thenReturn(assets.stream()
+                .filter(a -> a.getVisibility() == null || "blue".equals(a.getVisibility()) || "both".equals(a.getVisibility()))
+                .collect(Collectors.toList()));
+        when(assetRepository.findContainerStatusFields()).thenReturn(assets.stream()
+                .map(a -> new Object[]{a.getId(), a.getName(), a.getIp(), a.getCompany(), a.getProject(), a.getAssetType(),
+                        a.getDockerImage(), a.getPreferredHostNodeId(), a.getPreferredHostNodeName(), a.getDeploymentStrategy()})
+                .collect(Collectors.toList()));
+
+        controller = new AssetController();
+        ReflectionTestUtils.setField(controller, "assetRepository", assetRepository);
+        assetService = new AssetService();
+        ReflectionTestUtils.setField(assetService, "assetRepository", assetRepository);
+    }
+
+    // ========== 结果与原实现一致 ==========
+
+    @Test
+    void nodeQueriesMatchFullScan() {
+        for (long node = 0; node < NODES; node++) {
+            long expectedNode = node;
+            Set<Long> expected = assets.stream().filter(a -> Objects.equals(expectedNode, a.getPreferredHostNodeId()))
+                    .map(Asset::getId).collect(Collectors.toSet());
+            assertThat(ids(controller.getAssetsByNode(node).getBody())).isEqualTo(expected);
+            assertThat(assetService.countAssetsByNodeId(node)).isEqualTo(expected.size());
+        }
+
+        Map<String, Object> distribution = controller.getNodeAssetDistribution().getBody();
+        Map<String, Integer> expectedGroups = assets.stream().filter(a -> a.getPreferredHostNodeId() != null)
+                .collect(Collectors.groupingBy(Asset::getPreferredHostNodeName, Collectors.summingInt(a -> 1)));
+        assertThat(distribution.get("nodeAssets")).isEqualTo(expectedGroups);
+        assertThat(distribution.get("unassignedAssets"))
+                .isEqualTo(assets.stream().filter(a -> a.getPreferredHostNodeId() == null).count());
+        assertThat(distribution.get("totalAssets")).isEqualTo((long) ASSET_COUNT);
+        verify(assetRepository, never()).findAll();
+    }
+
+    @Test
+    void projectQueriesMatchFullScan() {
+        Map<String, String> expectedProjects = new HashMap<>();
+        for (Asset asset : assets) {
+            String project = asset.getProject();
+            if (project != null && !project.trim().isEmpty()) {
+                String topology = asset.getTopologyProjectId();
+                expectedProjects.put(project.trim(), topology != null && !topology.trim().isEmpty() ? topology.trim() : project.trim());
+            }
+        }
+        Map<String, Object> actualProjects = new HashMap<>();
+        for (Map<String, Object> project : controller.getAssetProjects().getBody()) {
+            actualProjects.put((String) project.get("name"), project.get("topologyProjectId"));
+        }
+        assertThat(actualProjects).isEqualTo(expectedProjects);
+
+        for (String projectId : List.of("项目7", "topo-8", "企业3|项目9", "未知企业|项目11", "企业4|未分组", "不存在")) {
+            Set<Long> expected = assets.stream().filter(a -> projectId.equals(a.getProject())
+                            || projectId.equals(a.getTopologyProjectId())
+                            || projectId.equals((a.getCompany() != null ? a.getCompany() : "未知企业") + "|"
+                                    + (a.getProject() != null ? a.getProject() : "未分组")))
+                    .map(Asset::getId).collect(Collectors.toSet());
+            assertThat(ids(controller.getAssetsByProject(projectId).getBody())).as(projectId).isEqualTo(expected);
+        }
+        verify(assetRepository, never()).findAll();
+    }
+
+    @Test
+    void listQueriesMatchFullScan() {
+        Set<Long> expectedBlue = assets.stream()
+                .filter(a -> a.getVisibility() == null || "blue".equals(a.getVisibility()) || "both".equals(a.getVisibility()))
+                .map(Asset::getId).collect(Collectors.toSet());
+        assertThat(ids(controller.getAssetsForBlueTeam().getBody())).isEqualTo(expectedBlue);
+
+        Map<String, Object> status = controller.getAssetsWithContainerStatus().getBody();
+        assertThat(status.get("total")).isEqualTo(ASSET_COUNT);
+        assertThat(status.get("containerAssets"))
+                .isEqualTo((int) assets.stream().filter(a -> "container".equals(a.getAssetType())).count());
+        verify(assetRepository, never()).findAll();
+    }
+
+    private static Set<Long> ids(List<Asset> assets) {
+        return assets.stream().map(Asset::getId).collect(Collectors.toSet());
+    }
+}
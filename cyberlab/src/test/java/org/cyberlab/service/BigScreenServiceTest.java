@@ -0,0 +1,124 @@
+package org.cyberlab.service;
+
+import org.cyberlab.event.DomainEvent;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.redis.core.ListOperations;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * 多实例部署时实时事件流共享：任一实例收到的领域事件都出现在其他实例（快照生产者）的大屏上
+ */
+class BigScreenServiceTest {
+
+    /**
+     * 模拟 Redis 列表（LPUSH / LTRIM / LRANGE）
+     */
+    private final LinkedList<String> sharedList = new LinkedList<>();
+    private StringRedisTemplate redis;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        ListOperations<String, String> listOps = mock(ListOperations.class);
+        when(listOps.leftPush(eq(BigScreenService.LIVE_EVENTS_KEY), anyString())).thenAnswer(invocation -> {
+            synchronized (sharedList) {
+                sharedList.addFirst(invocation.getArgument(1));
+                return (long) sharedList.size();
+            }
+        });
+        doAnswer(invocation -> {
+            synchronized (sharedList) {
+                long end = invocation.getArgument(2);
+                while (sharedList.size() > end + 1) {
+                    sharedList.removeLast();
+                }
+            }
+            return null;
+        }).when(listOps).trim(eq(BigScreenService.LIVE_EVENTS_KEY), anyLong(), anyLong());
+        when(listOps.range(eq(BigScreenService.LIVE_EVENTS_KEY), anyLong(), anyLong())).thenAnswer(invocation -> {
+            synchronized (sharedList) {
+                long end = invocation.getArgument(2);
+                return new ArrayList<>(sharedList.subList(0, (int) Math.min(sharedList.size(), end + 1)));
+            }
+        });
+        redis = mock(StringRedisTemplate.class);
+        when(redis.opsForList()).thenReturn(listOps);
+    }
+
+    private BigScreenService newInstance(boolean clustered) {
+        BigScreenService service = new BigScreenService();
+        ReflectionTestUtils.setField(service, "eventPublisher", mock(ApplicationEventPublisher.class));
+        ReflectionTestUtils.setField(service, "pushDebounceMs", 300L);
+        ReflectionTestUtils.setField(service, "pushMaxDelayMs", 2000L);
+        if (clustered) {
+            ReflectionTestUtils.setField(service, "listenerContainer", mock(RedisMessageListenerContainer.class));
+            ReflectionTestUtils.setField(service, "stringRedisTemplate", redis);
+        }
+        return service;
+    }
+
+    private static DomainEvent approved(long achievementId, String team) {
+        return new DomainEvent(BigScreenServiceTest.class, DomainEvent.Type.ACHIEVEMENT_APPROVED, 1L, team, "red",
+                Map.of("achievementId", achievementId));
+    }
+
+    @Test
+    void eventsFromPeerInstanceAppearInLiveEvents() {
+        BigScreenService producer = newInstance(true);
+        BigScreenService relay = newInstance(true);
+
+        relay.onDomainEvent(approved(7L, "红队A"));
+
+        List<Map<String, Object>> events = producer.getLiveEvents();
+        assertThat(events).hasSize(1);
+        assertThat(events.get(0))
+                .containsEntry("type", "ACHIEVEMENT_APPROVED")
+                .containsEntry("teamName", "红队A")
+                .containsEntry("achievementId", 7)
+                .containsKey("time");
+        assertThat(relay.getLiveEvents()).isEqualTo(events);
+    }
+
+    @Test
+    void sharedFeedKeepsNewestEventsFirstAndIsCapped() {
+        BigScreenService first = newInstance(true);
+        BigScreenService second = newInstance(true);
+
+        for (long i = 1; i <= 60; i++) {
+            (i % 2 == 0 ? first : second).onDomainEvent(approved(i, "红队" + i));
+        }
+
+        List<Map<String, Object>> events = first.getLiveEvents();
+        assertThat(events).hasSize(50);
+        assertThat(events.get(0)).containsEntry("achievementId", 60);
+        assertThat(events.get(49)).containsEntry("achievementId", 11);
+        assertThat(second.getLiveEvents()).isEqualTo(events);
+    }
+
+    @Test
+    void standaloneInstanceKeepsLocalFeed() {
+        BigScreenService standalone = newInstance(false);
+
+        standalone.onDomainEvent(approved(3L, "红队B"));
+
+        assertThat(standalone.getLiveEvents()).hasSize(1);
+        assertThat(sharedList).isEmpty();
+    }
+}
@@ -0,0 +1,336 @@
+package org.cyberlab.service;
+
+import org.cyberlab.entity.TeamScore;
+import org.cyberlab.repository.ScoreLedgerRepository;
+import org.cyberlab.repository.TeamScoreRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.redis.connection.DefaultMessage;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.data.redis.listener.Topic;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * 计分并发压力测试：100 个审批并行提交，与定时写回交错执行，不丢失、不重复计分
+ *
+ * 台账与 team_scores 用内存实现模拟数据库的原子语义：
+ * INSERT IGNORE（putIfAbsent）、比较并交换改分（replace）、相对更新（total_score = total_score + ?）
+ */
+class ScoringServiceConcurrencyTest {
+
+    private static final long RANGE_ID = 1L;
+    private static final int APPROVALS = 100;
+    private static final String[] TEAMS = {"红队1", "红队2", "红队3", "红队4"};
+
+    private final Map<Long, LedgerRow> ledger = new ConcurrentHashMap<>();
+    private final Map<Long, TeamScore> teamScores = new ConcurrentHashMap<>();
+    private final AtomicLong teamScoreIds = new AtomicLong();
+    /**
+     * 模拟 Redis 发布/订阅：消息同步投递给所有订阅者（含发布者，由服务自行忽略）
+     */
+    private final List<MessageListener> subscribers = new CopyOnWriteArrayList<>();
+
+    private ScoreLedgerRepository scoreLedgerRepo;
+    private TeamScoreRepository teamScoreRepo;
+
+    /**
+     * 台账行（不可变，改分时整体替换）
+     */
+    private static final class LedgerRow {
+        final long rangeId;
+        final String teamName;
+        final String teamType;
+        final int score;
+        final LocalDateTime createdAt;
+
+        LedgerRow(long rangeId, String teamName, String teamType, int score, LocalDateTime createdAt) {
+            this.rangeId = rangeId;
+            this.teamName = teamName;
+            this.teamType = teamType;
+            this.score = score;
+            this.createdAt = createdAt;
+        }
+
+        LedgerRow withScore(int newScore) {
+            return new LedgerRow(rangeId, teamName, teamType, newScore, createdAt);
+        }
+    }
+
+    @BeforeEach
+    void setUp() {
+        scoreLedgerRepo = mock(ScoreLedgerRepository.class);
+        when(scoreLedgerRepo.insertIfAbsent(anyLong(), anyLong(), anyString(), anyString(), anyInt(), any()))
+                .thenAnswer(invocation -> ledger.putIfAbsent(invocation.getArgument(0), new LedgerRow(
+                        invocation.getArgument(1), invocation.getArgument(2), invocation.getArgument(3),
+                        invocation.getArgument(4), invocation.getArgument(5))) == null ? 1 : 0);
+        when(scoreLedgerRepo.findEntry(anyLong())).thenAnswer(invocation -> {
+            LedgerRow row = ledger.get(invocation.<Long>getArgument(0));
+            return row == null ? List.of()
+                    : List.<Object[]>of(new Object[]{row.rangeId, row.teamName, row.teamType, row.score});
+        });
+        when(scoreLedgerRepo.updateScore(anyLong(), anyInt(), anyInt())).thenAnswer(invocation -> {
+            Long id = invocation.getArgument(0);
+            int expected = invocation.getArgument(1);
+            LedgerRow row = ledger.get(id);
+            return row != null && row.score == expected
+                    && ledger.replace(id, row, row.withScore(invocation.getArgument(2))) ? 1 : 0;
+        });
+        when(scoreLedgerRepo.sumScoresGroupByRangeAndTeam()).thenAnswer(invocation -> {
+            Map<String, Object[]> totals = new TreeMap<>();
+            for (LedgerRow row : ledger.values()) {
+                Object[] total = totals.computeIfAbsent(row.rangeId + "|" + row.teamName,
+                        key -> new Object[]{row.rangeId, row.teamName, row.teamType, 0L, 0L, row.createdAt});
+                total[3] = (Long) total[3] + row.score;
+                total[4] = (Long) total[4] + 1;
+            }
+            return new ArrayList<>(totals.values());
+        });
+        when(scoreLedgerRepo.sumScoresByRangeAndTeam(anyLong(), anyString())).thenAnswer(invocation -> {
+            Object[] total = {null, null, 0L, null};
+            for (LedgerRow row : ledger.values()) {
+                if (row.rangeId == invocation.<Long>getArgument(0) && row.teamName.equals(invocation.getArgument(1))) {
+                    total[0] = row.teamType;
+                    total[1] = (total[1] == null ? 0L : (Long) total[1]) + row.score;
+                    total[2] = (Long) total[2] + 1;
+                    total[3] = total[3] == null || row.createdAt.isAfter((LocalDateTime) total[3]) ? row.createdAt : total[3];
+                }
+            }
+            return List.<Object[]>of(total);
+        });
+
+        teamScoreRepo = mock(TeamScoreRepository.class);
+        when(teamScoreRepo.findAll()).thenAnswer(invocation -> new ArrayList<>(teamScores.values()));
+        when(teamScoreRepo.findByTeamNameAndRangeId(anyString(), anyLong())).thenAnswer(invocation ->
+                teamScores.values().stream()
+                        .filter(row -> row.getTeamName().equals(invocation.getArgument(0))
+                                && row.getRangeId().equals(invocation.getArgument(1)))
+                        .findFirst());
+        when(teamScoreRepo.save(any(TeamScore.class))).thenAnswer(invocation -> {
+            TeamScore row = invocation.getArgument(0);
+            row.setId(teamScoreIds.incrementAndGet());
+            teamScores.put(row.getId(), row);
+            return row;
+        });
+        when(teamScoreRepo.addScore(anyLong(), anyInt(), anyInt(), any())).thenAnswer(invocation -> {
+            TeamScore row = teamScores.get(invocation.<Long>getArgument(0));
+            synchronized (row) {
+                row.setTotalScore(row.getTotalScore() + invocation.<Integer>getArgument(1));
+                row.setApprovedCount(row.getApprovedCount() + invocation.<Integer>getArgument(2));
+            }
+            return 1;
+        });
+        when(teamScoreRepo.updateRanking(anyLong(), any())).thenAnswer(invocation -> {
+            teamScores.get(invocation.<Long>getArgument(0)).setRanking(invocation.getArgument(1));
+            return 1;
+        });
+    }
+
+    private ScoringService newService() {
+        ScoringService service = new ScoringService();
+        ReflectionTestUtils.setField(service, "scoreLedgerRepo", scoreLedgerRepo);
+        ReflectionTestUtils.setField(service, "teamScoreRepo", teamScoreRepo);
+        ReflectionTestUtils.setField(service, "eventPublisher", mock(ApplicationEventPublisher.class));
+        service.replay();
+        return service;
+    }
+
+    /**
+     * 多实例部署的一个实例（共享台账与 team_scores）
+     */
+    private ScoringService newClusterService() {
+        ScoringService service = new ScoringService();
+        RedisMessageListenerContainer container = mock(RedisMessageListenerContainer.class);
+        doAnswer(invocation -> subscribers.add(invocation.getArgument(0)))
+                .when(container).addMessageListener(any(MessageListener.class), any(Topic.class));
+        StringRedisTemplate template = mock(StringRedisTemplate.class);
+        doAnswer(invocation -> {
+            byte[] channel = invocation.<String>getArgument(0).getBytes(StandardCharsets.UTF_8);
+            byte[] body = invocation.<String>getArgument(1).getBytes(StandardCharsets.UTF_8);
+            subscribers.forEach(listener -> listener.onMessage(new DefaultMessage(channel, body), null));
+            return (long) subscribers.size();
+        }).when(template).convertAndSend(anyString(), any());
+        ReflectionTestUtils.setField(service, "listenerContainer", container);
+        ReflectionTestUtils.setField(service, "stringRedisTemplate", template);
+        ReflectionTestUtils.setField(service, "scoreLedgerRepo", scoreLedgerRepo);
+        ReflectionTestUtils.setField(service, "teamScoreRepo", teamScoreRepo);
+        ReflectionTestUtils.setField(service, "eventPublisher", mock(ApplicationEventPublisher.class));
+        service.replay();
+        return service;
+    }
+
+    /**
+     * 模拟定时写回的事务：执行写回后按提交处理事务同步回调
+     */
+    private static void flush(ScoringService service) {
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            service.flushScores();
+            for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+                synchronization.afterCompletion(TransactionSynchronization.STATUS_COMMITTED);
+            }
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    /**
+     * 100 个任务同时开始执行，期间另一线程持续写回
+     */
+    private static void runConcurrently(ScoringService service, List<Callable<Boolean>> tasks) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(16);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicBoolean done = new AtomicBoolean();
+        Thread flusher = new Thread(() -> {
+            while (!done.get()) {
+                flush(service);
+            }
+        });
+        try {
+            List<Future<Boolean>> futures = new ArrayList<>();
+            for (Callable<Boolean> task : tasks) {
+                futures.add(pool.submit(() -> {
+                    start.await();
+                    return task.call();
+                }));
+            }
+            flusher.start();
+            start.countDown();
+            for (Future<Boolean> future : futures) {
+                future.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            done.set(true);
+            flusher.join(10000);
+            pool.shutdownNow();
+        }
+        flush(service);
+    }
+
+    private TeamScore persisted(String teamName) {
+        return teamScoreRepo.findByTeamNameAndRangeId(teamName, RANGE_ID).orElseThrow();
+    }
+
+    @Test
+    void parallelApprovalsLoseNoUpdates() throws Exception {
+        ScoringService service = newService();
+        List<Callable<Boolean>> tasks = new ArrayList<>();
+        Map<String, Integer> expected = new HashMap<>();
+        for (int i = 1; i <= APPROVALS; i++) {
+            long achievementId = i;
+            String team = TEAMS[i % TEAMS.length];
+            int score = 10 + i % 7;
+            expected.merge(team, score, Integer::sum);
+            tasks.add(() -> service.updateTeamScore(achievementId, team, RANGE_ID, score, "red"));
+        }
+
+        runConcurrently(service, tasks);
+
+        for (String team : TEAMS) {
+            TeamScore inMemory = service.getTeamScore(team, RANGE_ID).orElseThrow();
+            assertThat(inMemory.getTotalScore()).as(team).isEqualTo(expected.get(team));
+            assertThat(inMemory.getApprovedCount()).as(team).isEqualTo(APPROVALS / TEAMS.length);
+            assertThat(persisted(team).getTotalScore()).as(team).isEqualTo(expected.get(team));
+            assertThat(persisted(team).getApprovedCount()).as(team).isEqualTo(APPROVALS / TEAMS.length);
+        }
+        assertThat(teamScores).hasSize(TEAMS.length);
+    }
+
+    @Test
+    void parallelDuplicateApprovalsScoreOnce() throws Exception {
+        ScoringService service = newService();
+        List<Callable<Boolean>> tasks = new ArrayList<>();
+        for (int i = 0; i < APPROVALS; i++) {
+            tasks.add(() -> service.updateTeamScore(42L, TEAMS[0], RANGE_ID, 50, "red"));
+        }
+
+        runConcurrently(service, tasks);
+
+        assertThat(service.getTeamScore(TEAMS[0], RANGE_ID).orElseThrow().getTotalScore()).isEqualTo(50);
+        assertThat(persisted(TEAMS[0]).getTotalScore()).isEqualTo(50);
+        assertThat(persisted(TEAMS[0]).getApprovedCount()).isEqualTo(1);
+    }
+
+    @Test
+    void parallelReapprovalsWithChangedScoreFollowLedger() throws Exception {
+        ScoringService service = newService();
+        service.updateTeamScore(7L, TEAMS[0], RANGE_ID, 30, "red");
+        service.updateTeamScore(8L, TEAMS[0], RANGE_ID, 20, "red");
+        List<Callable<Boolean>> tasks = new ArrayList<>();
+        for (int i = 0; i < APPROVALS; i++) {
+            int score = 10 + i;
+            tasks.add(() -> service.updateTeamScore(7L, TEAMS[0], RANGE_ID, score, "red"));
+        }
+
+        runConcurrently(service, tasks);
+
+        int expected = ledger.get(7L).score + 20;
+        assertThat(service.getTeamScore(TEAMS[0], RANGE_ID).orElseThrow().getTotalScore()).isEqualTo(expected);
+        assertThat(persisted(TEAMS[0]).getTotalScore()).isEqualTo(expected);
+        assertThat(persisted(TEAMS[0]).getApprovedCount()).isEqualTo(2);
+
+        // 重启后按台账重放，与写回结果一致
+        ScoringService restarted = newService();
+        TeamScore replayed = restarted.getTeamScore(TEAMS[0], RANGE_ID).orElseThrow();
+        assertThat(replayed.getTotalScore()).isEqualTo(expected);
+        assertThat(replayed.getApprovedCount()).isEqualTo(2);
+    }
+
+    @Test
+    void clusterInstancesConvergeOnLedgerWithoutDoubleWrites() throws Exception {
+        ScoringService first = newClusterService();
+        ScoringService second = newClusterService();
+        List<Callable<Boolean>> tasks = new ArrayList<>();
+        Map<String, Integer> expected = new HashMap<>();
+        for (int i = 1; i <= APPROVALS; i++) {
+            long achievementId = i;
+            String team = TEAMS[i % TEAMS.length];
+            int score = 10 + i % 7 + (i % 3 == 0 ? 5 : 0);
+            ScoringService instance = i % 3 == 0 ? second : first;
+            expected.merge(team, score, Integer::sum);
+            tasks.add(() -> {
+                boolean changed = instance.updateTeamScore(achievementId, team, RANGE_ID, score, "red");
+                if (achievementId % 10 == 0) {
+                    instance.publishChanges();
+                    flush(instance);
+                }
+                return changed;
+            });
+        }
+
+        runConcurrently(first, tasks);
+        second.publishChanges();
+        first.publishChanges();
+        flush(first);
+        flush(second);
+
+        List<String> order = first.getTeamRanking(RANGE_ID, "red").stream().map(TeamScore::getTeamName).toList();
+        assertThat(second.getTeamRanking(RANGE_ID, "red").stream().map(TeamScore::getTeamName).toList()).isEqualTo(order);
+        for (String team : TEAMS) {
+            TeamScore persisted = persisted(team);
+            assertThat(first.getTeamScore(team, RANGE_ID).orElseThrow().getTotalScore()).as(team).isEqualTo(expected.get(team));
+            assertThat(second.getTeamScore(team, RANGE_ID).orElseThrow().getTotalScore()).as(team).isEqualTo(expected.get(team));
+            assertThat(persisted.getTotalScore()).as(team).isEqualTo(expected.get(team));
+            assertThat(persisted.getApprovedCount()).as(team).isEqualTo(APPROVALS / TEAMS.length);
+            assertThat(persisted.getRanking()).as(team).isEqualTo(order.indexOf(team) + 1);
+        }
+        assertThat(teamScores).hasSize(TEAMS.length);
+    }
+}
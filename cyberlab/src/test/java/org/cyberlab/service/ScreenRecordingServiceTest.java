@@ -0,0 +1,153 @@
+package org.cyberlab.service;
+
+import org.cyberlab.entity.ScreenRecording;
+import org.cyberlab.repository.ScreenRecordingRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * 录屏分片按序追加：乱序到达、重复上传、写入中途崩溃后重启恢复，最终文件与分片顺序拼接一致
+ */
+class ScreenRecordingServiceTest {
+
+    private static final String SESSION_ID = "session-1";
+
+    @TempDir
+    Path uploadDir;
+
+    private ScreenRecording recording;
+    private ScreenRecordingRepository repository;
+
+    @BeforeEach
+    void setUp() {
+        recording = new ScreenRecording(1L, "alice", SESSION_ID);
+        recording.setStartTime(LocalDateTime.of(2026, 1, 1, 10, 0));
+        recording.setStatus("recording");
+        repository = mock(ScreenRecordingRepository.class);
+        when(repository.findBySessionId(SESSION_ID)).thenReturn(Optional.of(recording));
+        when(repository.incrementChunkCount(eq(SESSION_ID), anyString(), any())).thenAnswer(invocation -> {
+            recording.setChunkCount(recording.getChunkCount() + 1);
+            return 1;
+        });
+        when(repository.save(any(ScreenRecording.class))).thenAnswer(invocation -> invocation.getArgument(0));
+    }
+
+    /**
+     * 新实例模拟服务重启（内存中的追加进度丢失）
+     */
+    private ScreenRecordingService newInstance() {
+        ScreenRecordingService service = new ScreenRecordingService();
+        ReflectionTestUtils.setField(service, "screenRecordingRepository", repository);
+        ReflectionTestUtils.setField(service, "uploadBasePath", uploadDir.toString());
+        return service;
+    }
+
+    private static byte[] chunk(int index) {
+        return ("chunk-" + index + "|").repeat(100 + index).getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static void upload(ScreenRecordingService service, int index) throws IOException {
+        service.uploadChunk(SESSION_ID, index, new MockMultipartFile("file", chunk(index)), 0L);
+    }
+
+    private static byte[] expected(int count) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (int i = 0; i < count; i++) {
+            out.write(chunk(i));
+        }
+        return out.toByteArray();
+    }
+
+    private Path partialFile() throws IOException {
+        try (var files = Files.walk(uploadDir)) {
+            return files.filter(path -> path.toString().endsWith(".webm.part")).findFirst().orElseThrow();
+        }
+    }
+
+    private byte[] finish(ScreenRecordingService service) throws IOException {
+        ScreenRecording completed = service.stopRecording(SESSION_ID, LocalDateTime.of(2026, 1, 1, 10, 5));
+        return Files.readAllBytes(Path.of(completed.getFilePath()));
+    }
+
+    @Test
+    void outOfOrderAndDuplicateChunksAssembleInOrder() throws Exception {
+        ScreenRecordingService service = newInstance();
+
+        for (int index : new int[]{0, 2, 3, 2, 1, 0, 5, 4}) {
+            upload(service, index);
+        }
+
+        assertThat(finish(service)).isEqualTo(expected(6));
+    }
+
+    @Test
+    void restartDiscardsBytesWrittenWithoutRecordedProgress() throws Exception {
+        ScreenRecordingService service = newInstance();
+        upload(service, 0);
+        upload(service, 1);
+
+        // 崩溃：分片 2 写了一半，进度尚未记录，客户端未收到成功响应
+        Files.write(partialFile(), Arrays.copyOf(chunk(2), chunk(2).length / 2), StandardOpenOption.APPEND);
+
+        ScreenRecordingService restarted = newInstance();
+        upload(restarted, 2);
+        upload(restarted, 3);
+
+        assertThat(finish(restarted)).isEqualTo(expected(4));
+    }
+
+    @Test
+    void restartKeepsHeldChunksAndIgnoresRetriedChunks() throws Exception {
+        ScreenRecordingService service = newInstance();
+        upload(service, 0);
+        upload(service, 2);
+        upload(service, 3);
+
+        ScreenRecordingService restarted = newInstance();
+        upload(restarted, 0);
+        upload(restarted, 1);
+        upload(restarted, 3);
+
+        assertThat(finish(restarted)).isEqualTo(expected(4));
+    }
+
+    @Test
+    void shortChunkIsRejectedAndTruncated() throws Exception {
+        ScreenRecordingService service = newInstance();
+        upload(service, 0);
+        long sizeBefore = Files.size(partialFile());
+
+        MockMultipartFile truncated = new MockMultipartFile("file", Arrays.copyOf(chunk(1), 10)) {
+            @Override
+            public long getSize() {
+                return chunk(1).length;
+            }
+        };
+        assertThatThrownBy(() -> service.uploadChunk(SESSION_ID, 1, truncated, 0L)).isInstanceOf(IOException.class);
+        assertThat(Files.size(partialFile())).isEqualTo(sizeBefore);
+
+        upload(service, 1);
+        assertThat(finish(service)).isEqualTo(expected(2));
+    }
+}